@@ -0,0 +1,86 @@
+package com.spring5.movieservice.common.fault;
+
+import com.spring5.fault.FaultInjector;
+import com.spring5.fault.FaultRule;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Applies the inbound fault rules to requests this service serves, before anything else handles them:
+ * the delay is waited without holding a thread, an injected error never reaches the handler, and a slow
+ * body is streamed in flushed chunks. Injected responses carry an X-Fault-Injected header.
+ */
+@Component
+public class FaultInjectionFilter implements WebFilter, Ordered {
+
+    private final FaultInjector faultInjector;
+
+    @Autowired
+    public FaultInjectionFilter(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!faultInjector.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        FaultRule rule = faultInjector.inboundRule(exchange.getRequest().getPath().value());
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Duration delay = rule.sampleDelay(random);
+        boolean error = rule.sampleError(random);
+        Mono<Void> handled = Mono.defer(() -> {
+            ServerHttpResponse response = exchange.getResponse();
+            if (error) {
+                response.setStatusCode(rule.getErrorStatus());
+                response.getHeaders().set(FaultInjector.HEADER, "error");
+                return response.setComplete();
+            }
+            if (!rule.slowsBody()) {
+                if (!delay.isZero()) {
+                    response.getHeaders().set(FaultInjector.HEADER, "latency");
+                }
+                return chain.filter(exchange);
+            }
+            response.getHeaders().set(FaultInjector.HEADER, delay.isZero() ? "slow-body" : "latency,slow-body");
+            return chain.filter(exchange.mutate().response(slowBody(response, rule)).build());
+        });
+        return delay.isZero() ? handled : Mono.delay(delay).then(handled);
+    }
+
+    private static ServerHttpResponse slowBody(ServerHttpResponse response, FaultRule rule) {
+        return new ServerHttpResponseDecorator(response) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return super.writeAndFlushWith(rule.slowBody(body).map(Mono::just));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                return super.writeAndFlushWith(Flux.from(body).concatMap(rule::slowBody).map(Mono::just));
+            }
+        };
+    }
+}
@@ -6,6 +6,7 @@ import com.spring5.movieservice.domain.exception.InvalidInputException;
 import com.spring5.movieservice.domain.exception.NotFoundException;
 import com.spring5.movieservice.domain.repository.UserRepository;
 import com.spring5.movieservice.domain.service.*;
+import com.spring5.movieservice.gateway.RecommendationEventPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,18 +27,21 @@ public class AuthServiceImpl implements AuthService {
     private final JwtUtil jwtUtil;
     private final BCryptPasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final RecommendationEventPublisher recommendationEventPublisher;
 
     @Autowired
     public AuthServiceImpl(
             UserRepository userRepository,
             UserMapper userMapper,
             JwtUtil jwtUtil,
-            EmailService emailService) {
+            EmailService emailService,
+            RecommendationEventPublisher recommendationEventPublisher) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.jwtUtil = jwtUtil;
         this.passwordEncoder = new BCryptPasswordEncoder();
         this.emailService = emailService;
+        this.recommendationEventPublisher = recommendationEventPublisher;
     }
 
     @Override
@@ -101,6 +105,12 @@ public class AuthServiceImpl implements AuthService {
                                 return response;
                             });
                 })
+                // The frontend asks for recommendations right after login; have them computed by then
+                .doOnSuccess(response -> {
+                    if (response != null) {
+                        recommendationEventPublisher.userLoggedIn(response.getUser().getUserID());
+                    }
+                })
                 .log(LOG.getName(), Level.FINE);
     }
 
@@ -12,6 +12,7 @@ import com.spring5.movieservice.domain.service.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -28,6 +29,7 @@ public class BookingServiceImpl implements BookingService {
     private final BookingMapper bookingMapper;
     private final TaxCalculator taxCalculator;
     private final ServiceUtil serviceUtil;
+    private final TransactionalOperator transactionalOperator;
 
     @Autowired
     public BookingServiceImpl(
@@ -35,12 +37,14 @@ public class BookingServiceImpl implements BookingService {
             TheaterMovieRepository theaterMovieRepository,
             BookingMapper bookingMapper,
             TaxCalculator taxCalculator,
-            ServiceUtil serviceUtil) {
+            ServiceUtil serviceUtil,
+            TransactionalOperator transactionalOperator) {
         this.bookingRepository = bookingRepository;
         this.theaterMovieRepository = theaterMovieRepository;
         this.bookingMapper = bookingMapper;
         this.taxCalculator = taxCalculator;
         this.serviceUtil = serviceUtil;
+        this.transactionalOperator = transactionalOperator;
     }
 
     @Override
@@ -102,13 +106,13 @@ public class BookingServiceImpl implements BookingService {
                             .reservationExpiresAt(LocalDateTime.now().plusMinutes(10)) // 10 minutes reservation
                             .build();
 
-                    return bookingRepository.save(bookingEntity)
-                            .flatMap(savedBooking -> {
-                                // Update available seats
-                                theaterMovie.setAvailableSeats(availableSeats - request.getNumberOfSeats());
-                                return theaterMovieRepository.save(theaterMovie)
-                                        .then(Mono.just(savedBooking));
-                            })
+                    // Take the seats in one conditional UPDATE; writing back the count read above would lose
+                    // concurrent bookings. Seats and booking commit together, so a failed save takes no seats.
+                    return theaterMovieRepository.reserveSeats(request.getTheaterMovieId(), request.getNumberOfSeats())
+                            .flatMap(reserved -> reserved == 0
+                                    ? Mono.<BookingEntity>error(new InvalidInputException("Not enough seats available"))
+                                    : bookingRepository.save(bookingEntity))
+                            .as(transactionalOperator::transactional)
                             .map((BookingEntity be) -> bookingMapper.entityToApi(be))
                             .log(LOG.getName(), Level.FINE);
                 });
@@ -146,17 +150,17 @@ public class BookingServiceImpl implements BookingService {
                         return Mono.error(new InvalidInputException("Booking cannot be cancelled"));
                     }
                     
-                    booking.setStatus("CANCELLED");
-                    
-                    // Restore available seats
-                    return theaterMovieRepository.findById(booking.getTheaterMovieId())
-                            .flatMap(theaterMovie -> {
-                                int currentAvailable = theaterMovie.getAvailableSeats() != null ? theaterMovie.getAvailableSeats() : 0;
-                                theaterMovie.setAvailableSeats(currentAvailable + booking.getNumberOfSeats());
-                                return theaterMovieRepository.save(theaterMovie);
-                            })
-                            .then(bookingRepository.save(booking))
-                            .map(bookingMapper::entityToApi);
+                    // Only the call that flips the status gives the seats back, so concurrent cancellations
+                    // of one booking restore its seats once; both updates commit together
+                    return bookingRepository.cancel(bookingId)
+                            .flatMap(cancelled -> cancelled == 0
+                                    ? Mono.<Integer>error(new InvalidInputException("Booking cannot be cancelled"))
+                                    : theaterMovieRepository.releaseSeats(booking.getTheaterMovieId(), booking.getNumberOfSeats()))
+                            .as(transactionalOperator::transactional)
+                            .then(Mono.fromSupplier(() -> {
+                                booking.setStatus("CANCELLED");
+                                return bookingMapper.entityToApi(booking);
+                            }));
                 })
                 .log(LOG.getName(), Level.FINE);
     }
@@ -104,7 +104,11 @@ public class DynamicPricingServiceImpl implements DynamicPricingService {
                                             showtime.setBasePrice(basePrice);
                                         }
 
-                                        return theaterMovieRepository.save(showtime)
+                                        // Only the pricing columns: saving the whole row would write back the
+                                        // seat count read above over bookings made since
+                                        return theaterMovieRepository.updatePricing(theaterMovieId, newPrice, predictedDemand,
+                                                        showtime.getBasePrice(), showtime.getLastPriceUpdate())
+                                                .thenReturn(showtime)
                                                 .flatMap(updated -> {
                                                     DynamicPricing pricing = new DynamicPricing();
                                                     pricing.setTheaterMovieId(theaterMovieId);
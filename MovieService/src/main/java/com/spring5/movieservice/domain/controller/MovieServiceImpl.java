@@ -8,15 +8,19 @@ import com.spring5.movieservice.domain.repository.MovieRepository;
 import com.spring5.movieservice.domain.service.Movie;
 import com.spring5.movieservice.domain.service.MovieMapper;
 import com.spring5.movieservice.domain.service.MovieService;
+import com.spring5.movieservice.gateway.RecommendationScoringClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.*;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 @RestController
 public class MovieServiceImpl implements MovieService {
@@ -25,12 +29,28 @@ public class MovieServiceImpl implements MovieService {
     private final ServiceUtil serviceUtil;
     private final MovieRepository repository;
     private final MovieMapper movieMapper;
+    private final RecommendationScoringClient scoringClient;
+
+    // Personalized search scores the most popular matches only, in batches of this size
+    @Value("${search.personalized.max-candidates:2000}")
+    private int maxCandidates = 2000;
+
+    @Value("${search.personalized.batch-size:250}")
+    private int batchSize = 250;
+
+    @Value("${search.personalized.concurrency:4}")
+    private int concurrency = 4;
+
+    @Value("${search.personalized.default-limit:20}")
+    private int defaultLimit = 20;
 
     @Autowired
-    public MovieServiceImpl(MovieRepository repository, MovieMapper mapper, ServiceUtil serviceUtil) {
+    public MovieServiceImpl(MovieRepository repository, MovieMapper mapper, ServiceUtil serviceUtil,
+                            RecommendationScoringClient scoringClient) {
         this.repository = repository;
         this.movieMapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.scoringClient = scoringClient;
     }
 
     @Override
@@ -81,9 +101,62 @@ public class MovieServiceImpl implements MovieService {
     }
 
     @Override
-    public Flux<Movie> searchMovies(String query) {
+    public Flux<Movie> searchMovies(String query, Integer userId, Integer offset, Integer limit) {
+        if (offset < 0) {
+            throw new InvalidInputException("Invalid offset: " + offset);
+        }
+        if (limit != null && limit < 1) {
+            throw new InvalidInputException("Invalid limit: " + limit);
+        }
+        if (userId != null) {
+            return personalizedSearch(query, userId, offset, limit != null ? limit : defaultLimit);
+        }
+
         LOG.info("Searching movies with query: {}", query);
-        return repository.findByTitleContainingIgnoreCase(query)
+        Flux<MovieEntity> matches = repository.findByTitleContainingIgnoreCase(query).skip(offset);
+        return (limit != null ? matches.take(limit) : matches)
+                .log(LOG.getName(), Level.FINE)
+                .map(movieMapper::entityToApi)
+                .map(this::setServiceAddress);
+    }
+
+    /**
+     * Rank title matches by the user's affinity. Matches stream from the database most popular first
+     * and are scored in batches while later rows are still being read; only the best offset + limit are
+     * kept. If scoring is unavailable the popularity order is returned instead.
+     */
+    private Flux<Movie> personalizedSearch(String query, Integer userId, int offset, int limit) {
+        LOG.info("Personalized search for user {} with query: {}", userId, query);
+        int keep = offset + limit;
+        Comparator<ScoredMovie> byScore = Comparator.comparingDouble(ScoredMovie::getScore);
+
+        Flux<MovieEntity> popularFirst = repository.findByTitleContainingIgnoreCaseOrderByRatingDescTotalRatingsDesc(query);
+        return popularFirst
+                .take(maxCandidates)
+                .buffer(batchSize)
+                .flatMapSequential(batch -> {
+                    List<Integer> movieIds = batch.stream().map(MovieEntity::getMovieId).collect(Collectors.toList());
+                    return scoringClient.score(userId, movieIds)
+                            .flatMapIterable(scores -> batch.stream()
+                                    .map(movie -> new ScoredMovie(movie, scores.getOrDefault(movie.getMovieId(), 0.0)))
+                                    .collect(Collectors.toList()));
+                }, concurrency)
+                .collect(() -> new PriorityQueue<>(keep + 1, byScore), (PriorityQueue<ScoredMovie> best, ScoredMovie scored) -> {
+                    best.add(scored);
+                    if (best.size() > keep) {
+                        best.poll(); // drop the current worst
+                    }
+                })
+                .flatMapIterable(best -> {
+                    List<ScoredMovie> ranked = new ArrayList<>(best);
+                    ranked.sort(byScore.reversed());
+                    return ranked.subList(Math.min(offset, ranked.size()), ranked.size());
+                })
+                .map(ScoredMovie::getMovie)
+                .onErrorResume(error -> {
+                    LOG.warn("Scoring unavailable for user {}, returning matches by popularity: {}", userId, error.getMessage());
+                    return popularFirst.skip(offset).take(limit);
+                })
                 .log(LOG.getName(), Level.FINE)
                 .map(movieMapper::entityToApi)
                 .map(this::setServiceAddress);
@@ -138,6 +211,22 @@ public class MovieServiceImpl implements MovieService {
         }
         return movie;
     }
-}
 
+    private static final class ScoredMovie {
+        private final MovieEntity movie;
+        private final double score;
+
+        private ScoredMovie(MovieEntity movie, double score) {
+            this.movie = movie;
+            this.score = score;
+        }
+
+        private MovieEntity getMovie() {
+            return movie;
+        }
 
+        private double getScore() {
+            return score;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.spring5.movieservice.domain.repository.RatingRepository;
 import com.spring5.movieservice.domain.service.Rating;
 import com.spring5.movieservice.domain.service.RatingMapper;
 import com.spring5.movieservice.domain.service.RatingService;
+import com.spring5.movieservice.gateway.RecommendationEventPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,12 +26,15 @@ public class RatingServiceImpl implements RatingService {
     private final RatingRepository ratingRepository;
     private final MovieRepository movieRepository;
     private final RatingMapper ratingMapper;
+    private final RecommendationEventPublisher recommendationEventPublisher;
 
     @Autowired
-    public RatingServiceImpl(RatingRepository ratingRepository, MovieRepository movieRepository, RatingMapper ratingMapper) {
+    public RatingServiceImpl(RatingRepository ratingRepository, MovieRepository movieRepository, RatingMapper ratingMapper,
+                             RecommendationEventPublisher recommendationEventPublisher) {
         this.ratingRepository = ratingRepository;
         this.movieRepository = movieRepository;
         this.ratingMapper = ratingMapper;
+        this.recommendationEventPublisher = recommendationEventPublisher;
     }
 
     @Override
@@ -64,7 +68,8 @@ public class RatingServiceImpl implements RatingService {
                 }))
                 .log(LOG.getName(), Level.FINE)
                 .map(ratingMapper::entityToApi)
-                .flatMap(this::updateMovieRating);
+                .flatMap(this::updateMovieRating)
+                .doOnSuccess(this::publishRatingChanged);
     }
 
     @Override
@@ -126,7 +131,8 @@ public class RatingServiceImpl implements RatingService {
                 .flatMap(ratingRepository::save)
                 .log(LOG.getName(), Level.FINE)
                 .map(ratingMapper::entityToApi)
-                .flatMap(this::updateMovieRating);
+                .flatMap(this::updateMovieRating)
+                .doOnSuccess(this::publishRatingChanged);
     }
 
     @Override
@@ -135,32 +141,25 @@ public class RatingServiceImpl implements RatingService {
             throw new InvalidInputException("Invalid RatingID: " + ratingId);
         }
 
+        // Look the rating up first: its user and movie are needed after it is gone
         return ratingRepository.findByRatingId(ratingId)
                 .log(LOG.getName(), Level.FINE)
-                .flatMap(ratingRepository::delete);
+                .flatMap(existing -> ratingRepository.delete(existing)
+                        .then(Mono.fromCallable(() -> ratingMapper.entityToApi(existing))))
+                .flatMap(this::updateMovieRating)
+                .doOnSuccess(this::publishRatingChanged)
+                .then();
+    }
+
+    private void publishRatingChanged(Rating rating) {
+        if (rating != null) {
+            recommendationEventPublisher.ratingChanged(rating.getUserId(), rating.getMovieId());
+        }
     }
 
     private Mono<Rating> updateMovieRating(Rating rating) {
-        // Update movie's average rating
-        return ratingRepository.findByMovieId(rating.getMovieId())
-                .collectList()
-                .flatMap(ratings -> {
-                    if (ratings.isEmpty()) {
-                        return Mono.just(rating);
-                    }
-                    double avgRating = ratings.stream()
-                            .mapToInt(RatingEntity::getRating)
-                            .average()
-                            .orElse(0.0);
-                    
-                    return movieRepository.findByMovieId(rating.getMovieId())
-                            .flatMap(movie -> {
-                                movie.setRating(avgRating);
-                                movie.setTotalRatings(ratings.size());
-                                return movieRepository.save(movie);
-                            })
-                            .then(Mono.just(rating));
-                });
+        // Aggregate in the database; loading every rating of a popular movie on each write does not scale
+        return movieRepository.refreshRatingSummary(rating.getMovieId())
+                .thenReturn(rating);
     }
 }
-
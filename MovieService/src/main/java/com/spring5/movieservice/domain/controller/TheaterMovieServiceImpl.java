@@ -1,8 +1,11 @@
 package com.spring5.movieservice.domain.controller;
 
+import com.spring5.movieservice.domain.entity.TheaterEntity;
 import com.spring5.movieservice.domain.entity.TheaterMovieEntity;
 import com.spring5.movieservice.domain.exception.InvalidInputException;
 import com.spring5.movieservice.domain.repository.TheaterMovieRepository;
+import com.spring5.movieservice.domain.repository.TheaterRepository;
+import com.spring5.movieservice.domain.service.ShowtimeAvailability;
 import com.spring5.movieservice.domain.service.TheaterMovie;
 import com.spring5.movieservice.domain.service.TheaterMovieMapper;
 import com.spring5.movieservice.domain.service.TheaterMovieService;
@@ -13,6 +16,8 @@ import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.logging.Level;
 
 @RestController
@@ -20,11 +25,13 @@ public class TheaterMovieServiceImpl implements TheaterMovieService {
 
     private static final Logger LOG = LoggerFactory.getLogger(TheaterMovieServiceImpl.class);
     private final TheaterMovieRepository repository;
+    private final TheaterRepository theaterRepository;
     private final TheaterMovieMapper mapper;
 
     @Autowired
-    public TheaterMovieServiceImpl(TheaterMovieRepository repository, TheaterMovieMapper mapper) {
+    public TheaterMovieServiceImpl(TheaterMovieRepository repository, TheaterRepository theaterRepository, TheaterMovieMapper mapper) {
         this.repository = repository;
+        this.theaterRepository = theaterRepository;
         this.mapper = mapper;
     }
 
@@ -81,6 +88,36 @@ public class TheaterMovieServiceImpl implements TheaterMovieService {
                 .log(LOG.getName(), Level.FINE)
                 .map(mapper::entityToApi);
     }
-}
 
+    @Override
+    public Flux<ShowtimeAvailability> getShowtimeAvailability(LocalDateTime from, LocalDateTime to, LocalDateTime updatedSince) {
+        if (from.isAfter(to)) {
+            throw new InvalidInputException("from must not be after to");
+        }
+
+        LOG.info("Getting showtime availability from {} to {} (updated since {})", from, to, updatedSince);
+        Flux<TheaterMovieEntity> showtimes = updatedSince == null
+                ? repository.findByShowTimeBetween(from, to)
+                : repository.findByShowTimeBetweenAndUpdatedAtAfter(from, to, updatedSince);
 
+        // Theaters are few: join in memory instead of one lookup per showtime
+        return theaterRepository.findAll()
+                .collectMap(TheaterEntity::getTheaterId)
+                .flatMapMany(theaters -> showtimes.map(showtime -> toAvailability(showtime, theaters)))
+                .log(LOG.getName(), Level.FINE);
+    }
+
+    private static ShowtimeAvailability toAvailability(TheaterMovieEntity showtime, Map<Integer, TheaterEntity> theaters) {
+        TheaterEntity theater = theaters.get(showtime.getTheaterId());
+        return new ShowtimeAvailability(
+                showtime.getId(),
+                showtime.getMovieId(),
+                showtime.getTheaterId(),
+                theater != null ? theater.getName() : null,
+                theater != null ? theater.getCity() : null,
+                showtime.getShowTime(),
+                showtime.getAvailableSeats(),
+                showtime.getDynamicPrice() != null ? showtime.getDynamicPrice() : showtime.getTicketPrice(),
+                showtime.getUpdatedAt());
+    }
+}
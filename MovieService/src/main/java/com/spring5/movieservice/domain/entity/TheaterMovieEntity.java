@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Table;
 
 import javax.validation.constraints.NotNull;
@@ -37,5 +38,8 @@ public class TheaterMovieEntity {
     private Integer availableSeats;
     private Integer totalSeats;
     private LocalDateTime lastPriceUpdate; // When price was last updated
+
+    @ReadOnlyProperty
+    private LocalDateTime updatedAt; // Maintained by the database on every change (seats, price, time)
 }
 
@@ -1,6 +1,9 @@
 package com.spring5.movieservice.domain.repository;
 
 import com.spring5.movieservice.domain.entity.BookingEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -13,6 +16,14 @@ public interface BookingRepository extends ReactiveCrudRepository<BookingEntity,
     Flux<BookingEntity> findByTheaterMovieId(Integer theaterMovieId);
     Flux<BookingEntity> findByBookingTimeBetween(LocalDateTime start, LocalDateTime end);
     Flux<BookingEntity> findByStatus(String status);
+
+    /**
+     * Cancel a booking unless it is already cancelled or completed; 1 if this call cancelled it, 0 if not
+     */
+    @Modifying
+    @Query("UPDATE bookings SET status = 'CANCELLED' "
+            + "WHERE booking_id = :bookingId AND status NOT IN ('CANCELLED', 'COMPLETED')")
+    Mono<Integer> cancel(@Param("bookingId") Integer bookingId);
 }
 
 
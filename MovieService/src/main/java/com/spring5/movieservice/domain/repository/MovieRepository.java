@@ -1,6 +1,9 @@
 package com.spring5.movieservice.domain.repository;
 
 import com.spring5.movieservice.domain.entity.MovieEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -9,7 +12,18 @@ public interface MovieRepository extends ReactiveCrudRepository<MovieEntity, Int
     Mono<MovieEntity> findByMovieId(Integer movieId);
     Flux<MovieEntity> findByGenreContaining(String genre);
     Flux<MovieEntity> findByTitleContainingIgnoreCase(String title);
+    Flux<MovieEntity> findByTitleContainingIgnoreCaseOrderByRatingDescTotalRatingsDesc(String title);
     Flux<MovieEntity> findAllByOrderByRatingDesc();
+
+    /**
+     * Recompute a movie's average rating and rating count from its ratings, in the database
+     */
+    @Modifying
+    @Query("UPDATE movies SET "
+            + "rating = COALESCE((SELECT AVG(r.rating * 1.0) FROM ratings r WHERE r.movie_id = :movieId), 0), "
+            + "total_ratings = (SELECT COUNT(*) FROM ratings r WHERE r.movie_id = :movieId) "
+            + "WHERE movie_id = :movieId")
+    Mono<Integer> refreshRatingSummary(@Param("movieId") Integer movieId);
 }
 
 
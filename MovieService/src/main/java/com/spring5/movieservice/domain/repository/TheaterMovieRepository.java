@@ -1,6 +1,9 @@
 package com.spring5.movieservice.domain.repository;
 
 import com.spring5.movieservice.domain.entity.TheaterMovieEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -12,6 +15,31 @@ public interface TheaterMovieRepository extends ReactiveCrudRepository<TheaterMo
     Flux<TheaterMovieEntity> findByMovieId(Integer movieId);
     Flux<TheaterMovieEntity> findByTheaterIdAndMovieId(Integer theaterId, Integer movieId);
     Flux<TheaterMovieEntity> findByShowTimeAfter(LocalDateTime showTime);
-}
+    Flux<TheaterMovieEntity> findByShowTimeBetween(LocalDateTime from, LocalDateTime to);
+    Flux<TheaterMovieEntity> findByShowTimeBetweenAndUpdatedAtAfter(LocalDateTime from, LocalDateTime to, LocalDateTime updatedSince);
+
+    /**
+     * Take seats if that many are still available, in one statement; 1 if they were taken, 0 if not
+     */
+    @Modifying
+    @Query("UPDATE theater_movies SET available_seats = available_seats - :seats "
+            + "WHERE id = :theaterMovieId AND available_seats >= :seats")
+    Mono<Integer> reserveSeats(@Param("theaterMovieId") Integer theaterMovieId, @Param("seats") Integer seats);
 
+    /**
+     * Give seats back, in one statement
+     */
+    @Modifying
+    @Query("UPDATE theater_movies SET available_seats = available_seats + :seats WHERE id = :theaterMovieId")
+    Mono<Integer> releaseSeats(@Param("theaterMovieId") Integer theaterMovieId, @Param("seats") Integer seats);
 
+    /**
+     * Write a new dynamic price without touching the seat counts, which bookings change concurrently
+     */
+    @Modifying
+    @Query("UPDATE theater_movies SET dynamic_price = :dynamicPrice, predicted_demand = :predictedDemand, "
+            + "base_price = :basePrice, last_price_update = :lastPriceUpdate WHERE id = :theaterMovieId")
+    Mono<Integer> updatePricing(@Param("theaterMovieId") Integer theaterMovieId, @Param("dynamicPrice") Double dynamicPrice,
+                                @Param("predictedDemand") Double predictedDemand, @Param("basePrice") Double basePrice,
+                                @Param("lastPriceUpdate") LocalDateTime lastPriceUpdate);
+}
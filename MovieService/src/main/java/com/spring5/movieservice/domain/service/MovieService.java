@@ -18,8 +18,15 @@ public interface MovieService {
     @GetMapping(value = "/movies/genre/{genre}", produces = "application/json")
     Flux<Movie> getMoviesByGenre(@PathVariable String genre);
 
+    /**
+     * Title search. With userId the matches are ranked by the user's predicted affinity and only
+     * the window [offset, offset + limit) of that ranking is returned; without it they come in database order.
+     */
     @GetMapping(value = "/movies/search", produces = "application/json")
-    Flux<Movie> searchMovies(@RequestParam String query);
+    Flux<Movie> searchMovies(@RequestParam String query,
+                             @RequestParam(required = false) Integer userId,
+                             @RequestParam(defaultValue = "0") Integer offset,
+                             @RequestParam(required = false) Integer limit);
 
     @GetMapping(value = "/movies/top-rated", produces = "application/json")
     Flux<Movie> getTopRatedMovies();
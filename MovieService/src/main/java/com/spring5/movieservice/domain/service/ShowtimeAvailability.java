@@ -0,0 +1,25 @@
+package com.spring5.movieservice.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact view of one showtime with its theater's location, for services that index availability
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShowtimeAvailability {
+    private Integer theaterMovieId;
+    private Integer movieId;
+    private Integer theaterId;
+    private String theaterName;
+    private String city;
+    private LocalDateTime showTime;
+    private Integer availableSeats;
+    private Double price; // Dynamic price if set, otherwise the ticket price
+    private LocalDateTime updatedAt;
+}
@@ -11,7 +11,7 @@ import org.springframework.stereotype.Component;
 public interface TheaterMovieMapper {
     TheaterMovie entityToApi(TheaterMovieEntity entity);
 
-    @Mappings({@Mapping(target = "id", ignore = true)})
+    @Mappings({@Mapping(target = "id", ignore = true), @Mapping(target = "updatedAt", ignore = true)})
     TheaterMovieEntity apiToEntity(TheaterMovie api);
 }
 
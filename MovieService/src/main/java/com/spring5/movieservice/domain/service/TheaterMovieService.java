@@ -1,9 +1,12 @@
 package com.spring5.movieservice.domain.service;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+
 public interface TheaterMovieService {
 
     @PostMapping(value = "/theater-movies", consumes = "application/json", produces = "application/json")
@@ -17,6 +20,16 @@ public interface TheaterMovieService {
 
     @GetMapping(value = "/theater-movies/theater/{theaterId}/movie/{movieId}", produces = "application/json")
     Flux<TheaterMovie> getTheaterMovieSchedule(@PathVariable Integer theaterId, @PathVariable Integer movieId);
+
+    /**
+     * Showtimes between from and to with their theater's city, including sold-out ones.
+     * With updatedSince only rows changed after it are returned, for incremental syncing.
+     */
+    @GetMapping(value = "/theater-movies/availability", produces = "application/json")
+    Flux<ShowtimeAvailability> getShowtimeAvailability(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince);
 }
 
 
@@ -1,5 +1,6 @@
 package com.spring5.movieservice.gateway;
 
+import com.spring5.fault.FaultInjectionExchangeFilter;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,8 +15,8 @@ public class GatewayConfig {
      */
     @Bean
     @LoadBalanced
-    public WebClient.Builder loadBalancedWebClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder loadBalancedWebClientBuilder(FaultInjectionExchangeFilter faultInjectionFilter) {
+        return WebClient.builder().filter(faultInjectionFilter);
     }
 
     /**
@@ -23,10 +24,10 @@ public class GatewayConfig {
      * Uses service name - LoadBalancer will resolve to available instances
      */
     @Bean(name = "recommendationWebClient")
-    public WebClient recommendationWebClient() {
+    public WebClient recommendationWebClient(FaultInjectionExchangeFilter faultInjectionFilter) {
         // Create WebClient without baseUrl since we'll construct full URIs manually
         // LoadBalancer is used via LoadBalancerClient for instance selection
-        return WebClient.builder().build();
+        return WebClient.builder().filter(faultInjectionFilter).build();
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.spring5.movieservice.gateway;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.DefaultServiceInstance;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
@@ -8,6 +9,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -16,11 +18,26 @@ public class LoadBalancerConfig {
 
     /**
      * Configure Recommendation Service instance(s)
-     * Currently single instance, but ready for horizontal scaling
+     * Instances come from recommendation.service.instances (host:port, comma separated).
+     * With item-partitioned sharding every instance can coordinate a fan-out, so all of them are listed here.
      */
     @Bean
     @Primary
-    public ServiceInstanceListSupplier recommendationServiceInstances() {
+    public ServiceInstanceListSupplier recommendationServiceInstances(
+            @Value("${recommendation.service.instances:recommendation-service:8083}") List<String> instances) {
+        List<ServiceInstance> serviceInstances = new ArrayList<>();
+        for (int i = 0; i < instances.size(); i++) {
+            String instance = instances.get(i).trim();
+            int separator = instance.lastIndexOf(':');
+            serviceInstances.add(new DefaultServiceInstance(
+                "recommendation-service-" + (i + 1),
+                "recommendation-service",
+                separator > 0 ? instance.substring(0, separator) : instance,  // Docker service name
+                separator > 0 ? Integer.parseInt(instance.substring(separator + 1)) : 8083,
+                false  // Not secure
+            ));
+        }
+
         return new ServiceInstanceListSupplier() {
             @Override
             public String getServiceId() {
@@ -29,23 +46,7 @@ public class LoadBalancerConfig {
 
             @Override
             public Flux<List<ServiceInstance>> get() {
-                return Flux.just(Arrays.asList(
-                    new DefaultServiceInstance(
-                        "recommendation-service-1",
-                        "recommendation-service",
-                        "recommendation-service",  // Docker service name
-                        8083,
-                        false  // Not secure
-                    )
-                    // Add more instances here when scaling:
-                    // new DefaultServiceInstance(
-                    //     "recommendation-service-2",
-                    //     "recommendation-service",
-                    //     "recommendation-service-2",
-                    //     8083,
-                    //     false
-                    // )
-                ));
+                return Flux.just(serviceInstances);
             }
         };
     }
@@ -0,0 +1,81 @@
+package com.spring5.movieservice.gateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tells recommendation-service that a user's ratings changed, or that they just logged in, so it can
+ * refresh or precompute their cached list before they ask for it. Fire-and-forget: the rating write or
+ * login never waits for or fails on this call. Each instance keeps its own cache, so every configured
+ * instance is notified.
+ */
+@Component
+public class RecommendationEventPublisher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecommendationEventPublisher.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final WebClient recommendationWebClient;
+    private final List<String> instances;
+
+    @Value("${recommendation.events.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${recommendation.events.login-warmup:true}")
+    private boolean loginWarmup = true;
+
+    @Autowired
+    public RecommendationEventPublisher(
+            @Qualifier("recommendationWebClient") WebClient recommendationWebClient,
+            @Value("${recommendation.service.instances:recommendation-service:8083}") List<String> instances) {
+        this.recommendationWebClient = recommendationWebClient;
+        this.instances = instances;
+    }
+
+    public void ratingChanged(Integer userId, Integer movieId) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Integer> event = new LinkedHashMap<>();
+        event.put("userId", userId);
+        event.put("movieId", movieId);
+        publish("/recommendations/events/rating", event, "Rating", userId);
+    }
+
+    public void userLoggedIn(Integer userId) {
+        if (!enabled || !loginWarmup || userId == null) {
+            return;
+        }
+        Map<String, Integer> event = new LinkedHashMap<>();
+        event.put("userId", userId);
+        publish("/recommendations/events/login", event, "Login", userId);
+    }
+
+    private void publish(String path, Map<String, Integer> event, String kind, Integer userId) {
+        for (String instance : instances) {
+            String uri = "http://" + instance.trim() + path;
+            recommendationWebClient.post()
+                    .uri(uri)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(event)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(TIMEOUT)
+                    .subscribe(
+                            response -> LOG.debug("{} event for user {} sent to {}", kind, userId, instance),
+                            error -> LOG.warn("{} event for user {} not delivered to {}: {}", kind, userId, instance, error.getMessage()));
+        }
+    }
+}
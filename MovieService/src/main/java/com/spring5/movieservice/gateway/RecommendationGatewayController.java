@@ -6,12 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -21,6 +24,9 @@ public class RecommendationGatewayController {
 
     private static final Logger LOG = LoggerFactory.getLogger(RecommendationGatewayController.class);
 
+    private static final ParameterizedTypeReference<ServerSentEvent<Object>> SERVER_SENT_EVENTS =
+            new ParameterizedTypeReference<ServerSentEvent<Object>>() { };
+
     private final WebClient recommendationWebClient;
     private final LoadBalancerClient loadBalancerClient;
 
@@ -99,6 +105,44 @@ public class RecommendationGatewayController {
         });
     }
 
+    /**
+     * Relay the progressive recommendation stream event by event instead of buffering it
+     * Example: /api/recommendations/user/4/stream?limit=10
+     */
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> routeRecommendationStream(
+            @PathVariable Integer userId,
+            ServerHttpRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+
+        String queryString = request.getURI().getQuery();
+        return Mono.fromCallable(() -> {
+            ServiceInstance instance = loadBalancerClient.choose("recommendation-service");
+            if (instance == null) {
+                throw new RuntimeException("No available instance for recommendation-service");
+            }
+            return instance;
+        })
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMapMany(instance -> {
+            String fullUri = String.format("http://%s:%d/recommendations/user/%d/stream%s",
+                    instance.getHost(),
+                    instance.getPort(),
+                    userId,
+                    queryString != null ? "?" + queryString : "");
+
+            LOG.info("Gateway: Streaming recommendations from: {}", fullUri);
+
+            return recommendationWebClient.get()
+                    .uri(fullUri)
+                    .header(HttpHeaders.AUTHORIZATION, authHeader != null ? authHeader : "")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .retrieve()
+                    .bodyToFlux(SERVER_SENT_EVENTS);
+        })
+        .doOnError(error -> LOG.error("Gateway: Error streaming recommendations", error));
+    }
+
     /**
      * Route POST requests to recommendation service (if needed)
      */
@@ -0,0 +1,69 @@
+package com.spring5.movieservice.gateway;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calls recommendation-service's batched scoring API (POST /recommendations/user/{userId}/scores)
+ */
+@Component
+public class RecommendationScoringClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(3);
+
+    private final WebClient recommendationWebClient;
+    private final LoadBalancerClient loadBalancerClient;
+
+    @Autowired
+    public RecommendationScoringClient(
+            @Qualifier("recommendationWebClient") WebClient recommendationWebClient,
+            LoadBalancerClient loadBalancerClient) {
+        this.recommendationWebClient = recommendationWebClient;
+        this.loadBalancerClient = loadBalancerClient;
+    }
+
+    /**
+     * The user's affinity for each movie (movieId -> score); errors are passed on so callers can fall back
+     */
+    public Mono<Map<Integer, Double>> score(Integer userId, List<Integer> movieIds) {
+        return Mono.fromCallable(() -> {
+                    ServiceInstance instance = loadBalancerClient.choose("recommendation-service");
+                    if (instance == null) {
+                        throw new IllegalStateException("No available instance for recommendation-service");
+                    }
+                    return instance;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(instance -> recommendationWebClient.post()
+                        .uri(String.format("http://%s:%d/recommendations/user/%d/scores",
+                                instance.getHost(), instance.getPort(), userId))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .bodyValue(Collections.singletonMap("movieIds", movieIds))
+                        .retrieve()
+                        .bodyToFlux(MovieAffinity.class)
+                        .collectMap(MovieAffinity::getMovieId, MovieAffinity::getScore)
+                        .timeout(TIMEOUT));
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class MovieAffinity {
+        private Integer movieId;
+        private Double score;
+    }
+}
@@ -0,0 +1,9 @@
+-- Adds theater_movies.updated_at, used by GET /theater-movies/availability?updatedSince=...,
+-- to databases created before the column was part of schema.sql.
+-- schema.sql only runs when the MySQL volume is first initialised, so existing databases need this once.
+-- Existing rows get the time of the migration, which the next sync treats as one change.
+-- Fails with "Duplicate column name 'updated_at'" and changes nothing if it has already been applied.
+ALTER TABLE theater_movies
+    ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)
+        COMMENT 'Last change, for incremental availability sync' AFTER last_price_update,
+    ADD INDEX idx_show_time_updated_at (show_time, updated_at);
@@ -88,11 +88,13 @@ CREATE TABLE IF NOT EXISTS theater_movies (
     available_seats INT DEFAULT 0,
     total_seats INT DEFAULT 0,
     last_price_update DATETIME COMMENT 'When price was last updated',
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT 'Last change, for incremental availability sync',
     FOREIGN KEY (theater_id) REFERENCES theaters(theater_id) ON DELETE CASCADE,
     FOREIGN KEY (movie_id) REFERENCES movies(movie_id) ON DELETE CASCADE,
     INDEX idx_theater_id (theater_id),
     INDEX idx_movie_id (movie_id),
-    INDEX idx_show_time (show_time)
+    INDEX idx_show_time (show_time),
+    INDEX idx_show_time_updated_at (show_time, updated_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Bookings Table (for demand prediction)
@@ -0,0 +1,263 @@
+package com.spring5.movieservice;
+
+import com.spring5.movieservice.SeatHistory.Call;
+import com.spring5.movieservice.SeatHistory.Kind;
+import com.spring5.movieservice.SeatHistory.Outcome;
+import com.spring5.movieservice.domain.service.Booking;
+import com.spring5.movieservice.domain.service.BookingRequest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent bookings and cancellations against single showtimes, over HTTP against MovieService on an
+ * in-memory H2 database of its own. Run with mvn -Pperformance test.
+ *
+ * The tests judge only what clients saw and what ended up in the database, never how the service
+ * serializes the seat updates, so they hold for row locks, conditional updates, optimistic retries or
+ * anything that replaces them. After every run the showtime must satisfy:
+ *
+ * - available_seats never below zero;
+ * - available_seats plus the seats of its live (not cancelled) bookings equal total_seats;
+ * - the live bookings are exactly those acknowledged to clients and not since cancelled;
+ * - every acknowledged or rejected booking explainable by some sequential order (SeatHistory).
+ */
+@Tag("stress")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties =
+        "spring.r2dbc.url=r2dbc:h2:mem:///bookingStress?options=MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=CAST")
+@ActiveProfiles("performance")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingStressTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookingStressTests.class);
+
+    private static final DateTimeFormatter SQL_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int USERS = 100;
+    private static final int MAX_SEATS_PER_BOOKING = 4;
+    private static final double TICKET_PRICE = 12.50;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DatabaseClient database;
+
+    @Value("${stress.seats:500}")
+    private int seats;
+
+    @Value("${stress.requests:2000}")
+    private int requests;
+
+    @Value("${stress.concurrency:256}")
+    private int concurrency;
+
+    @Value("${stress.rounds:3}")
+    private int rounds;
+
+    private WebClient client;
+    private final AtomicInteger showtimes = new AtomicInteger();
+
+    @BeforeAll
+    void seed() {
+        client = WebClient.builder().baseUrl("http://localhost:" + port).build();
+        for (int user = 1; user <= USERS; user++) {
+            database.sql(String.format("INSERT INTO users (user_id, name, email, password) VALUES (%d, 'User %d', 'user%d@example.com', 'x')",
+                    user, user, user)).then().block();
+        }
+        database.sql("INSERT INTO movies (movie_id, title, genre, director, release_date, duration, rating, total_ratings, language) "
+                + "VALUES (1, 'Movie 1', 'Drama', 'Director 1', '2020-01-01', 120, 0, 0, 'English')").then().block();
+        database.sql("INSERT INTO theaters (theater_id, name, city, total_screens) VALUES (1, 'Theater 1', 'City 1', 10)")
+                .then().block();
+    }
+
+    @Test
+    void oversubscribedShowtime() {
+        for (int round = 0; round < rounds; round++) {
+            int showtime = newShowtime(seats);
+            SeatHistory history = new SeatHistory(seats);
+            Random random = new Random(round);
+            int[] sizes = new int[requests];
+            for (int i = 0; i < requests; i++) {
+                sizes[i] = 1 + random.nextInt(MAX_SEATS_PER_BOOKING);
+            }
+
+            // About five times as many seats requested as there are, all at once
+            Flux.range(0, requests)
+                    .flatMap(i -> create(history, showtime, sizes[i]), concurrency)
+                    .blockLast(Duration.ofMinutes(5));
+
+            assertTrue(history.count(Kind.CREATE, Outcome.REJECTED) > 0, "The showtime was never sold out");
+            assertConsistent(showtime, history);
+        }
+    }
+
+    @Test
+    void bookingAndCancellationChurn() {
+        for (int round = 0; round < rounds; round++) {
+            // Few enough seats that creates are rejected and cancellations free seats others take
+            int total = Math.max(MAX_SEATS_PER_BOOKING, seats / 5);
+            int showtime = newShowtime(total);
+            SeatHistory history = new SeatHistory(total);
+            Random random = new Random(1000L + round);
+            int[] sizes = new int[requests];
+            int[] cancels = new int[requests];
+            for (int i = 0; i < requests; i++) {
+                sizes[i] = 1 + random.nextInt(MAX_SEATS_PER_BOOKING);
+                // Half kept, the rest cancelled once or by up to three racing calls
+                cancels[i] = random.nextBoolean() ? 0 : 1 + random.nextInt(3);
+            }
+
+            Flux.range(0, requests)
+                    .flatMap(i -> create(history, showtime, sizes[i])
+                            .filter(call -> call.getBookingId() != null && cancels[i] > 0)
+                            .flatMapMany(call -> Flux.range(0, cancels[i])
+                                    .flatMap(attempt -> cancel(history, call.getBookingId(), sizes[i]))), concurrency)
+                    .blockLast(Duration.ofMinutes(5));
+
+            // Every booking anyone tried to cancel was cancelled exactly once
+            Set<Integer> cancelled = new HashSet<>();
+            for (Call call : history.calls()) {
+                if (call.getKind() == Kind.CANCEL && call.getOutcome() == Outcome.OK) {
+                    assertTrue(cancelled.add(call.getBookingId()), "Booking " + call.getBookingId() + " cancelled twice");
+                }
+            }
+            assertConsistent(showtime, history);
+        }
+    }
+
+    @Test
+    void racingCancellationsOfOneBooking() {
+        int showtime = newShowtime(seats);
+        SeatHistory history = new SeatHistory(seats);
+        Integer bookingId = create(history, showtime, MAX_SEATS_PER_BOOKING).block().getBookingId();
+
+        Flux.range(0, 50)
+                .flatMap(attempt -> cancel(history, bookingId, MAX_SEATS_PER_BOOKING), 50)
+                .blockLast(Duration.ofMinutes(1));
+
+        assertEquals(1, history.count(Kind.CANCEL, Outcome.OK), "Cancellations that succeeded");
+        assertEquals(49, history.count(Kind.CANCEL, Outcome.REJECTED), "Cancellations that were refused");
+        assertEquals(seats, availableSeats(showtime), "Seats after cancelling the only booking");
+        assertConsistent(showtime, history);
+    }
+
+    private int newShowtime(int totalSeats) {
+        int id = 1000 + showtimes.incrementAndGet();
+        database.sql(String.format(Locale.ROOT, "INSERT INTO theater_movies (id, theater_id, movie_id, screen_number, show_time, "
+                        + "ticket_price, base_price, dynamic_price, available_seats, total_seats) "
+                        + "VALUES (%d, 1, 1, 1, '%s', %.2f, %.2f, %.2f, %d, %d)",
+                id, LocalDateTime.now().plusDays(7).withNano(0).format(SQL_DATE_TIME), TICKET_PRICE, TICKET_PRICE,
+                TICKET_PRICE, totalSeats, totalSeats)).then().block();
+        return id;
+    }
+
+    private Mono<Call> create(SeatHistory history, int showtime, int size) {
+        BookingRequest request = new BookingRequest();
+        request.setUserId(1 + Math.floorMod(showtime * 31 + size, USERS));
+        request.setTheaterMovieId(showtime);
+        request.setNumberOfSeats(size);
+        request.setPricePerTicket(TICKET_PRICE);
+        return call(history, Kind.CREATE, size, null, client.post().uri("/bookings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request));
+    }
+
+    private Mono<Call> cancel(SeatHistory history, Integer bookingId, int size) {
+        return call(history, Kind.CANCEL, size, bookingId, client.put().uri("/bookings/{bookingId}/cancel", bookingId));
+    }
+
+    /**
+     * Sends the request and records it, timed from subscription to the end of the response: 200 succeeded,
+     * 422 was refused, anything else (or no response) failed
+     */
+    private static Mono<Call> call(SeatHistory history, Kind kind, int size, Integer bookingId,
+                                   WebClient.RequestHeadersSpec<?> request) {
+        return Mono.defer(() -> {
+            long invoked = System.nanoTime();
+            return request.exchangeToMono(response -> {
+                        if (kind == Kind.CREATE && response.statusCode() == HttpStatus.OK) {
+                            return response.bodyToMono(Booking.class).map(booking ->
+                                    new Call(kind, size, invoked, System.nanoTime(), Outcome.OK, booking.getBookingId()));
+                        }
+                        Outcome outcome = response.statusCode() == HttpStatus.OK ? Outcome.OK
+                                : response.statusCode() == HttpStatus.UNPROCESSABLE_ENTITY ? Outcome.REJECTED : Outcome.FAILED;
+                        return response.releaseBody().then(Mono.fromSupplier(() ->
+                                new Call(kind, size, invoked, System.nanoTime(), outcome, bookingId)));
+                    })
+                    .onErrorResume(error -> Mono.fromSupplier(() ->
+                            new Call(kind, size, invoked, System.nanoTime(), Outcome.FAILED, bookingId)))
+                    .doOnNext(history::record);
+        });
+    }
+
+    private void assertConsistent(int showtime, SeatHistory history) {
+        int total = queryInt("SELECT total_seats FROM theater_movies WHERE id = " + showtime);
+        int available = availableSeats(showtime);
+        int held = queryInt("SELECT COALESCE(SUM(number_of_seats), 0) FROM bookings WHERE theater_movie_id = " + showtime
+                + " AND status <> 'CANCELLED'");
+        Set<Integer> live = new HashSet<>(database.sql("SELECT booking_id FROM bookings WHERE theater_movie_id = :showtime "
+                        + "AND status <> 'CANCELLED'")
+                .bind("showtime", showtime)
+                .map(row -> ((Number) row.get(0)).intValue())
+                .all().collectList().block());
+
+        Set<Integer> acknowledged = new HashSet<>();
+        Set<Integer> cancelled = new HashSet<>();
+        for (Call call : history.calls()) {
+            if (call.getOutcome() == Outcome.OK) {
+                (call.getKind() == Kind.CREATE ? acknowledged : cancelled).add(call.getBookingId());
+            }
+        }
+        acknowledged.removeAll(cancelled);
+        List<String> violations = history.violations();
+        LOG.info("Showtime {}: {} calls, {} bookings and {} cancellations acknowledged, {} bookings refused, {} of {} seats left",
+                showtime, history.calls().size(), history.count(Kind.CREATE, Outcome.OK), history.count(Kind.CANCEL, Outcome.OK),
+                history.count(Kind.CREATE, Outcome.REJECTED), available, total);
+
+        assertEquals(0, history.count(Kind.CREATE, Outcome.FAILED) + history.count(Kind.CANCEL, Outcome.FAILED),
+                "Calls that neither succeeded nor were refused");
+        assertTrue(available >= 0, "Showtime " + showtime + " oversold: " + available + " seats available");
+        assertEquals(total, available + held, "Available seats plus seats in live bookings");
+        assertEquals(total - history.seatsHeld(), available, "Available seats after the acknowledged calls");
+        assertEquals(acknowledged, live, "Live bookings against those acknowledged");
+        assertTrue(violations.isEmpty(), violations.size() + " outcomes no sequential order explains, e.g. "
+                + violations.stream().limit(5).collect(Collectors.joining("; ")));
+    }
+
+    private int availableSeats(int showtime) {
+        return queryInt("SELECT available_seats FROM theater_movies WHERE id = " + showtime);
+    }
+
+    private int queryInt(String sql) {
+        return database.sql(sql).map(row -> ((Number) row.get(0)).intValue()).one().blockOptional()
+                .orElseThrow(() -> new IllegalStateException("No result for " + sql));
+    }
+}
@@ -0,0 +1,127 @@
+package com.spring5.movieservice;
+
+import com.spring5.movieservice.common.ServiceUtil;
+import com.spring5.movieservice.common.TaxCalculator;
+import com.spring5.movieservice.domain.controller.BookingServiceImpl;
+import com.spring5.movieservice.domain.entity.BookingEntity;
+import com.spring5.movieservice.domain.entity.TheaterMovieEntity;
+import com.spring5.movieservice.domain.exception.InvalidInputException;
+import com.spring5.movieservice.domain.repository.BookingRepository;
+import com.spring5.movieservice.domain.repository.TheaterMovieRepository;
+import com.spring5.movieservice.domain.service.BookingMapper;
+import com.spring5.movieservice.domain.service.BookingRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Taking seats and saving the booking commit or roll back together, and so do cancelling a booking and
+ * giving its seats back.
+ */
+class BookingTransactionTests {
+
+    private static final int SHOWTIME_ID = 4;
+    private static final int BOOKING_ID = 12;
+
+    private BookingRepository bookingRepository;
+    private TheaterMovieRepository theaterMovieRepository;
+    private ReactiveTransactionManager transactionManager;
+    private ReactiveTransaction transaction;
+    private BookingServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        bookingRepository = mock(BookingRepository.class);
+        theaterMovieRepository = mock(TheaterMovieRepository.class);
+        when(theaterMovieRepository.findById(SHOWTIME_ID))
+                .thenReturn(Mono.just(TheaterMovieEntity.builder().id(SHOWTIME_ID).availableSeats(10).build()));
+        when(theaterMovieRepository.reserveSeats(SHOWTIME_ID, 2)).thenReturn(Mono.just(1));
+        when(theaterMovieRepository.releaseSeats(SHOWTIME_ID, 2)).thenReturn(Mono.just(1));
+        when(bookingRepository.findByBookingId(BOOKING_ID)).thenReturn(Mono.just(BookingEntity.builder()
+                .bookingId(BOOKING_ID).theaterMovieId(SHOWTIME_ID).numberOfSeats(2).status("PENDING").build()));
+
+        transactionManager = mock(ReactiveTransactionManager.class);
+        transaction = mock(ReactiveTransaction.class);
+        when(transactionManager.getReactiveTransaction(any())).thenReturn(Mono.just(transaction));
+        when(transactionManager.commit(transaction)).thenReturn(Mono.empty());
+        when(transactionManager.rollback(transaction)).thenReturn(Mono.empty());
+
+        ServiceUtil serviceUtil = mock(ServiceUtil.class);
+        service = new BookingServiceImpl(bookingRepository, theaterMovieRepository, new BookingMapper(serviceUtil),
+                new TaxCalculator(), serviceUtil, TransactionalOperator.create(transactionManager));
+    }
+
+    @Test
+    void bookingCommitsSeatsAndBookingTogether() {
+        when(bookingRepository.save(any(BookingEntity.class))).thenAnswer(invocation -> {
+            BookingEntity saved = invocation.getArgument(0);
+            saved.setBookingId(BOOKING_ID);
+            return Mono.just(saved);
+        });
+
+        assertEquals(BOOKING_ID, service.createBooking(request()).block().getBookingId());
+
+        verify(transactionManager).commit(transaction);
+        verify(transactionManager, never()).rollback(transaction);
+    }
+
+    @Test
+    void failedSaveRollsTheSeatsBack() {
+        when(bookingRepository.save(any(BookingEntity.class))).thenReturn(Mono.error(new IllegalStateException("insert failed")));
+
+        assertThrows(IllegalStateException.class, () -> service.createBooking(request()).block());
+
+        verify(theaterMovieRepository).reserveSeats(SHOWTIME_ID, 2);
+        verify(transactionManager).rollback(transaction);
+        verify(transactionManager, never()).commit(transaction);
+        verify(theaterMovieRepository, never()).releaseSeats(anyInt(), anyInt());
+    }
+
+    @Test
+    void failedSeatReleaseRollsTheCancellationBack() {
+        when(bookingRepository.cancel(BOOKING_ID)).thenReturn(Mono.just(1));
+        when(theaterMovieRepository.releaseSeats(SHOWTIME_ID, 2)).thenReturn(Mono.error(new IllegalStateException("update failed")));
+
+        assertThrows(IllegalStateException.class, () -> service.cancelBooking(BOOKING_ID).block());
+
+        verify(transactionManager).rollback(transaction);
+        verify(transactionManager, never()).commit(transaction);
+    }
+
+    @Test
+    void cancellationCommitsStatusAndSeatsTogether() {
+        when(bookingRepository.cancel(BOOKING_ID)).thenReturn(Mono.just(1));
+
+        assertEquals("CANCELLED", service.cancelBooking(BOOKING_ID).block().getStatus());
+
+        verify(theaterMovieRepository).releaseSeats(SHOWTIME_ID, 2);
+        verify(transactionManager).commit(transaction);
+    }
+
+    @Test
+    void alreadyCancelledBookingGivesNoSeatsBack() {
+        when(bookingRepository.cancel(BOOKING_ID)).thenReturn(Mono.just(0));
+
+        assertThrows(InvalidInputException.class, () -> service.cancelBooking(BOOKING_ID).block());
+
+        verify(theaterMovieRepository, never()).releaseSeats(anyInt(), anyInt());
+    }
+
+    private static BookingRequest request() {
+        BookingRequest request = new BookingRequest();
+        request.setUserId(1);
+        request.setTheaterMovieId(SHOWTIME_ID);
+        request.setNumberOfSeats(2);
+        request.setPricePerTicket(12.5);
+        return request;
+    }
+}
@@ -0,0 +1,408 @@
+package com.spring5.movieservice;
+
+import com.spring5.movieservice.domain.service.Booking;
+import com.spring5.movieservice.domain.service.BookingRequest;
+import com.spring5.movieservice.domain.service.PaymentRequest;
+import com.spring5.movieservice.domain.service.Rating;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency and throughput budgets of the write paths, measured over HTTP against MovieService on an
+ * in-memory H2 database (MySQL mode) seeded at production-like scale. Run with mvn -Pperformance test.
+ *
+ * Each test drives one endpoint from a fixed number of concurrent clients (closed loop) and fails when
+ * p99 or throughput misses its budget in application-performance.properties.
+ *
+ * The data set is generated here at performance.scale, or loaded from the movieservice directory of a
+ * dataset-generator run with -Dperformance.dataset-dir=... to test at a recorded, larger scale.
+ */
+@Tag("performance")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("performance")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PerformanceTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PerformanceTests.class);
+
+    private static final DateTimeFormatter SQL_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int INSERT_BATCH = 1000;
+    private static final int HOT_MOVIE = 1; // rated by every generated user
+    private static final int COLD_MOVIE = 2; // rated by COLD_RATINGS generated users
+    private static final int COLD_RATINGS = 10;
+    private static final double TICKET_PRICE = 12.50;
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private DatabaseClient database;
+
+    @Value("${performance.scale:1.0}")
+    private double scale;
+
+    @Value("${performance.users:20000}")
+    private int users;
+
+    @Value("${performance.movies:2000}")
+    private int movies;
+
+    @Value("${performance.ratings-per-user:10}")
+    private int ratingsPerUser;
+
+    @Value("${performance.theaters:50}")
+    private int theaters;
+
+    @Value("${performance.showtimes:1000}")
+    private int showtimes;
+
+    @Value("${performance.bookings:50000}")
+    private int bookings;
+
+    @Value("${performance.requests:2000}")
+    private int requests;
+
+    @Value("${performance.concurrency:32}")
+    private int concurrency;
+
+    @Value("${performance.dataset-dir:}")
+    private String datasetDirectory;
+
+    private int hotMovie;
+    private int[] hotRaters;
+    private int coldMovie;
+    private int[] coldRaters;
+
+    @BeforeAll
+    void seed() throws IOException {
+        client = client.mutate().responseTimeout(Duration.ofSeconds(30)).build();
+        long start = System.nanoTime();
+        if (datasetDirectory.isEmpty()) {
+            generate();
+        } else {
+            load(Paths.get(datasetDirectory));
+        }
+
+        // The most and least rated movies, and who rated them, so rating writes take the update path
+        hotMovie = queryInt("SELECT movie_id FROM movies ORDER BY total_ratings DESC, movie_id LIMIT 1");
+        coldMovie = queryInt("SELECT movie_id FROM movies WHERE total_ratings > 0 ORDER BY total_ratings, movie_id LIMIT 1");
+        hotRaters = raters(hotMovie);
+        coldRaters = raters(coldMovie);
+        LOG.info("Seeded {} users and {} showtimes in {} ms; hot movie {} has {} ratings, cold movie {} has {}",
+                users, showtimes, (System.nanoTime() - start) / 1_000_000, hotMovie, hotRaters.length, coldMovie,
+                coldRaters.length);
+    }
+
+    /**
+     * Loads the movieservice directory written by dataset-generator, one CSVREAD per table
+     */
+    private void load(Path directory) throws IOException {
+        for (String table : new String[]{"users", "movies", "ratings", "theaters", "theater_movies", "bookings", "payments"}) {
+            Path file = directory.resolve(table + ".csv").toAbsolutePath();
+            String columns;
+            try (Stream<String> lines = Files.lines(file)) {
+                columns = lines.findFirst().orElseThrow(() -> new IllegalStateException("Empty " + file));
+            }
+            database.sql("INSERT INTO " + table + " (" + columns + ") SELECT * FROM CSVREAD('"
+                    + file.toString().replace("'", "''") + "', NULL, 'charset=UTF-8')").then().block();
+        }
+        // The files carry their own ids, so new rows continue after them
+        database.sql("ALTER TABLE bookings ALTER COLUMN booking_id RESTART WITH "
+                + (queryInt("SELECT COALESCE(MAX(booking_id), 0) FROM bookings") + 1)).then().block();
+        database.sql("ALTER TABLE payments ALTER COLUMN payment_id RESTART WITH "
+                + (queryInt("SELECT COALESCE(MAX(payment_id), 0) FROM payments") + 1)).then().block();
+        users = queryInt("SELECT MAX(user_id) FROM users");
+        showtimes = queryInt("SELECT MAX(id) FROM theater_movies");
+    }
+
+    private int queryInt(String sql) {
+        return database.sql(sql).map(row -> ((Number) row.get(0)).intValue()).one().blockOptional()
+                .orElseThrow(() -> new IllegalStateException("No result for " + sql));
+    }
+
+    private int[] raters(int movieId) {
+        return database.sql("SELECT user_id FROM ratings WHERE movie_id = :movieId")
+                .bind("movieId", movieId)
+                .map(row -> ((Number) row.get(0)).intValue())
+                .all().collectList().block()
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * A data set of the configured size: one movie rated by every user, one by only a few, and a year of bookings
+     */
+    private void generate() {
+        users = (int) Math.max(COLD_RATINGS, users * scale);
+        movies = (int) Math.max(ratingsPerUser + 2, movies * scale);
+        theaters = (int) Math.max(1, theaters * scale);
+        showtimes = (int) Math.max(1, showtimes * scale);
+        bookings = (int) (bookings * scale);
+
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        insert("users (user_id, name, email, password)", users,
+                i -> String.format("(%d, 'User %d', 'user%d@example.com', 'x')", i + 1, i + 1, i + 1));
+        insert("movies (movie_id, title, genre, director, release_date, duration, rating, total_ratings, language)", movies,
+                i -> String.format("(%d, 'Movie %d', 'Drama', 'Director %d', '2020-01-01', 120, 0, 0, 'English')",
+                        i + 1, i + 1, i % 100));
+
+        List<String> ratingRows = new ArrayList<>();
+        for (int user = 1; user <= users; user++) {
+            ratingRows.add(String.format("(%d, %d, %d)", user, HOT_MOVIE, 1 + random.nextInt(5)));
+            Set<Integer> rated = new HashSet<>();
+            while (rated.size() < ratingsPerUser - 1) {
+                rated.add(COLD_MOVIE + 1 + random.nextInt(movies - COLD_MOVIE));
+            }
+            for (int movie : rated) {
+                ratingRows.add(String.format("(%d, %d, %d)", user, movie, 1 + random.nextInt(5)));
+            }
+        }
+        for (int user = 1; user <= COLD_RATINGS; user++) {
+            ratingRows.add(String.format("(%d, %d, %d)", user, COLD_MOVIE, 1 + random.nextInt(5)));
+        }
+        insert("ratings (user_id, movie_id, rating)", ratingRows.size(), ratingRows::get);
+        database.sql("UPDATE movies m SET rating = COALESCE((SELECT AVG(r.rating * 1.0) FROM ratings r WHERE r.movie_id = m.movie_id), 0), "
+                + "total_ratings = (SELECT COUNT(*) FROM ratings r WHERE r.movie_id = m.movie_id)").then().block();
+
+        insert("theaters (theater_id, name, city, total_screens)", theaters,
+                i -> String.format("(%d, 'Theater %d', 'City %d', 10)", i + 1, i + 1, i % 20));
+        // Seats never run out, so every booking request takes the same path
+        insert("theater_movies (id, theater_id, movie_id, screen_number, show_time, ticket_price, base_price, dynamic_price, "
+                        + "available_seats, total_seats)", showtimes,
+                i -> String.format(Locale.ROOT, "(%d, %d, %d, %d, '%s', %.2f, %.2f, %.2f, 1000000, 1000000)",
+                        i + 1, 1 + i % theaters, 1 + random.nextInt(movies), 1 + i % 10,
+                        now.plusDays(1 + random.nextInt(30)).withHour(12 + random.nextInt(10)).withMinute(0).withSecond(0)
+                                .format(SQL_DATE_TIME),
+                        TICKET_PRICE, TICKET_PRICE, TICKET_PRICE));
+        // A year of history; pricing reads the month around each showtime
+        insert("bookings (user_id, theater_movie_id, number_of_seats, base_price, tax_amount, service_charge, total_price, "
+                        + "price_per_ticket, booking_time, status)", bookings,
+                i -> {
+                    int seats = 1 + random.nextInt(4);
+                    double base = seats * TICKET_PRICE;
+                    return String.format(Locale.ROOT, "(%d, %d, %d, %.2f, %.2f, %.2f, %.2f, %.2f, '%s', 'CONFIRMED')",
+                            1 + random.nextInt(users), 1 + random.nextInt(showtimes), seats,
+                            base, base * 0.18, base * 0.05, base * 1.23, TICKET_PRICE,
+                            now.minusMinutes(random.nextInt(365 * 24 * 60)).format(SQL_DATE_TIME));
+                });
+    }
+
+    @Test
+    void ratingWrites(@Value("${performance.rating.p99-ms}") long p99Budget,
+                      @Value("${performance.rating.min-throughput}") double minThroughput,
+                      @Value("${performance.rating.max-hot-to-cold-ratio}") double maxRatio) {
+        Result hot = measure("rate hot movie", concurrency, i -> postRating(pick(hotRaters), hotMovie));
+        assertBudget(hot, p99Budget, minThroughput);
+
+        // One client at a time so queueing does not blur the per-request cost. Both movies take the
+        // update path; only the number of ratings behind them differs, so the ratio stays close to 1
+        // unless the cost of a write grows with the movie's popularity.
+        Result hotAlone = measure("rate hot movie, 1 client", 1, i -> postRating(pick(hotRaters), hotMovie));
+        Result coldAlone = measure("rate cold movie, 1 client", 1, i -> postRating(pick(coldRaters), coldMovie));
+        double ratio = hotAlone.percentileMillis(50) / Math.max(coldAlone.percentileMillis(50), 0.001);
+        assertTrue(ratio <= maxRatio, String.format(
+                "Rating a movie with %d ratings took %.1fx as long as one with %d (budget %.1fx)",
+                hotRaters.length, ratio, coldRaters.length, maxRatio));
+    }
+
+    @Test
+    void bookings(@Value("${performance.booking.p99-ms}") long p99Budget,
+                  @Value("${performance.booking.min-throughput}") double minThroughput) {
+        Result result = measure("create booking", concurrency, i -> createBooking());
+        assertBudget(result, p99Budget, minThroughput);
+    }
+
+    @Test
+    void payments(@Value("${performance.payment.p99-ms}") long p99Budget,
+                  @Value("${performance.payment.min-throughput}") double minThroughput) {
+        // Pending bookings to pay for, created and read back (the stored total) outside the measurement
+        int warmup = warmupRequests();
+        List<Booking> pending = new ArrayList<>();
+        for (int i = 0; i < warmup + requests; i++) {
+            Integer bookingId = createBooking().getBookingId();
+            pending.add(client.get().uri("/bookings/{bookingId}", bookingId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(Booking.class).returnResult().getResponseBody());
+        }
+
+        Result result = measure("process payment", concurrency, i -> {
+            Booking booking = pending.get(i);
+            PaymentRequest request = new PaymentRequest();
+            request.setBookingId(booking.getBookingId());
+            request.setPaymentMethod("CREDIT_CARD");
+            request.setPaymentDetails("tok_test");
+            request.setAmount(booking.getTotalPrice());
+            client.post().uri("/payments/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(request)
+                    .exchange()
+                    .expectStatus().isOk();
+        });
+        assertBudget(result, p99Budget, minThroughput);
+    }
+
+    @Test
+    void pricingUpdates(@Value("${performance.pricing.p99-ms}") long p99Budget,
+                        @Value("${performance.pricing.min-throughput}") double minThroughput) {
+        Result result = measure("update dynamic price", concurrency,
+                i -> client.post().uri("/dynamic-pricing/update/{theaterMovieId}",
+                                1 + ThreadLocalRandom.current().nextInt(showtimes))
+                        .exchange()
+                        .expectStatus().isOk());
+        assertBudget(result, p99Budget, minThroughput);
+    }
+
+    private static int pick(int[] userIds) {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    private void postRating(int userId, int movieId) {
+        Rating rating = new Rating();
+        rating.setUserId(userId);
+        rating.setMovieId(movieId);
+        rating.setRating(1 + ThreadLocalRandom.current().nextInt(5));
+        client.post().uri("/ratings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(rating)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private Booking createBooking() {
+        BookingRequest request = new BookingRequest();
+        request.setUserId(1 + ThreadLocalRandom.current().nextInt(users));
+        request.setTheaterMovieId(1 + ThreadLocalRandom.current().nextInt(showtimes));
+        request.setNumberOfSeats(1 + ThreadLocalRandom.current().nextInt(4));
+        request.setPricePerTicket(TICKET_PRICE);
+        return client.post().uri("/bookings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Booking.class).returnResult().getResponseBody();
+    }
+
+    /**
+     * Runs warm-up calls then the measured ones, call(i) for each i, from the given number of clients
+     */
+    private Result measure(String name, int clients, IntConsumer call) {
+        int warmup = warmupRequests();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            run(executor, 0, warmup, call, new long[warmup]);
+            long[] latencies = new long[requests];
+            long start = System.nanoTime();
+            run(executor, warmup, requests, call, latencies);
+            Result result = new Result(name, latencies, System.nanoTime() - start);
+            LOG.info("{}", result);
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void run(ExecutorService executor, int offset, int count, IntConsumer call, long[] latencies) {
+        List<Future<?>> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            calls.add(executor.submit(() -> {
+                long start = System.nanoTime();
+                call.accept(offset + index);
+                latencies[index] = System.nanoTime() - start;
+            }));
+        }
+        for (Future<?> pending : calls) {
+            try {
+                pending.get(1, TimeUnit.MINUTES);
+            } catch (Exception e) {
+                throw new IllegalStateException("Request failed", e);
+            }
+        }
+    }
+
+    private int warmupRequests() {
+        return Math.max(concurrency * 4, requests / 10);
+    }
+
+    private static void assertBudget(Result result, long p99Budget, double minThroughput) {
+        assertTrue(result.percentileMillis(99) <= p99Budget,
+                String.format("%s: p99 %.1f ms over the %d ms budget", result.name, result.percentileMillis(99), p99Budget));
+        assertTrue(result.throughput() >= minThroughput,
+                String.format("%s: %.0f req/s under the %.0f req/s budget", result.name, result.throughput(), minThroughput));
+    }
+
+    /**
+     * Multi-row INSERTs of count rows, row(i) rendering the VALUES tuple of row i
+     */
+    private void insert(String table, int count, IntFunction<String> row) {
+        for (int from = 0; from < count; from += INSERT_BATCH) {
+            StringJoiner values = new StringJoiner(", ", "INSERT INTO " + table + " VALUES ", "");
+            for (int i = from; i < Math.min(count, from + INSERT_BATCH); i++) {
+                values.add(row.apply(i));
+            }
+            database.sql(values.toString()).then().block();
+        }
+    }
+
+    private static final class Result {
+
+        private final String name;
+        private final long[] sortedNanos;
+        private final long elapsedNanos;
+
+        private Result(String name, long[] latencies, long elapsedNanos) {
+            this.name = name;
+            this.sortedNanos = latencies.clone();
+            Arrays.sort(this.sortedNanos);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        double throughput() {
+            return sortedNanos.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d requests, %.0f req/s, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                    name, sortedNanos.length, throughput(), percentileMillis(50), percentileMillis(90),
+                    percentileMillis(99), sortedNanos[sortedNanos.length - 1] / 1_000_000.0);
+        }
+    }
+}
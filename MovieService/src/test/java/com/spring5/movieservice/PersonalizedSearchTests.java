@@ -0,0 +1,120 @@
+package com.spring5.movieservice;
+
+import com.spring5.movieservice.common.ServiceUtil;
+import com.spring5.movieservice.domain.controller.MovieServiceImpl;
+import com.spring5.movieservice.domain.entity.MovieEntity;
+import com.spring5.movieservice.domain.repository.MovieRepository;
+import com.spring5.movieservice.domain.service.Movie;
+import com.spring5.movieservice.domain.service.MovieMapper;
+import com.spring5.movieservice.gateway.RecommendationScoringClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Personalized search keeps the best offset + limit scored matches, scores at most max-candidates of them
+ * in batches, and falls back to popularity order when scoring fails.
+ */
+class PersonalizedSearchTests {
+
+    private static final String QUERY = "star";
+    private static final int USER_ID = 7;
+
+    // Matches 1-10 come from the database in that (popularity) order; the user's affinity runs the other way
+    private final List<MovieEntity> matches = IntStream.rangeClosed(1, 10)
+            .mapToObj(movieId -> MovieEntity.builder().movieId(movieId).title("Star " + movieId).build())
+            .collect(Collectors.toList());
+    private final List<List<Integer>> scoredBatches = new ArrayList<>();
+    private boolean scoringFails;
+    private MovieServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        MovieRepository repository = mock(MovieRepository.class);
+        when(repository.findByTitleContainingIgnoreCaseOrderByRatingDescTotalRatingsDesc(QUERY))
+                .thenReturn(Flux.fromIterable(matches));
+        ServiceUtil serviceUtil = mock(ServiceUtil.class);
+        when(serviceUtil.getServiceAddress()).thenReturn("test/127.0.0.1:0");
+
+        RecommendationScoringClient scoringClient = new RecommendationScoringClient(null, null) {
+            @Override
+            public Mono<Map<Integer, Double>> score(Integer userId, List<Integer> movieIds) {
+                assertEquals(USER_ID, userId);
+                scoredBatches.add(movieIds);
+                if (scoringFails && scoredBatches.size() == 2) {
+                    return Mono.error(new IllegalStateException("No available instance for recommendation-service"));
+                }
+                return Mono.just(movieIds.stream().collect(Collectors.toMap(movieId -> movieId, movieId -> movieId / 10.0)));
+            }
+        };
+
+        service = new MovieServiceImpl(repository, new TitleOnlyMapper(), serviceUtil, scoringClient);
+        ReflectionTestUtils.setField(service, "batchSize", 3);
+    }
+
+    @Test
+    void keepsTheBestOffsetPlusLimitInScoreOrder() {
+        assertEquals(Arrays.asList(8, 7, 6), search(2, 3));
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6), Arrays.asList(7, 8, 9),
+                Collections.singletonList(10)), scoredBatches);
+
+        assertEquals(Arrays.asList(10, 9), search(0, 2));
+    }
+
+    @Test
+    void offsetPastTheEndIsEmpty() {
+        assertTrue(search(10, 5).isEmpty());
+        assertEquals(Collections.singletonList(1), search(9, 5), "a partial last page is kept");
+    }
+
+    @Test
+    void onlyTheMostPopularCandidatesAreScored() {
+        ReflectionTestUtils.setField(service, "maxCandidates", 4);
+
+        assertEquals(Arrays.asList(4, 3), search(0, 2));
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3), Collections.singletonList(4)), scoredBatches);
+    }
+
+    @Test
+    void scoringFailureFallsBackToPopularityOrder() {
+        scoringFails = true;
+
+        assertEquals(Arrays.asList(2, 3, 4), search(1, 3));
+    }
+
+    private List<Integer> search(int offset, int limit) {
+        return service.searchMovies(QUERY, USER_ID, offset, limit)
+                .map(Movie::getMovieId)
+                .collectList()
+                .block();
+    }
+
+    /**
+     * Stands in for the generated mapper; the tests only follow movie ids
+     */
+    private static class TitleOnlyMapper implements MovieMapper {
+
+        @Override
+        public Movie entityToApi(MovieEntity entity) {
+            Movie movie = new Movie();
+            movie.setMovieId(entity.getMovieId());
+            movie.setTitle(entity.getTitle());
+            return movie;
+        }
+
+        @Override
+        public MovieEntity apiToEntity(Movie api) {
+            return MovieEntity.builder().title(api.getTitle()).build();
+        }
+    }
+}
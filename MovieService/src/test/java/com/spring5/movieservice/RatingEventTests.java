@@ -0,0 +1,87 @@
+package com.spring5.movieservice;
+
+import com.spring5.movieservice.domain.controller.RatingServiceImpl;
+import com.spring5.movieservice.domain.entity.RatingEntity;
+import com.spring5.movieservice.domain.repository.MovieRepository;
+import com.spring5.movieservice.domain.repository.RatingRepository;
+import com.spring5.movieservice.domain.service.Rating;
+import com.spring5.movieservice.domain.service.RatingMapper;
+import com.spring5.movieservice.gateway.RecommendationEventPublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Deleting a rating refreshes the movie's summary and tells recommendation-service, as creating and updating do.
+ */
+class RatingEventTests {
+
+    private final RatingEntity existing = RatingEntity.builder()
+            .ratingId(5).userId(3).movieId(9).rating(4).createdAt(LocalDateTime.now()).build();
+    private RatingRepository ratingRepository;
+    private MovieRepository movieRepository;
+    private RecommendationEventPublisher publisher;
+    private RatingServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        ratingRepository = mock(RatingRepository.class);
+        movieRepository = mock(MovieRepository.class);
+        publisher = mock(RecommendationEventPublisher.class);
+        when(ratingRepository.findByRatingId(5)).thenReturn(Mono.just(existing));
+        when(ratingRepository.findByRatingId(6)).thenReturn(Mono.empty());
+        when(ratingRepository.delete(any(RatingEntity.class))).thenReturn(Mono.empty());
+        when(movieRepository.refreshRatingSummary(anyInt())).thenReturn(Mono.just(1));
+        service = new RatingServiceImpl(ratingRepository, movieRepository, new EntityMapper(), publisher);
+    }
+
+    @Test
+    void deletePublishesRatingChangedAfterTheDelete() {
+        service.deleteRating(5).block();
+
+        verify(ratingRepository).delete(existing);
+        verify(movieRepository).refreshRatingSummary(9);
+        verify(publisher).ratingChanged(3, 9);
+    }
+
+    @Test
+    void deletingAMissingRatingPublishesNothing() {
+        service.deleteRating(6).block();
+
+        verify(ratingRepository, never()).delete(any(RatingEntity.class));
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void failedDeletePublishesNothing() {
+        when(ratingRepository.delete(existing)).thenReturn(Mono.error(new IllegalStateException("connection lost")));
+
+        assertThrows(IllegalStateException.class, () -> service.deleteRating(5).block());
+        verifyNoInteractions(publisher);
+    }
+
+    /**
+     * Stands in for the generated mapper
+     */
+    private static class EntityMapper implements RatingMapper {
+
+        @Override
+        public Rating entityToApi(RatingEntity entity) {
+            return new Rating(entity.getRatingId(), entity.getUserId(), entity.getMovieId(), entity.getRating(),
+                    entity.getReview(), entity.getCreatedAt());
+        }
+
+        @Override
+        public RatingEntity apiToEntity(Rating api) {
+            return RatingEntity.builder().userId(api.getUserId()).movieId(api.getMovieId()).rating(api.getRating())
+                    .review(api.getReview()).build();
+        }
+    }
+}
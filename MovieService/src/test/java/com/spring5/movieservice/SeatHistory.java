@@ -0,0 +1,132 @@
+package com.spring5.movieservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The concurrent history of bookings and cancellations against one showtime: each call's seats, outcome
+ * and invocation/response times, as the client saw them.
+ *
+ * violations() looks for bookings no sequential execution could explain. For each one it bounds the seats
+ * that could have been free at any instant within the call: creates that completed before it started must
+ * come first, creates that started after it ended must come after, and the rest could fall either side
+ * (cancellations the other way round). A booking that succeeded where even the upper bound is short of
+ * its seats oversold; a rejection where even the lower bound covers them undersold. This is a necessary
+ * condition for linearizability, not a full search, but it catches lost updates, double releases and
+ * stale rejections, and it depends only on what the API returned, not on how the service serializes.
+ */
+final class SeatHistory {
+
+    enum Kind {CREATE, CANCEL}
+
+    enum Outcome {OK, REJECTED, FAILED}
+
+    static final class Call {
+
+        private final Kind kind;
+        private final int seats;
+        private final long invokedNanos;
+        private final long respondedNanos;
+        private final Outcome outcome;
+        private final Integer bookingId;
+
+        Call(Kind kind, int seats, long invokedNanos, long respondedNanos, Outcome outcome, Integer bookingId) {
+            this.kind = kind;
+            this.seats = seats;
+            this.invokedNanos = invokedNanos;
+            this.respondedNanos = respondedNanos;
+            this.outcome = outcome;
+            this.bookingId = bookingId;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        Outcome getOutcome() {
+            return outcome;
+        }
+
+        Integer getBookingId() {
+            return bookingId;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + seats + " seats -> " + outcome + (bookingId != null ? " (booking " + bookingId + ")" : "");
+        }
+    }
+
+    private final int totalSeats;
+    private final ConcurrentLinkedQueue<Call> calls = new ConcurrentLinkedQueue<>();
+
+    SeatHistory(int totalSeats) {
+        this.totalSeats = totalSeats;
+    }
+
+    void record(Call call) {
+        calls.add(call);
+    }
+
+    List<Call> calls() {
+        return new ArrayList<>(calls);
+    }
+
+    long count(Kind kind, Outcome outcome) {
+        return calls.stream().filter(call -> call.kind == kind && call.outcome == outcome).count();
+    }
+
+    /**
+     * Seats held by the successful calls: seats booked minus seats given back
+     */
+    int seatsHeld() {
+        int held = 0;
+        for (Call call : calls) {
+            if (call.outcome == Outcome.OK) {
+                held += call.kind == Kind.CREATE ? call.seats : -call.seats;
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Calls whose outcome no sequential execution could produce, empty when the history passes
+     */
+    List<String> violations() {
+        List<Call> history = calls();
+        List<String> violations = new ArrayList<>();
+        for (Call call : history) {
+            if (call.kind != Kind.CREATE || call.outcome == Outcome.FAILED) {
+                continue;
+            }
+            int mostFree = totalSeats;
+            int leastFree = totalSeats;
+            for (Call other : history) {
+                if (other == call || other.outcome != Outcome.OK) {
+                    continue;
+                }
+                boolean before = other.respondedNanos < call.invokedNanos;
+                boolean overlapping = !before && other.invokedNanos < call.respondedNanos;
+                int delta = other.kind == Kind.CREATE ? -other.seats : other.seats;
+                if (before) {
+                    mostFree += delta;
+                    leastFree += delta;
+                } else if (overlapping) {
+                    // Either side of this call: the bounds take whichever order is more extreme
+                    if (delta > 0) {
+                        mostFree += delta;
+                    } else {
+                        leastFree += delta;
+                    }
+                }
+            }
+            if (call.outcome == Outcome.OK && mostFree < call.seats) {
+                violations.add(call + " but at most " + mostFree + " seats could have been free");
+            } else if (call.outcome == Outcome.REJECTED && leastFree >= call.seats) {
+                violations.add(call + " but at least " + leastFree + " seats were free throughout");
+            }
+        }
+        return violations;
+    }
+}
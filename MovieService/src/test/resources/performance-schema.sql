@@ -0,0 +1,136 @@
+-- schema.sql for H2 in MySQL mode: the same tables and indexes, without the MySQL-only table options
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id INT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    password VARCHAR(255),
+    email VARCHAR(255) UNIQUE,
+    phone VARCHAR(50) UNIQUE,
+    email_verified BOOLEAN DEFAULT FALSE,
+    phone_verified BOOLEAN DEFAULT FALSE,
+    email_verification_token VARCHAR(255),
+    phone_verification_code VARCHAR(10),
+    password_reset_token VARCHAR(255),
+    password_reset_expires DATETIME,
+    last_login DATETIME,
+    is_active BOOLEAN DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS movies (
+    movie_id INT PRIMARY KEY AUTO_INCREMENT,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    genre VARCHAR(255),
+    director VARCHAR(255),
+    cast TEXT,
+    release_date DATE,
+    duration INT,
+    poster_url VARCHAR(500),
+    rating DECIMAL(3,2) DEFAULT 0.00,
+    total_ratings INT DEFAULT 0,
+    language VARCHAR(50),
+    certification VARCHAR(10)
+);
+CREATE INDEX IF NOT EXISTS idx_movies_title ON movies (title);
+CREATE INDEX IF NOT EXISTS idx_movies_genre ON movies (genre);
+CREATE INDEX IF NOT EXISTS idx_movies_rating ON movies (rating);
+
+CREATE TABLE IF NOT EXISTS ratings (
+    rating_id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    rating INT NOT NULL CHECK (rating >= 1 AND rating <= 5),
+    review TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    FOREIGN KEY (movie_id) REFERENCES movies(movie_id) ON DELETE CASCADE,
+    CONSTRAINT unique_user_movie UNIQUE (user_id, movie_id)
+);
+CREATE INDEX IF NOT EXISTS idx_ratings_user_id ON ratings (user_id);
+CREATE INDEX IF NOT EXISTS idx_ratings_movie_id ON ratings (movie_id);
+
+CREATE TABLE IF NOT EXISTS theaters (
+    theater_id INT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    address VARCHAR(500),
+    city VARCHAR(100),
+    state VARCHAR(100),
+    zip_code VARCHAR(20),
+    phone VARCHAR(50),
+    total_screens INT DEFAULT 0
+);
+CREATE INDEX IF NOT EXISTS idx_theaters_city ON theaters (city);
+
+CREATE TABLE IF NOT EXISTS theater_movies (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    theater_id INT NOT NULL,
+    movie_id INT NOT NULL,
+    screen_number INT NOT NULL,
+    show_time DATETIME NOT NULL,
+    ticket_price DECIMAL(10,2),
+    dynamic_price DECIMAL(10,2),
+    base_price DECIMAL(10,2),
+    predicted_demand DECIMAL(3,2),
+    available_seats INT DEFAULT 0,
+    total_seats INT DEFAULT 0,
+    last_price_update DATETIME,
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    FOREIGN KEY (theater_id) REFERENCES theaters(theater_id) ON DELETE CASCADE,
+    FOREIGN KEY (movie_id) REFERENCES movies(movie_id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_theater_movies_theater_id ON theater_movies (theater_id);
+CREATE INDEX IF NOT EXISTS idx_theater_movies_movie_id ON theater_movies (movie_id);
+CREATE INDEX IF NOT EXISTS idx_theater_movies_show_time ON theater_movies (show_time);
+CREATE INDEX IF NOT EXISTS idx_theater_movies_show_time_updated_at ON theater_movies (show_time, updated_at);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    booking_id INT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    theater_movie_id INT NOT NULL,
+    number_of_seats INT NOT NULL,
+    base_price DECIMAL(10,2) NOT NULL,
+    tax_amount DECIMAL(10,2) DEFAULT 0.00,
+    service_charge DECIMAL(10,2) DEFAULT 0.00,
+    discount_amount DECIMAL(10,2) DEFAULT 0.00,
+    total_price DECIMAL(10,2) NOT NULL,
+    price_per_ticket DECIMAL(10,2) NOT NULL,
+    booking_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+    status VARCHAR(20) DEFAULT 'PENDING',
+    reservation_expires_at DATETIME,
+    FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    FOREIGN KEY (theater_movie_id) REFERENCES theater_movies(id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_bookings_user_id ON bookings (user_id);
+CREATE INDEX IF NOT EXISTS idx_bookings_theater_movie_id ON bookings (theater_movie_id);
+CREATE INDEX IF NOT EXISTS idx_bookings_booking_time ON bookings (booking_time);
+CREATE INDEX IF NOT EXISTS idx_bookings_status ON bookings (status);
+
+CREATE TABLE IF NOT EXISTS admins (
+    admin_id INT PRIMARY KEY AUTO_INCREMENT,
+    username VARCHAR(100) UNIQUE NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    email VARCHAR(255) UNIQUE NOT NULL,
+    role VARCHAR(50) DEFAULT 'ADMIN',
+    is_active BOOLEAN DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS payments (
+    payment_id INT PRIMARY KEY AUTO_INCREMENT,
+    booking_id INT NOT NULL,
+    amount DECIMAL(10,2) NOT NULL,
+    payment_method ENUM('CREDIT_CARD', 'DEBIT_CARD', 'UPI', 'WALLET', 'NET_BANKING') NOT NULL,
+    payment_status ENUM('PENDING', 'SUCCESS', 'FAILED', 'REFUNDED') DEFAULT 'PENDING',
+    transaction_id VARCHAR(255) UNIQUE,
+    gateway_response TEXT,
+    payment_date DATETIME DEFAULT CURRENT_TIMESTAMP,
+    refund_amount DECIMAL(10,2) DEFAULT 0.00,
+    refund_date DATETIME,
+    refund_reason TEXT,
+    FOREIGN KEY (booking_id) REFERENCES bookings(booking_id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_payments_booking_id ON payments (booking_id);
+CREATE INDEX IF NOT EXISTS idx_payments_payment_status ON payments (payment_status);
+CREATE INDEX IF NOT EXISTS idx_payments_payment_date ON payments (payment_date);
@@ -0,0 +1,228 @@
+package com.spring5.datagen;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.function.IntPredicate;
+
+/**
+ * The movie catalog: genres, a quality that drives ratings and a Zipf popularity that drives how often
+ * a movie is rated and programmed. Only these per-movie numbers are held in memory; titles, directors,
+ * cast and the like are regenerated from the movie's seeded stream when its row is written.
+ */
+final class Catalog {
+
+    // MovieLens genres, weighted by how often they occur in ml-latest-small
+    static final String[] GENRES = {"Drama", "Comedy", "Thriller", "Action", "Romance", "Adventure", "Crime", "Sci-Fi",
+            "Horror", "Fantasy", "Children", "Animation", "Mystery", "Documentary", "War", "Musical", "Western", "IMAX",
+            "Film-Noir"};
+    private static final double[] GENRE_WEIGHTS = {4361, 3756, 1894, 1828, 1596, 1263, 1199, 980, 978, 779, 664, 611,
+            573, 440, 382, 334, 167, 158, 87};
+    private static final double[] GENRES_PER_MOVIE = {0.45, 0.35, 0.20}; // one, two or three genres
+    private static final String[] LANGUAGES = {"English", "Hindi", "French", "Spanish", "Japanese", "Korean", "German"};
+    private static final double[] LANGUAGE_WEIGHTS = {70, 8, 6, 6, 4, 3, 3};
+    private static final String[] CERTIFICATIONS = {"G", "PG", "PG-13", "R", "NC-17"};
+    private static final double[] CERTIFICATION_WEIGHTS = {8, 22, 35, 32, 3};
+
+    private final long seed;
+    private final int size;
+    private final int[] genres; // bit i set when the movie has GENRES[i]
+    private final float[] quality; // mean rating in stars
+    private final short[] year;
+    private final double[] popularity;
+    private final Sampler all;
+    private final Sampler[] byGenre;
+
+    private Catalog(long seed, int size, int[] genres, float[] quality, short[] year, double[] popularity) {
+        this.seed = seed;
+        this.size = size;
+        this.genres = genres;
+        this.quality = quality;
+        this.year = year;
+        this.popularity = popularity;
+        this.all = new Sampler(popularity, movie -> true);
+        this.byGenre = new Sampler[GENRES.length];
+        for (int genre = 0; genre < GENRES.length; genre++) {
+            int bit = 1 << genre;
+            byGenre[genre] = new Sampler(popularity, movie -> (genres[movie] & bit) != 0);
+        }
+    }
+
+    static Catalog build(GeneratorSettings settings) {
+        int size = settings.getMovies();
+        long seed = settings.getSeed();
+        int[] genres = new int[size];
+        float[] quality = new float[size];
+        short[] year = new short[size];
+        for (int movie = 0; movie < size; movie++) {
+            SplittableRandom random = SeededRandom.of(seed, SeededRandom.MOVIE, movie + 1);
+            int count = 1 + SeededRandom.weighted(random, GENRES_PER_MOVIE);
+            while (Integer.bitCount(genres[movie]) < count) {
+                genres[movie] |= 1 << SeededRandom.weighted(random, GENRE_WEIGHTS);
+            }
+            quality[movie] = (float) Math.max(1.0, Math.min(5.0, 3.4 + 0.45 * SeededRandom.gaussian(random)));
+            // Recent years dominate, as in MovieLens
+            int age = (int) (-15.0 * Math.log(1.0 - random.nextDouble()));
+            year[movie] = (short) Math.max(1920, settings.getEndDate().getYear() - age);
+        }
+
+        // Popularity rank is a seeded shuffle, nudged towards the better movies
+        int[] rank = new int[size];
+        for (int i = 0; i < size; i++) {
+            rank[i] = i;
+        }
+        SplittableRandom shuffle = SeededRandom.of(seed, SeededRandom.POPULARITY, 0);
+        for (int i = size - 1; i > 0; i--) {
+            int j = shuffle.nextInt(i + 1);
+            int swap = rank[i];
+            rank[i] = rank[j];
+            rank[j] = swap;
+        }
+        double[] popularity = new double[size];
+        for (int movie = 0; movie < size; movie++) {
+            popularity[movie] = Math.pow(rank[movie] + 1, -settings.getPopularityExponent())
+                    * Math.exp(0.8 * (quality[movie] - 3.4));
+        }
+        return new Catalog(seed, size, genres, quality, year, popularity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int genres(int movie) {
+        return genres[movie];
+    }
+
+    double quality(int movie) {
+        return quality[movie];
+    }
+
+    double popularity(int movie) {
+        return popularity[movie];
+    }
+
+    /**
+     * A movie index drawn by popularity, from the given genre or from the whole catalog when genre is negative
+     */
+    int sample(SplittableRandom random, int genre) {
+        Sampler sampler = genre >= 0 && !byGenre[genre].isEmpty() ? byGenre[genre] : all;
+        return sampler.sample(random);
+    }
+
+    /**
+     * The count most popular movies, most popular first, which is what theaters programme
+     */
+    int[] mostPopular(int count) {
+        Integer[] movies = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            movies[i] = i;
+        }
+        Arrays.sort(movies, (a, b) -> Double.compare(popularity[b], popularity[a]));
+        int[] top = new int[Math.min(count, size)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = movies[i];
+        }
+        return top;
+    }
+
+    /**
+     * movies.csv and links.csv in the MovieLens layout; movie ids are index + 1
+     */
+    void writeMovieLens(Path directory) throws IOException {
+        try (CsvWriter movies = CsvWriter.open(directory.resolve("movies.csv"), "movieId,title,genres");
+             CsvWriter links = CsvWriter.open(directory.resolve("links.csv"), "movieId,imdbId,tmdbId")) {
+            for (int movie = 0; movie < size; movie++) {
+                movies.add(movie + 1).add(title(movie) + " (" + year[movie] + ")").add(genreList(movie, "|")).endRow();
+                links.add(movie + 1).add(String.format("%07d", 100_000 + movie)).add(10_000 + movie).endRow();
+            }
+        }
+    }
+
+    /**
+     * The MovieService movies table, with the average rating and count of the ratings generated for each movie
+     */
+    void writeMovieService(Path directory, long[] ratingSums, int[] ratingCounts) throws IOException {
+        try (CsvWriter movies = CsvWriter.open(directory.resolve("movies.csv"),
+                "movie_id,title,description,genre,director,cast,release_date,duration,rating,total_ratings,language,certification")) {
+            for (int movie = 0; movie < size; movie++) {
+                SplittableRandom random = SeededRandom.of(seed, SeededRandom.MOVIE_DETAILS, movie + 1);
+                String genreList = genreList(movie, ",");
+                StringJoiner cast = new StringJoiner(", ", "[", "]");
+                for (int actor = 0, actors = 2 + random.nextInt(3); actor < actors; actor++) {
+                    cast.add("\"Actor " + (1 + random.nextInt(Math.max(10, size / 2))) + "\"");
+                }
+                LocalDate released = LocalDate.of(year[movie], 1, 1).plusDays(random.nextInt(365));
+                movies.add(movie + 1)
+                        .add(title(movie))
+                        .add("A " + genreList.replace(",", " and ").toLowerCase() + " film from " + year[movie])
+                        .add(genreList)
+                        .add("Director " + (1 + random.nextInt(Math.max(10, size / 8))))
+                        .add(cast.toString())
+                        .add(released)
+                        .add(80 + random.nextInt(100))
+                        .addMoney(ratingCounts[movie] > 0 ? (double) ratingSums[movie] / ratingCounts[movie] : 0.0)
+                        .add(ratingCounts[movie])
+                        .add(LANGUAGES[SeededRandom.weighted(random, LANGUAGE_WEIGHTS)])
+                        .add(CERTIFICATIONS[SeededRandom.weighted(random, CERTIFICATION_WEIGHTS)])
+                        .endRow();
+            }
+        }
+    }
+
+    private String title(int movie) {
+        return "Synthetic Movie " + (movie + 1);
+    }
+
+    private String genreList(int movie, String separator) {
+        StringJoiner joined = new StringJoiner(separator);
+        for (int genre = 0; genre < GENRES.length; genre++) {
+            if ((genres[movie] & (1 << genre)) != 0) {
+                joined.add(GENRES[genre]);
+            }
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Draws indexes by weight from a cumulative table (binary search), over the movies the filter accepts
+     */
+    private static final class Sampler {
+
+        private final int[] movies;
+        private final double[] cumulative;
+
+        Sampler(double[] weights, IntPredicate filter) {
+            List<Integer> accepted = new ArrayList<>();
+            for (int i = 0; i < weights.length; i++) {
+                if (filter.test(i)) {
+                    accepted.add(i);
+                }
+            }
+            movies = new int[accepted.size()];
+            cumulative = new double[accepted.size()];
+            double total = 0;
+            for (int i = 0; i < movies.length; i++) {
+                movies[i] = accepted.get(i);
+                total += weights[movies[i]];
+                cumulative[i] = total;
+            }
+        }
+
+        boolean isEmpty() {
+            return movies.length == 0;
+        }
+
+        int sample(SplittableRandom random) {
+            double point = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, point);
+            index = index >= 0 ? index + 1 : -index - 1;
+            return movies[Math.min(index, movies.length - 1)];
+        }
+    }
+}
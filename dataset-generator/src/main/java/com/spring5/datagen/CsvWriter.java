@@ -0,0 +1,116 @@
+package com.spring5.datagen;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Streams rows to a CSV file with a header line. Text fields are quoted only when they contain a comma
+ * or quote, with quotes doubled, which MovieLensDataParser, MySQL LOAD DATA and H2 CSVREAD all accept.
+ */
+final class CsvWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(256);
+    private boolean rowStarted;
+    private long rows;
+
+    private CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    static CsvWriter open(Path file, String header) throws IOException {
+        CsvWriter writer = new CsvWriter(new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), BUFFER_SIZE));
+        writer.out.write(header);
+        writer.out.write('\n');
+        return writer;
+    }
+
+    CsvWriter add(long value) {
+        separator().append(value);
+        return this;
+    }
+
+    CsvWriter add(String text) {
+        separator();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0) {
+            row.append(text);
+        } else {
+            row.append('"').append(text.replace("\"", "\"\"")).append('"');
+        }
+        return this;
+    }
+
+    /**
+     * Two decimals, as the DECIMAL(10,2) columns store it
+     */
+    CsvWriter addMoney(double amount) {
+        long cents = Math.round(amount * 100);
+        separator().append(cents / 100).append('.');
+        long fraction = Math.abs(cents % 100);
+        if (fraction < 10) {
+            row.append('0');
+        }
+        row.append(fraction);
+        return this;
+    }
+
+    /**
+     * One decimal, as MovieLens writes half-star ratings
+     */
+    CsvWriter addHalfStars(double stars) {
+        long tenths = Math.round(stars * 10);
+        separator().append(tenths / 10).append('.').append(tenths % 10);
+        return this;
+    }
+
+    CsvWriter add(LocalDate date) {
+        separator().append(date);
+        return this;
+    }
+
+    CsvWriter add(LocalDateTime time) {
+        separator().append(time.toLocalDate()).append(' ');
+        appendTwoDigits(time.getHour()).append(':');
+        appendTwoDigits(time.getMinute()).append(':');
+        appendTwoDigits(time.getSecond());
+        return this;
+    }
+
+    void endRow() throws IOException {
+        row.append('\n');
+        out.append(row);
+        row.setLength(0);
+        rowStarted = false;
+        rows++;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    private StringBuilder separator() {
+        if (rowStarted) {
+            row.append(',');
+        }
+        rowStarted = true;
+        return row;
+    }
+
+    private StringBuilder appendTwoDigits(int value) {
+        return row.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
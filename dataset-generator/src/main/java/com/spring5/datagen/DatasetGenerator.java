@@ -0,0 +1,99 @@
+package com.spring5.datagen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Writes a synthetic dataset of any size, the same for the same settings and seed:
+ *
+ * movielens/ holds movies.csv, ratings.csv, tags.csv and links.csv in the ml-latest-small layout, for the
+ * recommendation service, its benchmarks (-Dmovielens.dir) and the offline evaluation harnesses.
+ *
+ * movieservice/ holds one CSV per MovieService table plus load-mysql.sql to bulk load them, and can seed
+ * MovieService's performance tests (-Dperformance.dataset-dir).
+ *
+ * Rows are streamed to disk as they are generated; memory grows with the number of users and movies, not ratings
+ * or bookings.
+ */
+public final class DatasetGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    private DatasetGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 1 && ("--help".equals(args[0]) || "-h".equals(args[0]))) {
+            System.out.println(GeneratorSettings.USAGE);
+            return;
+        }
+        GeneratorSettings settings;
+        try {
+            settings = GeneratorSettings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(GeneratorSettings.USAGE);
+            System.exit(2);
+            return;
+        }
+        generate(settings);
+    }
+
+    static void generate(GeneratorSettings settings) throws IOException {
+        long start = System.nanoTime();
+        Path output = Paths.get(settings.getOutputDirectory());
+        Path movieLens = settings.writes(GeneratorSettings.MOVIELENS) ? Files.createDirectories(output.resolve("movielens")) : null;
+        Path movieService = settings.writes(GeneratorSettings.MOVIESERVICE)
+                ? Files.createDirectories(output.resolve("movieservice")) : null;
+
+        Catalog catalog = Catalog.build(settings);
+        LOG.info("Catalog of {} movies built", catalog.size());
+        if (movieLens != null) {
+            catalog.writeMovieLens(movieLens);
+        }
+
+        RatingGenerator ratings = new RatingGenerator(settings, catalog);
+        ratings.generate(movieLens, movieService);
+
+        ShowtimeGenerator showtimes = new ShowtimeGenerator(settings, catalog);
+        if (movieService != null) {
+            catalog.writeMovieService(movieService, ratings.getRatingSums(), ratings.getRatingCounts());
+            showtimes.generate(movieService);
+            try (InputStream script = DatasetGenerator.class.getResourceAsStream("/load-mysql.sql")) {
+                Files.copy(script, movieService.resolve("load-mysql.sql"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        try (Writer summary = Files.newBufferedWriter(output.resolve("dataset.properties"), StandardCharsets.UTF_8)) {
+            for (String line : Arrays.asList(
+                    "# Generated by dataset-generator; the same settings and seed give the same files",
+                    "seed=" + settings.getSeed(),
+                    "end-date=" + settings.getEndDate(),
+                    "users=" + settings.getUsers(),
+                    "movies=" + catalog.size(),
+                    "ratings=" + ratings.getRatings(),
+                    "tags=" + ratings.getTags(),
+                    "theaters=" + settings.getTheaters(),
+                    "showtimes=" + showtimes.getShowtimes(),
+                    "bookings=" + showtimes.getBookings(),
+                    "payments=" + showtimes.getPayments())) {
+                summary.write(line);
+                summary.write('\n');
+            }
+        }
+
+        LOG.info("Wrote {} users, {} movies, {} ratings, {} showtimes and {} bookings to {} in {} s",
+                settings.getUsers(), catalog.size(), ratings.getRatings(), showtimes.getShowtimes(), showtimes.getBookings(),
+                output.toAbsolutePath(), (System.nanoTime() - start) / 1_000_000_000);
+    }
+}
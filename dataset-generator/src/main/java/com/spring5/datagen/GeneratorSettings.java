@@ -0,0 +1,174 @@
+package com.spring5.datagen;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Command line settings, given as --key=value. Counts are targets: ratings land within a few percent
+ * of --ratings, and bookings follow from the theaters, days and modelled occupancy.
+ */
+final class GeneratorSettings {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar dataset-generator.jar [--key=value ...]",
+            "  --users=100000                     users who rate movies and book tickets",
+            "  --movies=20000",
+            "  --ratings=10000000                 total ratings, spread over users by a power law",
+            "  --min-ratings-per-user=20          as in MovieLens",
+            "  --activity-exponent=1.3            Pareto exponent of ratings per user; lower is heavier-tailed",
+            "  --popularity-exponent=1.0          Zipf exponent of ratings per movie",
+            "  --tag-rate=0.005                   fraction of ratings that also get a tag",
+            "  --theaters=50",
+            "  --days=60                          days of showtimes up to --end-date",
+            "  --future-days=14                   days of partly booked showtimes after --end-date",
+            "  --end-date=2024-12-31              the dataset's \"today\"; nothing is booked or rated after it",
+            "  --formats=movielens,movieservice   which file sets to write",
+            "  --seed=42",
+            "  --out=generated-dataset            output directory");
+
+    static final String MOVIELENS = "movielens";
+    static final String MOVIESERVICE = "movieservice";
+
+    private int users = 100_000;
+    private int movies = 20_000;
+    private long ratings = 10_000_000L;
+    private int minRatingsPerUser = 20;
+    private double activityExponent = 1.3;
+    private double popularityExponent = 1.0;
+    private double tagRate = 0.005;
+    private int theaters = 50;
+    private int days = 60;
+    private int futureDays = 14;
+    private LocalDate endDate = LocalDate.of(2024, 12, 31);
+    private Set<String> formats = new HashSet<>(Arrays.asList(MOVIELENS, MOVIESERVICE));
+    private long seed = 42;
+    private String outputDirectory = "generated-dataset";
+
+    static GeneratorSettings parse(String[] args) {
+        GeneratorSettings settings = new GeneratorSettings();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            }
+            String key = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (key) {
+                case "users":
+                    settings.users = Integer.parseInt(value);
+                    break;
+                case "movies":
+                    settings.movies = Integer.parseInt(value);
+                    break;
+                case "ratings":
+                    settings.ratings = Long.parseLong(value);
+                    break;
+                case "min-ratings-per-user":
+                    settings.minRatingsPerUser = Integer.parseInt(value);
+                    break;
+                case "activity-exponent":
+                    settings.activityExponent = Double.parseDouble(value);
+                    break;
+                case "popularity-exponent":
+                    settings.popularityExponent = Double.parseDouble(value);
+                    break;
+                case "tag-rate":
+                    settings.tagRate = Double.parseDouble(value);
+                    break;
+                case "theaters":
+                    settings.theaters = Integer.parseInt(value);
+                    break;
+                case "days":
+                    settings.days = Integer.parseInt(value);
+                    break;
+                case "future-days":
+                    settings.futureDays = Integer.parseInt(value);
+                    break;
+                case "end-date":
+                    settings.endDate = LocalDate.parse(value);
+                    break;
+                case "formats":
+                    settings.formats = new HashSet<>(Arrays.asList(value.split(",")));
+                    for (String format : settings.formats) {
+                        if (!MOVIELENS.equals(format) && !MOVIESERVICE.equals(format)) {
+                            throw new IllegalArgumentException("Unknown format " + format + ", expected movielens or movieservice");
+                        }
+                    }
+                    break;
+                case "seed":
+                    settings.seed = Long.parseLong(value);
+                    break;
+                case "out":
+                    settings.outputDirectory = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting " + key);
+            }
+        }
+        if (settings.users < 1 || settings.movies < 2 || settings.theaters < 1) {
+            throw new IllegalArgumentException("Need at least one user, two movies and one theater");
+        }
+        if (settings.activityExponent <= 0 || settings.popularityExponent < 0) {
+            throw new IllegalArgumentException("Exponents must be positive");
+        }
+        return settings;
+    }
+
+    int getUsers() {
+        return users;
+    }
+
+    int getMovies() {
+        return movies;
+    }
+
+    long getRatings() {
+        return ratings;
+    }
+
+    int getMinRatingsPerUser() {
+        return minRatingsPerUser;
+    }
+
+    double getActivityExponent() {
+        return activityExponent;
+    }
+
+    double getPopularityExponent() {
+        return popularityExponent;
+    }
+
+    double getTagRate() {
+        return tagRate;
+    }
+
+    int getTheaters() {
+        return theaters;
+    }
+
+    int getDays() {
+        return days;
+    }
+
+    int getFutureDays() {
+        return futureDays;
+    }
+
+    LocalDate getEndDate() {
+        return endDate;
+    }
+
+    boolean writes(String format) {
+        return formats.contains(format);
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    String getOutputDirectory() {
+        return outputDirectory;
+    }
+}
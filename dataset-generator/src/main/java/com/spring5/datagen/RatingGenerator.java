@@ -0,0 +1,231 @@
+package com.spring5.datagen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Users and their ratings, streamed one user at a time.
+ *
+ * Ratings per user follow a Pareto law with a floor, scaled so the total lands near the target; most users
+ * rate a few dozen movies and a few rate thousands. Each user favours one to three genres, picks most
+ * movies from them and rates those higher; within a genre, popular movies are picked more often.
+ */
+final class RatingGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RatingGenerator.class);
+
+    private static final double FAVOURITE_GENRE_SHARE = 0.75;
+    private static final double[] FAVOURITE_GENRES = {0.5, 0.35, 0.15}; // one, two or three
+    private static final String[] TAGS = {"classic", "atmospheric", "funny", "thought-provoking", "visually appealing",
+            "dark", "twist ending", "slow", "great soundtrack", "overrated", "based on a book", "quotable"};
+    private static final long FIRST_ACTIVITY = LocalDateTime.of(1996, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    // BCrypt (cost 10) of "password123", the password of the sample users in schema.sql
+    private static final String PASSWORD_HASH = "$2a$10$gIKQ3zr606MiEG3U6Ew/yuS.ULLoFY5rRjh3Hox53w5EpKStFk9QG";
+
+    private final GeneratorSettings settings;
+    private final Catalog catalog;
+    private final long[] ratingSums; // MovieService ratings are whole stars
+    private final int[] ratingCounts;
+    private long ratings;
+    private long tags;
+
+    RatingGenerator(GeneratorSettings settings, Catalog catalog) {
+        this.settings = settings;
+        this.catalog = catalog;
+        this.ratingSums = new long[catalog.size()];
+        this.ratingCounts = new int[catalog.size()];
+    }
+
+    /**
+     * Writes ratings.csv and tags.csv to movieLens, and users.csv and ratings.csv to movieService; either may be null
+     */
+    void generate(Path movieLens, Path movieService) throws IOException {
+        int users = settings.getUsers();
+        int maxPerUser = Math.max(1, catalog.size() / 2);
+        int floor = (int) Math.max(1, Math.min(Math.min(settings.getMinRatingsPerUser(), maxPerUser), settings.getRatings() / users));
+
+        // The raw activity draws (4 bytes a user), and the tail scale that brings the capped total nearest the target
+        float[] activity = new float[users + 1];
+        for (int user = 1; user <= users; user++) {
+            activity[user] = (float) activity(user);
+        }
+        double low = 0;
+        double high = settings.getRatings();
+        for (int iteration = 0; iteration < 40; iteration++) {
+            double middle = (low + high) / 2;
+            if (total(activity, floor, maxPerUser, middle) < settings.getRatings()) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        double scale = low;
+
+        long end = settings.getEndDate().atTime(23, 59, 59).toEpochSecond(ZoneOffset.UTC);
+        try (CsvWriter lensRatings = movieLens != null
+                ? CsvWriter.open(movieLens.resolve("ratings.csv"), "userId,movieId,rating,timestamp") : null;
+             CsvWriter lensTags = movieLens != null
+                     ? CsvWriter.open(movieLens.resolve("tags.csv"), "userId,movieId,tag,timestamp") : null;
+             CsvWriter serviceUsers = movieService != null
+                     ? CsvWriter.open(movieService.resolve("users.csv"), "user_id,name,email,password,email_verified,is_active,created_at") : null;
+             CsvWriter serviceRatings = movieService != null
+                     ? CsvWriter.open(movieService.resolve("ratings.csv"), "user_id,movie_id,rating,created_at") : null) {
+
+            for (int user = 1; user <= users; user++) {
+                int count = ratingsOf(activity[user], floor, maxPerUser, scale);
+                SplittableRandom random = SeededRandom.of(settings.getSeed(), SeededRandom.USER, user);
+
+                int[] favourites = new int[1 + SeededRandom.weighted(random, FAVOURITE_GENRES)];
+                for (int i = 0; i < favourites.length; i++) {
+                    favourites[i] = favouriteGenre(random);
+                }
+                double bias = 0.4 * SeededRandom.gaussian(random);
+                long firstRating = FIRST_ACTIVITY + (long) (random.nextDouble() * (end - FIRST_ACTIVITY));
+                // Active for an exponentially distributed time, about a year on average
+                long activeSeconds = Math.min(end - firstRating, (long) (-365.0 * 86_400 * Math.log(1.0 - random.nextDouble())));
+
+                int[] movies = pickMovies(random, favourites, count);
+                if (serviceUsers != null) {
+                    serviceUsers.add(user).add("User " + user).add("user" + user + "@example.com").add(PASSWORD_HASH)
+                            .add(1).add(1).add(LocalDateTime.ofEpochSecond(firstRating, 0, ZoneOffset.UTC)).endRow();
+                }
+                for (int movie : movies) {
+                    double stars = catalog.quality(movie) + bias + affinity(favourites, catalog.genres(movie))
+                            + 0.8 * SeededRandom.gaussian(random);
+                    double halfStars = Math.max(0.5, Math.min(5.0, Math.round(stars * 2) / 2.0));
+                    long timestamp = firstRating + (long) (random.nextDouble() * activeSeconds);
+                    // Drawn whatever the formats, so every format sees the same stream
+                    String tag = random.nextDouble() < settings.getTagRate() ? tag(random, catalog.genres(movie)) : null;
+                    if (lensRatings != null) {
+                        lensRatings.add(user).add(movie + 1).addHalfStars(halfStars).add(timestamp).endRow();
+                        if (tag != null) {
+                            lensTags.add(user).add(movie + 1).add(tag).add(timestamp).endRow();
+                            tags++;
+                        }
+                    }
+                    int wholeStars = (int) Math.max(1, Math.min(5, Math.round(halfStars)));
+                    if (serviceRatings != null) {
+                        serviceRatings.add(user).add(movie + 1).add(wholeStars)
+                                .add(LocalDateTime.ofEpochSecond(timestamp, 0, ZoneOffset.UTC)).endRow();
+                    }
+                    ratingSums[movie] += wholeStars;
+                    ratingCounts[movie]++;
+                }
+                ratings += movies.length;
+
+                if (users >= 10 && user % (users / 10) == 0) {
+                    LOG.info("Ratings: {}% of users, {} ratings", 100L * user / users, ratings);
+                }
+            }
+        }
+    }
+
+    long[] getRatingSums() {
+        return ratingSums;
+    }
+
+    int[] getRatingCounts() {
+        return ratingCounts;
+    }
+
+    long getRatings() {
+        return ratings;
+    }
+
+    long getTags() {
+        return tags;
+    }
+
+    private static long total(float[] activity, int floor, int maxPerUser, double scale) {
+        long total = 0;
+        for (int user = 1; user < activity.length; user++) {
+            total += ratingsOf(activity[user], floor, maxPerUser, scale);
+        }
+        return total;
+    }
+
+    private static int ratingsOf(double activity, int floor, int maxPerUser, double scale) {
+        return (int) Math.min(maxPerUser, Math.round(floor + (activity - 1.0) * scale));
+    }
+
+    /**
+     * The user's raw Pareto draw, at least 1
+     */
+    private double activity(int user) {
+        SplittableRandom random = SeededRandom.of(settings.getSeed(), SeededRandom.ACTIVITY, user);
+        return Math.pow(1.0 - random.nextDouble(), -1.0 / settings.getActivityExponent());
+    }
+
+    private int favouriteGenre(SplittableRandom random) {
+        // A genre of a popular movie, so favourite genres follow what people actually watch
+        int movie = catalog.sample(random, -1);
+        int genres = catalog.genres(movie);
+        int pick = random.nextInt(Integer.bitCount(genres));
+        for (int genre = 0; genre < Catalog.GENRES.length; genre++) {
+            if ((genres & (1 << genre)) != 0 && pick-- == 0) {
+                return genre;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Count distinct movie indexes in ascending order, mostly from the favourite genres. Heavy users can
+     * exhaust the popular head of a genre, so after a run of repeats the rest are drawn uniformly.
+     */
+    private int[] pickMovies(SplittableRandom random, int[] favourites, int count) {
+        Set<Integer> picked = new HashSet<>(count * 2);
+        int repeats = 0;
+        while (picked.size() < count) {
+            int movie;
+            if (repeats > 4 * count + 100) {
+                movie = random.nextInt(catalog.size());
+            } else if (random.nextDouble() < FAVOURITE_GENRE_SHARE) {
+                movie = catalog.sample(random, favourites[random.nextInt(favourites.length)]);
+            } else {
+                movie = catalog.sample(random, -1);
+            }
+            if (!picked.add(movie)) {
+                repeats++;
+            }
+        }
+        int[] movies = new int[picked.size()];
+        int i = 0;
+        for (int movie : picked) {
+            movies[i++] = movie;
+        }
+        Arrays.sort(movies);
+        return movies;
+    }
+
+    private static double affinity(int[] favourites, int genres) {
+        for (int favourite : favourites) {
+            if ((genres & (1 << favourite)) != 0) {
+                return 0.4;
+            }
+        }
+        return -0.2;
+    }
+
+    private static String tag(SplittableRandom random, int genres) {
+        if (random.nextBoolean()) {
+            return TAGS[random.nextInt(TAGS.length)];
+        }
+        int pick = random.nextInt(Integer.bitCount(genres));
+        for (int genre = 0; genre < Catalog.GENRES.length; genre++) {
+            if ((genres & (1 << genre)) != 0 && pick-- == 0) {
+                return Catalog.GENRES[genre].toLowerCase();
+            }
+        }
+        return TAGS[0];
+    }
+}
@@ -0,0 +1,61 @@
+package com.spring5.datagen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic random streams keyed by (seed, stream, id). Every user, movie, theater and showtime
+ * draws from its own stream, so an entity comes out the same whichever pass or order generates it,
+ * and nothing has to be kept in memory to regenerate it.
+ */
+final class SeededRandom {
+
+    static final int MOVIE = 1;
+    static final int MOVIE_DETAILS = 2;
+    static final int POPULARITY = 3;
+    static final int ACTIVITY = 4;
+    static final int USER = 5;
+    static final int THEATER = 6;
+    static final int SCREEN = 7;
+    static final int PROGRAM = 8;
+    static final int SHOWTIME = 9;
+
+    private SeededRandom() {
+    }
+
+    static SplittableRandom of(long seed, int stream, long id) {
+        return new SplittableRandom(mix(mix(seed * 31 + stream) + id));
+    }
+
+    /**
+     * Standard normal draw (Box-Muller); SplittableRandom has no nextGaussian on Java 11
+     */
+    static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Index drawn with probability proportional to its weight
+     */
+    static int weighted(SplittableRandom random, double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double point = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            point -= weights[i];
+            if (point < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static long mix(long z) {
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,222 @@
+package com.spring5.datagen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.SplittableRandom;
+
+/**
+ * Theaters, their showtimes and the bookings and payments made for them, streamed one showtime at a time.
+ *
+ * Each screen shows one movie a week, drawn by popularity from the top of the catalog, at five slots a day.
+ * How full a show gets follows the same time-of-day and day-of-week shape DemandPredictionAlgorithm
+ * scores: evenings and Friday/Saturday sell best, weekday mornings worst. Most bookings are made a few hours
+ * before the show, so booking hours cluster around show hours as the algorithm's history factor expects.
+ */
+final class ShowtimeGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShowtimeGenerator.class);
+
+    private static final LocalTime[] SLOTS = {LocalTime.of(10, 0), LocalTime.of(13, 15), LocalTime.of(16, 30),
+            LocalTime.of(19, 30), LocalTime.of(22, 30)};
+    private static final int NOW_SHOWING = 200;
+    private static final double[] SEATS_PER_BOOKING = {15, 45, 15, 18, 4, 3}; // one to six
+    private static final double CANCELLED = 0.05;
+    private static final String[] PAYMENT_METHODS = {"CREDIT_CARD", "DEBIT_CARD", "UPI", "WALLET", "NET_BANKING"};
+    private static final double[] PAYMENT_METHOD_WEIGHTS = {35, 25, 25, 10, 5};
+    private static final String[][] CITIES = {{"New York", "NY", "10001"}, {"Los Angeles", "CA", "90001"},
+            {"Chicago", "IL", "60601"}, {"Houston", "TX", "77001"}, {"Phoenix", "AZ", "85001"},
+            {"Philadelphia", "PA", "19101"}, {"San Antonio", "TX", "78201"}, {"San Diego", "CA", "92101"},
+            {"Dallas", "TX", "75201"}, {"Seattle", "WA", "98101"}, {"Boston", "MA", "02101"}, {"Denver", "CO", "80201"}};
+    private static final double GST_RATE = 0.18; // as TaxCalculator
+    private static final double SERVICE_CHARGE_RATE = 0.05;
+
+    private final GeneratorSettings settings;
+    private final Catalog catalog;
+    private final int[] nowShowing;
+    private final double topPopularity;
+    private long showtimes;
+    private long bookings;
+    private long payments;
+
+    ShowtimeGenerator(GeneratorSettings settings, Catalog catalog) {
+        this.settings = settings;
+        this.catalog = catalog;
+        this.nowShowing = catalog.mostPopular(NOW_SHOWING);
+        this.topPopularity = catalog.popularity(nowShowing[0]);
+    }
+
+    /**
+     * Writes theaters.csv, theater_movies.csv, bookings.csv and payments.csv to the directory
+     */
+    void generate(Path directory) throws IOException {
+        long seed = settings.getSeed();
+        int theaters = settings.getTheaters();
+        int[] screens = new int[theaters + 1];
+        double[] ticketPrice = new double[theaters + 1];
+
+        try (CsvWriter theaterRows = CsvWriter.open(directory.resolve("theaters.csv"),
+                "theater_id,name,address,city,state,zip_code,phone,total_screens")) {
+            for (int theater = 1; theater <= theaters; theater++) {
+                SplittableRandom random = SeededRandom.of(seed, SeededRandom.THEATER, theater);
+                String[] city = CITIES[random.nextInt(CITIES.length)];
+                screens[theater] = 4 + random.nextInt(13);
+                ticketPrice[theater] = 9.0 + random.nextInt(29) * 0.25;
+                theaterRows.add(theater).add("Cinema " + theater).add((100 + random.nextInt(9900)) + " Main Street")
+                        .add(city[0]).add(city[1]).add(city[2]).add(String.format("555-%04d", theater % 10_000))
+                        .add(screens[theater]).endRow();
+            }
+        }
+
+        LocalDateTime now = settings.getEndDate().atTime(23, 59, 59);
+        LocalDate first = settings.getEndDate().minusDays(settings.getDays() - 1L);
+        LocalDate last = settings.getEndDate().plusDays(settings.getFutureDays());
+        try (CsvWriter showtimeRows = CsvWriter.open(directory.resolve("theater_movies.csv"),
+                "id,theater_id,movie_id,screen_number,show_time,ticket_price,dynamic_price,base_price,available_seats,total_seats");
+             CsvWriter bookingRows = CsvWriter.open(directory.resolve("bookings.csv"),
+                     "booking_id,user_id,theater_movie_id,number_of_seats,base_price,tax_amount,service_charge,discount_amount,"
+                             + "total_price,price_per_ticket,booking_time,status,reservation_expires_at");
+             CsvWriter paymentRows = CsvWriter.open(directory.resolve("payments.csv"),
+                     "payment_id,booking_id,amount,payment_method,payment_status,transaction_id,gateway_response,payment_date")) {
+
+            for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+                long week = day.toEpochDay() / 7;
+                for (int theater = 1; theater <= theaters; theater++) {
+                    for (int screen = 1; screen <= screens[theater]; screen++) {
+                        long screenKey = (long) theater * 64 + screen;
+                        int seats = 80 + SeededRandom.of(seed, SeededRandom.SCREEN, screenKey).nextInt(241);
+                        int movie = nowShowing[SeededRandom.of(seed, SeededRandom.PROGRAM, (screenKey << 24) + week)
+                                .nextInt(nowShowing.length)];
+                        for (LocalTime slot : SLOTS) {
+                            writeShowtime(showtimeRows, bookingRows, paymentRows, theater, screen, movie, seats,
+                                    ticketPrice[theater], day.atTime(slot), now);
+                        }
+                    }
+                }
+                if (day.getDayOfMonth() == 1 || day.equals(last)) {
+                    LOG.info("Showtimes through {}: {} showtimes, {} bookings", day, showtimes, bookings);
+                }
+            }
+        }
+    }
+
+    long getShowtimes() {
+        return showtimes;
+    }
+
+    long getBookings() {
+        return bookings;
+    }
+
+    long getPayments() {
+        return payments;
+    }
+
+    private void writeShowtime(CsvWriter showtimeRows, CsvWriter bookingRows, CsvWriter paymentRows, int theater,
+                               int screen, int movie, int seats, double price, LocalDateTime showTime, LocalDateTime now)
+            throws IOException {
+        long showtime = ++showtimes;
+        SplittableRandom random = SeededRandom.of(settings.getSeed(), SeededRandom.SHOWTIME, showtime);
+
+        double appeal = 0.6 + 0.8 * Math.pow(catalog.popularity(movie) / topPopularity, 0.3);
+        double noise = Math.exp(0.35 * SeededRandom.gaussian(random));
+        double occupancy = Math.min(0.98, 0.55 * timeOfDay(showTime) * dayOfWeek(showTime) * appeal * noise);
+        int wanted = (int) Math.round(occupancy * seats);
+
+        int sold = 0;
+        int requested = 0;
+        while (requested < wanted) {
+            int size = 1 + SeededRandom.weighted(random, SEATS_PER_BOOKING);
+            if (requested + size > seats) {
+                break;
+            }
+            requested += size;
+            LocalDateTime bookedAt = bookingTime(random, showTime);
+            boolean cancelled = random.nextDouble() < CANCELLED;
+            int user = 1 + random.nextInt(settings.getUsers());
+            String method = PAYMENT_METHODS[SeededRandom.weighted(random, PAYMENT_METHOD_WEIGHTS)];
+            if (bookedAt.isAfter(now)) {
+                continue; // not booked yet
+            }
+
+            long booking = ++bookings;
+            double base = size * price;
+            double tax = base * GST_RATE;
+            double service = base * SERVICE_CHARGE_RATE;
+            double total = Math.round((base + tax + service) * 100) / 100.0;
+            bookingRows.add(booking).add(user).add(showtime).add(size).addMoney(base).addMoney(tax).addMoney(service)
+                    .addMoney(0).addMoney(total).addMoney(price).add(bookedAt).add(cancelled ? "CANCELLED" : "CONFIRMED")
+                    .add(bookedAt.plusMinutes(10)).endRow();
+            if (!cancelled) {
+                sold += size;
+                paymentRows.add(++payments).add(booking).addMoney(total).add(method).add("SUCCESS")
+                        .add("TXN_" + Long.toHexString(booking).toUpperCase()).add("Payment processed successfully")
+                        .add(bookedAt.plusSeconds(30)).endRow();
+            }
+        }
+
+        showtimeRows.add(showtime).add(theater).add(movie + 1).add(screen).add(showTime).addMoney(price).addMoney(price)
+                .addMoney(price).add(seats - sold).add(seats).endRow();
+    }
+
+    /**
+     * Mostly the same day a few hours ahead, else up to a week ahead at about the same hour
+     */
+    private static LocalDateTime bookingTime(SplittableRandom random, LocalDateTime showTime) {
+        double lead = random.nextDouble();
+        if (lead < 0.45) {
+            return showTime.minusMinutes(15 + random.nextInt(3 * 60));
+        }
+        if (lead < 0.75) {
+            // Earlier the same day, but not before the morning
+            LocalDateTime earliest = showTime.toLocalDate().atTime(8, 0);
+            long window = Duration.between(earliest, showTime.minusHours(3)).toMinutes();
+            return window > 0 ? earliest.plusMinutes(random.nextInt((int) window)) : showTime.minusMinutes(15 + random.nextInt(90));
+        }
+        return showTime.minusDays(1 + random.nextInt(7)).plusMinutes(random.nextInt(4 * 60) - 2 * 60);
+    }
+
+    /**
+     * DemandPredictionAlgorithm's time-of-day score
+     */
+    private static double timeOfDay(LocalDateTime showTime) {
+        int hour = showTime.getHour();
+        if (hour >= 18 && hour <= 22) {
+            return 1.0;
+        } else if (hour >= 14 && hour < 18) {
+            return 0.7;
+        } else if (hour >= 10 && hour < 14) {
+            return 0.5;
+        }
+        return 0.3;
+    }
+
+    /**
+     * DemandPredictionAlgorithm's day-of-week score
+     */
+    private static double dayOfWeek(LocalDateTime showTime) {
+        DayOfWeek day = showTime.getDayOfWeek();
+        switch (day) {
+            case FRIDAY:
+            case SATURDAY:
+                return 1.0;
+            case SUNDAY:
+                return 0.9;
+            case THURSDAY:
+                return 0.7;
+            case WEDNESDAY:
+                return 0.6;
+            case TUESDAY:
+                return 0.5;
+            default:
+                return 0.4;
+        }
+    }
+}
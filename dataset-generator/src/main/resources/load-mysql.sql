@@ -0,0 +1,40 @@
+-- Bulk load of a generated MovieService dataset into the schema of MovieService/src/main/resources/schema.sql.
+-- Run from the movieservice directory of the output, so the relative file names resolve:
+--   mysql --local-infile=1 -u root -p movieBooking < load-mysql.sql
+
+SET FOREIGN_KEY_CHECKS = 0;
+SET UNIQUE_CHECKS = 0;
+SET autocommit = 0;
+
+LOAD DATA LOCAL INFILE 'users.csv' INTO TABLE users
+    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' LINES TERMINATED BY '\n' IGNORE 1 LINES
+    (user_id, name, email, password, email_verified, is_active, created_at);
+
+LOAD DATA LOCAL INFILE 'movies.csv' INTO TABLE movies
+    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' LINES TERMINATED BY '\n' IGNORE 1 LINES
+    (movie_id, title, description, genre, director, cast, release_date, duration, rating, total_ratings, language, certification);
+
+LOAD DATA LOCAL INFILE 'ratings.csv' INTO TABLE ratings
+    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' LINES TERMINATED BY '\n' IGNORE 1 LINES
+    (user_id, movie_id, rating, created_at);
+
+LOAD DATA LOCAL INFILE 'theaters.csv' INTO TABLE theaters
+    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' LINES TERMINATED BY '\n' IGNORE 1 LINES
+    (theater_id, name, address, city, state, zip_code, phone, total_screens);
+
+LOAD DATA LOCAL INFILE 'theater_movies.csv' INTO TABLE theater_movies
+    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' LINES TERMINATED BY '\n' IGNORE 1 LINES
+    (id, theater_id, movie_id, screen_number, show_time, ticket_price, dynamic_price, base_price, available_seats, total_seats);
+
+LOAD DATA LOCAL INFILE 'bookings.csv' INTO TABLE bookings
+    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' LINES TERMINATED BY '\n' IGNORE 1 LINES
+    (booking_id, user_id, theater_movie_id, number_of_seats, base_price, tax_amount, service_charge, discount_amount,
+     total_price, price_per_ticket, booking_time, status, reservation_expires_at);
+
+LOAD DATA LOCAL INFILE 'payments.csv' INTO TABLE payments
+    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '"' LINES TERMINATED BY '\n' IGNORE 1 LINES
+    (payment_id, booking_id, amount, payment_method, payment_status, transaction_id, gateway_response, payment_date);
+
+COMMIT;
+SET UNIQUE_CHECKS = 1;
+SET FOREIGN_KEY_CHECKS = 1;
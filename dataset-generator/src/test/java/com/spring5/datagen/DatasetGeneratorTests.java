@@ -0,0 +1,79 @@
+package com.spring5.datagen;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetGeneratorTests {
+
+    private static final String[] SMALL = {"--users=500", "--movies=400", "--ratings=40000", "--theaters=2", "--days=7",
+            "--future-days=3", "--seed=7"};
+
+    @Test
+    void sameSeedWritesSameFiles(@TempDir Path first, @TempDir Path second) throws IOException {
+        generate(first, SMALL);
+        generate(second, SMALL);
+
+        for (String file : new String[]{"movielens/ratings.csv", "movielens/movies.csv", "movieservice/bookings.csv",
+                "movieservice/theater_movies.csv"}) {
+            assertEquals(Files.readAllLines(first.resolve(file)), Files.readAllLines(second.resolve(file)), file);
+        }
+    }
+
+    @Test
+    void ratingsAreUniquePerUserAndNearTheTarget(@TempDir Path output) throws IOException {
+        generate(output, SMALL);
+
+        List<String> ratings = rows(output.resolve("movielens/ratings.csv"));
+        Set<String> userMovies = new HashSet<>();
+        for (String row : ratings) {
+            String[] fields = row.split(",");
+            assertTrue(userMovies.add(fields[0] + ":" + fields[1]), "Rated twice: " + row);
+            double stars = Double.parseDouble(fields[2]);
+            assertTrue(stars >= 0.5 && stars <= 5.0 && stars * 2 == Math.rint(stars * 2), row);
+        }
+        assertEquals(40_000, ratings.size(), 400);
+        assertEquals(ratings.size(), rows(output.resolve("movieservice/ratings.csv")).size());
+    }
+
+    @Test
+    void availableSeatsMatchBookings(@TempDir Path output) throws IOException {
+        generate(output, SMALL);
+
+        Map<String, Integer> sold = new HashMap<>();
+        for (String row : rows(output.resolve("movieservice/bookings.csv"))) {
+            String[] fields = row.split(",");
+            if ("CONFIRMED".equals(fields[11])) {
+                sold.merge(fields[2], Integer.parseInt(fields[3]), Integer::sum);
+            }
+        }
+        for (String row : rows(output.resolve("movieservice/theater_movies.csv"))) {
+            String[] fields = row.split(",");
+            int available = Integer.parseInt(fields[8]);
+            int total = Integer.parseInt(fields[9]);
+            assertEquals(total - sold.getOrDefault(fields[0], 0), available, row);
+        }
+    }
+
+    private static void generate(Path output, String[] args) throws IOException {
+        String[] withOutput = new String[args.length + 1];
+        System.arraycopy(args, 0, withOutput, 0, args.length);
+        withOutput[args.length] = "--out=" + output;
+        DatasetGenerator.generate(GeneratorSettings.parse(withOutput));
+    }
+
+    private static List<String> rows(Path file) throws IOException {
+        return Files.lines(file).skip(1).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,13 @@
+package com.spring5.fault;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Fault injection beans for any service with this module on its classpath: the rules, the faults actuator
+ * endpoint and the outbound filter. The inbound filter depends on the web stack, so each service keeps its own.
+ */
+@AutoConfiguration
+@Import({FaultInjector.class, FaultsEndpoint.class, FaultInjectionExchangeFilter.class})
+public class FaultInjectionAutoConfiguration {
+}
@@ -0,0 +1,49 @@
+package com.spring5.fault;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Applies the outbound fault rules to calls made through the service's WebClients, as if the upstream
+ * were slow or failing: the delay comes before the call, an injected error replaces the call, and a slow
+ * body is handed to the caller in delayed chunks.
+ */
+public class FaultInjectionExchangeFilter implements ExchangeFilterFunction {
+
+    private final FaultInjector faultInjector;
+
+    @Autowired
+    public FaultInjectionExchangeFilter(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!faultInjector.isEnabled()) {
+            return next.exchange(request);
+        }
+        FaultRule rule = faultInjector.outboundRule(request.url().getPath());
+        if (rule == null) {
+            return next.exchange(request);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Duration delay = rule.sampleDelay(random);
+        boolean error = rule.sampleError(random);
+        Mono<ClientResponse> response = Mono.defer(() -> error
+                ? Mono.just(ClientResponse.create(rule.getErrorStatus())
+                        .header(FaultInjector.HEADER, "error")
+                        .build())
+                : next.exchange(request).map(upstream -> rule.slowsBody()
+                        ? upstream.mutate().body(rule::slowBody).build()
+                        : upstream));
+        return delay.isZero() ? response : Mono.delay(delay).then(response);
+    }
+}
@@ -0,0 +1,121 @@
+package com.spring5.fault;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The fault rules in force, by route, for requests this service serves (inbound) and makes (outbound).
+ * Rules come from faults.inbound.[pattern] and faults.outbound.[pattern] and can be changed at runtime
+ * through the faults actuator endpoint; the first pattern matching a request path applies.
+ *
+ * Off unless faults.enabled=true. The filters then cost one volatile read per request.
+ * Each service applies the inbound rules with a FaultInjectionFilter for its web stack, and the outbound
+ * rules with {@link FaultInjectionExchangeFilter} on its WebClients.
+ */
+public class FaultInjector {
+
+    /**
+     * Response header naming what was injected: error, latency, slow-body or latency,slow-body
+     */
+    public static final String HEADER = "X-Fault-Injected";
+
+    private static final Logger LOG = LoggerFactory.getLogger(FaultInjector.class);
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private volatile boolean enabled;
+    private volatile Map<String, FaultRule> inbound;
+    private volatile Map<String, FaultRule> outbound;
+
+    @Autowired
+    public FaultInjector(@Value("${faults.enabled:false}") boolean enabled, Environment environment) {
+        Binder binder = Binder.get(environment);
+        Bindable<Map<String, String>> rules = Bindable.mapOf(String.class, String.class);
+        this.inbound = parse(binder.bind("faults.inbound", rules).orElse(Collections.emptyMap()));
+        this.outbound = parse(binder.bind("faults.outbound", rules).orElse(Collections.emptyMap()));
+        setEnabled(enabled);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            LOG.warn("Fault injection is on: inbound {}, outbound {}", inbound, outbound);
+        }
+    }
+
+    /**
+     * The rule for a request to this service, or null
+     */
+    public FaultRule inboundRule(String path) {
+        return match(inbound, path);
+    }
+
+    /**
+     * The rule for a request this service makes, or null
+     */
+    public FaultRule outboundRule(String path) {
+        return match(outbound, path);
+    }
+
+    /**
+     * Sets the rule for a route, or removes it when spec is empty
+     */
+    public synchronized void setRule(boolean outboundRule, String pattern, String spec) {
+        Map<String, FaultRule> rules = new LinkedHashMap<>(outboundRule ? outbound : inbound);
+        if (spec == null || spec.trim().isEmpty()) {
+            rules.remove(pattern);
+        } else {
+            rules.put(pattern, FaultRule.parse(spec));
+        }
+        if (outboundRule) {
+            outbound = Collections.unmodifiableMap(rules);
+        } else {
+            inbound = Collections.unmodifiableMap(rules);
+        }
+        LOG.info("Fault rule for {} {}: {}", outboundRule ? "outbound" : "inbound", pattern, rules.get(pattern));
+    }
+
+    public synchronized void clear() {
+        inbound = Collections.emptyMap();
+        outbound = Collections.emptyMap();
+        enabled = false;
+    }
+
+    public FaultReport report() {
+        return new FaultReport(enabled, specs(inbound), specs(outbound));
+    }
+
+    private FaultRule match(Map<String, FaultRule> rules, String path) {
+        for (Map.Entry<String, FaultRule> rule : rules.entrySet()) {
+            if (pathMatcher.match(rule.getKey(), path)) {
+                return rule.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, FaultRule> parse(Map<String, String> specs) {
+        Map<String, FaultRule> rules = new LinkedHashMap<>();
+        specs.forEach((pattern, spec) -> rules.put(pattern, FaultRule.parse(spec)));
+        return Collections.unmodifiableMap(rules);
+    }
+
+    private static Map<String, String> specs(Map<String, FaultRule> rules) {
+        Map<String, String> specs = new LinkedHashMap<>();
+        rules.forEach((pattern, rule) -> specs.put(pattern, rule.toString()));
+        return specs;
+    }
+}
@@ -0,0 +1,19 @@
+package com.spring5.fault;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Whether fault injection is on and the rule spec of each route, as the faults actuator endpoint shows them
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FaultReport {
+    private boolean enabled;
+    private Map<String, String> inbound;
+    private Map<String, String> outbound;
+}
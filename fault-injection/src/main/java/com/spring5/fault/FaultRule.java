@@ -0,0 +1,130 @@
+package com.spring5.fault;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * What to do to the requests of one route, written as space separated key=value pairs:
+ *
+ * latency=lognormal:80,0.5 delays each request by a sample of the distribution (see LatencyDistribution);
+ * error-rate=0.05 answers that share of requests with error-status (default 503) instead;
+ * body-chunk=256 body-delay=50 streams the response body in chunks of that many bytes, that many ms apart.
+ */
+public final class FaultRule {
+
+    private final String spec;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final HttpStatus errorStatus;
+    private final int bodyChunkBytes;
+    private final Duration bodyChunkDelay;
+
+    private FaultRule(String spec, LatencyDistribution latency, double errorRate, HttpStatus errorStatus,
+                      int bodyChunkBytes, Duration bodyChunkDelay) {
+        this.spec = spec;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        this.bodyChunkBytes = bodyChunkBytes;
+        this.bodyChunkDelay = bodyChunkDelay;
+    }
+
+    public static FaultRule parse(String spec) {
+        LatencyDistribution latency = null;
+        double errorRate = 0;
+        HttpStatus errorStatus = HttpStatus.SERVICE_UNAVAILABLE;
+        int bodyChunkBytes = 0;
+        long bodyDelayMillis = 0;
+        for (String setting : spec.trim().split("\\s+")) {
+            int equals = setting.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Fault settings are key=value, got " + setting);
+            }
+            String key = setting.substring(0, equals);
+            String value = setting.substring(equals + 1);
+            try {
+                switch (key) {
+                    case "latency":
+                        latency = LatencyDistribution.parse(value);
+                        break;
+                    case "error-rate":
+                        errorRate = Double.parseDouble(value);
+                        break;
+                    case "error-status":
+                        errorStatus = HttpStatus.valueOf(Integer.parseInt(value));
+                        break;
+                    case "body-chunk":
+                        bodyChunkBytes = Integer.parseInt(value);
+                        break;
+                    case "body-delay":
+                        bodyDelayMillis = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown fault setting " + key
+                                + ", expected latency, error-rate, error-status, body-chunk or body-delay");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Could not read " + setting, e);
+            }
+        }
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("error-rate must be between 0 and 1, got " + errorRate);
+        }
+        if (bodyDelayMillis > 0 && bodyChunkBytes <= 0) {
+            bodyChunkBytes = 1024;
+        }
+        return new FaultRule(spec.trim(), latency, errorRate, errorStatus, bodyChunkBytes, Duration.ofMillis(bodyDelayMillis));
+    }
+
+    public Duration sampleDelay(Random random) {
+        return latency != null ? Duration.ofNanos(latency.sampleMicros(random) * 1000L) : Duration.ZERO;
+    }
+
+    public boolean sampleError(Random random) {
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    public HttpStatus getErrorStatus() {
+        return errorStatus;
+    }
+
+    public boolean slowsBody() {
+        return !bodyChunkDelay.isZero();
+    }
+
+    public int getBodyChunkBytes() {
+        return bodyChunkBytes;
+    }
+
+    public Duration getBodyChunkDelay() {
+        return bodyChunkDelay;
+    }
+
+    /**
+     * The body cut into chunks of body-chunk bytes, each held back by body-delay
+     */
+    public Flux<DataBuffer> slowBody(Publisher<? extends DataBuffer> body) {
+        return Flux.from(body)
+                .concatMap(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    int chunks = (bytes.length + bodyChunkBytes - 1) / bodyChunkBytes;
+                    return Flux.range(0, chunks).map(chunk -> buffer.factory().wrap(Arrays.copyOfRange(bytes,
+                            chunk * bodyChunkBytes, Math.min(bytes.length, (chunk + 1) * bodyChunkBytes))));
+                })
+                .delayElements(bodyChunkDelay);
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,56 @@
+package com.spring5.fault;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Actuator endpoint for fault injection, reachable once "faults" is added to management.endpoints.web.exposure.include.
+ * GET /actuator/faults shows the rules; POST with {"enabled": true}, or {"route": "/movies/**", "spec": "latency=fixed:200"}
+ * (route being a path pattern of the service, plus "direction": "outbound" for calls this service makes, and an
+ * empty spec to remove the rule), changes them; DELETE removes every rule and turns injection off.
+ */
+@Endpoint(id = "faults")
+public class FaultsEndpoint {
+
+    private final FaultInjector faultInjector;
+
+    @Autowired
+    public FaultsEndpoint(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    @ReadOperation
+    public FaultReport faults() {
+        return faultInjector.report();
+    }
+
+    @WriteOperation
+    public FaultReport apply(@Nullable Boolean enabled, @Nullable String direction, @Nullable String route, @Nullable String spec) {
+        if (route != null) {
+            boolean outbound = "outbound".equals(direction);
+            if (!outbound && direction != null && !"inbound".equals(direction)) {
+                throw new InvalidEndpointRequestException("Unknown direction: " + direction, "Unknown direction");
+            }
+            try {
+                faultInjector.setRule(outbound, route, spec);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidEndpointRequestException(e.getMessage(), "Invalid fault rule");
+            }
+        }
+        if (enabled != null) {
+            faultInjector.setEnabled(enabled);
+        }
+        return faultInjector.report();
+    }
+
+    @DeleteOperation
+    public FaultReport clear() {
+        faultInjector.clear();
+        return faultInjector.report();
+    }
+}
@@ -0,0 +1,59 @@
+package com.spring5.fault;
+
+import java.util.Random;
+
+/**
+ * A delay, in milliseconds when written and microseconds when sampled: the latency of a fault rule,
+ * or the service time of a stub upstream in gateway-loadtest.
+ *
+ * Forms: fixed:MS, uniform:MIN-MAX, exponential:MEAN and lognormal:MEDIAN,SIGMA (sigma of the
+ * underlying normal; 0.5 gives a p99 of about 3.2 times the median).
+ */
+public interface LatencyDistribution {
+
+    long sampleMicros(Random random);
+
+    static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Latency must be kind:parameters, e.g. lognormal:20,0.5, got " + spec);
+        }
+        String kind = spec.substring(0, colon).trim();
+        String parameters = spec.substring(colon + 1).trim();
+        try {
+            switch (kind) {
+                case "fixed": {
+                    long micros = toMicros(Double.parseDouble(parameters));
+                    return random -> micros;
+                }
+                case "uniform": {
+                    String[] bounds = parameters.split("-");
+                    long min = toMicros(Double.parseDouble(bounds[0]));
+                    long max = toMicros(Double.parseDouble(bounds[1]));
+                    if (max < min) {
+                        throw new IllegalArgumentException("Uniform latency needs MIN-MAX with MIN <= MAX, got " + spec);
+                    }
+                    return random -> min + (long) (random.nextDouble() * (max - min));
+                }
+                case "exponential": {
+                    double mean = Double.parseDouble(parameters) * 1000.0;
+                    return random -> (long) (-mean * Math.log(1.0 - random.nextDouble()));
+                }
+                case "lognormal": {
+                    String[] values = parameters.split(",");
+                    double mu = Math.log(Double.parseDouble(values[0]) * 1000.0);
+                    double sigma = Double.parseDouble(values[1]);
+                    return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown latency kind " + kind + ", expected fixed, uniform, exponential or lognormal");
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Could not read latency " + spec, e);
+        }
+    }
+
+    private static long toMicros(double millis) {
+        return (long) (millis * 1000.0);
+    }
+}
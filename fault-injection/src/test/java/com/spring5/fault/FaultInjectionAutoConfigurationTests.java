@@ -0,0 +1,39 @@
+package com.spring5.fault;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A service that depends on this module gets the fault beans without scanning its package, configured from
+ * the service's faults.* properties.
+ */
+class FaultInjectionAutoConfigurationTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(FaultInjectionAutoConfiguration.class));
+
+    @Test
+    void registersTheSharedBeans() {
+        contextRunner.run(context -> {
+            assertNotNull(context.getBean(FaultInjector.class));
+            assertNotNull(context.getBean(FaultsEndpoint.class));
+            assertNotNull(context.getBean(FaultInjectionExchangeFilter.class));
+            assertFalse(context.getBean(FaultInjector.class).isEnabled());
+        });
+    }
+
+    @Test
+    void readsRulesFromTheEnvironment() {
+        contextRunner
+                .withPropertyValues("faults.enabled=true", "faults.outbound.[/api/**]=error-rate=1 error-status=502")
+                .run(context -> {
+                    FaultInjector injector = context.getBean(FaultInjector.class);
+                    assertTrue(injector.isEnabled());
+                    assertEquals("error-rate=1 error-status=502", injector.report().getOutbound().get("/api/**"));
+                    assertNull(injector.inboundRule("/api/movies"));
+                });
+    }
+}
@@ -1,4 +1,4 @@
-import { Component, OnInit } from '@angular/core';
+import { Component, OnDestroy, OnInit } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
 import { HttpClient } from '@angular/common/http';
@@ -201,7 +201,7 @@ interface Recommendation {
     </div>
   `
 })
-export class WelcomeComponent implements OnInit {
+export class WelcomeComponent implements OnInit, OnDestroy {
   searchQuery = '';
   activeFilter = 'all';
   selectedGenre = '';
@@ -212,6 +212,15 @@ export class WelcomeComponent implements OnInit {
   currentUserId: number | null = null;
   loadingRecommendations = false;
   private apiUrl = 'http://localhost:8081';
+  private recommendationStream: EventSource | null = null;
+  private onRatingSubmitted = () => {
+    console.log('Rating submitted, reloading recommendations...');
+    if (this.isLoggedIn && this.currentUserId) {
+      setTimeout(() => {
+        this.loadRecommendations();
+      }, 500);
+    }
+  };
 
   constructor(private http: HttpClient, private router: Router) {}
 
@@ -223,14 +232,14 @@ export class WelcomeComponent implements OnInit {
     }
     
     // Listen for rating submissions to reload recommendations
-    window.addEventListener('ratingSubmitted', () => {
-      console.log('Rating submitted, reloading recommendations...');
-      if (this.isLoggedIn && this.currentUserId) {
-        setTimeout(() => {
-          this.loadRecommendations();
-        }, 500);
-      }
-    });
+    window.addEventListener('ratingSubmitted', this.onRatingSubmitted);
+  }
+
+  ngOnDestroy() {
+    // An open stream would keep its connection and keep updating a component that is gone
+    window.removeEventListener('ratingSubmitted', this.onRatingSubmitted);
+    this.recommendationStream?.close();
+    this.recommendationStream = null;
   }
 
   loadFeaturedMovie() {
@@ -310,6 +319,41 @@ export class WelcomeComponent implements OnInit {
       return;
     }
 
+    console.log('Streaming recommendations for user ID:', this.currentUserId);
+    this.loadingRecommendations = true;
+    this.recommendationStream?.close();
+
+    // Progressive stream: a popular preview first, replaced as the personalised scoring completes
+    const stream = new EventSource(`${this.apiUrl}/api/recommendations/user/${this.currentUserId}/stream?limit=10`);
+    this.recommendationStream = stream;
+    let received = false;
+    const show = (event: MessageEvent) => {
+      received = true;
+      const data: Recommendation[] = JSON.parse(event.data) || [];
+      this.recommendations = data
+        .sort((a, b) => (b.score || 0) - (a.score || 0))
+        .slice(0, 10);
+      this.loadingRecommendations = false;
+    };
+    stream.addEventListener('preview', show as EventListener);
+    stream.addEventListener('refined', show as EventListener);
+    stream.addEventListener('final', (event) => {
+      show(event as MessageEvent);
+      stream.close();
+      console.log(`Successfully loaded ${this.recommendations.length} recommendations`);
+    });
+    stream.onerror = () => {
+      stream.close();
+      // Keep whatever was already shown; without anything, fall back to the one-shot request
+      if (!received) {
+        this.loadRecommendationsOnce();
+      } else {
+        this.loadingRecommendations = false;
+      }
+    };
+  }
+
+  loadRecommendationsOnce() {
     console.log('Loading recommendations for user ID:', this.currentUserId);
     this.loadingRecommendations = true;
     // Route through Movie Service Gateway
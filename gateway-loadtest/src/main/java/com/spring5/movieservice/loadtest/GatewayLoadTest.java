@@ -0,0 +1,87 @@
+package com.spring5.movieservice.loadtest;
+
+import com.spring5.fault.LatencyDistribution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Load test of the MovieService gateway routes on one machine with no network: stub upstreams and
+ * the gateway run in this JVM on loopback ports, and the generator drives scripted sessions at them.
+ *
+ * In direct mode the same sessions go straight to the stubs, so the difference between the two modes
+ * is the gateway's own cost at that load, separate from backend service time.
+ */
+public final class GatewayLoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GatewayLoadTest.class);
+
+    private static final String RECOMMENDATION_SERVICE = "recommendation-service";
+    private static final String TICKET_BOOKING_SERVICE = "ticket-booking-service";
+
+    private GatewayLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && ("--help".equals(args[0]) || "-h".equals(args[0]))) {
+            System.out.println(LoadTestSettings.USAGE);
+            return;
+        }
+        LoadTestSettings settings;
+        try {
+            settings = LoadTestSettings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestSettings.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Map<String, Map<String, RouteStats>> results = new LinkedHashMap<>();
+        try (StubUpstream recommendation = StubUpstream.start(RECOMMENDATION_SERVICE,
+                     LatencyDistribution.parse(settings.getRecommendationLatency()), settings.getRecommendationFailureRate());
+             StubUpstream ticketBooking = StubUpstream.start(TICKET_BOOKING_SERVICE,
+                     LatencyDistribution.parse(settings.getTicketBookingLatency()), settings.getTicketBookingFailureRate())) {
+
+            Map<String, StubUpstream> upstreams = new HashMap<>();
+            upstreams.put(RECOMMENDATION_SERVICE, recommendation);
+            upstreams.put(TICKET_BOOKING_SERVICE, ticketBooking);
+
+            try (GatewayUnderTest gateway = GatewayUnderTest.start(upstreams);
+                 OpenLoadGenerator generator = new OpenLoadGenerator(settings.getMaxConnections(), settings.getMaxInFlight(),
+                         settings.getTimeout())) {
+                for (String mode : settings.getModes()) {
+                    Function<String, String> target = LoadTestSettings.GATEWAY.equals(mode)
+                            ? path -> gateway.getBaseUrl() + path
+                            : path -> direct(path, recommendation, ticketBooking);
+                    LOG.info("{}: warming up for {} s, then measuring for {} s", mode,
+                            settings.getWarmup().getSeconds(), settings.getDuration().getSeconds());
+                    generator.run(target, settings.getRates(), settings.getWarmup(), settings.getSeed() - 1);
+                    results.put(mode, generator.run(target, settings.getRates(), settings.getDuration(), settings.getSeed()));
+                }
+            }
+        }
+
+        LoadTestReport.print(results, settings.getDuration(), System.out);
+        LoadTestReport.write(results, settings.getDuration(), Paths.get(settings.getOutputDirectory()));
+        System.out.printf("%nHistograms written to %s%n", Paths.get(settings.getOutputDirectory()).toAbsolutePath());
+    }
+
+    /**
+     * The backend URL the gateway would route a path to, as the gateway controllers rewrite it
+     */
+    private static String direct(String path, StubUpstream recommendation, StubUpstream ticketBooking) {
+        if (path.startsWith("/api/recommendations")) {
+            return recommendation.getBaseUrl() + "/recommendations" + path.substring("/api/recommendations".length());
+        }
+        if (path.startsWith("/api/ticket-booking")) {
+            return ticketBooking.getBaseUrl() + path.substring("/api/ticket-booking".length());
+        }
+        throw new IllegalArgumentException("No upstream for " + path);
+    }
+}
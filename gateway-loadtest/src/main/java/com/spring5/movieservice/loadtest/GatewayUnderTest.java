@@ -0,0 +1,129 @@
+package com.spring5.movieservice.loadtest;
+
+import com.spring5.movieservice.gateway.RecommendationGatewayController;
+import com.spring5.movieservice.gateway.TicketBookingGatewayController;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * The MovieService gateway controllers on a loopback port, without the rest of the service: no
+ * database, config server or discovery. The load balancer resolves each service to its stub.
+ *
+ * The controllers resolve instances themselves and call full URIs, so both gateway WebClients are
+ * plain clients here, as the recommendation one is in GatewayConfig.
+ */
+final class GatewayUnderTest implements AutoCloseable {
+
+    private final AnnotationConfigApplicationContext context;
+    private final DisposableServer server;
+
+    private GatewayUnderTest(AnnotationConfigApplicationContext context, DisposableServer server) {
+        this.context = context;
+        this.server = server;
+    }
+
+    /**
+     * Starts the gateway with services resolved by name (recommendation-service, ticket-booking-service)
+     */
+    static GatewayUnderTest start(Map<String, StubUpstream> upstreams) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(LoadBalancerClient.class, () -> new StubLoadBalancerClient(upstreams));
+        context.register(GatewayContext.class);
+        context.refresh();
+        DisposableServer server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle(new ReactorHttpHandlerAdapter(WebHttpHandlerBuilder.applicationContext(context).build()))
+                .bindNow();
+        return new GatewayUnderTest(context, server);
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        context.close();
+    }
+
+    @Configuration
+    @EnableWebFlux
+    @Import({RecommendationGatewayController.class, TicketBookingGatewayController.class})
+    static class GatewayContext {
+
+        @Bean(name = "recommendationWebClient")
+        WebClient recommendationWebClient() {
+            return WebClient.builder().build();
+        }
+
+        @Bean(name = "ticketBookingWebClient")
+        WebClient ticketBookingWebClient() {
+            return WebClient.builder().build();
+        }
+    }
+
+    /**
+     * Resolves every service to its single stub instance
+     */
+    private static final class StubLoadBalancerClient implements LoadBalancerClient {
+
+        private final Map<String, StubUpstream> upstreams;
+
+        private StubLoadBalancerClient(Map<String, StubUpstream> upstreams) {
+            this.upstreams = upstreams;
+        }
+
+        @Override
+        public ServiceInstance choose(String serviceId) {
+            StubUpstream upstream = upstreams.get(serviceId);
+            return upstream == null ? null
+                    : new DefaultServiceInstance(serviceId + "-stub", serviceId, "127.0.0.1", upstream.getPort(), false);
+        }
+
+        @Override
+        public <T> ServiceInstance choose(String serviceId, Request<T> request) {
+            return choose(serviceId);
+        }
+
+        @Override
+        public <T> T execute(String serviceId, LoadBalancerRequest<T> request) throws IOException {
+            return execute(serviceId, choose(serviceId), request);
+        }
+
+        @Override
+        public <T> T execute(String serviceId, ServiceInstance serviceInstance, LoadBalancerRequest<T> request) throws IOException {
+            try {
+                return request.apply(serviceInstance);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Request to " + serviceId + " failed", e);
+            }
+        }
+
+        @Override
+        public URI reconstructURI(ServiceInstance instance, URI original) {
+            return LoadBalancerUriTools.reconstructURI(instance, original);
+        }
+    }
+}
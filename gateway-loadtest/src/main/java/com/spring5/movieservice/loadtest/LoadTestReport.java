@@ -0,0 +1,90 @@
+package com.spring5.movieservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-route throughput, error rate and latency percentiles of each mode and, when both modes ran,
+ * the gateway's added latency per percentile (gateway minus direct for the same route and load).
+ */
+final class LoadTestReport {
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private LoadTestReport() {
+    }
+
+    static void print(Map<String, Map<String, RouteStats>> results, Duration duration, PrintStream out) {
+        double seconds = duration.toMillis() / 1000.0;
+        for (Map.Entry<String, Map<String, RouteStats>> mode : results.entrySet()) {
+            out.printf("%n== %s, %.0f s measured (latency in ms)%n", mode.getKey(), seconds);
+            out.printf("%-52s %9s %7s %8s %9s %8s %8s %8s %8s %8s%n",
+                    "route", "ok", "errors", "dropped", "req/s", "p50", "p90", "p99", "p99.9", "max");
+            for (RouteStats stats : mode.getValue().values()) {
+                Histogram latency = stats.getLatency();
+                long total = stats.getSucceeded() + stats.getFailed();
+                out.printf("%-52s %9d %6.2f%% %8d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                        stats.getRoute(), stats.getSucceeded(),
+                        total > 0 ? 100.0 * stats.getFailed() / total : 0.0,
+                        stats.getDropped(), total / seconds,
+                        millis(latency, 50.0), millis(latency, 90.0), millis(latency, 99.0), millis(latency, 99.9),
+                        latency.getMaxValue() / 1000.0);
+                if (stats.getFailed() > 0) {
+                    out.printf("%-52s errors by cause: %s%n", "", stats.getFailuresByCause());
+                }
+            }
+        }
+
+        Map<String, RouteStats> direct = results.get(LoadTestSettings.DIRECT);
+        Map<String, RouteStats> gateway = results.get(LoadTestSettings.GATEWAY);
+        if (direct == null || gateway == null) {
+            return;
+        }
+        out.printf("%n== gateway overhead: gateway minus direct (ms)%n");
+        out.printf("%-52s %8s %8s %8s %8s%n", "route", "p50", "p90", "p99", "p99.9");
+        for (RouteStats viaGateway : gateway.values()) {
+            RouteStats straight = direct.get(viaGateway.getRoute());
+            if (straight == null || straight.getSucceeded() == 0 || viaGateway.getSucceeded() == 0) {
+                continue;
+            }
+            out.printf("%-52s", viaGateway.getRoute());
+            for (double percentile : PERCENTILES) {
+                out.printf(" %+8.2f", millis(viaGateway.getLatency(), percentile) - millis(straight.getLatency(), percentile));
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Writes summary.txt and one HdrHistogram percentile distribution (.hgrm, in ms) per mode and route
+     */
+    static void write(Map<String, Map<String, RouteStats>> results, Duration duration, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream summary = new PrintStream(Files.newOutputStream(directory.resolve("summary.txt")), false, "UTF-8")) {
+            print(results, duration, summary);
+        }
+        for (Map.Entry<String, Map<String, RouteStats>> mode : results.entrySet()) {
+            for (RouteStats stats : mode.getValue().values()) {
+                Path file = directory.resolve(mode.getKey() + "-" + slug(stats.getRoute()) + ".hgrm");
+                try (PrintStream histogram = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8.name())) {
+                    stats.getLatency().outputPercentileDistribution(histogram, 1000.0);
+                }
+            }
+        }
+    }
+
+    private static double millis(Histogram latency, double percentile) {
+        return latency.getTotalCount() > 0 ? latency.getValueAtPercentile(percentile) / 1000.0 : 0.0;
+    }
+
+    private static String slug(String route) {
+        return route.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+    }
+}
@@ -0,0 +1,171 @@
+package com.spring5.movieservice.loadtest;
+
+import com.spring5.fault.LatencyDistribution;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Command line settings, given as --key=value. Rates are sessions per second, latencies are
+ * {@link LatencyDistribution} specs in milliseconds and failure rates are fractions of requests.
+ */
+final class LoadTestSettings {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar gateway-loadtest.jar [--key=value ...]",
+            "  --duration=60                      measured seconds per mode",
+            "  --warmup=10                        unmeasured seconds before each mode",
+            "  --rate.browse=40                   sessions per second of each scenario",
+            "  --rate.recommend=20",
+            "  --rate.book=10",
+            "  --rate.pay=5",
+            "  --latency.recommendation=lognormal:25,0.5",
+            "  --latency.ticket-booking=lognormal:8,0.4",
+            "  --failure.recommendation=0         fraction of stub responses that are 503",
+            "  --failure.ticket-booking=0",
+            "  --mode=both                        direct, gateway or both (direct first)",
+            "  --max-connections=2000             client connection pool size",
+            "  --max-in-flight=20000              sessions beyond this are dropped and counted",
+            "  --timeout=10                       request timeout in seconds",
+            "  --seed=42",
+            "  --out=loadtest-reports             directory for the summary and .hgrm histograms");
+
+    static final String DIRECT = "direct";
+    static final String GATEWAY = "gateway";
+
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private final Map<Scenario, Double> rates = new EnumMap<>(Scenario.class);
+    private String recommendationLatency = "lognormal:25,0.5";
+    private String ticketBookingLatency = "lognormal:8,0.4";
+    private double recommendationFailureRate = 0.0;
+    private double ticketBookingFailureRate = 0.0;
+    private List<String> modes = Arrays.asList(DIRECT, GATEWAY);
+    private int maxConnections = 2000;
+    private int maxInFlight = 20_000;
+    private Duration timeout = Duration.ofSeconds(10);
+    private long seed = 42;
+    private String outputDirectory = "loadtest-reports";
+
+    private LoadTestSettings() {
+        rates.put(Scenario.BROWSE, 40.0);
+        rates.put(Scenario.RECOMMEND, 20.0);
+        rates.put(Scenario.BOOK, 10.0);
+        rates.put(Scenario.PAY, 5.0);
+    }
+
+    static LoadTestSettings parse(String[] args) {
+        LoadTestSettings settings = new LoadTestSettings();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            }
+            String key = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if (key.startsWith("rate.")) {
+                settings.rates.put(Scenario.fromLabel(key.substring("rate.".length())), Double.parseDouble(value));
+                continue;
+            }
+            switch (key) {
+                case "duration":
+                    settings.duration = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "warmup":
+                    settings.warmup = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "latency.recommendation":
+                    settings.recommendationLatency = value;
+                    break;
+                case "latency.ticket-booking":
+                    settings.ticketBookingLatency = value;
+                    break;
+                case "failure.recommendation":
+                    settings.recommendationFailureRate = Double.parseDouble(value);
+                    break;
+                case "failure.ticket-booking":
+                    settings.ticketBookingFailureRate = Double.parseDouble(value);
+                    break;
+                case "mode":
+                    settings.modes = "both".equals(value) ? Arrays.asList(DIRECT, GATEWAY) : Collections.singletonList(value);
+                    if (!DIRECT.equals(value) && !GATEWAY.equals(value) && !"both".equals(value)) {
+                        throw new IllegalArgumentException("Unknown mode " + value + ", expected direct, gateway or both");
+                    }
+                    break;
+                case "max-connections":
+                    settings.maxConnections = Integer.parseInt(value);
+                    break;
+                case "max-in-flight":
+                    settings.maxInFlight = Integer.parseInt(value);
+                    break;
+                case "timeout":
+                    settings.timeout = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "seed":
+                    settings.seed = Long.parseLong(value);
+                    break;
+                case "out":
+                    settings.outputDirectory = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting " + key);
+            }
+        }
+        // Fail on a bad spec before anything starts
+        LatencyDistribution.parse(settings.recommendationLatency);
+        LatencyDistribution.parse(settings.ticketBookingLatency);
+        return settings;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Map<Scenario, Double> getRates() {
+        return rates;
+    }
+
+    String getRecommendationLatency() {
+        return recommendationLatency;
+    }
+
+    String getTicketBookingLatency() {
+        return ticketBookingLatency;
+    }
+
+    double getRecommendationFailureRate() {
+        return recommendationFailureRate;
+    }
+
+    double getTicketBookingFailureRate() {
+        return ticketBookingFailureRate;
+    }
+
+    List<String> getModes() {
+        return modes;
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    Duration getTimeout() {
+        return timeout;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    String getOutputDirectory() {
+        return outputDirectory;
+    }
+}
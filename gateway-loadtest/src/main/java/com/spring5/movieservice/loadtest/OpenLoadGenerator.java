@@ -0,0 +1,149 @@
+package com.spring5.movieservice.loadtest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Open-model load: sessions of each scenario start as a Poisson process at the scenario's rate,
+ * whether or not earlier sessions have finished, so a slow system sees a growing queue rather than
+ * a politely slowed client.
+ *
+ * A session's first request is timed from when it was due to start, not from when the generator got
+ * round to sending it, so generator stalls show up as latency instead of being hidden (coordinated omission).
+ */
+final class OpenLoadGenerator implements AutoCloseable {
+
+    private static final String AUTHORIZATION = "Bearer load-test";
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ConnectionProvider connections;
+    private final WebClient client;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenLoadGenerator(int maxConnections, int maxInFlight, Duration timeout) {
+        this.connections = ConnectionProvider.builder("load-test")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.client = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the scenarios at their rates (sessions per second) for the duration, then waits for the
+     * sessions still in flight. Target turns a gateway path into the URL actually called.
+     */
+    Map<String, RouteStats> run(Function<String, String> target, Map<Scenario, Double> rates, Duration duration, long seed) {
+        Map<String, RouteStats> stats = new LinkedHashMap<>();
+        List<Scenario> scenarios = new ArrayList<>();
+        rates.forEach((scenario, rate) -> {
+            if (rate > 0) {
+                scenarios.add(scenario);
+                scenario.getSteps().forEach(step -> stats.computeIfAbsent(step.getRoute(), RouteStats::new));
+            }
+        });
+
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long[] due = new long[scenarios.size()];
+        for (int i = 0; i < scenarios.size(); i++) {
+            due[i] = start + interarrival(random, rates.get(scenarios.get(i)));
+        }
+
+        while (true) {
+            int next = 0;
+            for (int i = 1; i < due.length; i++) {
+                if (due[i] < due[next]) {
+                    next = i;
+                }
+            }
+            if (due.length == 0 || due[next] >= end) {
+                break;
+            }
+            long wait = due[next] - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Scenario scenario = scenarios.get(next);
+            startSession(scenario, due[next], new Random(random.nextLong()), target, stats);
+            due[next] += interarrival(random, rates.get(scenario));
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        return stats;
+    }
+
+    private void startSession(Scenario scenario, long dueNanos, Random random, Function<String, String> target,
+                              Map<String, RouteStats> stats) {
+        List<Scenario.Step> steps = scenario.getSteps();
+        if (inFlight.get() >= maxInFlight) {
+            stats.get(steps.get(0).getRoute()).recordDropped();
+            return;
+        }
+        inFlight.incrementAndGet();
+        Flux.range(0, steps.size())
+                .concatMap(i -> execute(steps.get(i), i == 0, dueNanos, random, target, stats.get(steps.get(i).getRoute())))
+                .takeUntil(succeeded -> !succeeded)
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe();
+    }
+
+    private Mono<Boolean> execute(Scenario.Step step, boolean first, long dueNanos, Random random,
+                                  Function<String, String> target, RouteStats routeStats) {
+        return Mono.defer(() -> {
+            long start = first ? dueNanos : System.nanoTime();
+            WebClient.RequestBodySpec request = client.method(step.getMethod())
+                    .uri(URI.create(target.apply(step.path(random))))
+                    .header(HttpHeaders.AUTHORIZATION, AUTHORIZATION);
+            String body = step.body(random);
+            WebClient.RequestHeadersSpec<?> exchange = body != null
+                    ? request.contentType(MediaType.APPLICATION_JSON).bodyValue(body)
+                    : request;
+            return exchange.exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode()))
+                    .timeout(timeout)
+                    .map(status -> {
+                        if (status >= 400) {
+                            routeStats.recordFailure(String.valueOf(status));
+                            return false;
+                        }
+                        routeStats.recordSuccess((System.nanoTime() - start) / 1000);
+                        return true;
+                    })
+                    .onErrorResume(error -> {
+                        routeStats.recordFailure(error.getClass().getSimpleName());
+                        return Mono.just(false);
+                    });
+        });
+    }
+
+    private static long interarrival(Random random, double ratePerSecond) {
+        return (long) (-Math.log(1.0 - random.nextDouble()) / ratePerSecond * 1e9);
+    }
+
+    @Override
+    public void close() {
+        connections.disposeLater().block(Duration.ofSeconds(5));
+    }
+}
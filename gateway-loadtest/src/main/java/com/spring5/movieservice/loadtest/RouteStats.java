@@ -0,0 +1,65 @@
+package com.spring5.movieservice.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram (microseconds, 3 significant digits) and outcome counts of one route.
+ * Failed requests are counted by cause, an HTTP status or the exception type, and kept out of the histogram.
+ */
+final class RouteStats {
+
+    private final String route;
+    private final Histogram latency = new ConcurrentHistogram(3);
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder dropped = new LongAdder(); // sessions not started because too many were in flight
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    RouteStats(String route) {
+        this.route = route;
+    }
+
+    void recordSuccess(long micros) {
+        latency.recordValue(Math.max(micros, 1));
+        succeeded.increment();
+    }
+
+    void recordFailure(String cause) {
+        failures.computeIfAbsent(cause, key -> new LongAdder()).increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    String getRoute() {
+        return route;
+    }
+
+    Histogram getLatency() {
+        return latency;
+    }
+
+    long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    long getFailed() {
+        return failures.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    Map<String, Long> getFailuresByCause() {
+        Map<String, Long> byCause = new TreeMap<>();
+        failures.forEach((cause, count) -> byCause.put(cause, count.sum()));
+        return byCause;
+    }
+}
@@ -0,0 +1,119 @@
+package com.spring5.movieservice.loadtest;
+
+import org.springframework.http.HttpMethod;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Scripted user sessions through the gateway. Steps run one after another with no think time,
+ * and a session stops at its first failed step, as a user would not pay for a failed booking.
+ */
+enum Scenario {
+
+    BROWSE("browse",
+            get("GET /api/ticket-booking/showtimes?movieId={id}", random -> "/api/ticket-booking/showtimes?movieId=" + movieId(random)),
+            get("GET /api/ticket-booking/seats/{id}", random -> "/api/ticket-booking/seats/" + theaterMovieId(random))),
+
+    RECOMMEND("recommend",
+            get("GET /api/recommendations/user/{id}/hybrid", random -> "/api/recommendations/user/" + userId(random) + "/hybrid?limit=10")),
+
+    BOOK("book",
+            get("GET /api/ticket-booking/seats/{id}", random -> "/api/ticket-booking/seats/" + theaterMovieId(random)),
+            post("POST /api/ticket-booking/bookings", random -> "/api/ticket-booking/bookings", Scenario::booking)),
+
+    PAY("pay",
+            post("POST /api/ticket-booking/bookings", random -> "/api/ticket-booking/bookings", Scenario::booking),
+            post("POST /api/ticket-booking/payments", random -> "/api/ticket-booking/payments", Scenario::payment));
+
+    private final String label;
+    private final List<Step> steps;
+
+    Scenario(String label, Step... steps) {
+        this.label = label;
+        this.steps = Collections.unmodifiableList(Arrays.asList(steps));
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    static Scenario fromLabel(String label) {
+        for (Scenario scenario : values()) {
+            if (scenario.label.equals(label)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario " + label + ", expected browse, recommend, book or pay");
+    }
+
+    /**
+     * One request: the route it is reported under, and its path and body for a session's random ids
+     */
+    static final class Step {
+        private final HttpMethod method;
+        private final String route;
+        private final Function<Random, String> path;
+        private final Function<Random, String> body;
+
+        private Step(HttpMethod method, String route, Function<Random, String> path, Function<Random, String> body) {
+            this.method = method;
+            this.route = route;
+            this.path = path;
+            this.body = body;
+        }
+
+        HttpMethod getMethod() {
+            return method;
+        }
+
+        String getRoute() {
+            return route;
+        }
+
+        String path(Random random) {
+            return path.apply(random);
+        }
+
+        String body(Random random) {
+            return body != null ? body.apply(random) : null;
+        }
+    }
+
+    private static Step get(String route, Function<Random, String> path) {
+        return new Step(HttpMethod.GET, route, path, null);
+    }
+
+    private static Step post(String route, Function<Random, String> path, Function<Random, String> body) {
+        return new Step(HttpMethod.POST, route, path, body);
+    }
+
+    // Id ranges of the MovieLens-backed catalog and the seeded theaters
+    private static int userId(Random random) {
+        return 1 + random.nextInt(610);
+    }
+
+    private static int movieId(Random random) {
+        return 1 + random.nextInt(9742);
+    }
+
+    private static int theaterMovieId(Random random) {
+        return 1 + random.nextInt(200);
+    }
+
+    private static String booking(Random random) {
+        return "{\"userId\":" + userId(random) + ",\"theaterMovieId\":" + theaterMovieId(random)
+                + ",\"numberOfSeats\":" + (1 + random.nextInt(4)) + ",\"pricePerTicket\":12.0}";
+    }
+
+    private static String payment(Random random) {
+        return "{\"bookingId\":" + (1 + random.nextInt(100_000)) + ",\"paymentMethod\":\"CARD\",\"amount\":29.52}";
+    }
+}
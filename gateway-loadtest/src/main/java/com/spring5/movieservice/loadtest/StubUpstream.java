@@ -0,0 +1,119 @@
+package com.spring5.movieservice.loadtest;
+
+import com.spring5.fault.LatencyDistribution;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An in-process stand-in for a backend service on a loopback port. Every request is answered after a
+ * sampled service time (waited without blocking a thread) with a canned body shaped like the real
+ * one, or with a 503 at the configured failure rate.
+ */
+final class StubUpstream implements AutoCloseable {
+
+    private static final byte[] RECOMMENDATIONS = json(recommendations());
+    private static final byte[] SEATS = json(seats());
+    private static final byte[] BOOKING = json("{\"bookingId\":52114,\"userId\":4217,\"theaterMovieId\":37,\"numberOfSeats\":2,"
+            + "\"basePrice\":24.0,\"taxAmount\":4.32,\"serviceCharge\":1.2,\"discountAmount\":0.0,\"totalPrice\":29.52,"
+            + "\"pricePerTicket\":12.0,\"bookingTime\":\"2024-03-16T18:02:11\",\"status\":\"PENDING\","
+            + "\"reservationExpiresAt\":\"2024-03-16T18:12:11\"}");
+    private static final byte[] PAYMENT = json("{\"paymentId\":80931,\"bookingId\":52114,\"amount\":29.52,"
+            + "\"transactionId\":\"TXN_4F2A9C1E\",\"status\":\"SUCCESS\",\"response\":\"Payment processed successfully\"}");
+    private static final byte[] EMPTY = json("{}");
+
+    private final String name;
+    private final DisposableServer server;
+
+    private StubUpstream(String name, DisposableServer server) {
+        this.name = name;
+        this.server = server;
+    }
+
+    static StubUpstream start(String name, LatencyDistribution latency, double failureRate) {
+        DisposableServer server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Duration serviceTime = Duration.ofNanos(latency.sampleMicros(random) * 1000L);
+                    boolean fail = random.nextDouble() < failureRate;
+                    byte[] body = body(request.path());
+                    return request.receive().then()
+                            .then(Mono.delay(serviceTime))
+                            .then(Mono.defer(() -> fail
+                                    ? response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send().then()
+                                    : response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                            .sendByteArray(Mono.just(body)).then()));
+                })
+                .bindNow();
+        return new StubUpstream(name, server);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getPort() {
+        return server.port();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    // reactor-netty gives the path without the leading slash
+    private static byte[] body(String path) {
+        if (path.startsWith("recommendations")) {
+            return RECOMMENDATIONS;
+        } else if (path.startsWith("seats")) {
+            return SEATS;
+        } else if (path.startsWith("bookings")) {
+            return BOOKING;
+        } else if (path.startsWith("payments")) {
+            return PAYMENT;
+        }
+        return EMPTY;
+    }
+
+    private static String recommendations() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"movieId\":").append(318 + i * 97)
+                    .append(",\"title\":\"Recommended movie ").append(i + 1)
+                    .append("\",\"score\":").append(4.8 - i * 0.11)
+                    .append(",\"reason\":\"Combined collaborative and content-based filtering\",\"algorithm\":\"hybrid\",\"stale\":false}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static String seats() {
+        StringBuilder json = new StringBuilder("{\"theaterMovieId\":37,\"totalSeats\":180,\"seats\":[");
+        for (int i = 0; i < 180; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"seat\":\"").append((char) ('A' + i / 18)).append(i % 18 + 1)
+                    .append("\",\"available\":").append(i % 3 != 0).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static byte[] json(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
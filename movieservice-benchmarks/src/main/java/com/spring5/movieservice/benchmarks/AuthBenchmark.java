@@ -0,0 +1,61 @@
+package com.spring5.movieservice.benchmarks;
+
+import com.spring5.movieservice.common.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks made on every authenticated request, and password hashing at the cost factor
+ * AuthServiceImpl uses (the BCryptPasswordEncoder default of 10) for registration and login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthBenchmark {
+
+    private static final String PASSWORD = "correct-horse-battery-staple";
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    private String token;
+    private String passwordHash;
+
+    @Setup
+    public void setUp() {
+        token = jwtUtil.generateToken(4217, "moviegoer@example.com");
+        passwordHash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Integer userIdFromToken() {
+        return jwtUtil.getUserIdFromToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(4217, "moviegoer@example.com");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String encodePassword() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean matchPassword() {
+        return passwordEncoder.matches(PASSWORD, passwordHash);
+    }
+}
@@ -0,0 +1,105 @@
+package com.spring5.movieservice.benchmarks;
+
+import com.spring5.movieservice.domain.entity.BookingEntity;
+import com.spring5.movieservice.domain.entity.MovieEntity;
+import com.spring5.movieservice.domain.entity.TheaterMovieEntity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded entities shaped like production rows: a Saturday evening showtime, a well rated movie and
+ * the bookings of the 30 days before the show, as DemandPredictionServiceImpl loads them.
+ */
+final class BookingFixtures {
+
+    // Share of bookings made at each hour of the day, evenings busiest
+    private static final double[] HOURLY_WEIGHTS = {
+            0.2, 0.1, 0.1, 0.1, 0.1, 0.2, 0.4, 0.8, 1.2, 1.6, 2.0, 2.6,
+            3.2, 3.4, 3.2, 3.4, 4.0, 5.0, 6.4, 7.2, 6.8, 5.2, 3.0, 1.0};
+
+    static final LocalDateTime SHOW_TIME = LocalDateTime.of(2024, 3, 16, 19, 30); // a Saturday
+
+    private BookingFixtures() {
+    }
+
+    static MovieEntity movie() {
+        return MovieEntity.builder()
+                .movieId(1)
+                .title("Inception")
+                .description("A thief who steals corporate secrets through dream-sharing technology")
+                .genre("Action,Sci-Fi,Thriller")
+                .director("Christopher Nolan")
+                .cast("[\"Leonardo DiCaprio\", \"Joseph Gordon-Levitt\", \"Elliot Page\"]")
+                .releaseDate(LocalDate.of(2010, 7, 16))
+                .duration(148)
+                .posterUrl("https://example.com/posters/inception.jpg")
+                .rating(4.4)
+                .totalRatings(2350)
+                .language("English")
+                .certification("PG-13")
+                .build();
+    }
+
+    static TheaterMovieEntity showtime() {
+        return TheaterMovieEntity.builder()
+                .id(1)
+                .theaterId(1)
+                .movieId(1)
+                .screenNumber(3)
+                .showTime(SHOW_TIME)
+                .ticketPrice(12.0)
+                .dynamicPrice(12.0)
+                .basePrice(12.0)
+                .availableSeats(64)
+                .totalSeats(180)
+                .build();
+    }
+
+    static List<BookingEntity> history(int size) {
+        Random random = new Random(42);
+        double totalWeight = 0.0;
+        for (double weight : HOURLY_WEIGHTS) {
+            totalWeight += weight;
+        }
+        List<BookingEntity> bookings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bookings.add(booking(i + 1, SHOW_TIME.minusDays(random.nextInt(30))
+                    .withHour(hour(random.nextDouble() * totalWeight))
+                    .withMinute(random.nextInt(60)), random));
+        }
+        return bookings;
+    }
+
+    static BookingEntity booking(int bookingId, LocalDateTime bookingTime, Random random) {
+        int seats = 1 + random.nextInt(4);
+        double basePrice = seats * 12.0;
+        return BookingEntity.builder()
+                .bookingId(bookingId)
+                .userId(1 + random.nextInt(5000))
+                .theaterMovieId(1 + random.nextInt(200))
+                .numberOfSeats(seats)
+                .basePrice(basePrice)
+                .taxAmount(basePrice * 0.18)
+                .serviceCharge(basePrice * 0.05)
+                .discountAmount(0.0)
+                .totalPrice(basePrice * 1.23)
+                .pricePerTicket(12.0)
+                .bookingTime(bookingTime)
+                .status("CONFIRMED")
+                .build();
+    }
+
+    private static int hour(double point) {
+        for (int hour = 0; hour < HOURLY_WEIGHTS.length; hour++) {
+            point -= HOURLY_WEIGHTS[hour];
+            if (point < 0) {
+                return hour;
+            }
+        }
+        return HOURLY_WEIGHTS.length - 1;
+    }
+}
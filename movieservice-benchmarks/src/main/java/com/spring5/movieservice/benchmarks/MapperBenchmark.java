@@ -0,0 +1,97 @@
+package com.spring5.movieservice.benchmarks;
+
+import com.spring5.movieservice.common.ServiceUtil;
+import com.spring5.movieservice.domain.entity.BookingEntity;
+import com.spring5.movieservice.domain.entity.MovieEntity;
+import com.spring5.movieservice.domain.entity.RatingEntity;
+import com.spring5.movieservice.domain.service.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to API mapping and back for movies, bookings and ratings. The mappers are the beans the
+ * service wires (the MapStruct implementations and BookingMapper with its ServiceUtil).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MapperBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+
+    private MovieMapper movieMapper;
+    private BookingMapper bookingMapper;
+    private RatingMapper ratingMapper;
+
+    private MovieEntity movieEntity;
+    private Movie movie;
+    private BookingEntity bookingEntity;
+    private Booking booking;
+    private RatingEntity ratingEntity;
+    private Rating rating;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(ServiceUtil.class, MovieMapperImpl.class,
+                BookingMapper.class, RatingMapperImpl.class);
+        movieMapper = context.getBean(MovieMapper.class);
+        bookingMapper = context.getBean(BookingMapper.class);
+        ratingMapper = context.getBean(RatingMapper.class);
+
+        movieEntity = BookingFixtures.movie();
+        movie = movieMapper.entityToApi(movieEntity);
+        bookingEntity = BookingFixtures.booking(1, BookingFixtures.SHOW_TIME.minusDays(2), new Random(42));
+        booking = bookingMapper.entityToApi(bookingEntity); // resolves the service address once, as a warm service has
+        ratingEntity = RatingEntity.builder()
+                .ratingId(1)
+                .userId(4217)
+                .movieId(1)
+                .rating(5)
+                .review("Still the best heist movie of the decade")
+                .createdAt(LocalDateTime.of(2024, 3, 1, 21, 15))
+                .build();
+        rating = ratingMapper.entityToApi(ratingEntity);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Movie movieEntityToApi() {
+        return movieMapper.entityToApi(movieEntity);
+    }
+
+    @Benchmark
+    public MovieEntity movieApiToEntity() {
+        return movieMapper.apiToEntity(movie);
+    }
+
+    @Benchmark
+    public Booking bookingEntityToApi() {
+        return bookingMapper.entityToApi(bookingEntity);
+    }
+
+    @Benchmark
+    public BookingEntity bookingApiToEntity() {
+        return bookingMapper.apiToEntity(booking);
+    }
+
+    @Benchmark
+    public Rating ratingEntityToApi() {
+        return ratingMapper.entityToApi(ratingEntity);
+    }
+
+    @Benchmark
+    public RatingEntity ratingApiToEntity() {
+        return ratingMapper.apiToEntity(rating);
+    }
+}
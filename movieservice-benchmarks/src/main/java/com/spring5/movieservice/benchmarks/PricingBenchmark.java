@@ -0,0 +1,57 @@
+package com.spring5.movieservice.benchmarks;
+
+import com.spring5.movieservice.common.TaxCalculator;
+import com.spring5.movieservice.domain.algorithm.DemandPredictionAlgorithm;
+import com.spring5.movieservice.domain.entity.BookingEntity;
+import com.spring5.movieservice.domain.entity.MovieEntity;
+import com.spring5.movieservice.domain.entity.TheaterMovieEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking price calculation and demand prediction, the latter by the number of bookings in the
+ * 30 days before the show (what the service loads for every prediction).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PricingBenchmark {
+
+    @Param({"0", "100", "1000", "10000"})
+    private int historySize;
+
+    private final TaxCalculator taxCalculator = new TaxCalculator();
+    private final DemandPredictionAlgorithm predictionAlgorithm = new DemandPredictionAlgorithm();
+
+    private TheaterMovieEntity showtime;
+    private MovieEntity movie;
+    private List<BookingEntity> history;
+    private int currentBookings;
+
+    // Read from fields so the JIT cannot fold the arithmetic away
+    private Double basePrice = 36.0;
+    private Double discountAmount = 5.0;
+
+    @Setup
+    public void setUp() {
+        showtime = BookingFixtures.showtime();
+        movie = BookingFixtures.movie();
+        history = BookingFixtures.history(historySize);
+        currentBookings = showtime.getTotalSeats() - showtime.getAvailableSeats();
+    }
+
+    @Benchmark
+    public TaxCalculator.TaxCalculationResult taxesWithDiscount() {
+        return taxCalculator.calculateTaxesWithDiscount(basePrice, discountAmount);
+    }
+
+    @Benchmark
+    public double predictDemand() {
+        return predictionAlgorithm.predictDemand(showtime, movie, history, currentBookings);
+    }
+}
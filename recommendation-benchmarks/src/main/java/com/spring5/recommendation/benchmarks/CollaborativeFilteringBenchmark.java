@@ -0,0 +1,69 @@
+package com.spring5.recommendation.benchmarks;
+
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User similarity and collaborative recommendations on MovieLens data, by profile size
+ * (ratings of the user being served) and catalog size (most rated movies kept).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CollaborativeFilteringBenchmark {
+
+    @Param({"20", "100", "400"})
+    private int profileSize;
+
+    @Param({"1000", "4000", "9742"})
+    private int catalogSize;
+
+    private final CollaborativeFiltering collaborativeFiltering = new CollaborativeFiltering();
+
+    private List<Movie> catalog;
+    private Map<Integer, Map<Integer, Integer>> allUserRatings;
+    private Integer userId;
+    private Map<Integer, Integer> profile;
+    private Map<Integer, Integer> otherProfile;
+    private List<Rating> userRatings;
+
+    @Setup
+    public void setUp() {
+        MovieLensFixtures fixtures = MovieLensFixtures.load();
+        catalog = fixtures.catalog(catalogSize);
+        allUserRatings = fixtures.ratingsWithin(catalog);
+
+        // The two heaviest users, cut to the profile size, so the pair shares as many movies as it can
+        List<Integer> users = MovieLensFixtures.heaviestUsers(allUserRatings);
+        userId = users.get(0);
+        profile = MovieLensFixtures.profile(allUserRatings.get(userId), profileSize);
+        otherProfile = MovieLensFixtures.profile(allUserRatings.get(users.get(1)), profileSize);
+        allUserRatings.put(userId, profile);
+        userRatings = MovieLensFixtures.asRatings(userId, profile);
+    }
+
+    @Benchmark
+    public double userSimilarity() {
+        return collaborativeFiltering.calculateUserSimilarity(profile, otherProfile);
+    }
+
+    @Benchmark
+    public double cosineSimilarity() {
+        return collaborativeFiltering.calculateCosineSimilarity(profile, otherProfile);
+    }
+
+    @Benchmark
+    public List<Recommendation> recommendations() {
+        return collaborativeFiltering.getRecommendations(userId, allUserRatings, catalog, userRatings, 10);
+    }
+}
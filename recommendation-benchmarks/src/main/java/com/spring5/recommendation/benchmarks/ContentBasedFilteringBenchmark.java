@@ -0,0 +1,68 @@
+package com.spring5.recommendation.benchmarks;
+
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movie similarity and content-based recommendations on MovieLens data, by profile size
+ * and catalog size. The catalog's vectors are indexed with its tags once per trial, as the
+ * service does on a model rebuild.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ContentBasedFilteringBenchmark {
+
+    @Param({"20", "100", "400"})
+    private int profileSize;
+
+    @Param({"1000", "4000", "9742"})
+    private int catalogSize;
+
+    private ContentBasedFiltering contentBasedFiltering;
+    private List<Movie> catalog;
+    private List<Rating> userRatings;
+    private Movie first;
+    private Movie second;
+
+    @Setup
+    public void setUp() {
+        MovieLensFixtures fixtures = MovieLensFixtures.load();
+        catalog = fixtures.catalog(catalogSize);
+
+        ContentVectorIndex contentVectorIndex = new ContentVectorIndex();
+        contentVectorIndex.updateTags(fixtures.getTags());
+        contentVectorIndex.index(catalog);
+        contentBasedFiltering = new ContentBasedFiltering(contentVectorIndex);
+
+        Map<Integer, Map<Integer, Integer>> allUserRatings = fixtures.ratingsWithin(catalog);
+        Integer userId = MovieLensFixtures.heaviestUsers(allUserRatings).get(0);
+        userRatings = MovieLensFixtures.asRatings(userId, MovieLensFixtures.profile(allUserRatings.get(userId), profileSize));
+
+        // The two most rated movies of the catalog, which are also the most tagged
+        List<Movie> mostRated = fixtures.catalog(2);
+        first = mostRated.get(0);
+        second = mostRated.get(1);
+    }
+
+    @Benchmark
+    public double movieSimilarity() {
+        return contentBasedFiltering.calculateMovieSimilarity(first, second);
+    }
+
+    @Benchmark
+    public List<Recommendation> recommendations() {
+        return contentBasedFiltering.getRecommendations(catalog, userRatings, 10);
+    }
+}
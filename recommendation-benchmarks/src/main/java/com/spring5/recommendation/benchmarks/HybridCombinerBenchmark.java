@@ -0,0 +1,60 @@
+package com.spring5.recommendation.benchmarks;
+
+import com.spring5.recommendation.domain.algorithm.HybridCombiner;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hybrid merge of collaborative and content-based lists of the given length, half of whose
+ * movies appear in both. The merge averages duplicates in place, so every call merges fresh
+ * copies; copyOnly measures the copying alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HybridCombinerBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int limit;
+
+    private List<Recommendation> both;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        both = new ArrayList<>(limit * 2);
+        for (int i = 0; i < limit; i++) {
+            both.add(new Recommendation(i, "Movie " + i, 1.0 + 4.0 * random.nextDouble(), "Similar users liked this", "collaborative"));
+        }
+        for (int i = limit / 2; i < limit + limit / 2; i++) {
+            both.add(new Recommendation(i, "Movie " + i, random.nextDouble(), "Similar to movies you liked", "content-based"));
+        }
+    }
+
+    @Benchmark
+    public List<Recommendation> copyOnly() {
+        return copies();
+    }
+
+    @Benchmark
+    public List<Recommendation> combine() {
+        return HybridCombiner.combine(copies(), limit);
+    }
+
+    private List<Recommendation> copies() {
+        List<Recommendation> copies = new ArrayList<>(both.size());
+        for (Recommendation recommendation : both) {
+            copies.add(new Recommendation(recommendation.getMovieId(), recommendation.getTitle(), recommendation.getScore(),
+                    recommendation.getReason(), recommendation.getAlgorithm()));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,145 @@
+package com.spring5.recommendation.benchmarks;
+
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import com.spring5.recommendation.domain.movielens.MovieLensMovie;
+import com.spring5.recommendation.domain.movielens.MovieLensRating;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Rating;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * MovieLens data shaped for the benchmarks: catalogs of a given size and user profiles of a given size.
+ *
+ * The dataset directory is the movielens.dir system property, else datasets/ml-latest-small under the
+ * working directory or its parent. It is parsed once per benchmark JVM.
+ */
+public final class MovieLensFixtures {
+
+    private static MovieLensFixtures loaded;
+
+    private final List<Movie> moviesByPopularity; // most rated first
+    private final Map<Integer, Map<Integer, Integer>> allUserRatings;
+    private final Map<Integer, List<String>> tags;
+
+    private MovieLensFixtures(List<Movie> moviesByPopularity, Map<Integer, Map<Integer, Integer>> allUserRatings,
+                              Map<Integer, List<String>> tags) {
+        this.moviesByPopularity = moviesByPopularity;
+        this.allUserRatings = allUserRatings;
+        this.tags = tags;
+    }
+
+    public static synchronized MovieLensFixtures load() {
+        if (loaded != null) {
+            return loaded;
+        }
+        String directory = datasetDirectory();
+        MovieLensDataParser parser = new MovieLensDataParser();
+        try {
+            Map<Integer, Map<Integer, Integer>> allUserRatings = new HashMap<>();
+            Map<Integer, long[]> movieStats = new HashMap<>(); // movieId -> {sum, count}
+            for (MovieLensRating rating : parser.parseRatings(directory + "/ratings.csv")) {
+                allUserRatings.computeIfAbsent(rating.getUserId(), userId -> new HashMap<>())
+                        .put(rating.getMovieId(), rating.getRating());
+                long[] stats = movieStats.computeIfAbsent(rating.getMovieId(), movieId -> new long[2]);
+                stats[0] += rating.getRating();
+                stats[1]++;
+            }
+
+            List<Movie> movies = new ArrayList<>();
+            for (MovieLensMovie movie : parser.parseMovies(directory + "/movies.csv").values()) {
+                long[] stats = movieStats.getOrDefault(movie.getMovieId(), new long[2]);
+                // As in the offline harnesses, the genres stand in for the description
+                movies.add(new Movie(movie.getMovieId(), movie.getTitle(), movie.getGenres().replace(',', ' '), movie.getGenres(),
+                        null, "[]", null, null, null, stats[1] > 0 ? (double) stats[0] / stats[1] : 0.0, (int) stats[1],
+                        null, null, null));
+            }
+            movies.sort(Comparator.comparing(Movie::getTotalRatings).reversed().thenComparing(Movie::getMovieId));
+
+            loaded = new MovieLensFixtures(movies, allUserRatings, parser.parseTags(directory + "/tags.csv"));
+            return loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load MovieLens fixtures from " + directory, e);
+        }
+    }
+
+    private static String datasetDirectory() {
+        String configured = System.getProperty("movielens.dir");
+        if (configured != null) {
+            return configured;
+        }
+        for (String candidate : Arrays.asList("datasets/ml-latest-small", "../datasets/ml-latest-small")) {
+            if (Files.exists(Paths.get(candidate, "ratings.csv"))) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("MovieLens dataset not found; set -Dmovielens.dir=/path/to/ml-latest-small");
+    }
+
+    /**
+     * The most rated movies, as many as asked for (or all), in movie id order
+     */
+    public List<Movie> catalog(int size) {
+        List<Movie> catalog = new ArrayList<>(moviesByPopularity.subList(0, Math.min(size, moviesByPopularity.size())));
+        catalog.sort(Comparator.comparing(Movie::getMovieId));
+        return catalog;
+    }
+
+    /**
+     * Every user's ratings of movies in the catalog
+     */
+    public Map<Integer, Map<Integer, Integer>> ratingsWithin(List<Movie> catalog) {
+        Set<Integer> movieIds = new HashSet<>();
+        catalog.forEach(movie -> movieIds.add(movie.getMovieId()));
+        Map<Integer, Map<Integer, Integer>> within = new HashMap<>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> user : allUserRatings.entrySet()) {
+            Map<Integer, Integer> ratings = new HashMap<>();
+            user.getValue().forEach((movieId, rating) -> {
+                if (movieIds.contains(movieId)) {
+                    ratings.put(movieId, rating);
+                }
+            });
+            if (!ratings.isEmpty()) {
+                within.put(user.getKey(), ratings);
+            }
+        }
+        return within;
+    }
+
+    /**
+     * Users with the most ratings first, so the first ones can fill the largest profiles
+     */
+    public static List<Integer> heaviestUsers(Map<Integer, Map<Integer, Integer>> ratings) {
+        List<Integer> users = new ArrayList<>(ratings.keySet());
+        users.sort(Comparator.comparing((Integer userId) -> ratings.get(userId).size()).reversed().thenComparing(userId -> userId));
+        return users;
+    }
+
+    /**
+     * A user's profile cut to at most size ratings, lowest movie ids first so that profiles overlap
+     */
+    public static Map<Integer, Integer> profile(Map<Integer, Integer> ratings, int size) {
+        Map<Integer, Integer> profile = new LinkedHashMap<>();
+        for (Integer movieId : new TreeSet<>(ratings.keySet())) {
+            if (profile.size() == size) {
+                break;
+            }
+            profile.put(movieId, ratings.get(movieId));
+        }
+        return profile;
+    }
+
+    public static List<Rating> asRatings(Integer userId, Map<Integer, Integer> profile) {
+        List<Rating> ratings = new ArrayList<>(profile.size());
+        profile.forEach((movieId, rating) -> ratings.add(new Rating(null, userId, movieId, rating, null, null)));
+        return ratings;
+    }
+
+    public Map<Integer, List<String>> getTags() {
+        return tags;
+    }
+}
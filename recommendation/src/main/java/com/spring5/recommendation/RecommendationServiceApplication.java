@@ -1,5 +1,6 @@
 package com.spring5.recommendation;
 
+import com.spring5.fault.FaultInjectionExchangeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -13,8 +14,8 @@ public class RecommendationServiceApplication {
     }
 
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder webClientBuilder(FaultInjectionExchangeFilter faultInjectionFilter) {
+        return WebClient.builder().filter(faultInjectionFilter);
     }
 }
 
@@ -0,0 +1,160 @@
+package com.spring5.recommendation.common.fault;
+
+import com.spring5.fault.FaultInjector;
+import com.spring5.fault.FaultRule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Applies the inbound fault rules to requests this service serves, before anything else handles them.
+ * This is a servlet application, so the delay and a slow body hold the request thread, as a slow handler
+ * would; an injected error never reaches the handler. Injected responses carry an X-Fault-Injected header.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FaultInjectionFilter extends OncePerRequestFilter {
+
+    private final FaultInjector faultInjector;
+
+    @Autowired
+    public FaultInjectionFilter(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        FaultRule rule = faultInjector.isEnabled() ? faultInjector.inboundRule(request.getRequestURI()) : null;
+        if (rule == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Duration delay = rule.sampleDelay(random);
+        boolean error = rule.sampleError(random);
+        pause(delay);
+        if (error) {
+            response.setStatus(rule.getErrorStatus().value());
+            response.setHeader(FaultInjector.HEADER, "error");
+            return;
+        }
+        if (!rule.slowsBody()) {
+            if (!delay.isZero()) {
+                response.setHeader(FaultInjector.HEADER, "latency");
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setHeader(FaultInjector.HEADER, delay.isZero() ? "slow-body" : "latency,slow-body");
+        SlowBodyResponse slowResponse = new SlowBodyResponse(response, rule);
+        chain.doFilter(request, slowResponse);
+        slowResponse.flushWriter();
+    }
+
+    private static void pause(Duration delay) {
+        if (delay.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(delay.toMillis(), delay.getNano() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the body in flushed chunks of body-chunk bytes, pausing body-delay before each
+     */
+    private static final class SlowBodyResponse extends HttpServletResponseWrapper {
+
+        private final FaultRule rule;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        SlowBodyResponse(HttpServletResponse response, FaultRule rule) {
+            super(response);
+            this.rule = rule;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    private int sinceFlush;
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        while (length > 0) {
+                            if (sinceFlush == 0) {
+                                pause(rule.getBodyChunkDelay());
+                            }
+                            int count = Math.min(length, rule.getBodyChunkBytes() - sinceFlush);
+                            target.write(bytes, offset, count);
+                            offset += count;
+                            length -= count;
+                            sinceFlush += count;
+                            if (sinceFlush == rule.getBodyChunkBytes()) {
+                                target.flush();
+                                sinceFlush = 0;
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException, UnsupportedEncodingException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Restricts which movies an algorithm may score.
+ * The user's own rated movies are always kept in the catalog handed to the algorithm,
+ * because they build the user's profile; only the recommendations are limited to eligible movies.
+ * A candidate's score therefore does not change when other candidates are filtered out.
+ */
+public final class CandidateFilter {
+
+    private CandidateFilter() {
+    }
+
+    /**
+     * Catalog to pass to an algorithm: eligible movies plus the ones the user rated
+     */
+    public static List<Movie> restrict(List<Movie> allMovies, List<Rating> userRatings, Predicate<Integer> eligible) {
+        Set<Integer> ratedMovieIds = userRatings.stream()
+                .map(Rating::getMovieId)
+                .collect(Collectors.toSet());
+
+        List<Movie> restricted = new ArrayList<>();
+        for (Movie movie : allMovies) {
+            if (eligible.test(movie.getMovieId()) || ratedMovieIds.contains(movie.getMovieId())) {
+                restricted.add(movie);
+            }
+        }
+        return restricted;
+    }
+
+    /**
+     * Drop recommendations for movies that are not eligible
+     */
+    public static List<Recommendation> retain(List<Recommendation> recommendations, Predicate<Integer> eligible) {
+        List<Recommendation> retained = new ArrayList<>(recommendations.size());
+        for (Recommendation recommendation : recommendations) {
+            if (eligible.test(recommendation.getMovieId())) {
+                retained.add(recommendation);
+            }
+        }
+        return retained;
+    }
+}
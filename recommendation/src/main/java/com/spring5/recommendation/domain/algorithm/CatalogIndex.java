@@ -0,0 +1,165 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.RecommendationFilter;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Bitmaps over the catalog for attribute filters, built once per model.
+ *
+ * Every movie gets a bit position; there is one bitmap per genre, per language and per release year,
+ * and one per certification level holding the movies rated at or below it. A filter is evaluated with
+ * a few ORs and ANDs into one bitmap, so CandidateFilter can drop ineligible movies before scoring.
+ */
+public final class CatalogIndex {
+
+    // US (MPAA) certifications, least restrictive first
+    private static final List<String> CERTIFICATIONS = Arrays.asList("G", "PG", "PG-13", "R", "NC-17");
+
+    private final Map<Integer, Integer> positions;
+    private final Map<String, BitSet> byGenre;
+    private final Map<String, BitSet> byLanguage;
+    private final NavigableMap<Integer, BitSet> byYear;
+    private final BitSet[] atOrBelowCertification;
+
+    private CatalogIndex(Map<Integer, Integer> positions, Map<String, BitSet> byGenre, Map<String, BitSet> byLanguage,
+                         NavigableMap<Integer, BitSet> byYear, BitSet[] atOrBelowCertification) {
+        this.positions = positions;
+        this.byGenre = byGenre;
+        this.byLanguage = byLanguage;
+        this.byYear = byYear;
+        this.atOrBelowCertification = atOrBelowCertification;
+    }
+
+    public static CatalogIndex build(List<Movie> movies) {
+        Map<Integer, Integer> positions = new HashMap<>(movies.size() * 2);
+        Map<String, BitSet> byGenre = new HashMap<>();
+        Map<String, BitSet> byLanguage = new HashMap<>();
+        NavigableMap<Integer, BitSet> byYear = new TreeMap<>();
+        BitSet[] atOrBelowCertification = new BitSet[CERTIFICATIONS.size()];
+        for (int level = 0; level < atOrBelowCertification.length; level++) {
+            atOrBelowCertification[level] = new BitSet(movies.size());
+        }
+
+        for (Movie movie : movies) {
+            if (movie.getMovieId() == null || positions.containsKey(movie.getMovieId())) {
+                continue;
+            }
+            int position = positions.size();
+            positions.put(movie.getMovieId(), position);
+
+            if (movie.getGenre() != null) {
+                for (String genre : movie.getGenre().split("[,|]")) {
+                    if (!genre.trim().isEmpty()) {
+                        byGenre.computeIfAbsent(normalise(genre), key -> new BitSet()).set(position);
+                    }
+                }
+            }
+            if (movie.getLanguage() != null && !movie.getLanguage().trim().isEmpty()) {
+                byLanguage.computeIfAbsent(normalise(movie.getLanguage()), key -> new BitSet()).set(position);
+            }
+            if (movie.getReleaseDate() != null) {
+                byYear.computeIfAbsent(movie.getReleaseDate().getYear(), key -> new BitSet()).set(position);
+            }
+            int level = certificationLevel(movie.getCertification());
+            if (level >= 0) {
+                for (int above = level; above < atOrBelowCertification.length; above++) {
+                    atOrBelowCertification[above].set(position);
+                }
+            }
+        }
+        return new CatalogIndex(positions, byGenre, byLanguage, byYear, atOrBelowCertification);
+    }
+
+    /**
+     * Reject filters that cannot be evaluated, before any work is done
+     *
+     * @throws IllegalArgumentException naming the bad parameter
+     */
+    public static void validate(RecommendationFilter filter) {
+        if (filter.getMaxCertification() != null && certificationLevel(filter.getMaxCertification()) < 0) {
+            throw new IllegalArgumentException("Unknown certification: " + filter.getMaxCertification()
+                    + " (expected one of " + CERTIFICATIONS + ")");
+        }
+        if (filter.getMinYear() != null && filter.getMaxYear() != null && filter.getMinYear() > filter.getMaxYear()) {
+            throw new IllegalArgumentException("minYear is after maxYear");
+        }
+    }
+
+    /**
+     * Movie-id predicate for the filter; always true for an empty filter
+     */
+    public Predicate<Integer> matching(RecommendationFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return movieId -> true;
+        }
+        BitSet selected = select(filter);
+        return movieId -> {
+            Integer position = positions.get(movieId);
+            return position != null && selected.get(position);
+        };
+    }
+
+    /**
+     * Bit positions of the movies matching every attribute of the filter
+     */
+    public BitSet select(RecommendationFilter filter) {
+        BitSet selected = new BitSet(positions.size());
+        selected.set(0, positions.size());
+
+        if (filter.getGenre() != null && !filter.getGenre().isEmpty()) {
+            selected.and(anyOf(byGenre, filter.getGenre()));
+        }
+        if (filter.getLanguage() != null && !filter.getLanguage().isEmpty()) {
+            selected.and(anyOf(byLanguage, filter.getLanguage()));
+        }
+        if (filter.getMaxCertification() != null) {
+            int level = certificationLevel(filter.getMaxCertification());
+            if (level < 0) {
+                selected.clear();
+            } else {
+                selected.and(atOrBelowCertification[level]);
+            }
+        }
+        if (filter.getMinYear() != null || filter.getMaxYear() != null) {
+            BitSet inRange = new BitSet(positions.size());
+            int from = filter.getMinYear() != null ? filter.getMinYear() : Integer.MIN_VALUE;
+            int to = filter.getMaxYear() != null ? filter.getMaxYear() : Integer.MAX_VALUE;
+            if (from <= to) {
+                for (BitSet year : byYear.subMap(from, true, to, true).values()) {
+                    inRange.or(year);
+                }
+            }
+            selected.and(inRange);
+        }
+        return selected;
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    private static BitSet anyOf(Map<String, BitSet> bitmaps, List<String> values) {
+        BitSet union = new BitSet();
+        for (String value : values) {
+            BitSet bitmap = bitmaps.get(normalise(value));
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static String normalise(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Position in CERTIFICATIONS, or -1 for a missing or unknown certification
+     */
+    private static int certificationLevel(String certification) {
+        return certification == null ? -1 : CERTIFICATIONS.indexOf(certification.trim().toUpperCase(Locale.ROOT));
+    }
+}
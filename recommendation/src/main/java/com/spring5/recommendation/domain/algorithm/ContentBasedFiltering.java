@@ -3,6 +3,7 @@ package com.spring5.recommendation.domain.algorithm;
 import com.spring5.recommendation.domain.service.Movie;
 import com.spring5.recommendation.domain.service.Rating;
 import com.spring5.recommendation.domain.service.Recommendation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -15,6 +16,13 @@ import java.util.stream.Collectors;
 @Component
 public class ContentBasedFiltering {
 
+    private final ContentVectorIndex contentVectorIndex;
+
+    @Autowired
+    public ContentBasedFiltering(ContentVectorIndex contentVectorIndex) {
+        this.contentVectorIndex = contentVectorIndex;
+    }
+
     /**
      * Calculate similarity between two movies based on their features
      */
@@ -46,9 +54,43 @@ public class ContentBasedFiltering {
             }
         }
 
+        // Tag and description similarity (hashed TF-IDF vectors, see ContentVectorIndex)
+        double textSimilarity = contentVectorIndex.cosineSimilarity(movie1.getMovieId(), movie2.getMovieId());
+        if (textSimilarity >= 0.0) {
+            similarity += textSimilarity;
+            features++;
+        }
+
         return features > 0 ? similarity / features : 0.0;
     }
 
+    /**
+     * Recommendations as served. With int8 content vectors the int8 scores only pick a shortlist of
+     * limit * rescore-factor movies, and {@link #getRecommendations} ranks that shortlist again with
+     * the text similarity computed from the kept float weights (see ContentVectorIndex).
+     */
+    public List<Recommendation> getRescoredRecommendations(
+            List<Movie> allMovies,
+            List<Rating> userRatings,
+            int limit) {
+
+        if (!contentVectorIndex.rescoresShortlists()) {
+            return getRecommendations(allMovies, userRatings, limit);
+        }
+
+        List<Recommendation> shortlist = getRecommendations(allMovies, userRatings, limit * contentVectorIndex.getRescoreFactor());
+        if (shortlist.size() <= 1) {
+            return shortlist;
+        }
+
+        Set<Integer> shortlisted = shortlist.stream().map(Recommendation::getMovieId).collect(Collectors.toSet());
+        List<Movie> candidates = CandidateFilter.restrict(allMovies, userRatings, shortlisted::contains);
+
+        try (ContentVectorIndex.Pin pin = contentVectorIndex.pinFullPrecision()) {
+            return getRecommendations(candidates, userRatings, limit);
+        }
+    }
+
     /**
      * Get recommendations using content-based filtering
      */
@@ -0,0 +1,295 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import com.spring5.recommendation.domain.service.Movie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds hashed TF-IDF vectors built from MovieLens tags and movie descriptions.
+ * Vectors are rebuilt only when the catalog or the tag set changes, so content
+ * similarity at query time is a sparse dot product rather than string comparison.
+ *
+ * With recommendation.quantization.content-vectors=true the weights are kept as int8
+ * ({@link QuantizedSparseVector}) and scoring is two-pass: int8 scores pick a shortlist of
+ * k * rescore-factor movies, and only that shortlist is ranked again from the float weights kept
+ * off-heap (recommendation.quantization.keep-full-precision). Serving does this through
+ * {@link ContentBasedFiltering#getRescoredRecommendations} and {@link #pinFullPrecision},
+ * nearest-neighbour search in {@link #mostSimilar}. Without the kept weights both serve int8 scores.
+ *
+ * Vectors live in an immutable {@link ContentVectors} snapshot. {@link #build} makes a new one
+ * without touching the served one, {@link #install} swaps it in, and {@link #pin} lets a request
+ * keep reading the snapshot of the model version it started on.
+ */
+@Component
+public class ContentVectorIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentVectorIndex.class);
+
+    private final TfIdfVectorizer vectorizer = new TfIdfVectorizer();
+    private final Map<Integer, List<String>> movieTags = new ConcurrentHashMap<>();
+    private final AtomicInteger tagVersion = new AtomicInteger();
+
+    private volatile ContentVectors current = ContentVectors.EMPTY;
+    private final ThreadLocal<ContentVectors> pinned = new ThreadLocal<>();
+
+    @Value("${recommendation.quantization.content-vectors:false}")
+    private boolean quantized;
+
+    // Off-heap copy of the float weights, read only when rescoring a shortlist
+    @Value("${recommendation.quantization.keep-full-precision:true}")
+    private boolean keepFullPrecision = true;
+
+    // Shortlist size = k * rescoreFactor
+    @Value("${recommendation.quantization.rescore-factor:4}")
+    private int rescoreFactor = 4;
+
+    /**
+     * Replace the tags for the given movies (e.g. parsed from tags.csv)
+     */
+    public void updateTags(Map<Integer, List<String>> tags) {
+        tags.forEach((movieId, movieTagList) -> movieTags.put(movieId, new ArrayList<>(movieTagList)));
+        tagVersion.incrementAndGet();
+        LOG.info("Content vector index now has tags for {} movies", movieTags.size());
+    }
+
+    /**
+     * Make sure the served vectors match the given catalog, rebuilding only if it changed
+     */
+    public void index(Collection<Movie> movies) {
+        long fingerprint = fingerprint(movies);
+        if (fingerprint == current.getFingerprint()) {
+            return;
+        }
+        synchronized (this) {
+            if (fingerprint == current.getFingerprint()) {
+                return;
+            }
+            install(build(movies));
+        }
+    }
+
+    /**
+     * Build vectors for the catalog without changing what is currently served.
+     * Returns the served snapshot if nothing changed since it was built.
+     */
+    public ContentVectors build(Collection<Movie> movies) {
+        long fingerprint = fingerprint(movies);
+        ContentVectors served = current;
+        if (fingerprint == served.getFingerprint()) {
+            return served;
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Integer, SparseVector> built = vectorize(movies);
+        ContentVectors vectors = fromVectors(built, fingerprint);
+        LOG.info("Built {} TF-IDF vectors for {} movies in {} ms",
+                quantized ? "int8" : "float", built.size(), System.currentTimeMillis() - start);
+        return vectors;
+    }
+
+    /**
+     * Full-precision TF-IDF vectors of the movies' tags and descriptions, as {@link #build} stores them
+     */
+    public Map<Integer, SparseVector> vectorize(Collection<Movie> movies) {
+        Map<Integer, List<String>> termsByMovie = new HashMap<>(movies.size() * 2);
+        for (Movie movie : movies) {
+            if (movie.getMovieId() != null) {
+                termsByMovie.put(movie.getMovieId(),
+                        vectorizer.terms(movieTags.get(movie.getMovieId()), movie.getDescription()));
+            }
+        }
+        return vectorizer.vectorize(termsByMovie);
+    }
+
+    /**
+     * Wrap already-built vectors (e.g. from a model snapshot) in the configured storage mode
+     */
+    public ContentVectors fromVectors(Map<Integer, SparseVector> built, long fingerprint) {
+        return wrap(built, fingerprint, quantized, keepFullPrecision, rescoreFactor);
+    }
+
+    /**
+     * Wrap already-built vectors in the given storage mode, whatever this index is configured with
+     * (e.g. to compare modes offline)
+     */
+    public static ContentVectors wrap(Map<Integer, SparseVector> built, long fingerprint, boolean quantized,
+                                      boolean keepFullPrecision, int rescoreFactor) {
+        return quantized
+                ? new ContentVectors(Collections.emptyMap(), quantizeAll(built, keepFullPrecision), true,
+                        keepFullPrecision, rescoreFactor, fingerprint)
+                : new ContentVectors(built, Collections.emptyMap(), false, false, rescoreFactor, fingerprint);
+    }
+
+    /**
+     * Serve the given vectors from now on
+     */
+    public void install(ContentVectors vectors) {
+        current = vectors;
+    }
+
+    /**
+     * Make the current thread read the given vectors until the returned pin is closed
+     */
+    public Pin pin(ContentVectors vectors) {
+        ContentVectors outer = pinned.get();
+        pinned.set(vectors);
+        return () -> {
+            if (outer != null) {
+                pinned.set(outer);
+            } else {
+                pinned.remove();
+            }
+        };
+    }
+
+    /**
+     * Make the current thread score the vectors it reads now in full precision until the returned pin
+     * is closed, see {@link ContentVectors#fullPrecision}
+     */
+    public Pin pinFullPrecision() {
+        return pin(active().fullPrecision());
+    }
+
+    /**
+     * Whether the vectors the current thread reads are worth rescoring, see {@link ContentVectors#rescoresShortlists}
+     */
+    public boolean rescoresShortlists() {
+        return active().rescoresShortlists();
+    }
+
+    public int getRescoreFactor() {
+        return active().getRescoreFactor();
+    }
+
+    /**
+     * Full-precision vector for a movie (restored from the int8 store in quantized mode)
+     */
+    public SparseVector getVector(Integer movieId) {
+        return active().getVector(movieId);
+    }
+
+    /**
+     * Cosine similarity of the two movies' text vectors (the int8 approximation in quantized mode).
+     * Returns -1.0 when either movie has no text features, so callers can skip the feature.
+     */
+    public double cosineSimilarity(Integer movieId1, Integer movieId2) {
+        return active().cosineSimilarity(movieId1, movieId2);
+    }
+
+    /**
+     * The k movies whose text is most similar to the given movie (excluding itself)
+     */
+    public List<MovieScore> mostSimilar(Integer movieId, int k) {
+        return active().mostSimilar(movieId, k);
+    }
+
+    public int size() {
+        return active().size();
+    }
+
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    private ContentVectors active() {
+        ContentVectors vectors = pinned.get();
+        return vectors != null ? vectors : current;
+    }
+
+    /**
+     * Scope of a {@link #pin}; closing it restores what the thread read before
+     */
+    public interface Pin extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Brute-force full-precision nearest neighbours
+     */
+    public static List<MovieScore> exactTopK(Map<Integer, SparseVector> vectors, SparseVector query, int k, Integer excludeMovieId) {
+        TopKCollector topK = new TopKCollector(k);
+        for (Map.Entry<Integer, SparseVector> entry : vectors.entrySet()) {
+            if (!entry.getKey().equals(excludeMovieId)) {
+                topK.offer(entry.getKey(), query.cosine(entry.getValue()));
+            }
+        }
+        return topK.toSortedList();
+    }
+
+    /**
+     * Int8 scan for a shortlist of k * rescoreFactor candidates, then full-precision rescoring
+     * of that shortlist only. rescoreFactor &lt;= 0, or a query without its float weights kept,
+     * returns the raw int8 ranking.
+     */
+    public static List<MovieScore> quantizedTopK(Map<Integer, QuantizedSparseVector> vectors, QuantizedSparseVector query,
+                                                 int k, Integer excludeMovieId, int rescoreFactor) {
+        boolean rescore = rescoreFactor > 0 && query.hasFullPrecision();
+        TopKCollector shortlist = new TopKCollector(rescore ? k * rescoreFactor : k);
+        for (Map.Entry<Integer, QuantizedSparseVector> entry : vectors.entrySet()) {
+            if (!entry.getKey().equals(excludeMovieId)) {
+                shortlist.offer(entry.getKey(), query.cosine(entry.getValue()));
+            }
+        }
+        if (!rescore) {
+            return shortlist.toSortedList();
+        }
+
+        SparseVector fullQuery = query.toSparseVector();
+        TopKCollector rescored = new TopKCollector(k);
+        for (MovieScore candidate : shortlist.toSortedList()) {
+            rescored.offer(candidate.getMovieId(), fullQuery.cosine(vectors.get(candidate.getMovieId()).toSparseVector()));
+        }
+        return rescored.toSortedList();
+    }
+
+    /**
+     * Quantize every vector. Original weights, if kept, go into one off-heap buffer
+     * so they cost no Java heap and are only touched while rescoring.
+     */
+    public static Map<Integer, QuantizedSparseVector> quantizeAll(Map<Integer, SparseVector> vectors, boolean keepFullPrecision) {
+        FloatBuffer offHeap = null;
+        if (keepFullPrecision) {
+            int totalValues = vectors.values().stream().mapToInt(SparseVector::size).sum();
+            offHeap = ByteBuffer.allocateDirect(Math.max(1, totalValues) * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+
+        Map<Integer, QuantizedSparseVector> result = new HashMap<>(vectors.size() * 2);
+        for (Map.Entry<Integer, SparseVector> entry : vectors.entrySet()) {
+            SparseVector vector = entry.getValue();
+            FloatBuffer slice = null;
+            if (offHeap != null) {
+                int start = offHeap.position();
+                offHeap.put(vector.getValues());
+                slice = offHeap.duplicate();
+                slice.position(start).limit(start + vector.size());
+                slice = slice.slice();
+            }
+            result.put(entry.getKey(), QuantizedSparseVector.quantize(vector, slice));
+        }
+        return result;
+    }
+
+    /**
+     * Identifies the catalog text and tags that vectors built now would come from
+     */
+    public long fingerprint(Collection<Movie> movies) {
+        long hash = 17;
+        for (Movie movie : movies) {
+            hash = 31 * hash + Objects.hashCode(movie.getMovieId());
+            hash = 31 * hash + Objects.hashCode(movie.getDescription());
+        }
+        return 31 * hash + tagVersion.get();
+    }
+}
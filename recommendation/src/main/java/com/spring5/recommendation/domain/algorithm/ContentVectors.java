@@ -0,0 +1,211 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Immutable set of TF-IDF vectors for one catalog, either float or int8 ({@link QuantizedSparseVector}).
+ * Built by {@link ContentVectorIndex#build} and swapped in as a whole, so a reader never sees
+ * vectors from two different builds.
+ */
+public final class ContentVectors {
+
+    public static final ContentVectors EMPTY = new ContentVectors(
+            Collections.emptyMap(), Collections.emptyMap(), false, false, 0, Long.MIN_VALUE);
+
+    private final Map<Integer, SparseVector> vectors;
+    private final Map<Integer, QuantizedSparseVector> quantizedVectors;
+    private final boolean quantized;
+    private final boolean fullPrecisionKept;
+    private final int rescoreFactor;
+    private final long fingerprint;
+    private final boolean rescoring; // cosineSimilarity reads the kept float weights, see fullPrecision()
+
+    ContentVectors(Map<Integer, SparseVector> vectors, Map<Integer, QuantizedSparseVector> quantizedVectors,
+                   boolean quantized, boolean fullPrecisionKept, int rescoreFactor, long fingerprint) {
+        this(vectors, quantizedVectors, quantized, fullPrecisionKept, rescoreFactor, fingerprint, false);
+    }
+
+    private ContentVectors(Map<Integer, SparseVector> vectors, Map<Integer, QuantizedSparseVector> quantizedVectors,
+                           boolean quantized, boolean fullPrecisionKept, int rescoreFactor, long fingerprint,
+                           boolean rescoring) {
+        this.vectors = vectors;
+        this.quantizedVectors = quantizedVectors;
+        this.quantized = quantized;
+        this.fullPrecisionKept = fullPrecisionKept;
+        this.rescoreFactor = rescoreFactor;
+        this.fingerprint = fingerprint;
+        this.rescoring = rescoring;
+    }
+
+    /**
+     * Whether scores from these vectors are worth rescoring: int8 weights with the float originals
+     * kept and a positive rescore factor. Otherwise a rescore would only repeat the same scores.
+     */
+    public boolean rescoresShortlists() {
+        return quantized && fullPrecisionKept && rescoreFactor > 0;
+    }
+
+    /**
+     * The same vectors with {@link #cosineSimilarity} computed from the kept float weights.
+     * Meant for rescoring a shortlist only: each call restores both vectors from off-heap.
+     */
+    public ContentVectors fullPrecision() {
+        if (!rescoresShortlists() || rescoring) {
+            return this;
+        }
+        return new ContentVectors(vectors, quantizedVectors, true, true, rescoreFactor, fingerprint, true);
+    }
+
+    /**
+     * Only the vectors of the given movies, in the same storage mode. Kept float weights are copied into
+     * a buffer of their own, so the full set's off-heap buffer is released with it.
+     */
+    public ContentVectors retain(Predicate<Integer> movieIds) {
+        if (quantized && fullPrecisionKept) {
+            Map<Integer, SparseVector> kept = new HashMap<>();
+            quantizedVectors.forEach((movieId, vector) -> {
+                if (movieIds.test(movieId)) {
+                    kept.put(movieId, vector.toSparseVector());
+                }
+            });
+            return new ContentVectors(Collections.emptyMap(), ContentVectorIndex.quantizeAll(kept, true), true, true,
+                    rescoreFactor, fingerprint, rescoring);
+        }
+        return new ContentVectors(retained(vectors, movieIds), retained(quantizedVectors, movieIds), quantized,
+                fullPrecisionKept, rescoreFactor, fingerprint, rescoring);
+    }
+
+    /**
+     * These vectors plus the given full-precision ones (e.g. a user's rated movies sent to a shard that
+     * does not own them), stored the same way. Meant for one request: the added float weights stay on heap.
+     */
+    public ContentVectors with(Map<Integer, SparseVector> added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        if (!quantized) {
+            Map<Integer, SparseVector> combined = new HashMap<>(vectors);
+            combined.putAll(added);
+            return new ContentVectors(combined, quantizedVectors, false, false, rescoreFactor, fingerprint, rescoring);
+        }
+        Map<Integer, QuantizedSparseVector> combined = new HashMap<>(quantizedVectors);
+        added.forEach((movieId, vector) -> combined.put(movieId, QuantizedSparseVector.quantize(vector,
+                fullPrecisionKept ? FloatBuffer.wrap(vector.getValues()) : null)));
+        return new ContentVectors(vectors, combined, true, fullPrecisionKept, rescoreFactor, fingerprint, rescoring);
+    }
+
+    private static <V> Map<Integer, V> retained(Map<Integer, V> vectors, Predicate<Integer> movieIds) {
+        Map<Integer, V> retained = new HashMap<>();
+        vectors.forEach((movieId, vector) -> {
+            if (movieIds.test(movieId)) {
+                retained.put(movieId, vector);
+            }
+        });
+        return retained;
+    }
+
+    /**
+     * Full-precision vector for a movie (restored from the int8 store in quantized mode)
+     */
+    public SparseVector getVector(Integer movieId) {
+        if (quantized) {
+            QuantizedSparseVector vector = quantizedVectors.get(movieId);
+            return vector != null ? vector.toSparseVector() : SparseVector.EMPTY;
+        }
+        return vectors.getOrDefault(movieId, SparseVector.EMPTY);
+    }
+
+    /**
+     * Cosine similarity of the two movies' text vectors. In quantized mode this is the int8
+     * approximation, except on a {@link #fullPrecision} view.
+     * Returns -1.0 when either movie has no text features, so callers can skip the feature.
+     */
+    public double cosineSimilarity(Integer movieId1, Integer movieId2) {
+        if (quantized) {
+            QuantizedSparseVector q1 = quantizedVectors.getOrDefault(movieId1, QuantizedSparseVector.EMPTY);
+            QuantizedSparseVector q2 = quantizedVectors.getOrDefault(movieId2, QuantizedSparseVector.EMPTY);
+            if (q1.isEmpty() || q2.isEmpty()) {
+                return -1.0;
+            }
+            return rescoring ? q1.toSparseVector().cosine(q2.toSparseVector()) : q1.cosine(q2);
+        }
+
+        SparseVector v1 = getVector(movieId1);
+        SparseVector v2 = getVector(movieId2);
+        if (v1.isEmpty() || v2.isEmpty()) {
+            return -1.0;
+        }
+        return v1.cosine(v2);
+    }
+
+    /**
+     * The k movies whose text is most similar to the given movie (excluding itself)
+     */
+    public List<MovieScore> mostSimilar(Integer movieId, int k) {
+        if (quantized) {
+            QuantizedSparseVector query = quantizedVectors.get(movieId);
+            if (query == null || query.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return ContentVectorIndex.quantizedTopK(quantizedVectors, query, k, movieId, rescoreFactor);
+        }
+
+        SparseVector query = vectors.get(movieId);
+        if (query == null || query.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ContentVectorIndex.exactTopK(vectors, query, k, movieId);
+    }
+
+    /**
+     * Movies that have a vector
+     */
+    public Set<Integer> movieIds() {
+        return Collections.unmodifiableSet(quantized ? quantizedVectors.keySet() : vectors.keySet());
+    }
+
+    public int size() {
+        return quantized ? quantizedVectors.size() : vectors.size();
+    }
+
+    /**
+     * Total number of stored weights across all vectors
+     */
+    public long valueCount() {
+        long count = 0;
+        if (quantized) {
+            for (QuantizedSparseVector vector : quantizedVectors.values()) {
+                count += vector.size();
+            }
+        } else {
+            for (SparseVector vector : vectors.values()) {
+                count += vector.size();
+            }
+        }
+        return count;
+    }
+
+    public boolean isQuantized() {
+        return quantized;
+    }
+
+    /**
+     * Shortlist size per result when rescoring, see {@link #rescoresShortlists}
+     */
+    public int getRescoreFactor() {
+        return rescoreFactor;
+    }
+
+    /**
+     * Hash of the catalog text and tag version the vectors were built from
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,43 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import com.spring5.recommendation.domain.service.Recommendation;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Merges collaborative and content-based lists into the hybrid list
+ */
+public final class HybridCombiner {
+
+    private HybridCombiner() {
+    }
+
+    /**
+     * Combine collaborative and content-based results: a movie found by both gets the average score.
+     * The first recommendation of such a movie is updated in place.
+     */
+    public static List<Recommendation> combine(List<Recommendation> recommendations, int limit) {
+        // Combine and deduplicate recommendations
+        Map<Integer, Recommendation> combined = new HashMap<>();
+
+        for (Recommendation rec : recommendations) {
+            Integer movieId = rec.getMovieId();
+            if (combined.containsKey(movieId)) {
+                // Average the scores
+                Recommendation existing = combined.get(movieId);
+                double avgScore = (existing.getScore() + rec.getScore()) / 2.0;
+                existing.setScore(avgScore);
+                existing.setAlgorithm("hybrid");
+                existing.setReason("Combined collaborative and content-based filtering");
+            } else {
+                combined.put(movieId, rec);
+            }
+        }
+
+        return combined.values().stream()
+                .sorted(Comparator.comparing(Recommendation::getScore).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,28 @@
+package com.spring5.recommendation.domain.algorithm;
+
+/**
+ * A movie id paired with a score, used by the vector search and top-K helpers
+ */
+public final class MovieScore {
+
+    private final int movieId;
+    private final double score;
+
+    public MovieScore(int movieId, double score) {
+        this.movieId = movieId;
+        this.score = score;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MovieScore{movieId=%d, score=%.4f}", movieId, score);
+    }
+}
@@ -0,0 +1,124 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Int8 copy of a {@link SparseVector}: each weight is stored as a signed byte with one
+ * float scale per vector (weight ~= value * scale). Dot products run on integers and are
+ * rescaled once at the end; the optional full-precision buffer (off-heap) is only read
+ * when rescoring a final shortlist.
+ */
+public final class QuantizedSparseVector {
+
+    public static final QuantizedSparseVector EMPTY = quantize(SparseVector.EMPTY, null);
+
+    private final int[] indices;
+    private final byte[] values;
+    private final float scale;
+    private final double norm;
+    private final FloatBuffer fullPrecision;
+
+    private QuantizedSparseVector(int[] indices, byte[] values, float scale, double norm, FloatBuffer fullPrecision) {
+        this.indices = indices;
+        this.values = values;
+        this.scale = scale;
+        this.norm = norm;
+        this.fullPrecision = fullPrecision;
+    }
+
+    /**
+     * Symmetric per-vector quantization: the largest absolute weight maps to 127.
+     *
+     * @param fullPrecision optional buffer already holding the original weights, kept for rescoring
+     */
+    public static QuantizedSparseVector quantize(SparseVector vector, FloatBuffer fullPrecision) {
+        float[] source = vector.getValues();
+        float maxAbs = 0.0f;
+        for (float value : source) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+
+        float scale = maxAbs > 0.0f ? maxAbs / 127.0f : 1.0f;
+        byte[] quantized = new byte[source.length];
+        for (int i = 0; i < source.length; i++) {
+            quantized[i] = (byte) Math.round(source[i] / scale);
+        }
+
+        // Norm of the original weights: cosine stays comparable with full-precision scores
+        return new QuantizedSparseVector(vector.getIndices(), quantized, scale, vector.getNorm(), fullPrecision);
+    }
+
+    /**
+     * Integer merge-style dot product of the quantized weights (before rescaling).
+     * Cannot overflow: each term is at most 127 * 127, so it takes over 133k shared features.
+     */
+    public int dotInt(QuantizedSparseVector other) {
+        int[] otherIndices = other.indices;
+        byte[] otherValues = other.values;
+        int i = 0;
+        int j = 0;
+        int sum = 0;
+
+        while (i < indices.length && j < otherIndices.length) {
+            int a = indices[i];
+            int b = otherIndices[j];
+            if (a == b) {
+                sum += values[i] * otherValues[j];
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    public double dot(QuantizedSparseVector other) {
+        return (double) dotInt(other) * scale * other.scale;
+    }
+
+    public double cosine(QuantizedSparseVector other) {
+        if (norm == 0.0 || other.norm == 0.0) {
+            return 0.0;
+        }
+        return dot(other) / (norm * other.norm);
+    }
+
+    /**
+     * Full-precision vector for rescoring: the retained original weights if present,
+     * otherwise the dequantized approximation
+     */
+    public SparseVector toSparseVector() {
+        float[] restored = new float[values.length];
+        if (fullPrecision != null) {
+            fullPrecision.duplicate().get(restored);
+        } else {
+            for (int i = 0; i < values.length; i++) {
+                restored[i] = values[i] * scale;
+            }
+        }
+        return new SparseVector(indices, restored);
+    }
+
+    public boolean hasFullPrecision() {
+        return fullPrecision != null;
+    }
+
+    public boolean isEmpty() {
+        return indices.length == 0;
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    public double getNorm() {
+        return norm;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+}
@@ -0,0 +1,110 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Sparse feature vector stored as parallel arrays of sorted feature indices and values.
+ * The L2 norm is computed once on construction, so cosine similarity at query time
+ * is a single merge pass over both index arrays.
+ */
+public final class SparseVector {
+
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new float[0]);
+
+    private final int[] indices;
+    private final float[] values;
+    private final double norm;
+
+    /**
+     * @param indices feature indices, strictly ascending
+     * @param values  feature weights, parallel to {@code indices}
+     */
+    public SparseVector(int[] indices, float[] values) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("indices and values must have the same length");
+        }
+        this.indices = indices;
+        this.values = values;
+
+        double sumSquares = 0.0;
+        for (float value : values) {
+            sumSquares += (double) value * value;
+        }
+        this.norm = Math.sqrt(sumSquares);
+    }
+
+    /**
+     * Merge-style dot product: both index arrays are sorted, so one linear pass finds
+     * every shared feature without hashing or allocation.
+     */
+    public double dot(SparseVector other) {
+        int[] otherIndices = other.indices;
+        float[] otherValues = other.values;
+        int i = 0;
+        int j = 0;
+        double sum = 0.0;
+
+        while (i < indices.length && j < otherIndices.length) {
+            int a = indices[i];
+            int b = otherIndices[j];
+            if (a == b) {
+                sum += (double) values[i] * otherValues[j];
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Cosine similarity using the cached norms (0.0 when either vector is empty)
+     */
+    public double cosine(SparseVector other) {
+        if (norm == 0.0 || other.norm == 0.0) {
+            return 0.0;
+        }
+        return dot(other) / (norm * other.norm);
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    public boolean isEmpty() {
+        return indices.length == 0;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public float[] getValues() {
+        return values;
+    }
+
+    public double getNorm() {
+        return norm;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SparseVector)) return false;
+        SparseVector that = (SparseVector) o;
+        return Arrays.equals(indices, that.indices) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(indices) + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SparseVector{nnz=%d, norm=%.4f}", indices.length, norm);
+    }
+}
@@ -0,0 +1,151 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import java.util.*;
+
+/**
+ * Hashed TF-IDF vectorizer for movie text (MovieLens tags and descriptions).
+ * Terms are hashed into a fixed feature space instead of keeping a vocabulary,
+ * so vectors can be built in two passes and compared without any string work.
+ */
+public class TfIdfVectorizer {
+
+    public static final int DEFAULT_FEATURE_BITS = 18; // 262,144 hashed features
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "is", "it",
+            "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "with"
+    ));
+
+    private final int featureMask;
+
+    public TfIdfVectorizer() {
+        this(DEFAULT_FEATURE_BITS);
+    }
+
+    public TfIdfVectorizer(int featureBits) {
+        if (featureBits < 1 || featureBits > 30) {
+            throw new IllegalArgumentException("featureBits must be between 1 and 30");
+        }
+        this.featureMask = (1 << featureBits) - 1;
+    }
+
+    /**
+     * Turn a movie's tags and description into terms.
+     * Each tag contributes its individual words plus the whole tag as a phrase,
+     * so "dark comedy" matches both "dark comedy" and plain "comedy".
+     */
+    public List<String> terms(List<String> tags, String description) {
+        List<String> terms = new ArrayList<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                List<String> words = tokenize(tag);
+                terms.addAll(words);
+                if (words.size() > 1) {
+                    terms.add("tag:" + String.join(" ", words));
+                }
+            }
+        }
+        terms.addAll(tokenize(description));
+        return terms;
+    }
+
+    /**
+     * Lowercase, split on non-alphanumerics and drop stop words and single characters
+     */
+    public List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Build TF-IDF vectors for every document.
+     * Uses sublinear term frequency (1 + ln tf) and idf = ln((1 + N) / (1 + df)),
+     * so boilerplate shared by every document (e.g. the MovieLens placeholder description)
+     * gets zero weight and is dropped from the vector.
+     */
+    public Map<Integer, SparseVector> vectorize(Map<Integer, List<String>> termsByDocument) {
+        // Pass 1: hashed term counts per document and document frequency per feature
+        Map<Integer, int[][]> countsByDocument = new HashMap<>(termsByDocument.size() * 2);
+        Map<Integer, Integer> documentFrequency = new HashMap<>();
+
+        for (Map.Entry<Integer, List<String>> entry : termsByDocument.entrySet()) {
+            int[][] counts = hashedCounts(entry.getValue());
+            countsByDocument.put(entry.getKey(), counts);
+            for (int feature : counts[0]) {
+                documentFrequency.merge(feature, 1, Integer::sum);
+            }
+        }
+
+        // Pass 2: weight the counts
+        int totalDocuments = termsByDocument.size();
+        Map<Integer, SparseVector> vectors = new HashMap<>(countsByDocument.size() * 2);
+
+        for (Map.Entry<Integer, int[][]> entry : countsByDocument.entrySet()) {
+            int[] features = entry.getValue()[0];
+            int[] counts = entry.getValue()[1];
+            int[] indices = new int[features.length];
+            float[] values = new float[features.length];
+            int size = 0;
+
+            for (int i = 0; i < features.length; i++) {
+                double idf = Math.log((1.0 + totalDocuments) / (1.0 + documentFrequency.get(features[i])));
+                double weight = (1.0 + Math.log(counts[i])) * idf;
+                if (weight > 0.0) {
+                    indices[size] = features[i];
+                    values[size] = (float) weight;
+                    size++;
+                }
+            }
+            vectors.put(entry.getKey(), new SparseVector(Arrays.copyOf(indices, size), Arrays.copyOf(values, size)));
+        }
+
+        return vectors;
+    }
+
+    /**
+     * Hash terms into feature indices and count them.
+     * Returns {sortedFeatures, counts} as parallel arrays.
+     */
+    private int[][] hashedCounts(List<String> terms) {
+        if (terms == null || terms.isEmpty()) {
+            return new int[][]{new int[0], new int[0]};
+        }
+
+        int[] hashed = new int[terms.size()];
+        for (int i = 0; i < hashed.length; i++) {
+            hashed[i] = feature(terms.get(i));
+        }
+        Arrays.sort(hashed);
+
+        int[] features = new int[hashed.length];
+        int[] counts = new int[hashed.length];
+        int size = 0;
+        for (int feature : hashed) {
+            if (size > 0 && features[size - 1] == feature) {
+                counts[size - 1]++;
+            } else {
+                features[size] = feature;
+                counts[size] = 1;
+                size++;
+            }
+        }
+        return new int[][]{Arrays.copyOf(features, size), Arrays.copyOf(counts, size)};
+    }
+
+    private int feature(String term) {
+        // Spread String.hashCode bits before masking so short terms don't cluster
+        int h = term.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h & featureMask;
+    }
+}
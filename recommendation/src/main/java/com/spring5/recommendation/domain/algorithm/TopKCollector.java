@@ -0,0 +1,63 @@
+package com.spring5.recommendation.domain.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the K highest-scoring movies seen so far in a bounded min-heap,
+ * so ranking N candidates costs O(N log K) instead of a full sort.
+ * Ties are broken by lower movie id to keep results deterministic.
+ */
+public class TopKCollector {
+
+    private final int k;
+    private final PriorityQueue<MovieScore> heap;
+
+    public TopKCollector(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.max(1, k), TopKCollector::compareAscending);
+    }
+
+    public void offer(int movieId, double score) {
+        if (k <= 0) {
+            return;
+        }
+        if (heap.size() < k) {
+            heap.add(new MovieScore(movieId, score));
+        } else {
+            MovieScore weakest = heap.peek();
+            if (score < weakest.getScore() || (score == weakest.getScore() && movieId > weakest.getMovieId())) {
+                return;
+            }
+            heap.poll();
+            heap.add(new MovieScore(movieId, score));
+        }
+    }
+
+    /**
+     * Minimum score currently needed to enter the top K (negative infinity until full)
+     */
+    public double threshold() {
+        return heap.size() < k ? Double.NEGATIVE_INFINITY : heap.peek().getScore();
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * Results ordered best first
+     */
+    public List<MovieScore> toSortedList() {
+        List<MovieScore> result = new ArrayList<>(heap);
+        result.sort(Collections.reverseOrder(TopKCollector::compareAscending));
+        return result;
+    }
+
+    private static int compareAscending(MovieScore a, MovieScore b) {
+        int byScore = Double.compare(a.getScore(), b.getScore());
+        return byScore != 0 ? byScore : Integer.compare(b.getMovieId(), a.getMovieId());
+    }
+}
@@ -0,0 +1,263 @@
+package com.spring5.recommendation.domain.clustering;
+
+import com.spring5.recommendation.domain.algorithm.MovieScore;
+import com.spring5.recommendation.domain.algorithm.TopKCollector;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Fast recommendation tier for light users.
+ *
+ * In the background, users of the current model are clustered by taste ({@link UserProfileProjector},
+ * {@link MiniBatchKMeans}) and every cluster gets a ranked list of the movies its members rated above
+ * their own average. A light user (at most light-user-threshold ratings) is then served by projecting
+ * their live ratings, picking the nearest cluster and dropping movies they already rated: a lookup
+ * instead of a full collaborative and content-based pass. Everyone else, and any light user whose
+ * cluster list cannot fill the request, goes on to exact scoring.
+ */
+@Component
+public class ClusterRecommender {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterRecommender.class);
+
+    private static final double SHRINKAGE = 5.0; // damps movies liked by only a few cluster members
+    private static final long CHECK_INTERVAL_SECONDS = 15;
+
+    private final ModelRegistry modelRegistry;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-clustering");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final ForkJoinPool pool;
+
+    private volatile UserClusters clusters;
+
+    @Value("${recommendation.clustering.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${recommendation.clustering.cluster-count:32}")
+    private int clusterCount = 32;
+
+    // Minimum time between two clusterings, even if the model changes more often
+    @Value("${recommendation.clustering.refresh-seconds:600}")
+    private long refreshSeconds = 600;
+
+    @Value("${recommendation.clustering.light-user-threshold:20}")
+    private int lightUserThreshold = 20;
+
+    @Value("${recommendation.clustering.list-size:200}")
+    private int listSize = 200;
+
+    @Value("${recommendation.clustering.batch-size:1024}")
+    private int batchSize = 1024;
+
+    @Value("${recommendation.clustering.iterations:100}")
+    private int iterations = 100;
+
+    @Autowired
+    public ClusterRecommender(
+            ModelRegistry modelRegistry,
+            @Value("${recommendation.clustering.parallelism:0}") int parallelism) {
+        this.modelRegistry = modelRegistry;
+        // Default to half the cores so clustering never takes all of them from request threads
+        this.pool = new ForkJoinPool(parallelism > 0
+                ? parallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::refreshIfDue, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cheap pre-check before fetching anything: false if the model already knows this user as a heavy rater
+     */
+    public boolean mayServe(Integer userId) {
+        if (!enabled || clusters == null) {
+            return false;
+        }
+        RecommendationModel model = modelRegistry.currentModel();
+        if (model == null) {
+            return false;
+        }
+        Map<Integer, Integer> known = model.getAllUserRatings().get(userId);
+        return known == null || known.size() <= lightUserThreshold;
+    }
+
+    /**
+     * Recommendations from the user's cluster restricted to eligible movies,
+     * or an empty list if the exact path should handle this user
+     */
+    public List<Recommendation> recommend(List<Rating> userRatings, int limit, Predicate<Integer> eligible) {
+        UserClusters current = clusters;
+        if (!enabled || current == null || userRatings.isEmpty() || userRatings.size() > lightUserThreshold) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, Integer> ratings = new HashMap<>();
+        for (Rating rating : userRatings) {
+            ratings.put(rating.getMovieId(), rating.getRating());
+        }
+        float[] profile = UserProfileProjector.project(ratings);
+        if (profile == null) {
+            return Collections.emptyList();
+        }
+
+        UserClusters.ClusterList list = current.list(current.nearest(profile));
+        List<Recommendation> recommendations = new ArrayList<>(limit);
+        for (int rank = 0; rank < list.size() && recommendations.size() < limit; rank++) {
+            if (!ratings.containsKey(list.movieId(rank)) && eligible.test(list.movieId(rank))) {
+                recommendations.add(new Recommendation(
+                        list.movieId(rank),
+                        list.title(rank),
+                        list.score(rank),
+                        "Popular with viewers who share your taste",
+                        "cluster"
+                ));
+            }
+        }
+        return recommendations.size() == limit ? recommendations : Collections.emptyList();
+    }
+
+    private void refreshIfDue() {
+        try {
+            RecommendationModel model = modelRegistry.currentModel();
+            UserClusters current = clusters;
+            if (model == null) {
+                return;
+            }
+            if (current != null && (current.getModelVersion() == model.getVersion()
+                    || Duration.between(current.getBuiltAt(), LocalDateTime.now()).getSeconds() < refreshSeconds)) {
+                return;
+            }
+            clusters = build(model);
+        } catch (Exception e) {
+            LOG.error("User clustering failed, keeping the previous clusters", e);
+        }
+    }
+
+    /**
+     * Cluster the model's users and rank movies per cluster
+     */
+    public UserClusters build(RecommendationModel model) {
+        long start = System.currentTimeMillis();
+
+        List<Integer> userIds = new ArrayList<>();
+        List<float[]> profiles = new ArrayList<>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> user : model.getAllUserRatings().entrySet()) {
+            float[] profile = UserProfileProjector.project(user.getValue());
+            if (profile != null) {
+                userIds.add(user.getKey());
+                profiles.add(profile);
+            }
+        }
+
+        MiniBatchKMeans.Result result = new MiniBatchKMeans(clusterCount, batchSize, iterations, model.getVersion())
+                .fit(profiles.toArray(new float[0][]), pool);
+        int k = result.getCentroids().length;
+
+        List<List<Integer>> members = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < userIds.size(); i++) {
+            members.get(result.getAssignment()[i]).add(userIds.get(i));
+        }
+
+        Map<Integer, String> titles = new HashMap<>(model.getMovies().size() * 2);
+        for (Movie movie : model.getMovies()) {
+            titles.put(movie.getMovieId(), movie.getTitle());
+        }
+
+        UserClusters.ClusterList[] lists = new UserClusters.ClusterList[k];
+        int[] sizes = new int[k];
+        try {
+            pool.submit(() -> IntStream.range(0, k).parallel()
+                    .forEach(c -> lists[c] = rankCluster(members.get(c), model.getAllUserRatings(), titles))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User clustering interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("User clustering failed", e.getCause());
+        }
+        for (int c = 0; c < k; c++) {
+            sizes[c] = members.get(c).size();
+        }
+
+        LOG.info("Clustered {} users into {} clusters for model version {} in {} ms",
+                userIds.size(), k, model.getVersion(), System.currentTimeMillis() - start);
+        return new UserClusters(model.getVersion(), LocalDateTime.now(), result.getCentroids(), sizes, lists);
+    }
+
+    /**
+     * Score each movie by the members' mean-centred ratings, shrunk towards zero for small counts
+     */
+    private UserClusters.ClusterList rankCluster(List<Integer> members, Map<Integer, Map<Integer, Integer>> allUserRatings,
+                                                 Map<Integer, String> titles) {
+        Map<Integer, double[]> totals = new HashMap<>(); // movieId -> {sum of centred ratings, count}
+        for (Integer userId : members) {
+            Map<Integer, Integer> ratings = allUserRatings.get(userId);
+            double mean = ratings.values().stream().filter(Objects::nonNull).mapToInt(Integer::intValue).average().orElse(0.0);
+            for (Map.Entry<Integer, Integer> rating : ratings.entrySet()) {
+                if (rating.getValue() != null) {
+                    double[] total = totals.computeIfAbsent(rating.getKey(), movieId -> new double[2]);
+                    total[0] += rating.getValue() - mean;
+                    total[1]++;
+                }
+            }
+        }
+
+        TopKCollector topK = new TopKCollector(listSize);
+        for (Map.Entry<Integer, double[]> entry : totals.entrySet()) {
+            double score = entry.getValue()[0] / (entry.getValue()[1] + SHRINKAGE);
+            if (score > 0.0 && titles.containsKey(entry.getKey())) {
+                topK.offer(entry.getKey(), score);
+            }
+        }
+
+        List<MovieScore> ranked = topK.toSortedList();
+        int[] movieIds = new int[ranked.size()];
+        String[] rankedTitles = new String[ranked.size()];
+        double[] scores = new double[ranked.size()];
+        double best = ranked.isEmpty() ? 1.0 : ranked.get(0).getScore();
+        for (int i = 0; i < ranked.size(); i++) {
+            movieIds[i] = ranked.get(i).getMovieId();
+            rankedTitles[i] = titles.get(movieIds[i]);
+            scores[i] = ranked.get(i).getScore() / best;
+        }
+        return new UserClusters.ClusterList(movieIds, rankedTitles, scores);
+    }
+}
@@ -0,0 +1,152 @@
+package com.spring5.recommendation.domain.clustering;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Mini-batch k-means (Sculley, 2010) over L2-normalised vectors, using dot product as similarity.
+ * Each iteration assigns a random batch to the nearest centroid in parallel and moves the centroids
+ * towards their batch members with a per-centroid learning rate of 1 / (points seen so far).
+ * Seeded, so the same input gives the same clusters.
+ */
+public class MiniBatchKMeans {
+
+    private final int k;
+    private final int batchSize;
+    private final int iterations;
+    private final long seed;
+
+    public MiniBatchKMeans(int k, int batchSize, int iterations, long seed) {
+        if (k < 1 || batchSize < 1 || iterations < 0) {
+            throw new IllegalArgumentException("k and batchSize must be positive, iterations non-negative");
+        }
+        this.k = k;
+        this.batchSize = batchSize;
+        this.iterations = iterations;
+        this.seed = seed;
+    }
+
+    /**
+     * Cluster the points; assignment and centroid arrays are parallel to the input.
+     * Parallel steps run in the given pool so callers control how many cores are used.
+     */
+    public Result fit(float[][] points, ForkJoinPool pool) {
+        int n = points.length;
+        int clusters = Math.min(k, n);
+        if (clusters == 0) {
+            return new Result(new float[0][], new int[0]);
+        }
+        int dimensions = points[0].length;
+        Random random = new Random(seed);
+
+        // Initialise with distinct random points (partial Fisher-Yates)
+        int[] order = IntStream.range(0, n).toArray();
+        float[][] centroids = new float[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            int pick = c + random.nextInt(n - c);
+            int swap = order[c];
+            order[c] = order[pick];
+            order[pick] = swap;
+            centroids[c] = points[order[c]].clone();
+        }
+
+        long[] seen = new long[clusters];
+        int batch = Math.min(batchSize, n);
+        int[] batchPoints = new int[batch];
+        int[] batchAssignment = new int[batch];
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int i = 0; i < batch; i++) {
+                batchPoints[i] = random.nextInt(n);
+            }
+            float[][] current = centroids;
+            run(pool, () -> IntStream.range(0, batch).parallel()
+                    .forEach(i -> batchAssignment[i] = nearest(points[batchPoints[i]], current)));
+
+            for (int i = 0; i < batch; i++) {
+                int c = batchAssignment[i];
+                seen[c]++;
+                float eta = 1.0f / seen[c];
+                float[] centroid = centroids[c];
+                float[] point = points[batchPoints[i]];
+                for (int d = 0; d < dimensions; d++) {
+                    centroid[d] = (1.0f - eta) * centroid[d] + eta * point[d];
+                }
+            }
+        }
+
+        for (float[] centroid : centroids) {
+            normalise(centroid);
+        }
+
+        int[] assignment = new int[n];
+        float[][] finalCentroids = centroids;
+        run(pool, () -> IntStream.range(0, n).parallel()
+                .forEach(i -> assignment[i] = nearest(points[i], finalCentroids)));
+        return new Result(centroids, assignment);
+    }
+
+    /**
+     * Index of the centroid with the highest dot product
+     */
+    public static int nearest(float[] point, float[][] centroids) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            float[] centroid = centroids[c];
+            double score = 0.0;
+            for (int d = 0; d < point.length; d++) {
+                score += point[d] * centroid[d];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static void normalise(float[] vector) {
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0.0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] *= scale;
+            }
+        }
+    }
+
+    private static void run(ForkJoinPool pool, Runnable task) {
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Clustering interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Clustering failed", e.getCause());
+        }
+    }
+
+    public static final class Result {
+        private final float[][] centroids;
+        private final int[] assignment;
+
+        Result(float[][] centroids, int[] assignment) {
+            this.centroids = centroids;
+            this.assignment = assignment;
+        }
+
+        public float[][] getCentroids() {
+            return centroids;
+        }
+
+        public int[] getAssignment() {
+            return assignment;
+        }
+    }
+}
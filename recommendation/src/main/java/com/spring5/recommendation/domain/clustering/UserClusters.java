@@ -0,0 +1,82 @@
+package com.spring5.recommendation.domain.clustering;
+
+import java.time.LocalDateTime;
+
+/**
+ * One clustering run: the centroids and, per cluster, a ranked list of movies
+ * that members of the cluster liked. Immutable once built.
+ */
+public final class UserClusters {
+
+    private final long modelVersion;
+    private final LocalDateTime builtAt;
+    private final float[][] centroids;
+    private final int[] clusterSizes;
+    private final ClusterList[] lists;
+
+    public UserClusters(long modelVersion, LocalDateTime builtAt, float[][] centroids, int[] clusterSizes, ClusterList[] lists) {
+        this.modelVersion = modelVersion;
+        this.builtAt = builtAt;
+        this.centroids = centroids;
+        this.clusterSizes = clusterSizes;
+        this.lists = lists;
+    }
+
+    /**
+     * Cluster whose centroid is closest to the profile
+     */
+    public int nearest(float[] profile) {
+        return MiniBatchKMeans.nearest(profile, centroids);
+    }
+
+    public ClusterList list(int cluster) {
+        return lists[cluster];
+    }
+
+    public int clusterCount() {
+        return centroids.length;
+    }
+
+    public int clusterSize(int cluster) {
+        return clusterSizes[cluster];
+    }
+
+    public long getModelVersion() {
+        return modelVersion;
+    }
+
+    public LocalDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Ranked movies for one cluster as parallel arrays, best first; scores are in (0, 1]
+     */
+    public static final class ClusterList {
+        private final int[] movieIds;
+        private final String[] titles;
+        private final double[] scores;
+
+        public ClusterList(int[] movieIds, String[] titles, double[] scores) {
+            this.movieIds = movieIds;
+            this.titles = titles;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return movieIds.length;
+        }
+
+        public int movieId(int rank) {
+            return movieIds[rank];
+        }
+
+        public String title(int rank) {
+            return titles[rank];
+        }
+
+        public double score(int rank) {
+            return scores[rank];
+        }
+    }
+}
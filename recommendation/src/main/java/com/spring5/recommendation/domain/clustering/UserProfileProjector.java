@@ -0,0 +1,88 @@
+package com.spring5.recommendation.domain.clustering;
+
+import java.util.Map;
+
+/**
+ * Turns a user's ratings into a small dense taste vector for clustering.
+ * The mean-centred rating vector (one dimension per movie) is reduced to 64 dimensions with a
+ * random sign projection: every movie gets a fixed pseudo-random +1/-1 per dimension, derived
+ * from its id, so no projection matrix is stored and cosine similarity between users is
+ * approximately preserved.
+ */
+public final class UserProfileProjector {
+
+    public static final int DIMENSIONS = 64; // one sign bit per dimension of a 64-bit hash
+
+    private UserProfileProjector() {
+    }
+
+    /**
+     * L2-normalised profile, or null if the ratings carry no preference (e.g. no ratings)
+     */
+    public static float[] project(Map<Integer, Integer> ratings) {
+        if (ratings == null || ratings.isEmpty()) {
+            return null;
+        }
+
+        double sum = 0.0;
+        int count = 0;
+        for (Integer rating : ratings.values()) {
+            if (rating != null) {
+                sum += rating;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        float[] profile = accumulate(ratings, sum / count);
+        if (profile == null) {
+            // Every rating equal: centre on the middle of the 1-5 scale instead
+            profile = accumulate(ratings, 3.0);
+        }
+        return profile;
+    }
+
+    private static float[] accumulate(Map<Integer, Integer> ratings, double centre) {
+        double[] profile = new double[DIMENSIONS];
+        for (Map.Entry<Integer, Integer> entry : ratings.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            double weight = entry.getValue() - centre;
+            if (weight == 0.0) {
+                continue;
+            }
+            long signs = mix(entry.getKey());
+            for (int d = 0; d < DIMENSIONS; d++) {
+                profile[d] += ((signs >>> d) & 1L) == 0 ? weight : -weight;
+            }
+        }
+
+        double norm = 0.0;
+        for (double value : profile) {
+            norm += value * value;
+        }
+        if (norm == 0.0) {
+            return null;
+        }
+        norm = Math.sqrt(norm);
+
+        float[] normalised = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            normalised[d] = (float) (profile[d] / norm);
+        }
+        return normalised;
+    }
+
+    /**
+     * SplitMix64 finaliser: 64 well-mixed bits per movie id
+     */
+    private static long mix(int movieId) {
+        long z = movieId * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
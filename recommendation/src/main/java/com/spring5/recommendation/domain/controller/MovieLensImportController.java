@@ -1,5 +1,14 @@
 package com.spring5.recommendation.domain.controller;
 
+import com.spring5.recommendation.domain.evaluation.CrossValidationReport;
+import com.spring5.recommendation.domain.evaluation.CrossValidationRunner;
+import com.spring5.recommendation.domain.evaluation.QuantizationEvaluator;
+import com.spring5.recommendation.domain.evaluation.QuantizationReport;
+import com.spring5.recommendation.domain.evaluation.ReplayReport;
+import com.spring5.recommendation.domain.evaluation.ReplayRunner;
+import com.spring5.recommendation.domain.evaluation.SweepReport;
+import com.spring5.recommendation.domain.evaluation.SweepRequest;
+import com.spring5.recommendation.domain.evaluation.SweepRunner;
 import com.spring5.recommendation.domain.movielens.MovieLensDataImportService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +18,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,10 +31,20 @@ public class MovieLensImportController {
     private static final Logger LOG = LoggerFactory.getLogger(MovieLensImportController.class);
 
     private final MovieLensDataImportService importService;
+    private final QuantizationEvaluator quantizationEvaluator;
+    private final CrossValidationRunner crossValidationRunner;
+    private final ReplayRunner replayRunner;
+    private final SweepRunner sweepRunner;
 
     @Autowired
-    public MovieLensImportController(MovieLensDataImportService importService) {
+    public MovieLensImportController(MovieLensDataImportService importService, QuantizationEvaluator quantizationEvaluator,
+                                     CrossValidationRunner crossValidationRunner, ReplayRunner replayRunner,
+                                     SweepRunner sweepRunner) {
         this.importService = importService;
+        this.quantizationEvaluator = quantizationEvaluator;
+        this.crossValidationRunner = crossValidationRunner;
+        this.replayRunner = replayRunner;
+        this.sweepRunner = sweepRunner;
     }
 
     /**
@@ -70,6 +90,113 @@ public class MovieLensImportController {
         }
     }
 
+    /**
+     * Memory saved and recall@K lost by int8 content vectors on a MovieLens dataset, in nearest-neighbour
+     * search and in served content-based recommendations
+     * GET /movielens/quantization-report?datasetPath=/datasets/ml-latest-small&k=10&sampleSize=200&rescoreFactor=4&keepFullPrecision=true
+     */
+    @GetMapping("/quantization-report")
+    public ResponseEntity<QuantizationReport> quantizationReport(
+            @RequestParam String datasetPath,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(defaultValue = "200") int sampleSize,
+            @RequestParam(defaultValue = "4") int rescoreFactor,
+            @RequestParam(defaultValue = "true") boolean keepFullPrecision) {
+        try {
+            return ResponseEntity.ok(quantizationEvaluator.evaluateContentVectors(
+                    datasetPath, k, sampleSize, rescoreFactor, keepFullPrecision));
+        } catch (Exception e) {
+            LOG.error("Error building quantization report", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * k-fold offline evaluation of the algorithms; the report is also written as JSON and CSV
+     * POST /movielens/cross-validation?datasetPath=/datasets/ml-latest-small&folds=5&k=10&algorithms=hybrid,popular&maxUsers=0&seed=42
+     */
+    @PostMapping("/cross-validation")
+    public ResponseEntity<CrossValidationReport> crossValidation(
+            @RequestParam String datasetPath,
+            @RequestParam(defaultValue = "5") int folds,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) List<String> algorithms,
+            @RequestParam(defaultValue = "0") int maxUsers,
+            @RequestParam(defaultValue = "42") long seed) {
+        try {
+            return ResponseEntity.ok(crossValidationRunner.run(datasetPath, folds, k,
+                    algorithms != null ? algorithms : CrossValidationRunner.ALGORITHMS, maxUsers, seed));
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Invalid cross-validation request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            LOG.error("Error running cross-validation", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Replay the ratings in time order against incremental updates and full rebuilds
+     * POST /movielens/replay?datasetPath=/datasets/ml-latest-small&algorithm=affinity&speedUp=0&warmupFraction=0.5
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<ReplayReport> replay(
+            @RequestParam String datasetPath,
+            @RequestParam(defaultValue = "affinity") String algorithm,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(defaultValue = "0") double speedUp,
+            @RequestParam(defaultValue = "0.5") double warmupFraction,
+            @RequestParam(defaultValue = "86400") long checkpointSeconds,
+            @RequestParam(defaultValue = "3600") long lookaheadSeconds,
+            @RequestParam(defaultValue = "20") int usersPerCheckpoint,
+            @RequestParam(defaultValue = "2000") long rebuildIntervalMillis,
+            @RequestParam(defaultValue = "0") int maxRatings,
+            @RequestParam(required = false) List<String> modes) {
+        ReplayReport settings = new ReplayReport();
+        settings.setAlgorithm(algorithm);
+        settings.setK(k);
+        settings.setSpeedUp(speedUp);
+        settings.setWarmupFraction(warmupFraction);
+        settings.setCheckpointSeconds(checkpointSeconds);
+        settings.setLookaheadSeconds(lookaheadSeconds);
+        settings.setUsersPerCheckpoint(usersPerCheckpoint);
+        settings.setRebuildIntervalMillis(rebuildIntervalMillis);
+        try {
+            return ResponseEntity.ok(replayRunner.run(datasetPath, settings, maxRatings, modes != null ? modes : ReplayRunner.MODES));
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Invalid replay request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            LOG.error("Error replaying ratings", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Hyperparameter sweep of one algorithm, ranked by accuracy and by latency
+     * POST /movielens/sweep
+     *
+     * Request body:
+     * {
+     *   "datasetPath": "/datasets/ml-latest-small",
+     *   "algorithm": "user-knn",
+     *   "grid": { "minCommonItems": [1, 2, 3], "minSimilarity": [0.0, 0.05, 0.1] },  // omit for the default grid
+     *   "k": 10
+     * }
+     */
+    @PostMapping("/sweep")
+    public ResponseEntity<SweepReport> sweep(@RequestBody SweepRequest request) {
+        try {
+            return ResponseEntity.ok(sweepRunner.run(request));
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Invalid sweep request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            LOG.error("Error running parameter sweep", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Health check endpoint
      */
@@ -1,21 +1,60 @@
 package com.spring5.recommendation.domain.controller;
 
+import com.spring5.recommendation.domain.algorithm.CandidateFilter;
+import com.spring5.recommendation.domain.algorithm.CatalogIndex;
 import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
 import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.HybridCombiner;
+import com.spring5.recommendation.domain.algorithm.MovieScore;
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.algorithm.TopKCollector;
+import com.spring5.recommendation.domain.clustering.ClusterRecommender;
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.model.ModelLease;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.scoring.AffinityScorer;
+import com.spring5.recommendation.domain.refresh.RecommendationCache;
+import com.spring5.recommendation.domain.refresh.RecommendationRefresher;
+import com.spring5.recommendation.domain.service.BookableRecommendation;
+import com.spring5.recommendation.domain.service.LoginEvent;
 import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieAffinity;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
 import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.RatingEvent;
 import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.service.RecommendationFilter;
+import com.spring5.recommendation.domain.service.RecommendationPage;
 import com.spring5.recommendation.domain.service.RecommendationService;
+import com.spring5.recommendation.domain.service.ScoreRequest;
+import com.spring5.recommendation.domain.service.ShardProfile;
+import com.spring5.recommendation.domain.service.Showtime;
+import com.spring5.recommendation.domain.service.StaleMarker;
+import com.spring5.recommendation.domain.sharding.ShardCoordinator;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,226 +62,658 @@ public class RecommendationServiceImpl implements RecommendationService {
 
     private static final Logger LOG = LoggerFactory.getLogger(RecommendationServiceImpl.class);
 
-    private final WebClient webClient;
+    private static final String COLLABORATIVE = "collaborative";
+    private static final String CONTENT_BASED = "content-based";
+    private static final String HYBRID = "hybrid";
+    private static final String STREAM_PREVIEW = "preview";
+    private static final String STREAM_REFINED = "refined";
+    private static final String STREAM_FINAL = "final";
+    private static final int MAX_SCORE_BATCH = 1000;
+
+    // Highest average rating first, then most rated
+    private static final Comparator<Movie> POPULARITY = Comparator
+            .comparing((Movie movie) -> movie.getRating() != null ? movie.getRating() : 0.0, Comparator.reverseOrder())
+            .thenComparing(movie -> movie.getTotalRatings() != null ? movie.getTotalRatings() : 0, Comparator.reverseOrder());
+
+    private final MovieServiceClient movieServiceClient;
+    private final ModelRegistry modelRegistry;
     private final CollaborativeFiltering collaborativeFiltering;
     private final ContentBasedFiltering contentBasedFiltering;
+    private final ContentVectorIndex contentVectorIndex;
+    private final ShardPartitioner shardPartitioner;
+    private final ShardCoordinator shardCoordinator;
+    private final ClusterRecommender clusterRecommender;
+    private final RecommendationCache recommendationCache;
+    private final RecommendationRefresher recommendationRefresher;
+    private final RankedListSessions rankedListSessions;
+    private final ShowtimeIndex showtimeIndex;
+    private final ShadowEvaluator shadowEvaluator;
 
-    @Value("${movie.service.url:http://localhost:8081}")
-    private String movieServiceUrl;
+    // How deep the list behind a paginated session is computed
+    @Value("${recommendation.paging.depth:200}")
+    private int pagingDepth = 200;
 
     @Autowired
     public RecommendationServiceImpl(
-            WebClient.Builder webClientBuilder,
+            MovieServiceClient movieServiceClient,
+            ModelRegistry modelRegistry,
             CollaborativeFiltering collaborativeFiltering,
-            ContentBasedFiltering contentBasedFiltering) {
-        this.webClient = webClientBuilder.build();
+            ContentBasedFiltering contentBasedFiltering,
+            ContentVectorIndex contentVectorIndex,
+            ShardPartitioner shardPartitioner,
+            ShardCoordinator shardCoordinator,
+            ClusterRecommender clusterRecommender,
+            RecommendationCache recommendationCache,
+            RecommendationRefresher recommendationRefresher,
+            RankedListSessions rankedListSessions,
+            ShowtimeIndex showtimeIndex,
+            ShadowEvaluator shadowEvaluator) {
+        this.movieServiceClient = movieServiceClient;
+        this.modelRegistry = modelRegistry;
         this.collaborativeFiltering = collaborativeFiltering;
         this.contentBasedFiltering = contentBasedFiltering;
+        this.contentVectorIndex = contentVectorIndex;
+        this.shardPartitioner = shardPartitioner;
+        this.shardCoordinator = shardCoordinator;
+        this.clusterRecommender = clusterRecommender;
+        this.recommendationCache = recommendationCache;
+        this.recommendationRefresher = recommendationRefresher;
+        this.rankedListSessions = rankedListSessions;
+        this.showtimeIndex = showtimeIndex;
+        this.shadowEvaluator = shadowEvaluator;
+
+        if (shardCoordinator.isEnabled() && shardPartitioner.isPartitioned()) {
+            // Shard profiles are built from the full model, which a shard does not hold
+            throw new IllegalArgumentException("A coordinator (sharding.shard-urls) must run with shard-count 1");
+        }
+    }
+
+    @PostConstruct
+    public void registerRefresh() {
+        recommendationRefresher.setRefreshAction((userId, limit) ->
+                StaleMarker.tag(computeAndCache(userId, limit, new RecommendationFilter()).flatMapMany(Flux::fromIterable)).then());
+    }
+
+    @PostConstruct
+    public void registerShadowAlgorithms() {
+        shadowEvaluator.register(COLLABORATIVE, (userId, limit) -> shadow(userId, (model, userRatings) ->
+                collaborativeFiltering.getRecommendations(userId, model.getAllUserRatings(),
+                        CandidateFilter.restrict(model.getMovies(), userRatings, movieId -> true), userRatings, limit)));
+        shadowEvaluator.register(CONTENT_BASED, (userId, limit) -> shadow(userId, (model, userRatings) -> {
+            try (ContentVectorIndex.Pin pin = contentVectorIndex.pin(model.getContentVectors())) {
+                return contentBasedFiltering.getRescoredRecommendations(
+                        CandidateFilter.restrict(model.getMovies(), userRatings, movieId -> true), userRatings, limit);
+            }
+        }));
+        shadowEvaluator.register("affinity", (userId, limit) -> shadow(userId, (model, userRatings) ->
+                rankByAffinity(model, userRatings, limit)));
+    }
+
+    /**
+     * Run a shadow algorithm on the current model with the user's ratings. Called on a shadow thread,
+     * so the ratings of users the model does not know yet are fetched blocking.
+     */
+    private List<Recommendation> shadow(Integer userId, BiFunction<RecommendationModel, List<Rating>, List<Recommendation>> algorithm) {
+        try (ModelLease lease = modelRegistry.acquire()) {
+            RecommendationModel model = lease.getModel();
+            if (model == null) {
+                return Collections.emptyList();
+            }
+            Map<Integer, Integer> known = model.getAllUserRatings().get(userId);
+            List<Rating> userRatings;
+            if (known != null) {
+                userRatings = new ArrayList<>(known.size());
+                for (Map.Entry<Integer, Integer> rating : known.entrySet()) {
+                    userRatings.add(new Rating(null, userId, rating.getKey(), rating.getValue(), null, null));
+                }
+            } else {
+                userRatings = movieServiceClient.fetchUserRatings(userId).collectList().block(Duration.ofSeconds(10));
+            }
+            if (userRatings == null || userRatings.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return algorithm.apply(model, userRatings);
+        }
+    }
+
+    /**
+     * Candidate algorithm: every unrated movie ranked by {@link AffinityScorer}
+     */
+    private static List<Recommendation> rankByAffinity(RecommendationModel model, List<Rating> userRatings, int limit) {
+        Map<Integer, Integer> ratings = userRatings.stream()
+                .collect(Collectors.toMap(Rating::getMovieId, Rating::getRating, (first, second) -> second));
+        Map<Integer, String> titles = new HashMap<>();
+        List<Integer> candidates = new ArrayList<>();
+        for (Movie movie : model.getMovies()) {
+            if (!ratings.containsKey(movie.getMovieId())) {
+                candidates.add(movie.getMovieId());
+                titles.put(movie.getMovieId(), movie.getTitle());
+            }
+        }
+        TopKCollector topK = new TopKCollector(limit);
+        for (MovieAffinity affinity : AffinityScorer.score(model, ratings, candidates)) {
+            topK.offer(affinity.getMovieId(), affinity.getScore());
+        }
+        List<Recommendation> recommendations = new ArrayList<>(limit);
+        for (MovieScore movieScore : topK.toSortedList()) {
+            recommendations.add(new Recommendation(movieScore.getMovieId(), titles.get(movieScore.getMovieId()),
+                    movieScore.getScore(), "Matches your taste profile", "affinity"));
+        }
+        return recommendations;
     }
 
     @Override
-    public Flux<Recommendation> getRecommendationsForUser(Integer userId, Integer limit) {
+    public Flux<Recommendation> getRecommendationsForUser(Integer userId, Integer limit, RecommendationFilter filter) {
         LOG.info("Getting hybrid recommendations for user: {}", userId);
-        return getHybridRecommendations(userId, limit);
+        return getHybridRecommendations(userId, limit, filter);
     }
 
     @Override
-    public Flux<Recommendation> getCollaborativeFilteringRecommendations(Integer userId, Integer limit) {
+    public Flux<Recommendation> getCollaborativeFilteringRecommendations(Integer userId, Integer limit, RecommendationFilter filter) {
         LOG.info("Getting collaborative filtering recommendations for user: {}", userId);
-        
-        return fetchUserRatings(userId)
-                .collectList()
-                .flatMapMany(userRatings -> {
-                    if (userRatings.isEmpty()) {
-                        return Flux.empty();
-                    }
-                    
-                    return fetchAllRatings()
-                            .collectList()
-                            .flatMapMany(allRatings -> {
-                                Map<Integer, Map<Integer, Integer>> allUserRatings = allRatings.stream()
-                                        .collect(Collectors.groupingBy(
-                                                Rating::getUserId,
-                                                Collectors.toMap(Rating::getMovieId, Rating::getRating)
-                                        ));
-                                
-                                return fetchAllMovies()
-                                        .collectList()
-                                        .flatMapMany(allMovies -> {
-                                            List<Recommendation> recommendations = collaborativeFiltering
-                                                    .getRecommendations(userId, allUserRatings, allMovies, userRatings, limit);
-                                            return Flux.fromIterable(recommendations);
-                                        });
-                            });
-                });
+        RecommendationFilter checkedFilter = checked(filter);
+
+        if (shardCoordinator.isEnabled()) {
+            return StaleMarker.tag(shardProfile(userId)
+                    .flatMapMany(profile -> shardCoordinator.fanOut(userId, COLLABORATIVE, limit, checkedFilter, profile)));
+        }
+        return StaleMarker.tag(computeCollaborative(userId, limit, movieId -> true, checkedFilter));
     }
 
     @Override
-    public Flux<Recommendation> getContentBasedRecommendations(Integer userId, Integer limit) {
+    public Flux<Recommendation> getContentBasedRecommendations(Integer userId, Integer limit, RecommendationFilter filter) {
         LOG.info("Getting content-based recommendations for user: {}", userId);
-        
-        return fetchUserRatings(userId)
-                .collectList()
-                .flatMapMany(userRatings -> {
-                    if (userRatings.isEmpty()) {
+        RecommendationFilter checkedFilter = checked(filter);
+
+        if (shardCoordinator.isEnabled()) {
+            return StaleMarker.tag(shardProfile(userId)
+                    .flatMapMany(profile -> shardCoordinator.fanOut(userId, CONTENT_BASED, limit, checkedFilter, profile)));
+        }
+        return StaleMarker.tag(computeContentBased(userId, limit, movieId -> true, checkedFilter));
+    }
+
+    /**
+     * Treat a missing filter as empty and reject one that cannot be evaluated
+     */
+    private static RecommendationFilter checked(RecommendationFilter filter) {
+        if (filter == null) {
+            return new RecommendationFilter();
+        }
+        try {
+            CatalogIndex.validate(filter);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return filter;
+    }
+
+    @Override
+    public Flux<BookableRecommendation> getBookableRecommendations(Integer userId, String city, LocalDate from, LocalDate to,
+                                                                   Integer limit, RecommendationFilter filter) {
+        LOG.info("Getting bookable recommendations for user {} in {}", userId, city);
+        RecommendationFilter checkedFilter = checked(filter);
+        if (!showtimeIndex.isReady()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Showtimes not loaded yet"));
+        }
+        LocalDate firstDay = from != null ? from : LocalDate.now();
+        LocalDate lastDay = to != null ? to : firstDay.plusDays(6);
+        if (lastDay.isBefore(firstDay)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "to is before from"));
+        }
+
+        Map<Integer, List<Showtime>> playing = showtimeIndex.playing(city, firstDay.atStartOfDay(), lastDay.plusDays(1).atStartOfDay());
+        if (playing.isEmpty()) {
+            return Flux.empty();
+        }
+
+        // Only movies with seats are scored. The candidate set is small, so it is scored here
+        // even when sharding is on: the coordinator holds the full model.
+        Predicate<Integer> bookable = playing::containsKey;
+        return StaleMarker.tag(Flux.merge(
+                                computeCollaborative(userId, limit, bookable, checkedFilter),
+                                computeContentBased(userId, limit, bookable, checkedFilter))
+                        .collectList()
+                        .flatMapMany(recommendations -> {
+                            List<Recommendation> combined = HybridCombiner.combine(recommendations, limit);
+                            if (combined.isEmpty()) {
+                                return getPopularMoviesFallback(userId, limit, checkedFilter, bookable);
+                            }
+                            return Flux.fromIterable(combined);
+                        }))
+                .map(recommendation -> {
+                    List<Showtime> showtimes = playing.get(recommendation.getMovieId());
+                    return new BookableRecommendation(recommendation, showtimes.get(0), showtimes.size());
+                });
+    }
+
+    @Override
+    public Mono<RecommendationPage> getRecommendationPage(Integer userId, String algorithm, Integer size, String cursor,
+                                                          RecommendationFilter filter) {
+        filter = checked(filter);
+        if (size < 1) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be positive"));
+        }
+        RankedListSessions.Cursor position;
+        try {
+            position = cursor != null ? RankedListSessions.decodeCursor(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+
+        // A cursor only continues the list it was issued for: same algorithm and same filter
+        String scope = algorithm + filter.toQueryString();
+        if (position != null) {
+            List<Recommendation> ranked = rankedListSessions.get(position.getSessionId(), userId, scope);
+            if (ranked != null) {
+                return Mono.just(page(position.getSessionId(), ranked, position.getOffset(), size));
+            }
+            // Session expired: rebuild the list and carry on at the same offset
+            LOG.info("Paging session for user {} expired, recomputing {} list", userId, algorithm);
+        }
+
+        Flux<Recommendation> ranked;
+        switch (algorithm) {
+            case HYBRID:
+                ranked = getHybridRecommendations(userId, pagingDepth, filter);
+                break;
+            case COLLABORATIVE:
+                ranked = getCollaborativeFilteringRecommendations(userId, pagingDepth, filter);
+                break;
+            case CONTENT_BASED:
+                ranked = getContentBasedRecommendations(userId, pagingDepth, filter);
+                break;
+            default:
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown algorithm: " + algorithm));
+        }
+        int offset = position != null ? position.getOffset() : 0;
+        return ranked.collectList()
+                .map(recommendations -> page(rankedListSessions.open(userId, scope, recommendations),
+                        recommendations, offset, size));
+    }
+
+    private static RecommendationPage page(String sessionId, List<Recommendation> ranked, int offset, int size) {
+        int from = Math.min(offset, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        String nextCursor = to < ranked.size() ? RankedListSessions.encodeCursor(sessionId, to) : null;
+        return new RecommendationPage(new ArrayList<>(ranked.subList(from, to)), nextCursor);
+    }
+
+    @Override
+    public Flux<Recommendation> getShardRecommendations(Integer userId, String algorithm, Integer limit,
+                                                        RecommendationFilter filter, ShardProfile profile) {
+        LOG.info("Getting {} recommendations for user {} on shard {}/{}",
+                algorithm, userId, shardPartitioner.getShardIndex(), shardPartitioner.getShardCount());
+
+        RecommendationFilter checkedFilter = checked(filter);
+        if (!COLLABORATIVE.equals(algorithm) && !CONTENT_BASED.equals(algorithm)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown algorithm: " + algorithm));
+        }
+        List<Rating> userRatings = profile != null && profile.getRatings() != null ? profile.getRatings() : Collections.emptyList();
+        return Flux.usingWhen(modelRegistry.lease(),
+                lease -> {
+                    RecommendationModel model = lease.getModel();
+                    if (userRatings.isEmpty() || model == null) {
                         return Flux.empty();
                     }
-                    
-                    return fetchAllMovies()
-                            .collectList()
-                            .flatMapMany(allMovies -> {
-                                List<Recommendation> recommendations = contentBasedFiltering
-                                        .getRecommendations(allMovies, userRatings, limit);
-                                return Flux.fromIterable(recommendations);
-                            });
-                });
+
+                    // This shard's movies plus the rated ones from the profile, which mostly live on other shards
+                    List<Movie> catalog = new ArrayList<>(model.getMovies());
+                    for (Movie rated : profile.getRatedMovies() != null ? profile.getRatedMovies() : Collections.<Movie>emptyList()) {
+                        if (!shardPartitioner.owns(rated.getMovieId())) {
+                            catalog.add(rated);
+                        }
+                    }
+                    if (COLLABORATIVE.equals(algorithm)) {
+                        return Flux.fromIterable(collaborative(userId, limit, shardPartitioner::owns, checkedFilter,
+                                model, catalog, userRatings));
+                    }
+                    Map<Integer, SparseVector> ratedVectors = new HashMap<>();
+                    for (ShardProfile.TextVector vector : profile.getRatedVectors() != null
+                            ? profile.getRatedVectors() : Collections.<ShardProfile.TextVector>emptyList()) {
+                        if (!shardPartitioner.owns(vector.getMovieId())) {
+                            ratedVectors.put(vector.getMovieId(), new SparseVector(vector.getIndices(), vector.getValues()));
+                        }
+                    }
+                    return Flux.fromIterable(contentBased(limit, shardPartitioner::owns, checkedFilter, model, catalog,
+                            model.getContentVectors().with(ratedVectors), userRatings));
+                },
+                lease -> Mono.fromRunnable(lease::close));
+    }
+
+    /**
+     * What the shards need to know about the user: their ratings, fetched once here instead of by every shard,
+     * and the catalog rows and vectors of the rated movies, from this instance's full model
+     */
+    private Mono<ShardProfile> shardProfile(Integer userId) {
+        return movieServiceClient.fetchUserRatings(userId)
+                .collectList()
+                .filter(userRatings -> !userRatings.isEmpty())
+                .flatMap(userRatings -> Mono.usingWhen(modelRegistry.lease(),
+                        lease -> {
+                            RecommendationModel model = lease.getModel();
+                            if (model == null) {
+                                return Mono.<ShardProfile>empty();
+                            }
+                            List<Movie> ratedMovies = new ArrayList<>();
+                            List<ShardProfile.TextVector> ratedVectors = new ArrayList<>();
+                            for (Rating rating : userRatings) {
+                                Movie movie = model.getMovie(rating.getMovieId());
+                                if (movie == null) {
+                                    continue;
+                                }
+                                ratedMovies.add(movie);
+                                SparseVector vector = model.getContentVectors().getVector(rating.getMovieId());
+                                if (!vector.isEmpty()) {
+                                    ratedVectors.add(new ShardProfile.TextVector(rating.getMovieId(),
+                                            vector.getIndices(), vector.getValues()));
+                                }
+                            }
+                            return Mono.just(new ShardProfile(userRatings, ratedMovies, ratedVectors));
+                        },
+                        lease -> Mono.fromRunnable(lease::close)));
+    }
+
+    /**
+     * Collaborative filtering over the owned movies that pass the filter (see CandidateFilter),
+     * against the model version leased for this request
+     */
+    private Flux<Recommendation> computeCollaborative(Integer userId, Integer limit, Predicate<Integer> owned,
+                                                      RecommendationFilter filter) {
+        return Flux.usingWhen(modelRegistry.lease(),
+                lease -> movieServiceClient.fetchUserRatings(userId)
+                        .collectList()
+                        .flatMapMany(userRatings -> {
+                            RecommendationModel model = lease.getModel();
+                            if (userRatings.isEmpty() || model == null) {
+                                return Flux.empty();
+                            }
+                            return Flux.fromIterable(collaborative(userId, limit, owned, filter, model, model.getMovies(), userRatings));
+                        }),
+                lease -> Mono.fromRunnable(lease::close));
+    }
+
+    /**
+     * Content-based filtering over the owned movies that pass the filter (see CandidateFilter),
+     * against the model version leased for this request
+     */
+    private Flux<Recommendation> computeContentBased(Integer userId, Integer limit, Predicate<Integer> owned,
+                                                     RecommendationFilter filter) {
+        return Flux.usingWhen(modelRegistry.lease(),
+                lease -> movieServiceClient.fetchUserRatings(userId)
+                        .collectList()
+                        .flatMapMany(userRatings -> {
+                            RecommendationModel model = lease.getModel();
+                            if (userRatings.isEmpty() || model == null) {
+                                return Flux.empty();
+                            }
+                            return Flux.fromIterable(contentBased(limit, owned, filter, model, model.getMovies(),
+                                    model.getContentVectors(), userRatings));
+                        }),
+                lease -> Mono.fromRunnable(lease::close));
+    }
+
+    private List<Recommendation> collaborative(Integer userId, Integer limit, Predicate<Integer> owned, RecommendationFilter filter,
+                                               RecommendationModel model, List<Movie> catalog, List<Rating> userRatings) {
+        Predicate<Integer> eligible = owned.and(model.getCatalogIndex().matching(filter));
+        List<Movie> candidates = CandidateFilter.restrict(catalog, userRatings, eligible);
+        List<Recommendation> recommendations = collaborativeFiltering
+                .getRecommendations(userId, model.getAllUserRatings(), candidates, userRatings, limit);
+        return CandidateFilter.retain(recommendations, eligible);
+    }
+
+    private List<Recommendation> contentBased(Integer limit, Predicate<Integer> owned, RecommendationFilter filter,
+                                              RecommendationModel model, List<Movie> catalog, ContentVectors vectors,
+                                              List<Rating> userRatings) {
+        Predicate<Integer> eligible = owned.and(model.getCatalogIndex().matching(filter));
+        List<Movie> candidates = CandidateFilter.restrict(catalog, userRatings, eligible);
+        List<Recommendation> recommendations;
+        // Score with this version's vectors even if a newer model is swapped in meanwhile
+        try (ContentVectorIndex.Pin pin = contentVectorIndex.pin(vectors)) {
+            recommendations = contentBasedFiltering.getRescoredRecommendations(candidates, userRatings, limit);
+        }
+        return CandidateFilter.retain(recommendations, eligible);
+    }
+
+    @Override
+    public Flux<MovieAffinity> scoreMovies(Integer userId, ScoreRequest request) {
+        List<Integer> movieIds = request.getMovieIds();
+        if (movieIds == null || movieIds.isEmpty()) {
+            return Flux.empty();
+        }
+        if (movieIds.size() > MAX_SCORE_BATCH) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_SCORE_BATCH + " movies per call"));
+        }
+
+        return Flux.usingWhen(modelRegistry.lease(),
+                lease -> {
+                    RecommendationModel model = lease.getModel();
+                    if (model == null) {
+                        return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "No model loaded yet"));
+                    }
+                    // The model's copy of the user's ratings avoids a movie-service call per batch;
+                    // users it does not know yet are fetched live
+                    Map<Integer, Integer> known = model.getAllUserRatings().get(userId);
+                    Mono<Map<Integer, Integer>> userRatings = known != null
+                            ? Mono.just(known)
+                            : movieServiceClient.fetchUserRatings(userId)
+                                    .collectMap(Rating::getMovieId, Rating::getRating);
+                    return userRatings.flatMapIterable(ratings -> AffinityScorer.score(model, ratings, movieIds));
+                },
+                lease -> Mono.fromRunnable(lease::close));
+    }
+
+    @Override
+    public Mono<Void> onRatingChanged(RatingEvent event) {
+        if (event.getUserId() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rating event without userId"));
+        }
+        LOG.info("Rating changed for user {} (movie {}), scheduling a refresh", event.getUserId(), event.getMovieId());
+        recommendationRefresher.ratingChanged(event.getUserId());
+        shadowEvaluator.rated(event.getUserId(), event.getMovieId());
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> onLogin(LoginEvent event) {
+        if (event.getUserId() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Login event without userId"));
+        }
+        if (recommendationRefresher.warmUp(event.getUserId())) {
+            LOG.info("User {} logged in, warming up their recommendations", event.getUserId());
+        }
+        return Mono.empty();
     }
 
     @Override
-    public Flux<Recommendation> getHybridRecommendations(Integer userId, Integer limit) {
+    public Flux<Recommendation> getHybridRecommendations(Integer userId, Integer limit, RecommendationFilter filter) {
         LOG.info("Getting hybrid recommendations for user: {}", userId);
-        
-        Flux<Recommendation> collaborative = getCollaborativeFilteringRecommendations(userId, limit);
-        Flux<Recommendation> contentBased = getContentBasedRecommendations(userId, limit);
+        filter = checked(filter);
+
+        // Only unfiltered lists are cached; filtered widgets are computed per request
+        if (!filter.isEmpty()) {
+            return StaleMarker.tag(serveHybrid(userId, limit, filter));
+        }
+        long start = System.nanoTime();
+        List<Recommendation> cached = recommendationCache.get(userId, limit);
+        if (cached != null) {
+            LOG.info("Returning {} cached recommendations for user {}", cached.size(), userId);
+            shadowEvaluator.served(userId, limit, cached, System.nanoTime() - start);
+            return Flux.fromIterable(cached);
+        }
+        return StaleMarker.tag(computeAndCache(userId, limit, filter)
+                .doOnNext(recommendations -> shadowEvaluator.served(userId, limit, recommendations, System.nanoTime() - start))
+                .flatMapMany(Flux::fromIterable));
+    }
+
+    @Override
+    public Flux<ServerSentEvent<List<Recommendation>>> streamRecommendations(Integer userId, Integer limit,
+                                                                             RecommendationFilter filter) {
+        LOG.info("Streaming hybrid recommendations for user: {}", userId);
+        RecommendationFilter checkedFilter = checked(filter);
+
+        if (checkedFilter.isEmpty()) {
+            List<Recommendation> cached = recommendationCache.get(userId, limit);
+            if (cached != null) {
+                return Flux.just(event(STREAM_FINAL, cached));
+            }
+        }
+
+        // Cheap tier: the model's popularity order without the movies the model knows the user rated
+        Flux<ServerSentEvent<List<Recommendation>>> preview = Flux.defer(() -> {
+            List<Recommendation> popular = popularFromModel(modelRegistry.currentModel(), userId, limit, checkedFilter,
+                    movieId -> true);
+            return popular.isEmpty() ? Flux.empty() : Flux.just(event(STREAM_PREVIEW, popular));
+        });
+
+        // Each algorithm that finishes refines the list; both together give the full hybrid list
+        long stamp = recommendationCache.stamp();
+        List<Recommendation> scored = Collections.synchronizedList(new ArrayList<>());
+        Flux<ServerSentEvent<List<Recommendation>>> refined = Flux.merge(
+                        getCollaborativeFilteringRecommendations(userId, limit, checkedFilter).collectList(),
+                        getContentBasedRecommendations(userId, limit, checkedFilter).collectList())
+                .filter(partial -> !partial.isEmpty())
+                .flatMap(partial -> Mono.deferContextual(context -> {
+                    scored.addAll(partial);
+                    return Mono.just(event(STREAM_REFINED, tagged(HybridCombiner.combine(copies(scored), limit), context)));
+                }));
+        Mono<ServerSentEvent<List<Recommendation>>> last = Mono.deferContextual(context -> {
+            List<Recommendation> hybrid = HybridCombiner.combine(copies(scored), limit);
+            if (hybrid.isEmpty()) {
+                return getPopularMoviesFallback(userId, limit, checkedFilter, movieId -> true)
+                        .collectList()
+                        .map(popular -> event(STREAM_FINAL, tagged(popular, context)));
+            }
+            if (checkedFilter.isEmpty() && !StaleMarker.isStale(context)) {
+                recommendationCache.put(userId, stamp, limit, hybrid);
+            }
+            return Mono.just(event(STREAM_FINAL, tagged(hybrid, context)));
+        });
+
+        return StaleMarker.track(Flux.concat(preview, refined, last));
+    }
+
+    /**
+     * Top movies by average rating that the model does not know the user rated, using the model's filter
+     * bitmaps; empty without a model
+     */
+    private static List<Recommendation> popularFromModel(RecommendationModel model, Integer userId, int limit,
+                                                         RecommendationFilter filter, Predicate<Integer> available) {
+        if (model == null) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Integer> rated = model.getAllUserRatings().getOrDefault(userId, Collections.emptyMap());
+        Predicate<Integer> eligible = filter.isEmpty() ? available : available.and(model.getCatalogIndex().matching(filter));
+        return model.getMovies().stream()
+                .filter(movie -> !rated.containsKey(movie.getMovieId()) && eligible.test(movie.getMovieId()))
+                .sorted(POPULARITY)
+                .limit(limit)
+                .map(movie -> new Recommendation(movie.getMovieId(), movie.getTitle(), 0.7,
+                        "Popular movie you might like", "popular"))
+                .collect(Collectors.toList());
+    }
+
+    private static ServerSentEvent<List<Recommendation>> event(String name, List<Recommendation> recommendations) {
+        return ServerSentEvent.<List<Recommendation>>builder()
+                .event(name)
+                .data(recommendations)
+                .build();
+    }
+
+    private static List<Recommendation> tagged(List<Recommendation> recommendations, ContextView context) {
+        if (StaleMarker.isStale(context)) {
+            recommendations.forEach(recommendation -> recommendation.setStale(true));
+        }
+        return recommendations;
+    }
+
+    /**
+     * HybridCombiner.combine updates the first copy of a movie in place; events already emitted must not change
+     */
+    private static List<Recommendation> copies(List<Recommendation> recommendations) {
+        synchronized (recommendations) {
+            List<Recommendation> copies = new ArrayList<>(recommendations.size());
+            for (Recommendation recommendation : recommendations) {
+                Recommendation copy = new Recommendation(recommendation.getMovieId(), recommendation.getTitle(),
+                        recommendation.getScore(), recommendation.getReason(), recommendation.getAlgorithm());
+                copy.setStale(recommendation.isStale());
+                copies.add(copy);
+            }
+            return copies;
+        }
+    }
+
+    /**
+     * Compute the hybrid list and cache it, unless the user's ratings changed while it was computed
+     * or it was built from snapshot data
+     */
+    private Mono<List<Recommendation>> computeAndCache(Integer userId, Integer limit, RecommendationFilter filter) {
+        long stamp = recommendationCache.stamp();
+        return Mono.deferContextual(context -> serveHybrid(userId, limit, filter)
+                .collectList()
+                .doOnNext(recommendations -> {
+                    if (!StaleMarker.isStale(context)) {
+                        recommendationCache.put(userId, stamp, limit, recommendations);
+                    }
+                }));
+    }
+
+    private Flux<Recommendation> serveHybrid(Integer userId, Integer limit, RecommendationFilter filter) {
+        // Fast tier: light users get their taste cluster's precomputed list
+        if (clusterRecommender.mayServe(userId)) {
+            return movieServiceClient.fetchUserRatings(userId)
+                    .collectList()
+                    .flatMapMany(userRatings -> {
+                        RecommendationModel model = modelRegistry.currentModel();
+                        Predicate<Integer> eligible = model != null
+                                ? model.getCatalogIndex().matching(filter)
+                                : movieId -> filter.isEmpty();
+                        List<Recommendation> fromCluster = clusterRecommender.recommend(userRatings, limit, eligible);
+                        if (!fromCluster.isEmpty()) {
+                            LOG.info("Returning {} cluster recommendations for user {}", fromCluster.size(), userId);
+                            return Flux.fromIterable(fromCluster);
+                        }
+                        return computeHybrid(userId, limit, filter);
+                    });
+        }
+        return computeHybrid(userId, limit, filter);
+    }
+
+    private Flux<Recommendation> computeHybrid(Integer userId, Integer limit, RecommendationFilter filter) {
+        Flux<Recommendation> collaborative = getCollaborativeFilteringRecommendations(userId, limit, filter);
+        Flux<Recommendation> contentBased = getContentBasedRecommendations(userId, limit, filter);
         
         return Flux.merge(collaborative, contentBased)
                 .collectList()
                 .flatMapMany(recommendations -> {
                     LOG.info("Hybrid recommendations: collaborative + content-based = {} total", recommendations.size());
-                    
-                    // Combine and deduplicate recommendations
-                    Map<Integer, Recommendation> combined = new HashMap<>();
-                    
-                    for (Recommendation rec : recommendations) {
-                        Integer movieId = rec.getMovieId();
-                        if (combined.containsKey(movieId)) {
-                            // Average the scores
-                            Recommendation existing = combined.get(movieId);
-                            double avgScore = (existing.getScore() + rec.getScore()) / 2.0;
-                            existing.setScore(avgScore);
-                            existing.setAlgorithm("hybrid");
-                            existing.setReason("Combined collaborative and content-based filtering");
-                        } else {
-                            combined.put(movieId, rec);
-                        }
-                    }
-                    
-                    List<Recommendation> finalRecommendations = combined.values().stream()
-                            .sorted(Comparator.comparing(Recommendation::getScore).reversed())
-                            .limit(limit)
-                            .collect(Collectors.toList());
+
+                    List<Recommendation> finalRecommendations = HybridCombiner.combine(recommendations, limit);
                     
                     // If no recommendations from algorithms, fallback to popular movies
                     if (finalRecommendations.isEmpty()) {
                         LOG.info("No recommendations from algorithms, falling back to popular movies");
-                        return getPopularMoviesFallback(userId, limit);
+                        return getPopularMoviesFallback(userId, limit, filter, movieId -> true);
                     }
                     
                     LOG.info("Returning {} hybrid recommendations", finalRecommendations.size());
                     return Flux.fromIterable(finalRecommendations);
                 });
     }
-    
+
     /**
-     * Fallback: Return popular/top-rated movies that user hasn't rated
+     * Fallback: popular movies the user hasn't rated, among the available ones. Served from the leased
+     * model, so it needs neither the movie service nor its snapshot and works while both are cold.
      */
-    private Flux<Recommendation> getPopularMoviesFallback(Integer userId, Integer limit) {
-        LOG.info("Fallback: Fetching popular movies for user {}", userId);
-        
-        return fetchUserRatings(userId)
-                .collectList()
-                .flatMapMany(userRatings -> {
-                    Set<Integer> ratedMovieIds = userRatings.stream()
-                            .map(Rating::getMovieId)
-                            .collect(Collectors.toSet());
-                    
-                    LOG.info("User {} has rated {} movies: {}", userId, ratedMovieIds.size(), ratedMovieIds);
-                    
-                    return fetchAllMovies()
-                            .collectList()
-                            .flatMapMany(allMovies -> {
-                                LOG.info("Total movies available: {}", allMovies.size());
-                                
-                                List<Recommendation> fallbackRecs = allMovies.stream()
-                                        .filter(movie -> !ratedMovieIds.contains(movie.getMovieId()))
-                                        .sorted((m1, m2) -> {
-                                            // Sort by rating (descending), then by totalRatings
-                                            double rating1 = m1.getRating() != null ? m1.getRating() : 0.0;
-                                            double rating2 = m2.getRating() != null ? m2.getRating() : 0.0;
-                                            int ratingCompare = Double.compare(rating2, rating1);
-                                            if (ratingCompare != 0) return ratingCompare;
-                                            
-                                            int totalRatings1 = m1.getTotalRatings() != null ? m1.getTotalRatings() : 0;
-                                            int totalRatings2 = m2.getTotalRatings() != null ? m2.getTotalRatings() : 0;
-                                            return Integer.compare(totalRatings2, totalRatings1);
-                                        })
-                                        .limit(limit)
-                                        .map(movie -> {
-                                            LOG.debug("Adding fallback recommendation: {} (rating: {}, totalRatings: {})", 
-                                                    movie.getTitle(), movie.getRating(), movie.getTotalRatings());
-                                            return new Recommendation(
-                                                    movie.getMovieId(),
-                                                    movie.getTitle(),
-                                                    0.7, // Default score for popular movies
-                                                    "Popular movie you might like",
-                                                    "popular"
-                                            );
-                                        })
-                                        .collect(Collectors.toList());
-                                
-                                LOG.info("Returning {} popular movie recommendations as fallback (user rated {} movies, {} total movies available)", 
-                                        fallbackRecs.size(), ratedMovieIds.size(), allMovies.size());
-                                
-                                if (fallbackRecs.isEmpty() && !allMovies.isEmpty()) {
-                                    LOG.warn("All {} movies have been rated by user {}", allMovies.size(), userId);
-                                }
-                                
-                                return Flux.fromIterable(fallbackRecs);
-                            })
-                            .onErrorResume(error -> {
-                                LOG.error("Error in fallback recommendation: ", error);
-                                return Flux.empty();
-                            });
-                })
-                .onErrorResume(error -> {
-                    LOG.error("Error fetching user ratings for fallback: ", error);
-                    return Flux.empty();
-                });
-    }
-
-    private Flux<Movie> fetchAllMovies() {
-        return webClient.get()
-                .uri(movieServiceUrl + "/movies")
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToFlux(Movie.class)
-                .doOnError(error -> LOG.error("Error fetching movies", error))
-                .onErrorResume(error -> Flux.empty());
-    }
-
-    private Flux<Rating> fetchUserRatings(Integer userId) {
-        return webClient.get()
-                .uri(movieServiceUrl + "/ratings/user/" + userId)
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToFlux(Rating.class)
-                .doOnError(error -> LOG.error("Error fetching user ratings", error))
-                .onErrorResume(error -> Flux.empty());
-    }
-
-    private Flux<Rating> fetchAllRatings() {
-        // Note: This assumes there's an endpoint to get all ratings
-        // If not available, we'll need to fetch ratings per user
-        return webClient.get()
-                .uri(movieServiceUrl + "/ratings")
-                .accept(MediaType.APPLICATION_JSON)
-                .retrieve()
-                .bodyToFlux(Rating.class)
-                .doOnError(error -> {
-                    LOG.warn("Could not fetch all ratings, will use user-specific approach");
-                })
-                .onErrorResume(error -> Flux.empty());
+    private Flux<Recommendation> getPopularMoviesFallback(Integer userId, Integer limit, RecommendationFilter filter,
+                                                          Predicate<Integer> available) {
+        LOG.info("Fallback: popular movies for user {}", userId);
+        return Flux.usingWhen(modelRegistry.lease(),
+                lease -> {
+                    List<Recommendation> popular = popularFromModel(lease.getModel(), userId, limit, filter, available);
+                    LOG.info("Returning {} popular movie recommendations as fallback", popular.size());
+                    return Flux.fromIterable(popular);
+                },
+                lease -> Mono.fromRunnable(lease::close));
     }
 }
-
-
@@ -0,0 +1,53 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline k-fold comparison of the recommendation algorithms on a MovieLens dataset
+ */
+@Data
+@NoArgsConstructor
+public class CrossValidationReport {
+    private String dataset;
+    private int folds;
+    private int k;
+    private int relevantRating; // held-out ratings at or above this count as relevant
+    private long seed;
+    private int parallelism;
+    private int movies;
+    private int ratings;
+    private int users;
+    private String startedAt;
+    private long durationMillis;
+    private String jsonFile;
+    private String csvFile;
+    private List<AlgorithmResult> algorithms = new ArrayList<>();
+
+    /**
+     * One algorithm over all folds; quality metrics are means over evaluated users
+     */
+    @Data
+    @NoArgsConstructor
+    public static class AlgorithmResult {
+        private String algorithm;
+        private int usersEvaluated;
+        private int failures;
+        private Double mae; // null unless the algorithm predicts ratings
+        private Double rmse;
+        private double precisionAtK;
+        private double recallAtK;
+        private double f1AtK;
+        private double map;
+        private double coverage; // share of the catalog recommended to anyone
+        private double diversity;
+        private double p50Millis;
+        private double p95Millis;
+        private double p99Millis;
+        private double maxMillis;
+        private double usersPerSecond; // wall-clock throughput at the configured parallelism
+    }
+}
@@ -0,0 +1,472 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.TopKCollector;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import com.spring5.recommendation.domain.movielens.MovieLensMovie;
+import com.spring5.recommendation.domain.movielens.MovieLensRating;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Offline k-fold cross-validation of the recommendation algorithms on a MovieLens dataset directory.
+ *
+ * Ratings are shuffled with a fixed seed and dealt into k folds. For each fold a model is built from the
+ * other folds the way the trainer builds one (catalog with rating statistics, content vectors, rating
+ * matrix), and every user with training ratings and a relevant held-out rating asks each algorithm for a
+ * top-K list. Users are evaluated in parallel on a dedicated fork-join pool and every list is timed on its
+ * own, so the report has latency percentiles and throughput next to the quality metrics. It is returned
+ * and also written as JSON and CSV to the output directory.
+ */
+@Component
+public class CrossValidationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CrossValidationRunner.class);
+
+    private static final String BASELINE = "baseline"; // global mean plus user and movie biases
+
+    public static final List<String> ALGORITHMS;
+
+    static {
+        List<String> algorithms = new ArrayList<>(OfflineRecommender.ALGORITHMS);
+        algorithms.add(BASELINE);
+        ALGORITHMS = Collections.unmodifiableList(algorithms);
+    }
+
+    private static final int RELEVANT_RATING = 4;
+    private static final double BIAS_SHRINKAGE = 10.0; // pseudo-ratings pulling biases of sparse users and movies to 0
+
+    private final MovieLensDataParser parser;
+    private final OfflineRecommender recommender;
+    private final RecommendationEvaluator evaluator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${recommendation.evaluation.parallelism:0}")
+    private int parallelism = 0; // 0 means one worker per core
+
+    @Value("${recommendation.evaluation.output-directory:evaluation-reports}")
+    private String outputDirectory = "evaluation-reports";
+
+    @Autowired
+    public CrossValidationRunner(MovieLensDataParser parser, OfflineRecommender recommender,
+                                 RecommendationEvaluator evaluator, ObjectMapper objectMapper) {
+        this.parser = parser;
+        this.recommender = recommender;
+        this.evaluator = evaluator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Cross-validate the given algorithms; maxUsers caps the users evaluated per fold (0 for all)
+     */
+    public CrossValidationReport run(String datasetDirectory, int folds, int k, List<String> algorithms,
+                                     int maxUsers, long seed) throws IOException {
+        if (folds < 2 || k < 1) {
+            throw new IllegalArgumentException("Need at least 2 folds and k of at least 1");
+        }
+        for (String algorithm : algorithms) {
+            if (!ALGORITHMS.contains(algorithm)) {
+                throw new IllegalArgumentException("Unknown algorithm " + algorithm + ", expected one of " + ALGORITHMS);
+            }
+        }
+        long start = System.currentTimeMillis();
+        LocalDateTime startedAt = LocalDateTime.now().withNano(0);
+
+        List<MovieLensRating> ratings = parser.parseRatings(datasetDirectory + "/ratings.csv");
+        Map<Integer, MovieLensMovie> catalog = parser.parseMovies(datasetDirectory + "/movies.csv");
+        Map<Integer, Set<String>> genres = genres(catalog);
+        ContentVectors vectors = recommender.vectors(catalog);
+
+        // Seeded Fisher-Yates over rating positions; the i-th shuffled rating goes to fold i % folds
+        int[] foldOf = new int[ratings.size()];
+        int[] order = new int[ratings.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        for (int i = 0; i < order.length; i++) {
+            foldOf[order[i]] = i % folds;
+        }
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        Map<String, Totals> totals = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            totals.put(algorithm, new Totals());
+        }
+        Set<Integer> users = new HashSet<>();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int index = 0; index < folds; index++) {
+                Fold fold = fold(index, ratings, foldOf, catalog, vectors, maxUsers, seed);
+                users.addAll(fold.users);
+                LOG.info("Fold {}/{}: {} users to evaluate", index + 1, folds, fold.users.size());
+                for (String algorithm : algorithms) {
+                    long wallStart = System.nanoTime();
+                    List<UserResult> results = evaluateUsers(pool, fold, algorithm, k, genres);
+                    totals.get(algorithm).add(results, System.nanoTime() - wallStart);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        CrossValidationReport report = new CrossValidationReport();
+        report.setDataset(datasetDirectory);
+        report.setFolds(folds);
+        report.setK(k);
+        report.setRelevantRating(RELEVANT_RATING);
+        report.setSeed(seed);
+        report.setParallelism(threads);
+        report.setMovies(catalog.size());
+        report.setRatings(ratings.size());
+        report.setUsers(users.size());
+        report.setStartedAt(startedAt.toString());
+        for (Map.Entry<String, Totals> algorithm : totals.entrySet()) {
+            report.getAlgorithms().add(algorithm.getValue().toResult(algorithm.getKey(), catalog.keySet()));
+        }
+        report.setDurationMillis(System.currentTimeMillis() - start);
+        write(report);
+
+        LOG.info("Cross-validation of {} over {} folds finished in {} ms, written to {}",
+                algorithms, folds, report.getDurationMillis(), report.getJsonFile());
+        return report;
+    }
+
+    /**
+     * Split the ratings and build the fold's model from everything outside it
+     */
+    private Fold fold(int index, List<MovieLensRating> ratings, int[] foldOf, Map<Integer, MovieLensMovie> catalog,
+                      ContentVectors vectors, int maxUsers, long seed) {
+        Map<Integer, Map<Integer, Integer>> train = new HashMap<>();
+        Map<Integer, Map<Integer, Integer>> test = new HashMap<>();
+        for (int i = 0; i < foldOf.length; i++) {
+            MovieLensRating rating = ratings.get(i);
+            (foldOf[i] == index ? test : train).computeIfAbsent(rating.getUserId(), userId -> new HashMap<>())
+                    .put(rating.getMovieId(), rating.getRating());
+        }
+        RecommendationModel model = recommender.model(catalog, vectors, train, index + 1);
+
+        // Users the model knows with something worth finding; cold users have no list to judge
+        List<Integer> users = new ArrayList<>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> heldOut : test.entrySet()) {
+            if (train.containsKey(heldOut.getKey()) && heldOut.getValue().values().stream().anyMatch(r -> r >= RELEVANT_RATING)) {
+                users.add(heldOut.getKey());
+            }
+        }
+        Collections.sort(users);
+        if (maxUsers > 0 && users.size() > maxUsers) {
+            Collections.shuffle(users, new Random(seed + index));
+            users = new ArrayList<>(users.subList(0, maxUsers));
+        }
+
+        return new Fold(model, test, users, OfflineRecommender.popularity(model.getMovies()), Baseline.fit(train));
+    }
+
+    private List<UserResult> evaluateUsers(ForkJoinPool pool, Fold fold, String algorithm, int k,
+                                           Map<Integer, Set<String>> genres) {
+        try {
+            // A parallel stream started from inside the pool runs on the pool's workers
+            return pool.submit(() -> fold.users.parallelStream()
+                    .map(userId -> evaluateUser(fold, algorithm, userId, k, genres))
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cross-validation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluating " + algorithm + " failed", e.getCause());
+        }
+    }
+
+    private UserResult evaluateUser(Fold fold, String algorithm, Integer userId, int k, Map<Integer, Set<String>> genres) {
+        Map<Integer, Integer> trained = fold.model.getAllUserRatings().get(userId);
+        Map<Integer, Integer> heldOut = fold.test.get(userId);
+        Set<Integer> relevant = new HashSet<>();
+        for (Map.Entry<Integer, Integer> rating : heldOut.entrySet()) {
+            if (rating.getValue() >= RELEVANT_RATING) {
+                relevant.add(rating.getKey());
+            }
+        }
+
+        UserResult result = new UserResult();
+        List<Recommendation> recommendations;
+        long start = System.nanoTime();
+        try {
+            recommendations = BASELINE.equals(algorithm)
+                    ? fold.baseline.recommend(userId, fold.model, k)
+                    : recommender.recommend(algorithm, fold.model, fold.popular, userId, trained, k);
+        } catch (RuntimeException e) {
+            LOG.debug("{} failed for user {}: {}", algorithm, userId, e.getMessage());
+            result.failed = true;
+            return result;
+        }
+        result.nanos = System.nanoTime() - start;
+
+        List<Recommendation> topK = recommendations.size() > k ? recommendations.subList(0, k) : recommendations;
+        result.precision = evaluator.calculatePrecisionAtK(topK, relevant, k);
+        result.recall = evaluator.calculateRecallAtK(topK, relevant, k);
+        result.f1 = result.precision + result.recall > 0
+                ? 2 * result.precision * result.recall / (result.precision + result.recall) : 0.0;
+        result.averagePrecision = evaluator.calculateMAP(topK, relevant);
+        result.diversity = evaluator.calculateDiversity(topK, genres);
+        result.movieIds = new int[topK.size()];
+        for (int i = 0; i < topK.size(); i++) {
+            result.movieIds[i] = topK.get(i).getMovieId();
+        }
+
+        if (BASELINE.equals(algorithm)) {
+            for (Map.Entry<Integer, Integer> rating : heldOut.entrySet()) {
+                double error = fold.baseline.predict(userId, rating.getKey()) - rating.getValue();
+                result.absoluteError += Math.abs(error);
+                result.squaredError += error * error;
+                result.predictions++;
+            }
+        }
+        return result;
+    }
+
+    private static Map<Integer, Set<String>> genres(Map<Integer, MovieLensMovie> catalog) {
+        Map<Integer, Set<String>> genres = new HashMap<>(catalog.size() * 2);
+        for (MovieLensMovie movie : catalog.values()) {
+            Set<String> movieGenres = new HashSet<>();
+            for (String genre : movie.getGenres().split(",")) {
+                if (!genre.trim().isEmpty()) {
+                    movieGenres.add(genre.trim());
+                }
+            }
+            genres.put(movie.getMovieId(), movieGenres);
+        }
+        return genres;
+    }
+
+    private void write(CrossValidationReport report) throws IOException {
+        Path directory = Paths.get(outputDirectory);
+        Files.createDirectories(directory);
+        String name = "cross-validation-" + report.getStartedAt().replace(':', '-');
+        Path json = directory.resolve(name + ".json").toAbsolutePath();
+        Path csv = directory.resolve(name + ".csv").toAbsolutePath();
+        report.setJsonFile(json.toString());
+        report.setCsvFile(csv.toString());
+
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(json.toFile(), report);
+
+        List<String> lines = new ArrayList<>();
+        lines.add("algorithm,users,failures,mae,rmse,precision_at_k,recall_at_k,f1_at_k,map,coverage,diversity,"
+                + "p50_ms,p95_ms,p99_ms,max_ms,users_per_second");
+        for (CrossValidationReport.AlgorithmResult result : report.getAlgorithms()) {
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%s,%s,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.3f,%.3f,%.3f,%.3f,%.1f",
+                    result.getAlgorithm(), result.getUsersEvaluated(), result.getFailures(),
+                    result.getMae() != null ? String.format(Locale.ROOT, "%.4f", result.getMae()) : "",
+                    result.getRmse() != null ? String.format(Locale.ROOT, "%.4f", result.getRmse()) : "",
+                    result.getPrecisionAtK(), result.getRecallAtK(), result.getF1AtK(), result.getMap(),
+                    result.getCoverage(), result.getDiversity(), result.getP50Millis(), result.getP95Millis(),
+                    result.getP99Millis(), result.getMaxMillis(), result.getUsersPerSecond()));
+        }
+        Files.write(csv, lines);
+    }
+
+    private static final class Fold {
+        private final RecommendationModel model;
+        private final Map<Integer, Map<Integer, Integer>> test;
+        private final List<Integer> users;
+        private final List<Movie> popular;
+        private final Baseline baseline;
+
+        private Fold(RecommendationModel model, Map<Integer, Map<Integer, Integer>> test, List<Integer> users,
+                     List<Movie> popular, Baseline baseline) {
+            this.model = model;
+            this.test = test;
+            this.users = users;
+            this.popular = popular;
+            this.baseline = baseline;
+        }
+    }
+
+    /**
+     * Rating predictor: global mean plus shrunk movie and user biases
+     */
+    private static final class Baseline {
+        private final double mean;
+        private final Map<Integer, Double> movieBias;
+        private final Map<Integer, Double> userBias;
+
+        private Baseline(double mean, Map<Integer, Double> movieBias, Map<Integer, Double> userBias) {
+            this.mean = mean;
+            this.movieBias = movieBias;
+            this.userBias = userBias;
+        }
+
+        private static Baseline fit(Map<Integer, Map<Integer, Integer>> ratings) {
+            double sum = 0.0;
+            long count = 0;
+            for (Map<Integer, Integer> userRatings : ratings.values()) {
+                for (int rating : userRatings.values()) {
+                    sum += rating;
+                    count++;
+                }
+            }
+            double mean = count > 0 ? sum / count : 0.0;
+
+            Map<Integer, double[]> movieSums = new HashMap<>(); // movieId -> {sum of residuals, count}
+            for (Map<Integer, Integer> userRatings : ratings.values()) {
+                for (Map.Entry<Integer, Integer> rating : userRatings.entrySet()) {
+                    double[] movieSum = movieSums.computeIfAbsent(rating.getKey(), movieId -> new double[2]);
+                    movieSum[0] += rating.getValue() - mean;
+                    movieSum[1]++;
+                }
+            }
+            Map<Integer, Double> movieBias = new HashMap<>(movieSums.size() * 2);
+            movieSums.forEach((movieId, movieSum) -> movieBias.put(movieId, movieSum[0] / (BIAS_SHRINKAGE + movieSum[1])));
+
+            Map<Integer, Double> userBias = new HashMap<>(ratings.size() * 2);
+            for (Map.Entry<Integer, Map<Integer, Integer>> user : ratings.entrySet()) {
+                double residuals = 0.0;
+                for (Map.Entry<Integer, Integer> rating : user.getValue().entrySet()) {
+                    residuals += rating.getValue() - mean - movieBias.getOrDefault(rating.getKey(), 0.0);
+                }
+                userBias.put(user.getKey(), residuals / (BIAS_SHRINKAGE + user.getValue().size()));
+            }
+            return new Baseline(mean, movieBias, userBias);
+        }
+
+        private double predict(Integer userId, Integer movieId) {
+            double prediction = mean + userBias.getOrDefault(userId, 0.0) + movieBias.getOrDefault(movieId, 0.0);
+            return Math.max(1.0, Math.min(5.0, prediction));
+        }
+
+        /**
+         * Unrated movies by predicted rating; the user bias is the same for all of them, so this ranks by movie bias
+         */
+        private List<Recommendation> recommend(Integer userId, RecommendationModel model, int k) {
+            Map<Integer, Integer> rated = model.getAllUserRatings().get(userId);
+            TopKCollector topK = new TopKCollector(k);
+            for (Map.Entry<Integer, Double> movie : movieBias.entrySet()) {
+                if (!rated.containsKey(movie.getKey())) {
+                    topK.offer(movie.getKey(), predict(userId, movie.getKey()));
+                }
+            }
+            return OfflineRecommender.toRecommendations(topK, BASELINE);
+        }
+    }
+
+    private static final class UserResult {
+        private boolean failed;
+        private long nanos;
+        private double precision;
+        private double recall;
+        private double f1;
+        private double averagePrecision;
+        private double diversity;
+        private int[] movieIds;
+        private double absoluteError;
+        private double squaredError;
+        private int predictions;
+    }
+
+    /**
+     * One algorithm's results over all folds so far
+     */
+    private final class Totals {
+        private int users;
+        private int failures;
+        private double precision;
+        private double recall;
+        private double f1;
+        private double averagePrecision;
+        private double diversity;
+        private double absoluteError;
+        private double squaredError;
+        private long predictions;
+        private long wallNanos;
+        private long[] nanos = new long[256];
+        private final Set<Integer> recommended = new HashSet<>();
+
+        private void add(List<UserResult> results, long elapsedNanos) {
+            wallNanos += elapsedNanos;
+            for (UserResult result : results) {
+                if (result.failed) {
+                    failures++;
+                    continue;
+                }
+                if (users == nanos.length) {
+                    nanos = Arrays.copyOf(nanos, users * 2);
+                }
+                nanos[users++] = result.nanos;
+                precision += result.precision;
+                recall += result.recall;
+                f1 += result.f1;
+                averagePrecision += result.averagePrecision;
+                diversity += result.diversity;
+                absoluteError += result.absoluteError;
+                squaredError += result.squaredError;
+                predictions += result.predictions;
+                for (int movieId : result.movieIds) {
+                    recommended.add(movieId);
+                }
+            }
+        }
+
+        private CrossValidationReport.AlgorithmResult toResult(String algorithm, Set<Integer> catalog) {
+            CrossValidationReport.AlgorithmResult result = new CrossValidationReport.AlgorithmResult();
+            result.setAlgorithm(algorithm);
+            result.setUsersEvaluated(users);
+            result.setFailures(failures);
+            if (predictions > 0) {
+                result.setMae(absoluteError / predictions);
+                result.setRmse(Math.sqrt(squaredError / predictions));
+            }
+            if (users > 0) {
+                result.setPrecisionAtK(precision / users);
+                result.setRecallAtK(recall / users);
+                result.setF1AtK(f1 / users);
+                result.setMap(averagePrecision / users);
+                result.setDiversity(diversity / users);
+            }
+            result.setCoverage(evaluator.calculateCoverage(recommended, catalog));
+
+            long[] sorted = Arrays.copyOf(nanos, users);
+            Arrays.sort(sorted);
+            result.setP50Millis(percentile(sorted, 0.50));
+            result.setP95Millis(percentile(sorted, 0.95));
+            result.setP99Millis(percentile(sorted, 0.99));
+            result.setMaxMillis(sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+            result.setUsersPerSecond(wallNanos > 0 ? (users + failures) / (wallNanos / 1e9) : 0.0);
+            return result;
+        }
+    }
+
+    /**
+     * Nearest-rank percentile of sorted nanosecond timings, in milliseconds
+     */
+    static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+}
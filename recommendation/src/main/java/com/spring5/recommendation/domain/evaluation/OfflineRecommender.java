@@ -0,0 +1,196 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.HybridCombiner;
+import com.spring5.recommendation.domain.algorithm.MovieScore;
+import com.spring5.recommendation.domain.algorithm.TopKCollector;
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.movielens.MovieLensMovie;
+import com.spring5.recommendation.domain.scoring.AffinityScorer;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieAffinity;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Builds models from MovieLens data and runs the served algorithms on them, for the offline
+ * harnesses. Lists are made the way the service makes them, minus the catalog filters and caching.
+ */
+@Component
+public class OfflineRecommender {
+
+    static final String COLLABORATIVE = "collaborative";
+    static final String CONTENT_BASED = "content-based";
+    static final String HYBRID = "hybrid";
+    static final String AFFINITY = "affinity";
+    static final String POPULAR = "popular";
+
+    public static final List<String> ALGORITHMS = Collections.unmodifiableList(
+            Arrays.asList(COLLABORATIVE, CONTENT_BASED, HYBRID, AFFINITY, POPULAR));
+
+    // Same order as the served popularity fallback: highest average rating first, then most rated
+    private static final Comparator<Movie> POPULARITY = Comparator
+            .comparing((Movie movie) -> movie.getRating() != null ? movie.getRating() : 0.0, Comparator.reverseOrder())
+            .thenComparing(movie -> movie.getTotalRatings() != null ? movie.getTotalRatings() : 0, Comparator.reverseOrder());
+
+    private final ContentVectorIndex contentVectorIndex;
+    private final CollaborativeFiltering collaborativeFiltering;
+    private final ContentBasedFiltering contentBasedFiltering;
+
+    @Autowired
+    public OfflineRecommender(ContentVectorIndex contentVectorIndex, CollaborativeFiltering collaborativeFiltering,
+                              ContentBasedFiltering contentBasedFiltering) {
+        this.contentVectorIndex = contentVectorIndex;
+        this.collaborativeFiltering = collaborativeFiltering;
+        this.contentBasedFiltering = contentBasedFiltering;
+    }
+
+    /**
+     * Vectors for the catalog; they only depend on the movies, so one build serves every model of a run
+     */
+    public ContentVectors vectors(Map<Integer, MovieLensMovie> catalog) {
+        return contentVectorIndex.build(movies(catalog, Collections.emptyMap()));
+    }
+
+    /**
+     * A model of the catalog and the given ratings, with each movie's average rating and count from them
+     */
+    public RecommendationModel model(Map<Integer, MovieLensMovie> catalog, ContentVectors vectors,
+                                     Map<Integer, Map<Integer, Integer>> ratings, long version) {
+        Map<Integer, long[]> movieStats = new HashMap<>(); // movieId -> {sum, count}
+        int ratingCount = 0;
+        for (Map<Integer, Integer> userRatings : ratings.values()) {
+            for (Map.Entry<Integer, Integer> rating : userRatings.entrySet()) {
+                long[] stats = movieStats.computeIfAbsent(rating.getKey(), movieId -> new long[2]);
+                stats[0] += rating.getValue();
+                stats[1]++;
+                ratingCount++;
+            }
+        }
+        List<Movie> movies = movies(catalog, movieStats);
+        ModelMetadata metadata = new ModelMetadata(version, LocalDateTime.now(), 0, null, movies.size(), ratings.size(),
+                ratingCount, vectors.size(), vectors.valueCount(), vectors.isQuantized(), 0);
+        return new RecommendationModel(metadata, Collections.unmodifiableList(movies), ratings, vectors);
+    }
+
+    /**
+     * Rated movies in the order of the popularity fallback
+     */
+    public static List<Movie> popularity(List<Movie> movies) {
+        List<Movie> popular = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (movie.getTotalRatings() != null && movie.getTotalRatings() > 0) {
+                popular.add(movie);
+            }
+        }
+        popular.sort(POPULARITY);
+        return popular;
+    }
+
+    /**
+     * Top-k list of one algorithm for a user with the given ratings; popular is the model's popularity order
+     */
+    public List<Recommendation> recommend(String algorithm, RecommendationModel model, List<Movie> popular,
+                                          Integer userId, Map<Integer, Integer> userRatings, int k) {
+        switch (algorithm) {
+            case COLLABORATIVE:
+                return collaborativeFiltering.getRecommendations(userId, model.getAllUserRatings(), model.getMovies(),
+                        ratings(userId, userRatings), k);
+            case CONTENT_BASED:
+                return contentBased(model, ratings(userId, userRatings), k);
+            case HYBRID:
+                List<Rating> ratings = ratings(userId, userRatings);
+                List<Recommendation> both = new ArrayList<>(
+                        collaborativeFiltering.getRecommendations(userId, model.getAllUserRatings(), model.getMovies(), ratings, k));
+                both.addAll(contentBased(model, ratings, k));
+                return HybridCombiner.combine(both, k);
+            case AFFINITY:
+                return affinity(model, userRatings, k);
+            case POPULAR:
+                return popular(popular, userRatings, k);
+            default:
+                throw new IllegalArgumentException("Unknown algorithm " + algorithm + ", expected one of " + ALGORITHMS);
+        }
+    }
+
+    /**
+     * Top-k of the scored movies, best first
+     */
+    static List<Recommendation> toRecommendations(TopKCollector topK, String algorithm) {
+        List<Recommendation> recommendations = new ArrayList<>(topK.size());
+        for (MovieScore movieScore : topK.toSortedList()) {
+            recommendations.add(new Recommendation(movieScore.getMovieId(), null, movieScore.getScore(), null, algorithm));
+        }
+        return recommendations;
+    }
+
+    private List<Recommendation> contentBased(RecommendationModel model, List<Rating> userRatings, int k) {
+        // The pin is per thread, so every worker pins the model's vectors for its own call
+        try (ContentVectorIndex.Pin pin = contentVectorIndex.pin(model.getContentVectors())) {
+            return contentBasedFiltering.getRescoredRecommendations(model.getMovies(), userRatings, k);
+        }
+    }
+
+    private static List<Recommendation> affinity(RecommendationModel model, Map<Integer, Integer> userRatings, int k) {
+        List<Integer> candidates = new ArrayList<>();
+        for (Movie movie : model.getMovies()) {
+            if (!userRatings.containsKey(movie.getMovieId())) {
+                candidates.add(movie.getMovieId());
+            }
+        }
+        TopKCollector topK = new TopKCollector(k);
+        for (MovieAffinity affinity : AffinityScorer.score(model, userRatings, candidates)) {
+            topK.offer(affinity.getMovieId(), affinity.getScore());
+        }
+        return toRecommendations(topK, AFFINITY);
+    }
+
+    private static List<Recommendation> popular(List<Movie> popular, Map<Integer, Integer> userRatings, int k) {
+        List<Recommendation> recommendations = new ArrayList<>(k);
+        for (Movie movie : popular) {
+            if (recommendations.size() == k) {
+                break;
+            }
+            if (!userRatings.containsKey(movie.getMovieId())) {
+                recommendations.add(new Recommendation(movie.getMovieId(), movie.getTitle(), movie.getRating(),
+                        "Popular among all users", POPULAR));
+            }
+        }
+        return recommendations;
+    }
+
+    private static List<Rating> ratings(Integer userId, Map<Integer, Integer> userRatings) {
+        List<Rating> ratings = new ArrayList<>(userRatings.size());
+        for (Map.Entry<Integer, Integer> rating : userRatings.entrySet()) {
+            ratings.add(new Rating(null, userId, rating.getKey(), rating.getValue(), null, null));
+        }
+        return ratings;
+    }
+
+    private static List<Movie> movies(Map<Integer, MovieLensMovie> catalog, Map<Integer, long[]> movieStats) {
+        List<Movie> movies = new ArrayList<>(catalog.size());
+        for (MovieLensMovie source : catalog.values()) {
+            Movie movie = new Movie();
+            movie.setMovieId(source.getMovieId());
+            movie.setTitle(source.getTitle());
+            movie.setGenre(source.getGenres());
+            // The genres are the only text MovieLens has, so they stand in for the description
+            movie.setDescription(source.getGenres().replace(',', ' '));
+            long[] stats = movieStats.get(source.getMovieId());
+            movie.setRating(stats != null ? (double) stats[0] / stats[1] : 0.0);
+            movie.setTotalRatings(stats != null ? (int) stats[1] : 0);
+            movies.add(movie);
+        }
+        movies.sort(Comparator.comparing(Movie::getMovieId));
+        return movies;
+    }
+}
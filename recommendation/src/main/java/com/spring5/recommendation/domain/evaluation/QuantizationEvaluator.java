@@ -0,0 +1,201 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.algorithm.CandidateFilter;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.MovieScore;
+import com.spring5.recommendation.domain.algorithm.QuantizedSparseVector;
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.movielens.MovieLensDataImportService;
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import com.spring5.recommendation.domain.movielens.MovieLensMovie;
+import com.spring5.recommendation.domain.movielens.MovieLensRating;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Measures what int8 quantization of the content vectors costs in recall@K and saves in memory,
+ * using vectors built offline from a MovieLens dataset directory the same way the served index builds
+ * them (tags plus description, through {@link ContentVectorIndex#vectorize}).
+ *
+ * Recall is reported for the nearest-neighbour search and for the serving path, content-based
+ * recommendations for a sample of the dataset's users ({@link ContentBasedFiltering#getRescoredRecommendations}).
+ */
+@Component
+public class QuantizationEvaluator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuantizationEvaluator.class);
+
+    private final MovieLensDataParser parser;
+
+    @Autowired
+    public QuantizationEvaluator(MovieLensDataParser parser) {
+        this.parser = parser;
+    }
+
+    public QuantizationReport evaluateContentVectors(String datasetDirectory, int k, int sampleSize, int rescoreFactor,
+                                                    boolean keepFullPrecision) throws IOException {
+        List<Movie> movies = new ArrayList<>();
+        for (MovieLensMovie movie : parser.parseMovies(datasetDirectory + "/movies.csv").values()) {
+            movies.add(MovieLensDataImportService.convertToMovie(movie));
+        }
+        ContentVectorIndex index = new ContentVectorIndex();
+        index.updateTags(parser.parseTags(datasetDirectory + "/tags.csv"));
+        Map<Integer, SparseVector> vectors = index.vectorize(movies);
+        Map<Integer, QuantizedSparseVector> quantized = ContentVectorIndex.quantizeAll(vectors, keepFullPrecision);
+        List<Rating> ratings = new ArrayList<>();
+        for (MovieLensRating rating : parser.parseRatings(datasetDirectory + "/ratings.csv")) {
+            ratings.add(new Rating(null, rating.getUserId(), rating.getMovieId(), rating.getRating(), null, null));
+        }
+
+        // Deterministic sample: every n-th movie with text features
+        List<Integer> candidates = vectors.entrySet().stream()
+                .filter(e -> !e.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .sorted()
+                .collect(Collectors.toList());
+        int step = Math.max(1, candidates.size() / Math.max(1, sampleSize));
+        List<Integer> sample = new ArrayList<>();
+        for (int i = 0; i < candidates.size() && sample.size() < sampleSize; i += step) {
+            sample.add(candidates.get(i));
+        }
+
+        double recallSum = 0.0;
+        double recallRescoredSum = 0.0;
+        long exactNanos = 0;
+        long quantizedNanos = 0;
+
+        for (Integer movieId : sample) {
+            long start = System.nanoTime();
+            Set<Integer> exact = ids(ContentVectorIndex.exactTopK(vectors, vectors.get(movieId), k, movieId));
+            exactNanos += System.nanoTime() - start;
+
+            Set<Integer> scanOnly = ids(ContentVectorIndex.quantizedTopK(quantized, quantized.get(movieId), k, movieId, 0));
+
+            start = System.nanoTime();
+            Set<Integer> rescored = ids(ContentVectorIndex.quantizedTopK(quantized, quantized.get(movieId), k, movieId, rescoreFactor));
+            quantizedNanos += System.nanoTime() - start;
+
+            recallSum += recall(exact, scanOnly);
+            recallRescoredSum += recall(exact, rescored);
+        }
+
+        ServingRecall serving = servingRecall(index, movies, vectors, ratings, k, sampleSize, rescoreFactor, keepFullPrecision);
+
+        // Both layouts keep an int index per weight; int8 adds one float scale per vector
+        long nonZeros = vectors.values().stream().mapToLong(SparseVector::size).sum();
+        long indexBytes = nonZeros * Integer.BYTES;
+        long floatBytes = indexBytes + nonZeros * Float.BYTES;
+        long int8Bytes = indexBytes + nonZeros + (long) vectors.size() * Float.BYTES;
+        long offHeapBytes = keepFullPrecision ? nonZeros * Float.BYTES : 0;
+        long quantizedBytes = int8Bytes + offHeapBytes;
+
+        QuantizationReport report = new QuantizationReport();
+        report.setModel("content-vectors");
+        report.setVectors(vectors.size());
+        report.setNonZeros(nonZeros);
+        report.setKeepFullPrecision(keepFullPrecision);
+        report.setFloatBytes(floatBytes);
+        report.setInt8HeapBytes(int8Bytes);
+        report.setFullPrecisionOffHeapBytes(offHeapBytes);
+        report.setInt8TotalBytes(quantizedBytes);
+        report.setBytesSaved(floatBytes - quantizedBytes);
+        report.setPercentSaved(floatBytes > 0 ? 100.0 * (floatBytes - quantizedBytes) / floatBytes : 0.0);
+        report.setK(k);
+        report.setSampleSize(sample.size());
+        report.setRescoreFactor(rescoreFactor);
+        report.setRecallAtK(sample.isEmpty() ? 0.0 : recallSum / sample.size());
+        report.setRecallAtKRescored(sample.isEmpty() ? 0.0 : recallRescoredSum / sample.size());
+        report.setServingUsers(serving.users);
+        report.setServingRecallAtK(serving.recall);
+        report.setServingRecallAtKRescored(serving.recallRescored);
+        report.setExactSearchMillis(exactNanos / 1_000_000);
+        report.setQuantizedSearchMillis(quantizedNanos / 1_000_000);
+
+        LOG.info("Quantization report: {}", report);
+        return report;
+    }
+
+    /**
+     * Content-based top k for every n-th user who rated something 4 or higher, with float vectors
+     * against int8 scores alone and against int8 scores with the shortlist rescored
+     */
+    private static ServingRecall servingRecall(ContentVectorIndex index, List<Movie> movies, Map<Integer, SparseVector> vectors,
+                                               List<Rating> ratings, int k, int sampleSize, int rescoreFactor,
+                                               boolean keepFullPrecision) {
+        Map<Integer, List<Rating>> ratingsByUser = new TreeMap<>();
+        for (Rating rating : ratings) {
+            ratingsByUser.computeIfAbsent(rating.getUserId(), userId -> new ArrayList<>()).add(rating);
+        }
+        List<List<Rating>> users = ratingsByUser.values().stream()
+                .filter(userRatings -> userRatings.stream().anyMatch(rating -> rating.getRating() >= 4))
+                .collect(Collectors.toList());
+        int step = Math.max(1, users.size() / Math.max(1, sampleSize));
+
+        ContentVectors exact = ContentVectorIndex.wrap(vectors, 0, false, false, 0);
+        ContentVectors scanOnly = ContentVectorIndex.wrap(vectors, 0, true, false, 0);
+        ContentVectors rescored = ContentVectorIndex.wrap(vectors, 0, true, keepFullPrecision, rescoreFactor);
+        ContentBasedFiltering contentBased = new ContentBasedFiltering(index);
+
+        ServingRecall result = new ServingRecall();
+        double recallSum = 0.0;
+        double recallRescoredSum = 0.0;
+        for (int i = 0; i < users.size() && result.users < sampleSize; i += step) {
+            List<Rating> userRatings = users.get(i);
+            List<Movie> candidates = CandidateFilter.restrict(movies, userRatings, movieId -> true);
+            Set<Integer> expected = recommendedIds(index, exact, contentBased, candidates, userRatings, k);
+            recallSum += recall(expected, recommendedIds(index, scanOnly, contentBased, candidates, userRatings, k));
+            recallRescoredSum += recall(expected, recommendedIds(index, rescored, contentBased, candidates, userRatings, k));
+            result.users++;
+        }
+        result.recall = result.users > 0 ? recallSum / result.users : 0.0;
+        result.recallRescored = result.users > 0 ? recallRescoredSum / result.users : 0.0;
+        return result;
+    }
+
+    private static Set<Integer> recommendedIds(ContentVectorIndex index, ContentVectors vectors, ContentBasedFiltering contentBased,
+                                               List<Movie> candidates, List<Rating> userRatings, int k) {
+        try (ContentVectorIndex.Pin pin = index.pin(vectors)) {
+            return contentBased.getRescoredRecommendations(candidates, userRatings, k).stream()
+                    .map(Recommendation::getMovieId)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private static class ServingRecall {
+        int users;
+        double recall;
+        double recallRescored;
+    }
+
+    private static Set<Integer> ids(List<MovieScore> scores) {
+        Set<Integer> ids = new HashSet<>();
+        for (MovieScore score : scores) {
+            ids.add(score.getMovieId());
+        }
+        return ids;
+    }
+
+    private static double recall(Set<Integer> exact, Set<Integer> approximate) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        int hits = 0;
+        for (Integer movieId : approximate) {
+            if (exact.contains(movieId)) {
+                hits++;
+            }
+        }
+        return (double) hits / exact.size();
+    }
+}
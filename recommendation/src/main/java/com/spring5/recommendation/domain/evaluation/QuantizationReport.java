@@ -0,0 +1,32 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Memory and accuracy trade-off of int8 vectors versus full-precision floats
+ */
+@Data
+@NoArgsConstructor
+public class QuantizationReport {
+    private String model;
+    private int vectors;
+    private long nonZeros;
+    private boolean keepFullPrecision;
+    private long floatBytes; // heap used by float vectors: indices and weights
+    private long int8HeapBytes; // heap used by int8 vectors: indices, int8 weights and one float scale per vector
+    private long fullPrecisionOffHeapBytes; // off-heap float copy, 0 unless keepFullPrecision
+    private long int8TotalBytes; // int8HeapBytes + fullPrecisionOffHeapBytes
+    private long bytesSaved; // floatBytes - int8TotalBytes
+    private double percentSaved;
+    private int k;
+    private int sampleSize;
+    private int rescoreFactor;
+    private double recallAtK; // int8 scan only
+    private double recallAtKRescored; // int8 scan + rescoring of the shortlist, same as recallAtK unless keepFullPrecision
+    private int servingUsers; // sampled users with a rating of 4 or higher
+    private double servingRecallAtK; // content-based recommendations from int8 scores only
+    private double servingRecallAtKRescored; // int8 shortlist of k * rescoreFactor rescored in full precision, as served
+    private long exactSearchMillis;
+    private long quantizedSearchMillis;
+}
@@ -4,7 +4,6 @@ import com.spring5.recommendation.domain.service.Recommendation;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Evaluation framework for recommendation algorithms
@@ -75,16 +74,15 @@ public class RecommendationEvaluator {
             return 0.0;
         }
 
-        List<Recommendation> topK = recommendations.stream()
-                .limit(k)
-                .collect(Collectors.toList());
-
-        long relevantCount = topK.stream()
-                .map(Recommendation::getMovieId)
-                .filter(relevantMovies::contains)
-                .count();
+        int n = Math.min(k, recommendations.size());
+        int relevantCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (relevantMovies.contains(recommendations.get(i).getMovieId())) {
+                relevantCount++;
+            }
+        }
 
-        return (double) relevantCount / Math.min(k, topK.size());
+        return (double) relevantCount / n;
     }
 
     /**
@@ -96,17 +94,15 @@ public class RecommendationEvaluator {
             return 0.0;
         }
 
-        List<Recommendation> topK = recommendations.stream()
-                .limit(k)
-                .collect(Collectors.toList());
-
-        Set<Integer> recommendedMovies = topK.stream()
-                .map(Recommendation::getMovieId)
-                .collect(Collectors.toSet());
-
-        long relevantRecommended = recommendedMovies.stream()
-                .filter(relevantMovies::contains)
-                .count();
+        // A movie listed twice counts once; k is small, so looking back beats building a set
+        int n = Math.min(k, recommendations.size());
+        int relevantRecommended = 0;
+        for (int i = 0; i < n; i++) {
+            Integer movieId = recommendations.get(i).getMovieId();
+            if (relevantMovies.contains(movieId) && !listedBefore(recommendations, i, movieId)) {
+                relevantRecommended++;
+            }
+        }
 
         return (double) relevantRecommended / relevantMovies.size();
     }
@@ -158,9 +154,12 @@ public class RecommendationEvaluator {
             return 0.0;
         }
 
-        long recommendedCount = recommendedMovies.stream()
-                .filter(allMovies::contains)
-                .count();
+        int recommendedCount = 0;
+        for (Integer movieId : recommendedMovies) {
+            if (allMovies.contains(movieId)) {
+                recommendedCount++;
+            }
+        }
 
         return (double) recommendedCount / allMovies.size();
     }
@@ -186,13 +185,11 @@ public class RecommendationEvaluator {
                 Set<String> genres1 = movieGenres.getOrDefault(movieId1, Collections.emptySet());
                 Set<String> genres2 = movieGenres.getOrDefault(movieId2, Collections.emptySet());
 
-                // Jaccard dissimilarity
-                Set<String> intersection = new HashSet<>(genres1);
-                intersection.retainAll(genres2);
-                Set<String> union = new HashSet<>(genres1);
-                union.addAll(genres2);
+                // Jaccard dissimilarity; |union| = |a| + |b| - |intersection|
+                int intersection = intersectionSize(genres1, genres2);
+                int union = genres1.size() + genres2.size() - intersection;
 
-                double dissimilarity = union.isEmpty() ? 1.0 : 1.0 - ((double) intersection.size() / union.size());
+                double dissimilarity = union == 0 ? 1.0 : 1.0 - ((double) intersection / union);
                 totalDissimilarity += dissimilarity;
                 pairs++;
             }
@@ -201,6 +198,27 @@ public class RecommendationEvaluator {
         return pairs > 0 ? totalDissimilarity / pairs : 0.0;
     }
 
+    private static boolean listedBefore(List<Recommendation> recommendations, int index, Integer movieId) {
+        for (int j = 0; j < index; j++) {
+            if (movieId.equals(recommendations.get(j).getMovieId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int intersectionSize(Set<String> a, Set<String> b) {
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int count = 0;
+        for (String genre : smaller) {
+            if (larger.contains(genre)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Comprehensive evaluation result
      */
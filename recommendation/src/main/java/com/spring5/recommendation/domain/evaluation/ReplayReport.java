@@ -0,0 +1,49 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming behaviour of the model update strategies, from replaying MovieLens ratings in time order
+ */
+@Data
+@NoArgsConstructor
+public class ReplayReport {
+    private String dataset;
+    private String algorithm;
+    private int k;
+    private double speedUp; // event seconds per wall second; 0 replays as fast as possible
+    private double warmupFraction; // oldest share of the ratings in the initial model, not replayed
+    private long checkpointSeconds;
+    private long lookaheadSeconds;
+    private int usersPerCheckpoint;
+    private long rebuildIntervalMillis;
+    private int warmupRatings;
+    private int replayedRatings;
+    private List<ModeResult> modes = new ArrayList<>();
+
+    /**
+     * One update strategy over the whole replay
+     */
+    @Data
+    @NoArgsConstructor
+    public static class ModeResult {
+        private String mode;
+        private long replayMillis;
+        private double ingestRatingsPerSecond; // time spent applying ratings only
+        private int rebuilds;
+        private double meanRebuildMillis;
+        private int ratingsNeverVisible; // still waiting for a rebuild when the replay ended
+        private double p50FreshnessLagMillis; // wall time from ingesting a rating until requests see it
+        private double p95FreshnessLagMillis;
+        private double maxFreshnessLagMillis;
+        private int requests;
+        private int hits; // the user's next real rating was in the list
+        private double hitRate;
+        private double p50RequestMillis;
+        private double p95RequestMillis;
+    }
+}
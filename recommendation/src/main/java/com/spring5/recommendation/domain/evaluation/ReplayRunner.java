@@ -0,0 +1,334 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import com.spring5.recommendation.domain.movielens.MovieLensMovie;
+import com.spring5.recommendation.domain.movielens.MovieLensRating;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays MovieLens ratings in timestamp order to compare how the model can follow a live rating stream.
+ *
+ * The oldest warmup-fraction of the ratings make the initial model; the rest are ingested one by one,
+ * paced to speed-up times real time. In incremental mode each rating goes straight into the served rating
+ * matrix and movie statistics. In full-rebuild mode ratings only reach the model through rebuilds from
+ * everything ingested so far, run on a background thread every rebuild-interval-millis like the trainer.
+ * The requesting user's own ratings are always current, as the service fetches them per request.
+ *
+ * Every checkpoint-seconds of event time, users whose next rating comes within lookahead-seconds ask for
+ * a top-K list; it is a hit if that next rating is in it. Freshness lag is the wall time from ingesting
+ * a rating until a request could see it.
+ */
+@Component
+public class ReplayRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayRunner.class);
+
+    private static final String INCREMENTAL = "incremental";
+    private static final String FULL_REBUILD = "full-rebuild";
+
+    public static final List<String> MODES = Collections.unmodifiableList(Arrays.asList(INCREMENTAL, FULL_REBUILD));
+
+    private static final long MAX_SLEEP_MILLIS = 1000;
+
+    private final MovieLensDataParser parser;
+    private final OfflineRecommender recommender;
+
+    @Autowired
+    public ReplayRunner(MovieLensDataParser parser, OfflineRecommender recommender) {
+        this.parser = parser;
+        this.recommender = recommender;
+    }
+
+    /**
+     * Replay the dataset once per mode; settings are taken from the given report, which is filled in and returned.
+     * maxRatings caps the replayed ratings (0 for all after the warm-up).
+     */
+    public ReplayReport run(String datasetDirectory, ReplayReport settings, int maxRatings, List<String> modes) throws IOException {
+        if (!OfflineRecommender.ALGORITHMS.contains(settings.getAlgorithm())) {
+            throw new IllegalArgumentException("Unknown algorithm " + settings.getAlgorithm()
+                    + ", expected one of " + OfflineRecommender.ALGORITHMS);
+        }
+        if (!MODES.containsAll(modes)) {
+            throw new IllegalArgumentException("Unknown mode in " + modes + ", expected " + MODES);
+        }
+        if (settings.getWarmupFraction() < 0.0 || settings.getWarmupFraction() >= 1.0
+                || settings.getCheckpointSeconds() < 1 || settings.getRebuildIntervalMillis() < 1 || settings.getK() < 1) {
+            throw new IllegalArgumentException("Need a warm-up fraction in [0, 1) and positive k, checkpoint and rebuild interval");
+        }
+
+        List<MovieLensRating> ratings = new ArrayList<>(parser.parseRatings(datasetDirectory + "/ratings.csv"));
+        ratings.removeIf(rating -> rating.getTimestamp() == null);
+        ratings.sort(Comparator.comparing(MovieLensRating::getTimestamp));
+        Map<Integer, MovieLensMovie> catalog = parser.parseMovies(datasetDirectory + "/movies.csv");
+        ContentVectors vectors = recommender.vectors(catalog);
+
+        int warmup = (int) (ratings.size() * settings.getWarmupFraction());
+        int end = maxRatings > 0 ? Math.min(ratings.size(), warmup + maxRatings) : ratings.size();
+        settings.setDataset(datasetDirectory);
+        settings.setWarmupRatings(warmup);
+        settings.setReplayedRatings(end - warmup);
+        if (end == warmup) {
+            return settings;
+        }
+
+        for (String mode : modes) {
+            Replay replay = new Replay(mode, ratings, warmup, end, catalog, vectors, settings);
+            ReplayReport.ModeResult result = replay.run();
+            settings.getModes().add(result);
+            LOG.info("Replay {}: {} ratings in {} ms, hit rate {} over {} requests", mode, end - warmup,
+                    result.getReplayMillis(), String.format(Locale.ROOT, "%.3f", result.getHitRate()), result.getRequests());
+        }
+        return settings;
+    }
+
+    /**
+     * The model requests are answered from, with its popularity order
+     */
+    private static final class Served {
+        private final RecommendationModel model;
+        private final List<Movie> popular;
+
+        private Served(RecommendationModel model, List<Movie> popular) {
+            this.model = model;
+            this.popular = popular;
+        }
+    }
+
+    /**
+     * State of one replay run
+     */
+    private final class Replay {
+        private final boolean incremental;
+        private final String mode;
+        private final List<MovieLensRating> ratings;
+        private final int warmup;
+        private final int end;
+        private final Map<Integer, MovieLensMovie> catalog;
+        private final ContentVectors vectors;
+        private final ReplayReport settings;
+
+        private final Map<Integer, Map<Integer, Integer>> live; // every ingested rating, by user
+        private final long[] ingestedAt; // nanoTime each replayed rating was ingested
+        private final long[] lag; // ingest-to-visible nanos per replayed rating, -1 until visible
+        private long[] requestNanos = new long[256];
+        private int requests;
+        private int hits;
+        private long ingestNanos;
+
+        private volatile Served served;
+        private volatile int ingested; // ratings[0, ingested) have been ingested
+
+        // Rebuild thread only, read after it has terminated
+        private int visible;
+        private int rebuilds;
+        private long rebuildNanos;
+
+        private Replay(String mode, List<MovieLensRating> ratings, int warmup, int end, Map<Integer, MovieLensMovie> catalog,
+                       ContentVectors vectors, ReplayReport settings) {
+            this.mode = mode;
+            this.incremental = INCREMENTAL.equals(mode);
+            this.ratings = ratings;
+            this.warmup = warmup;
+            this.end = end;
+            this.catalog = catalog;
+            this.vectors = vectors;
+            this.settings = settings;
+            this.ingestedAt = new long[end - warmup];
+            this.lag = new long[end - warmup];
+            Arrays.fill(lag, -1);
+
+            this.live = matrix(warmup);
+            // Incremental mode serves the live matrix itself; full rebuilds start from their own copy
+            RecommendationModel model = recommender.model(catalog, vectors, incremental ? live : matrix(warmup), 0);
+            this.served = new Served(model, OfflineRecommender.popularity(model.getMovies()));
+            this.ingested = warmup;
+            this.visible = warmup;
+        }
+
+        private ReplayReport.ModeResult run() {
+            ScheduledExecutorService rebuilder = null;
+            if (!incremental) {
+                rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "replay-rebuild");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                rebuilder.scheduleWithFixedDelay(this::rebuild, settings.getRebuildIntervalMillis(),
+                        settings.getRebuildIntervalMillis(), TimeUnit.MILLISECONDS);
+            }
+
+            Map<Integer, Movie> movies = new HashMap<>();
+            Map<Integer, long[]> movieStats = new HashMap<>(); // movieId -> {sum, count}, incremental mode only
+            if (incremental) {
+                for (Movie movie : served.model.getMovies()) {
+                    movies.put(movie.getMovieId(), movie);
+                    movieStats.put(movie.getMovieId(), new long[]{
+                            Math.round(movie.getRating() * movie.getTotalRatings()), movie.getTotalRatings()});
+                }
+            }
+
+            long wallStart = System.nanoTime();
+            long firstTimestamp = ratings.get(warmup).getTimestamp();
+            long nextCheckpoint = firstTimestamp + settings.getCheckpointSeconds();
+            try {
+                for (int i = warmup; i < end; i++) {
+                    MovieLensRating rating = ratings.get(i);
+                    if (rating.getTimestamp() >= nextCheckpoint) {
+                        checkpoint(i);
+                        nextCheckpoint = rating.getTimestamp() + settings.getCheckpointSeconds(); // quiet periods are skipped
+                    }
+                    pace(wallStart, rating.getTimestamp() - firstTimestamp);
+
+                    long start = System.nanoTime();
+                    ingestedAt[i - warmup] = start;
+                    live.computeIfAbsent(rating.getUserId(), userId -> new HashMap<>()).put(rating.getMovieId(), rating.getRating());
+                    if (incremental) {
+                        Movie movie = movies.get(rating.getMovieId());
+                        long[] stats = movieStats.get(rating.getMovieId());
+                        if (movie != null) {
+                            stats[0] += rating.getRating();
+                            stats[1]++;
+                            movie.setRating((double) stats[0] / stats[1]);
+                            movie.setTotalRatings((int) stats[1]);
+                        }
+                        lag[i - warmup] = System.nanoTime() - start;
+                    }
+                    ingestNanos += System.nanoTime() - start;
+                    ingested = i + 1;
+                }
+            } finally {
+                if (rebuilder != null) {
+                    rebuilder.shutdown();
+                }
+            }
+            long replayNanos = System.nanoTime() - wallStart;
+            if (rebuilder != null) {
+                try {
+                    rebuilder.awaitTermination(1, TimeUnit.MINUTES); // a rebuild in progress finishes
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return result(replayNanos);
+        }
+
+        /**
+         * Ask for lists for users whose next rating comes within the lookahead, and score them against it
+         */
+        private void checkpoint(int position) {
+            Served current = served;
+            List<Movie> popular = incremental ? OfflineRecommender.popularity(current.model.getMovies()) : current.popular;
+            long horizon = ratings.get(position).getTimestamp() + settings.getLookaheadSeconds();
+            Set<Integer> asked = new HashSet<>();
+            for (int j = position; j < end && ratings.get(j).getTimestamp() < horizon
+                    && asked.size() < settings.getUsersPerCheckpoint(); j++) {
+                MovieLensRating next = ratings.get(j);
+                Map<Integer, Integer> userRatings = live.get(next.getUserId());
+                // Users without ratings yet only ever get the popular list
+                if (userRatings == null || !asked.add(next.getUserId())) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                List<Recommendation> recommendations;
+                try {
+                    recommendations = recommender.recommend(settings.getAlgorithm(), current.model, popular,
+                            next.getUserId(), userRatings, settings.getK());
+                } catch (RuntimeException e) {
+                    LOG.debug("{} failed for user {}: {}", settings.getAlgorithm(), next.getUserId(), e.getMessage());
+                    recommendations = Collections.emptyList();
+                }
+                if (requests == requestNanos.length) {
+                    requestNanos = Arrays.copyOf(requestNanos, requests * 2);
+                }
+                requestNanos[requests++] = System.nanoTime() - start;
+                for (Recommendation recommendation : recommendations) {
+                    if (next.getMovieId().equals(recommendation.getMovieId())) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Full-rebuild mode: a new model from everything ingested so far, like a scheduled retrain
+         */
+        private void rebuild() {
+            int upTo = ingested;
+            if (upTo == visible) {
+                return;
+            }
+            long start = System.nanoTime();
+            RecommendationModel model = recommender.model(catalog, vectors, matrix(upTo), rebuilds + 1);
+            served = new Served(model, OfflineRecommender.popularity(model.getMovies()));
+            long installed = System.nanoTime();
+            for (int i = visible; i < upTo; i++) {
+                lag[i - warmup] = installed - ingestedAt[i - warmup];
+            }
+            visible = upTo;
+            rebuilds++;
+            rebuildNanos += installed - start;
+        }
+
+        private void pace(long wallStart, long eventSeconds) {
+            if (settings.getSpeedUp() <= 0) {
+                return;
+            }
+            long due = wallStart + (long) (eventSeconds / settings.getSpeedUp() * 1e9);
+            try {
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    Thread.sleep(Math.min(MAX_SLEEP_MILLIS, TimeUnit.NANOSECONDS.toMillis(wait) + 1));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Replay interrupted", e);
+            }
+        }
+
+        private Map<Integer, Map<Integer, Integer>> matrix(int upTo) {
+            Map<Integer, Map<Integer, Integer>> matrix = new HashMap<>();
+            for (int i = 0; i < upTo; i++) {
+                MovieLensRating rating = ratings.get(i);
+                matrix.computeIfAbsent(rating.getUserId(), userId -> new HashMap<>()).put(rating.getMovieId(), rating.getRating());
+            }
+            return matrix;
+        }
+
+        private ReplayReport.ModeResult result(long replayNanos) {
+            long[] lags = Arrays.stream(lag).filter(nanos -> nanos >= 0).sorted().toArray();
+            long[] requestTimes = Arrays.copyOf(requestNanos, requests);
+            Arrays.sort(requestTimes);
+
+            ReplayReport.ModeResult result = new ReplayReport.ModeResult();
+            result.setMode(mode);
+            result.setReplayMillis(replayNanos / 1_000_000);
+            result.setIngestRatingsPerSecond(ingestNanos > 0 ? (end - warmup) / (ingestNanos / 1e9) : 0.0);
+            result.setRebuilds(rebuilds);
+            result.setMeanRebuildMillis(rebuilds > 0 ? rebuildNanos / 1e6 / rebuilds : 0.0);
+            result.setRatingsNeverVisible(lag.length - lags.length);
+            result.setP50FreshnessLagMillis(CrossValidationRunner.percentile(lags, 0.50));
+            result.setP95FreshnessLagMillis(CrossValidationRunner.percentile(lags, 0.95));
+            result.setMaxFreshnessLagMillis(lags.length > 0 ? lags[lags.length - 1] / 1e6 : 0.0);
+            result.setRequests(requests);
+            result.setHits(hits);
+            result.setHitRate(requests > 0 ? (double) hits / requests : 0.0);
+            result.setP50RequestMillis(CrossValidationRunner.percentile(requestTimes, 0.50));
+            result.setP95RequestMillis(CrossValidationRunner.percentile(requestTimes, 0.95));
+            return result;
+        }
+    }
+}
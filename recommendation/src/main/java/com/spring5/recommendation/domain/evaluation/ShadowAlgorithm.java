@@ -0,0 +1,17 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.service.Recommendation;
+
+import java.util.List;
+
+/**
+ * A candidate algorithm evaluated in the background against the served one, see {@link ShadowEvaluator}
+ */
+@FunctionalInterface
+public interface ShadowAlgorithm {
+
+    /**
+     * The user's top limit recommendations; called on a shadow thread, so it may block
+     */
+    List<Recommendation> recommend(Integer userId, int limit);
+}
@@ -0,0 +1,26 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for shadow evaluation: GET /actuator/shadow compares the shadow algorithms with the served one
+ */
+@Component
+@Endpoint(id = "shadow")
+public class ShadowEndpoint {
+
+    private final ShadowEvaluator shadowEvaluator;
+
+    @Autowired
+    public ShadowEndpoint(ShadowEvaluator shadowEvaluator) {
+        this.shadowEvaluator = shadowEvaluator;
+    }
+
+    @ReadOperation
+    public ShadowReport shadow() {
+        return shadowEvaluator.report();
+    }
+}
@@ -0,0 +1,262 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trials candidate algorithms on live traffic without touching the served response.
+ *
+ * A sampled fraction of served hybrid lists is handed to a small pool of low-priority threads, which
+ * run every enabled shadow algorithm for the same user and limit, log their lists and timings, and
+ * record how much each overlaps the served list. The lists are kept for hit-window-hours, so a later
+ * rating by the user counts as a hit for every list that contained the movie.
+ *
+ * Shadow work is the first thing to go under load: nothing is queued while the load average per core
+ * is above max-load, the queue is bounded, and work that waited longer than max-queue-millis is dropped.
+ */
+@Component
+public class ShadowEvaluator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShadowEvaluator.class);
+
+    private static final String SERVED = "served";
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final double maxLoad;
+    private final Set<String> enabledAlgorithms;
+    private final Map<String, ShadowAlgorithm> algorithms = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final Map<Integer, Exposure> exposures;
+    private final ThreadPoolExecutor executor;
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final AtomicLong sampled = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong laterRatings = new AtomicLong();
+
+    @Value("${recommendation.shadow.max-queue-millis:5000}")
+    private long maxQueueMillis = 5000;
+
+    @Value("${recommendation.shadow.hit-window-hours:24}")
+    private long hitWindowHours = 24;
+
+    @Autowired
+    public ShadowEvaluator(
+            @Value("${recommendation.shadow.enabled:false}") boolean enabled,
+            @Value("${recommendation.shadow.algorithms:affinity}") List<String> enabledAlgorithms,
+            @Value("${recommendation.shadow.sample-rate:0.05}") double sampleRate,
+            @Value("${recommendation.shadow.threads:1}") int threads,
+            @Value("${recommendation.shadow.max-queued:100}") int maxQueued,
+            @Value("${recommendation.shadow.max-load:0.75}") double maxLoad,
+            @Value("${recommendation.shadow.max-exposures:10000}") int maxExposures) {
+        this.enabled = enabled;
+        this.enabledAlgorithms = new LinkedHashSet<>(enabledAlgorithms);
+        this.sampleRate = sampleRate;
+        this.maxLoad = maxLoad;
+        this.exposures = new LinkedHashMap<Integer, Exposure>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Exposure> eldest) {
+                return size() > maxExposures;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "shadow-evaluation");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                (runnable, pool) -> shed.incrementAndGet());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Make an algorithm available for shadowing; it only runs if named in recommendation.shadow.algorithms
+     */
+    public void register(String name, ShadowAlgorithm algorithm) {
+        algorithms.put(name, algorithm);
+    }
+
+    /**
+     * A list was served; maybe queue the shadow algorithms for the same request. Never blocks.
+     */
+    public void served(Integer userId, int limit, List<Recommendation> recommendations, long servedNanos) {
+        if (!enabled || recommendations.isEmpty() || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        sampled.incrementAndGet();
+        if (overloaded()) {
+            shed.incrementAndGet();
+            return;
+        }
+        List<Integer> servedIds = ids(recommendations);
+        long queuedAt = System.nanoTime();
+        executor.execute(() -> evaluate(userId, limit, servedIds, servedNanos, queuedAt));
+    }
+
+    /**
+     * The user rated a movie: a hit for every list shown to them within the hit window that contained it
+     */
+    public void rated(Integer userId, Integer movieId) {
+        if (!enabled || userId == null || movieId == null) {
+            return;
+        }
+        Exposure exposure;
+        synchronized (exposures) {
+            exposure = exposures.get(userId);
+        }
+        if (exposure == null) {
+            return;
+        }
+        if (System.currentTimeMillis() - exposure.shownAt > TimeUnit.HOURS.toMillis(hitWindowHours)) {
+            synchronized (exposures) {
+                exposures.remove(userId, exposure);
+            }
+            return;
+        }
+        if (!exposure.counted.add(movieId)) {
+            return; // a re-rating of the same movie is not another hit
+        }
+        laterRatings.incrementAndGet();
+        for (Map.Entry<String, Set<Integer>> list : exposure.lists.entrySet()) {
+            if (list.getValue().contains(movieId)) {
+                stats(list.getKey()).hits.incrementAndGet();
+            }
+        }
+    }
+
+    public ShadowReport report() {
+        ShadowReport report = new ShadowReport();
+        report.setEnabled(enabled);
+        report.setSampleRate(sampleRate);
+        report.setSampled(sampled.get());
+        report.setShed(shed.get());
+        report.setLaterRatings(laterRatings.get());
+        report.setServed(stats(SERVED).toReport(laterRatings.get()));
+        for (String name : enabledAlgorithms) {
+            report.getShadows().put(name, stats(name).toReport(laterRatings.get()));
+        }
+        return report;
+    }
+
+    private void evaluate(Integer userId, int limit, List<Integer> servedIds, long servedNanos, long queuedAt) {
+        if (System.nanoTime() - queuedAt > TimeUnit.MILLISECONDS.toNanos(maxQueueMillis)) {
+            shed.incrementAndGet();
+            return;
+        }
+
+        Exposure exposure = new Exposure();
+        exposure.lists.put(SERVED, new HashSet<>(servedIds));
+        Map<String, double[]> results = new LinkedHashMap<>(); // name -> {nanos, overlap}
+        results.put(SERVED, new double[]{servedNanos, 1.0});
+
+        for (String name : enabledAlgorithms) {
+            ShadowAlgorithm algorithm = algorithms.get(name);
+            if (algorithm == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                List<Integer> shadowIds = ids(algorithm.recommend(userId, limit));
+                long elapsed = System.nanoTime() - start;
+                double overlap = overlap(servedIds, shadowIds);
+                results.put(name, new double[]{elapsed, overlap});
+                exposure.lists.put(name, new HashSet<>(shadowIds));
+                LOG.info("Shadow {} for user {}: {} in {} ms (served in {} ms), overlap {} - served {}",
+                        name, userId, shadowIds, elapsed / 1_000_000, servedNanos / 1_000_000,
+                        String.format(Locale.ROOT, "%.2f", overlap), servedIds);
+            } catch (RuntimeException e) {
+                stats(name).failures.incrementAndGet();
+                LOG.warn("Shadow {} failed for user {}: {}", name, userId, e.getMessage());
+            }
+        }
+
+        // Published before the runs are counted, so a rating seen after a run is always matched against it
+        synchronized (exposures) {
+            exposures.put(userId, exposure);
+        }
+        results.forEach((name, result) -> stats(name).record((long) result[0], result[1]));
+    }
+
+    /**
+     * Share of the served list that the shadow list also contains
+     */
+    static double overlap(List<Integer> served, List<Integer> shadow) {
+        if (served.isEmpty()) {
+            return 0.0;
+        }
+        Set<Integer> shadowIds = new HashSet<>(shadow);
+        long common = served.stream().filter(shadowIds::contains).count();
+        return (double) common / served.size();
+    }
+
+    private boolean overloaded() {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            return true;
+        }
+        double load = os.getSystemLoadAverage(); // negative where the platform does not report it
+        return load >= 0 && load / os.getAvailableProcessors() > maxLoad;
+    }
+
+    private Stats stats(String name) {
+        return stats.computeIfAbsent(name, key -> new Stats());
+    }
+
+    private static List<Integer> ids(List<Recommendation> recommendations) {
+        List<Integer> ids = new ArrayList<>(recommendations.size());
+        for (Recommendation recommendation : recommendations) {
+            ids.add(recommendation.getMovieId());
+        }
+        return ids;
+    }
+
+    private static final class Exposure {
+        private final long shownAt = System.currentTimeMillis();
+        private final Map<String, Set<Integer>> lists = new LinkedHashMap<>();
+        private final Set<Integer> counted = ConcurrentHashMap.newKeySet();
+    }
+
+    private static final class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private long runs;
+        private double overlapSum;
+        private long nanosSum;
+        private long maxNanos;
+
+        private synchronized void record(long nanos, double overlap) {
+            runs++;
+            overlapSum += overlap;
+            nanosSum += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        private synchronized ShadowReport.Stats toReport(long laterRatings) {
+            ShadowReport.Stats report = new ShadowReport.Stats();
+            report.setRuns(runs);
+            report.setFailures(failures.get());
+            report.setMeanOverlap(runs > 0 ? overlapSum / runs : 0.0);
+            report.setMeanLatencyMillis(runs > 0 ? nanosSum / 1e6 / runs : 0.0);
+            report.setMaxLatencyMillis(maxNanos / 1e6);
+            report.setHits(hits.get());
+            report.setHitRate(laterRatings > 0 ? (double) hits.get() / laterRatings : 0.0);
+            return report;
+        }
+    }
+}
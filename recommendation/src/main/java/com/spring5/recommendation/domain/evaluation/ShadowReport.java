@@ -0,0 +1,34 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shadow algorithms compared with the served one, as shown on the shadow actuator endpoint
+ */
+@Data
+@NoArgsConstructor
+public class ShadowReport {
+    private boolean enabled;
+    private double sampleRate;
+    private long sampled; // served requests picked for shadowing
+    private long shed; // sampled requests dropped because of load or a full queue
+    private long laterRatings; // ratings by sampled users within the hit window of their exposure
+    private Stats served;
+    private Map<String, Stats> shadows = new LinkedHashMap<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class Stats {
+        private long runs;
+        private long failures;
+        private double meanOverlap; // share of the served list also in this list; 1.0 for the served algorithm
+        private double meanLatencyMillis;
+        private double maxLatencyMillis;
+        private long hits; // later ratings of a movie that was in this list
+        private double hitRate; // hits / laterRatings
+    }
+}
@@ -0,0 +1,36 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.service.Recommendation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An algorithm whose parameters can be swept. Everything that does not depend on the parameters is
+ * computed once by {@link #prepare}; each grid point then only runs the cheap part against it.
+ * Implementations are Spring beans and must be safe to call from several threads at once.
+ *
+ * @param <A> the shared artifacts
+ */
+public interface SweepAlgorithm<A> {
+
+    String name();
+
+    /**
+     * Grid swept when the request does not give one
+     */
+    Map<String, List<Double>> defaultGrid();
+
+    A prepare(SweepData data);
+
+    List<Recommendation> recommend(A artifacts, Map<String, Double> parameters, Integer userId, int k);
+
+    /**
+     * Predicted ratings for the movies, for RMSE; movies without a prediction are left out
+     */
+    default Map<Integer, Double> predict(A artifacts, Map<String, Double> parameters, Integer userId, Collection<Integer> movieIds) {
+        return Collections.emptyMap();
+    }
+}
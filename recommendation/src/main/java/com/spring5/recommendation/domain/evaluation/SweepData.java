@@ -0,0 +1,33 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Training split, evaluated users and worker pool handed to {@link SweepAlgorithm#prepare}
+ */
+public final class SweepData {
+
+    private final Map<Integer, Map<Integer, Integer>> train; // userId -> (movieId -> rating)
+    private final List<Integer> users;
+    private final ForkJoinPool pool;
+
+    public SweepData(Map<Integer, Map<Integer, Integer>> train, List<Integer> users, ForkJoinPool pool) {
+        this.train = train;
+        this.users = users;
+        this.pool = pool;
+    }
+
+    public Map<Integer, Map<Integer, Integer>> getTrain() {
+        return train;
+    }
+
+    public List<Integer> getUsers() {
+        return users;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+}
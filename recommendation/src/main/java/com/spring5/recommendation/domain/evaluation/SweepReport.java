@@ -0,0 +1,45 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every grid point of a parameter sweep, ranked by accuracy and by latency
+ */
+@Data
+@NoArgsConstructor
+public class SweepReport {
+    private String dataset;
+    private String algorithm;
+    private int k;
+    private double testFraction;
+    private long seed;
+    private int users;
+    private int points;
+    private long prepareMillis; // shared artifacts, computed once
+    private long sweepMillis; // all grid points against them
+    private List<PointResult> byAccuracy = new ArrayList<>(); // best precision@K first
+    private List<PointResult> byLatency = new ArrayList<>(); // fastest p95 first
+
+    /**
+     * One parameter combination
+     */
+    @Data
+    @NoArgsConstructor
+    public static class PointResult {
+        private Map<String, Double> parameters;
+        private double precisionAtK;
+        private double recallAtK;
+        private double map;
+        private Double rmse; // null if the algorithm does not predict ratings
+        private double coverage;
+        private double meanMillis; // per list
+        private double p95Millis;
+        private int accuracyRank;
+        private int latencyRank;
+    }
+}
@@ -0,0 +1,22 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request body for a parameter sweep; an empty grid sweeps the algorithm's default grid
+ */
+@Data
+@NoArgsConstructor
+public class SweepRequest {
+    private String datasetPath;
+    private String algorithm = "user-knn";
+    private Map<String, List<Double>> grid;
+    private int k = 10;
+    private double testFraction = 0.2;
+    private int maxUsers = 0; // 0 evaluates every user with a relevant held-out rating
+    private long seed = 42;
+}
@@ -0,0 +1,223 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import com.spring5.recommendation.domain.movielens.MovieLensRating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Sweeps a parameter grid of a {@link SweepAlgorithm} over a seeded hold-out split of a MovieLens dataset.
+ *
+ * The algorithm's shared artifacts are prepared once; the grid points are then evaluated against them
+ * in parallel on a dedicated fork-join pool, each point running its users in turn so that its latency
+ * is measured on one thread. Points are ranked by precision@K and by p95 list latency.
+ */
+@Component
+public class SweepRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SweepRunner.class);
+
+    private static final int RELEVANT_RATING = 4;
+
+    private final MovieLensDataParser parser;
+    private final RecommendationEvaluator evaluator;
+    private final Map<String, SweepAlgorithm<?>> algorithms = new LinkedHashMap<>();
+
+    @Value("${recommendation.evaluation.parallelism:0}")
+    private int parallelism = 0; // 0 means one worker per core
+
+    @Autowired
+    public SweepRunner(MovieLensDataParser parser, RecommendationEvaluator evaluator, List<SweepAlgorithm<?>> algorithms) {
+        this.parser = parser;
+        this.evaluator = evaluator;
+        for (SweepAlgorithm<?> algorithm : algorithms) {
+            this.algorithms.put(algorithm.name(), algorithm);
+        }
+    }
+
+    public SweepReport run(SweepRequest request) throws IOException {
+        SweepAlgorithm<?> algorithm = algorithms.get(request.getAlgorithm());
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unknown algorithm " + request.getAlgorithm() + ", expected one of " + algorithms.keySet());
+        }
+        if (request.getTestFraction() <= 0.0 || request.getTestFraction() >= 1.0 || request.getK() < 1) {
+            throw new IllegalArgumentException("Need a test fraction in (0, 1) and k of at least 1");
+        }
+        return sweep(algorithm, request);
+    }
+
+    private <A> SweepReport sweep(SweepAlgorithm<A> algorithm, SweepRequest request) throws IOException {
+        Map<String, List<Double>> grid = request.getGrid() != null && !request.getGrid().isEmpty()
+                ? request.getGrid() : algorithm.defaultGrid();
+        List<Map<String, Double>> points = points(grid);
+
+        List<MovieLensRating> ratings = parser.parseRatings(request.getDatasetPath() + "/ratings.csv");
+        Set<Integer> catalog = parser.parseMovies(request.getDatasetPath() + "/movies.csv").keySet();
+
+        Map<Integer, Map<Integer, Integer>> train = new HashMap<>();
+        Map<Integer, Map<Integer, Integer>> test = new HashMap<>();
+        Random random = new Random(request.getSeed());
+        for (MovieLensRating rating : ratings) {
+            (random.nextDouble() < request.getTestFraction() ? test : train)
+                    .computeIfAbsent(rating.getUserId(), userId -> new HashMap<>())
+                    .put(rating.getMovieId(), rating.getRating());
+        }
+
+        Map<Integer, Set<Integer>> relevant = new HashMap<>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> heldOut : test.entrySet()) {
+            if (!train.containsKey(heldOut.getKey())) {
+                continue;
+            }
+            Set<Integer> movies = new HashSet<>();
+            heldOut.getValue().forEach((movieId, rating) -> {
+                if (rating >= RELEVANT_RATING) {
+                    movies.add(movieId);
+                }
+            });
+            if (!movies.isEmpty()) {
+                relevant.put(heldOut.getKey(), movies);
+            }
+        }
+        List<Integer> users = new ArrayList<>(relevant.keySet());
+        Collections.sort(users);
+        if (request.getMaxUsers() > 0 && users.size() > request.getMaxUsers()) {
+            Collections.shuffle(users, new Random(request.getSeed()));
+            users = new ArrayList<>(users.subList(0, request.getMaxUsers()));
+        }
+        List<Integer> evaluated = users;
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long prepareNanos;
+        long sweepNanos;
+        List<SweepReport.PointResult> results;
+        try {
+            long start = System.nanoTime();
+            A artifacts = algorithm.prepare(new SweepData(train, evaluated, pool));
+            prepareNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            results = pool.submit(() -> points.parallelStream()
+                    .map(point -> evaluate(algorithm, artifacts, point, evaluated, relevant, test, request.getK(), catalog))
+                    .collect(Collectors.toList()))
+                    .get();
+            sweepNanos = System.nanoTime() - start;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sweep of " + algorithm.name() + " failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        SweepReport report = new SweepReport();
+        report.setDataset(request.getDatasetPath());
+        report.setAlgorithm(algorithm.name());
+        report.setK(request.getK());
+        report.setTestFraction(request.getTestFraction());
+        report.setSeed(request.getSeed());
+        report.setUsers(evaluated.size());
+        report.setPoints(points.size());
+        report.setPrepareMillis(prepareNanos / 1_000_000);
+        report.setSweepMillis(sweepNanos / 1_000_000);
+
+        List<SweepReport.PointResult> byAccuracy = new ArrayList<>(results);
+        byAccuracy.sort(Comparator.comparingDouble(SweepReport.PointResult::getPrecisionAtK)
+                .thenComparingDouble(SweepReport.PointResult::getMap).reversed());
+        for (int i = 0; i < byAccuracy.size(); i++) {
+            byAccuracy.get(i).setAccuracyRank(i + 1);
+        }
+        List<SweepReport.PointResult> byLatency = new ArrayList<>(results);
+        byLatency.sort(Comparator.comparingDouble(SweepReport.PointResult::getP95Millis)
+                .thenComparingDouble(SweepReport.PointResult::getMeanMillis));
+        for (int i = 0; i < byLatency.size(); i++) {
+            byLatency.get(i).setLatencyRank(i + 1);
+        }
+        report.setByAccuracy(byAccuracy);
+        report.setByLatency(byLatency);
+
+        LOG.info("Swept {} points of {} over {} users: prepared in {} ms, evaluated in {} ms; best {}",
+                points.size(), algorithm.name(), evaluated.size(), report.getPrepareMillis(), report.getSweepMillis(),
+                byAccuracy.isEmpty() ? "none" : byAccuracy.get(0).getParameters());
+        return report;
+    }
+
+    private <A> SweepReport.PointResult evaluate(SweepAlgorithm<A> algorithm, A artifacts, Map<String, Double> point,
+                                                 List<Integer> users, Map<Integer, Set<Integer>> relevant,
+                                                 Map<Integer, Map<Integer, Integer>> test, int k, Set<Integer> catalog) {
+        long[] nanos = new long[users.size()];
+        double precision = 0.0;
+        double recall = 0.0;
+        double averagePrecision = 0.0;
+        double squaredError = 0.0;
+        long predictions = 0;
+        Set<Integer> recommended = new HashSet<>();
+
+        for (int i = 0; i < users.size(); i++) {
+            Integer userId = users.get(i);
+            long start = System.nanoTime();
+            List<Recommendation> recommendations = algorithm.recommend(artifacts, point, userId, k);
+            nanos[i] = System.nanoTime() - start;
+
+            Set<Integer> userRelevant = relevant.get(userId);
+            precision += evaluator.calculatePrecisionAtK(recommendations, userRelevant, k);
+            recall += evaluator.calculateRecallAtK(recommendations, userRelevant, k);
+            averagePrecision += evaluator.calculateMAP(recommendations, userRelevant);
+            for (Recommendation recommendation : recommendations) {
+                recommended.add(recommendation.getMovieId());
+            }
+
+            Map<Integer, Integer> heldOut = test.get(userId);
+            for (Map.Entry<Integer, Double> prediction : algorithm.predict(artifacts, point, userId, heldOut.keySet()).entrySet()) {
+                double error = prediction.getValue() - heldOut.get(prediction.getKey());
+                squaredError += error * error;
+                predictions++;
+            }
+        }
+
+        Arrays.sort(nanos);
+        SweepReport.PointResult result = new SweepReport.PointResult();
+        result.setParameters(point);
+        if (!users.isEmpty()) {
+            result.setPrecisionAtK(precision / users.size());
+            result.setRecallAtK(recall / users.size());
+            result.setMap(averagePrecision / users.size());
+            result.setMeanMillis(Arrays.stream(nanos).sum() / 1e6 / users.size());
+        }
+        result.setRmse(predictions > 0 ? Math.sqrt(squaredError / predictions) : null);
+        result.setCoverage(evaluator.calculateCoverage(recommended, catalog));
+        result.setP95Millis(CrossValidationRunner.percentile(nanos, 0.95));
+        return result;
+    }
+
+    /**
+     * Cartesian product of the grid, in the grid's key order
+     */
+    static List<Map<String, Double>> points(Map<String, List<Double>> grid) {
+        List<Map<String, Double>> points = new ArrayList<>();
+        points.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<Double>> parameter : grid.entrySet()) {
+            List<Map<String, Double>> expanded = new ArrayList<>(points.size() * parameter.getValue().size());
+            for (Map<String, Double> point : points) {
+                for (Double value : parameter.getValue()) {
+                    Map<String, Double> next = new LinkedHashMap<>(point);
+                    next.put(parameter.getKey(), value);
+                    expanded.add(next);
+                }
+            }
+            points = expanded;
+        }
+        return points;
+    }
+}
@@ -0,0 +1,227 @@
+package com.spring5.recommendation.domain.evaluation;
+
+import com.spring5.recommendation.domain.algorithm.TopKCollector;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * User-based collaborative filtering with Pearson similarity over co-rated movies, as in
+ * CollaborativeFiltering, with its hand-tuned constants as parameters:
+ * minCommonItems (MIN_COMMON_ITEMS), minSimilarity (MIN_SIMILARITY_THRESHOLD) and neighbours,
+ * the most similar users used per prediction (0 for all).
+ *
+ * The shared artifacts are every evaluated user's co-rating counts and raw similarities to all
+ * other users, sorted most similar first, so a grid point is a scan of a prefix of that list.
+ */
+@Component
+public class UserKnnSweep implements SweepAlgorithm<UserKnnSweep.Neighbourhoods> {
+
+    static final String MIN_COMMON_ITEMS = "minCommonItems";
+    static final String MIN_SIMILARITY = "minSimilarity";
+    static final String NEIGHBOURS = "neighbours";
+
+    @Override
+    public String name() {
+        return "user-knn";
+    }
+
+    @Override
+    public Map<String, List<Double>> defaultGrid() {
+        Map<String, List<Double>> grid = new LinkedHashMap<>();
+        grid.put(MIN_COMMON_ITEMS, Arrays.asList(1.0, 2.0, 3.0, 5.0, 8.0));
+        grid.put(MIN_SIMILARITY, Arrays.asList(0.0, 0.05, 0.1, 0.2, 0.3));
+        grid.put(NEIGHBOURS, Arrays.asList(20.0, 50.0));
+        return grid;
+    }
+
+    @Override
+    public Neighbourhoods prepare(SweepData data) {
+        Map<Integer, Map<Integer, Integer>> train = data.getTrain();
+
+        // Dense user indexes and, per movie, who rated it how
+        int[] userIds = new int[train.size()];
+        double[] means = new double[train.size()];
+        Map<Integer, Integer> indexOf = new HashMap<>(train.size() * 2);
+        Map<Integer, List<int[]>> raters = new HashMap<>(); // movieId -> {user index, rating}
+        int index = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> user : train.entrySet()) {
+            userIds[index] = user.getKey();
+            indexOf.put(user.getKey(), index);
+            double sum = 0.0;
+            for (Map.Entry<Integer, Integer> rating : user.getValue().entrySet()) {
+                raters.computeIfAbsent(rating.getKey(), movieId -> new ArrayList<>()).add(new int[]{index, rating.getValue()});
+                sum += rating.getValue();
+            }
+            means[index] = user.getValue().isEmpty() ? 0.0 : sum / user.getValue().size();
+            index++;
+        }
+
+        try {
+            Map<Integer, Neighbourhood> neighbourhoods = data.getPool().submit(() -> data.getUsers().parallelStream()
+                    .filter(indexOf::containsKey)
+                    .map(userId -> neighbourhood(userId, indexOf.get(userId), train.get(userId), raters, userIds))
+                    .collect(Collectors.toMap(neighbourhood -> neighbourhood.userId, neighbourhood -> neighbourhood)))
+                    .get();
+            return new Neighbourhoods(train, indexOf, means, neighbourhoods);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep preparation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sweep preparation failed", e.getCause());
+        }
+    }
+
+    @Override
+    public List<Recommendation> recommend(Neighbourhoods artifacts, Map<String, Double> parameters, Integer userId, int k) {
+        Map<Integer, Integer> rated = artifacts.train.get(userId);
+        Map<Integer, double[]> scores = scores(artifacts, parameters, userId, null);
+        TopKCollector topK = new TopKCollector(k);
+        for (Map.Entry<Integer, double[]> score : scores.entrySet()) {
+            if (!rated.containsKey(score.getKey())) {
+                topK.offer(score.getKey(), prediction(artifacts, userId, score.getValue()));
+            }
+        }
+        return OfflineRecommender.toRecommendations(topK, name());
+    }
+
+    @Override
+    public Map<Integer, Double> predict(Neighbourhoods artifacts, Map<String, Double> parameters, Integer userId,
+                                        Collection<Integer> movieIds) {
+        Map<Integer, Double> predictions = new HashMap<>();
+        scores(artifacts, parameters, userId, new HashSet<>(movieIds))
+                .forEach((movieId, score) -> predictions.put(movieId, prediction(artifacts, userId, score)));
+        return predictions;
+    }
+
+    /**
+     * Similarity-weighted sums of neighbour deviations per movie: {sum of sim * (r - mean), sum of |sim|}
+     */
+    private static Map<Integer, double[]> scores(Neighbourhoods artifacts, Map<String, Double> parameters, Integer userId,
+                                                 Set<Integer> only) {
+        Neighbourhood neighbourhood = artifacts.neighbourhoods.get(userId);
+        Map<Integer, double[]> scores = new HashMap<>();
+        if (neighbourhood == null) {
+            return scores;
+        }
+        int minCommon = parameters.getOrDefault(MIN_COMMON_ITEMS, 2.0).intValue();
+        double minSimilarity = parameters.getOrDefault(MIN_SIMILARITY, 0.05);
+        int maxNeighbours = parameters.getOrDefault(NEIGHBOURS, 0.0).intValue();
+
+        int used = 0;
+        for (int i = 0; i < neighbourhood.similarities.length; i++) {
+            if (neighbourhood.similarities[i] < minSimilarity || (maxNeighbours > 0 && used == maxNeighbours)) {
+                break; // most similar first, so nothing after this qualifies
+            }
+            if (neighbourhood.common[i] < minCommon) {
+                continue;
+            }
+            used++;
+            int neighbour = neighbourhood.neighbours[i];
+            double similarity = neighbourhood.similarities[i];
+            double mean = artifacts.means[artifacts.indexOf.get(neighbour)];
+            for (Map.Entry<Integer, Integer> rating : artifacts.train.get(neighbour).entrySet()) {
+                if (only != null && !only.contains(rating.getKey())) {
+                    continue;
+                }
+                double[] score = scores.computeIfAbsent(rating.getKey(), movieId -> new double[2]);
+                score[0] += similarity * (rating.getValue() - mean);
+                score[1] += Math.abs(similarity);
+            }
+        }
+        return scores;
+    }
+
+    private static double prediction(Neighbourhoods artifacts, Integer userId, double[] score) {
+        double mean = artifacts.means[artifacts.indexOf.get(userId)];
+        double prediction = score[1] > 0 ? mean + score[0] / score[1] : mean;
+        return Math.max(1.0, Math.min(5.0, prediction));
+    }
+
+    /**
+     * Co-rating counts and Pearson similarity of one user to everyone sharing a movie, most similar first
+     */
+    private static Neighbourhood neighbourhood(Integer userId, int self, Map<Integer, Integer> ratings,
+                                               Map<Integer, List<int[]>> raters, int[] userIds) {
+        int users = userIds.length;
+        int[] common = new int[users];
+        double[] sumX = new double[users];
+        double[] sumY = new double[users];
+        double[] sumXY = new double[users];
+        double[] sumXX = new double[users];
+        double[] sumYY = new double[users];
+        for (Map.Entry<Integer, Integer> rating : ratings.entrySet()) {
+            double x = rating.getValue();
+            for (int[] rater : raters.getOrDefault(rating.getKey(), Collections.emptyList())) {
+                int other = rater[0];
+                if (other == self) {
+                    continue;
+                }
+                double y = rater[1];
+                common[other]++;
+                sumX[other] += x;
+                sumY[other] += y;
+                sumXY[other] += x * y;
+                sumXX[other] += x * x;
+                sumYY[other] += y * y;
+            }
+        }
+
+        List<double[]> candidates = new ArrayList<>(); // {user index, common, similarity}
+        for (int other = 0; other < users; other++) {
+            int n = common[other];
+            if (n == 0) {
+                continue;
+            }
+            double covariance = sumXY[other] - sumX[other] * sumY[other] / n;
+            double variance = (sumXX[other] - sumX[other] * sumX[other] / n) * (sumYY[other] - sumY[other] * sumY[other] / n);
+            double similarity = variance > 0 ? covariance / Math.sqrt(variance) : 0.0;
+            candidates.add(new double[]{other, n, similarity});
+        }
+        candidates.sort((a, b) -> Double.compare(b[2], a[2]));
+
+        Neighbourhood neighbourhood = new Neighbourhood(userId, candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            double[] candidate = candidates.get(i);
+            neighbourhood.neighbours[i] = userIds[(int) candidate[0]];
+            neighbourhood.common[i] = (int) candidate[1];
+            neighbourhood.similarities[i] = candidate[2];
+        }
+        return neighbourhood;
+    }
+
+    private static final class Neighbourhood {
+        private final Integer userId;
+        private final int[] neighbours;
+        private final int[] common;
+        private final double[] similarities;
+
+        private Neighbourhood(Integer userId, int size) {
+            this.userId = userId;
+            this.neighbours = new int[size];
+            this.common = new int[size];
+            this.similarities = new double[size];
+        }
+    }
+
+    /**
+     * Shared artifacts: the training ratings, user means and each evaluated user's neighbourhood
+     */
+    public static final class Neighbourhoods {
+        private final Map<Integer, Map<Integer, Integer>> train;
+        private final Map<Integer, Integer> indexOf;
+        private final double[] means;
+        private final Map<Integer, Neighbourhood> neighbourhoods;
+
+        private Neighbourhoods(Map<Integer, Map<Integer, Integer>> train, Map<Integer, Integer> indexOf, double[] means,
+                               Map<Integer, Neighbourhood> neighbourhoods) {
+            this.train = train;
+            this.indexOf = indexOf;
+            this.means = means;
+            this.neighbourhoods = neighbourhoods;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.spring5.recommendation.domain.model;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A request's hold on one model version. The version is not released while a lease is open,
+ * even if a newer one has been swapped in. Closing more than once is harmless.
+ */
+public final class ModelLease implements AutoCloseable {
+
+    static final ModelLease NONE = new ModelLease(null, null);
+
+    private final ModelRegistry.ModelHandle handle;
+    private final ModelRegistry registry;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ModelLease(ModelRegistry.ModelHandle handle, ModelRegistry registry) {
+        this.handle = handle;
+        this.registry = registry;
+    }
+
+    /**
+     * The leased model, or null if no model has been built yet
+     */
+    public RecommendationModel getModel() {
+        return handle != null ? handle.getModel() : null;
+    }
+
+    @Override
+    public void close() {
+        if (handle != null && closed.compareAndSet(false, true)) {
+            registry.release(handle);
+        }
+    }
+}
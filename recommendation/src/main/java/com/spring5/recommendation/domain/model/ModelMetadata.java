@@ -0,0 +1,27 @@
+package com.spring5.recommendation.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Build information for one model version
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModelMetadata {
+    private long version;
+    private LocalDateTime builtAt;
+    private long buildMillis;
+    private LocalDateTime ratingsWatermark; // newest rating the model has seen
+    private int movieCount;
+    private int userCount;
+    private int ratingCount;
+    private int contentVectorCount;
+    private long contentVectorValues; // stored TF-IDF weights across all vectors
+    private boolean quantized;
+    private long ratingsHash; // of every (user, movie, rating), so edited ratings count as changes
+}
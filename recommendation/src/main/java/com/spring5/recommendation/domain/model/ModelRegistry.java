@@ -0,0 +1,209 @@
+package com.spring5.recommendation.domain.model;
+
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the served model version and swaps in new ones atomically.
+ *
+ * Requests take a {@link ModelLease} and finish on the version they leased. After a swap the old
+ * version is kept as the rollback target; the one before it is retired and its data released once
+ * its last lease is closed. Memory therefore peaks at three versions while one is still draining.
+ *
+ * On a shard only the {@link RecommendationModel#slice} of the movies it owns is kept.
+ */
+@Component
+public class ModelRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelRegistry.class);
+    private static final int HISTORY_SIZE = 10;
+
+    private final ContentVectorIndex contentVectorIndex;
+    private final ShardPartitioner shardPartitioner;
+    private final AtomicReference<ModelHandle> current = new AtomicReference<>();
+    private final List<ModelHandle> draining = new CopyOnWriteArrayList<>();
+    private final Deque<ModelMetadata> history = new ConcurrentLinkedDeque<>();
+    private volatile ModelHandle previous;
+    private volatile boolean updatesPaused;
+    private volatile LocalDateTime lastUpdateAt;
+    private volatile String lastUpdateResult;
+
+    public ModelRegistry(ContentVectorIndex contentVectorIndex) {
+        this(contentVectorIndex, new ShardPartitioner(1, 0, "hash", new int[0]));
+    }
+
+    @Autowired
+    public ModelRegistry(ContentVectorIndex contentVectorIndex, ShardPartitioner shardPartitioner) {
+        this.contentVectorIndex = contentVectorIndex;
+        this.shardPartitioner = shardPartitioner;
+    }
+
+    /**
+     * Lease the current model at subscription. Before the first model exists the lease is empty right
+     * away, so requests take their no-model fallback instead of waiting for the first build.
+     */
+    public Mono<ModelLease> lease() {
+        return Mono.fromSupplier(this::acquire);
+    }
+
+    /**
+     * Lease the current model without waiting; {@link ModelLease#getModel()} is null if there is none
+     */
+    public ModelLease acquire() {
+        while (true) {
+            ModelHandle handle = current.get();
+            if (handle == null) {
+                return ModelLease.NONE;
+            }
+            handle.inFlight.incrementAndGet();
+            if (!handle.retired) {
+                return new ModelLease(handle, this);
+            }
+            // Retired between the read and the increment (only possible after a rollback); try again
+            release(handle);
+        }
+    }
+
+    /**
+     * Serve the given model from now on, or on a shard the part of it the shard owns.
+     * The replaced version becomes the rollback target.
+     */
+    public synchronized void install(RecommendationModel built) {
+        RecommendationModel model = shardPartitioner.isPartitioned() ? built.slice(shardPartitioner::owns) : built;
+        ModelHandle next = new ModelHandle(model);
+        ModelHandle replaced = current.getAndSet(next);
+        contentVectorIndex.install(model.getContentVectors());
+
+        if (previous != null) {
+            retire(previous);
+        }
+        previous = replaced;
+
+        history.addFirst(model.getMetadata());
+        while (history.size() > HISTORY_SIZE) {
+            history.removeLast();
+        }
+        LOG.info("Model version {} is now serving (previous: {})", model.getVersion(),
+                replaced != null ? replaced.metadata.getVersion() : "none");
+    }
+
+    /**
+     * Go back to the previous version. The current one is retired and scheduled updates (retraining,
+     * or snapshot loading on a server) are paused so it does not come straight back; a manual
+     * retrain resumes them.
+     */
+    public synchronized ModelMetadata rollback() {
+        if (previous == null) {
+            throw new IllegalStateException("No previous model version to roll back to");
+        }
+        ModelHandle restored = previous;
+        ModelHandle rolledBack = current.getAndSet(restored);
+        contentVectorIndex.install(restored.model.getContentVectors());
+        previous = null;
+        updatesPaused = true;
+        retire(rolledBack);
+        LOG.warn("Rolled back from model version {} to {}", rolledBack.metadata.getVersion(), restored.metadata.getVersion());
+        return restored.metadata;
+    }
+
+    /**
+     * The served model, or null before the first build
+     */
+    public RecommendationModel currentModel() {
+        ModelHandle handle = current.get();
+        return handle != null ? handle.model : null;
+    }
+
+    public boolean isUpdatesPaused() {
+        return updatesPaused;
+    }
+
+    public void resumeUpdates() {
+        updatesPaused = false;
+    }
+
+    public void recordUpdate(String result) {
+        lastUpdateAt = LocalDateTime.now();
+        lastUpdateResult = result;
+    }
+
+    public ModelRegistryReport report() {
+        ModelRegistryReport report = new ModelRegistryReport();
+        ModelHandle served = current.get();
+        ModelHandle rollbackTarget = previous;
+        if (served != null) {
+            report.setCurrent(served.metadata);
+            report.getInFlight().put(served.metadata.getVersion(), served.inFlight.get());
+        }
+        if (rollbackTarget != null) {
+            report.setPrevious(rollbackTarget.metadata);
+            report.getInFlight().put(rollbackTarget.metadata.getVersion(), rollbackTarget.inFlight.get());
+        }
+        for (ModelHandle handle : draining) {
+            report.getDraining().add(handle.metadata);
+            report.getInFlight().put(handle.metadata.getVersion(), handle.inFlight.get());
+        }
+        report.setHistory(new ArrayList<>(history));
+        report.setUpdatesPaused(updatesPaused);
+        report.setLastUpdateAt(lastUpdateAt);
+        report.setLastUpdateResult(lastUpdateResult);
+        return report;
+    }
+
+    void release(ModelHandle handle) {
+        if (handle.inFlight.decrementAndGet() == 0 && handle.retired) {
+            free(handle);
+        }
+    }
+
+    private void retire(ModelHandle handle) {
+        handle.retired = true;
+        draining.add(handle);
+        if (handle.inFlight.get() == 0) {
+            free(handle);
+        }
+    }
+
+    private void free(ModelHandle handle) {
+        if (handle.released.compareAndSet(false, true)) {
+            draining.remove(handle);
+            handle.model = null;
+            LOG.info("Released model version {}", handle.metadata.getVersion());
+        }
+    }
+
+    /**
+     * A model version plus the number of open leases on it
+     */
+    static final class ModelHandle {
+        private final ModelMetadata metadata;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile RecommendationModel model;
+        private volatile boolean retired;
+
+        ModelHandle(RecommendationModel model) {
+            this.model = model;
+            this.metadata = model.getMetadata();
+        }
+
+        RecommendationModel getModel() {
+            return model;
+        }
+    }
+}
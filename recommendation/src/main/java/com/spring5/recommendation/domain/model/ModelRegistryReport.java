@@ -0,0 +1,26 @@
+package com.spring5.recommendation.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Model versions held by the registry, as shown on the models actuator endpoint
+ */
+@Data
+@NoArgsConstructor
+public class ModelRegistryReport {
+    private ModelMetadata current;
+    private ModelMetadata previous; // target of a rollback
+    private List<ModelMetadata> draining = new ArrayList<>(); // retired, waiting for in-flight requests
+    private Map<Long, Integer> inFlight = new LinkedHashMap<>(); // version -> open requests
+    private List<ModelMetadata> history = new ArrayList<>(); // most recent first
+    private boolean updatesPaused; // after a rollback, until the next manual retrain
+    private LocalDateTime lastUpdateAt;
+    private String lastUpdateResult; // last retrain or snapshot load
+}
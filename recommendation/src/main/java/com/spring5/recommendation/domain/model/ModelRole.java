@@ -0,0 +1,17 @@
+package com.spring5.recommendation.domain.model;
+
+import java.util.Locale;
+
+/**
+ * What an instance does with models (recommendation.role).
+ * STANDALONE trains and serves; TRAINER also publishes snapshots; SERVER only loads published snapshots.
+ */
+public enum ModelRole {
+    STANDALONE,
+    TRAINER,
+    SERVER;
+
+    public static ModelRole of(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,224 @@
+package com.spring5.recommendation.domain.model;
+
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.model.snapshot.SnapshotPublisher;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Rating;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds new model versions off the request path and hands them to the {@link ModelRegistry}.
+ *
+ * Retraining runs on a single low-priority daemon thread, so at most one build is in progress and
+ * request threads never wait for one. A build is skipped when neither the catalog nor the ratings
+ * changed since the served version.
+ *
+ * In the trainer role each new version is also published as a snapshot for serving nodes;
+ * in the server role nothing is trained here (see SnapshotPoller).
+ */
+@Component
+public class ModelTrainer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelTrainer.class);
+
+    private final MovieServiceClient movieServiceClient;
+    private final ContentVectorIndex contentVectorIndex;
+    private final ModelRegistry modelRegistry;
+    private final SnapshotPublisher snapshotPublisher;
+    private final ModelRole role;
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicBoolean retrainQueued = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "model-trainer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    @Value("${recommendation.model.retrain-interval-seconds:300}")
+    private long retrainIntervalSeconds = 300;
+
+    // Upper bound for fetching the training data from movie-service
+    @Value("${recommendation.model.fetch-timeout-seconds:120}")
+    private long fetchTimeoutSeconds = 120;
+
+    @Autowired
+    public ModelTrainer(
+            MovieServiceClient movieServiceClient,
+            ContentVectorIndex contentVectorIndex,
+            ModelRegistry modelRegistry,
+            SnapshotPublisher snapshotPublisher,
+            @Value("${recommendation.role:standalone}") String role) {
+        this.movieServiceClient = movieServiceClient;
+        this.contentVectorIndex = contentVectorIndex;
+        this.modelRegistry = modelRegistry;
+        this.snapshotPublisher = snapshotPublisher;
+        this.role = ModelRole.of(role);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (role == ModelRole.SERVER) {
+            return;
+        }
+        if (role == ModelRole.TRAINER) {
+            try {
+                versions.set(snapshotPublisher.latestPublishedVersion());
+            } catch (IOException e) {
+                LOG.warn("Could not read the last published snapshot version: {}", e.getMessage());
+            }
+        }
+        if (retrainIntervalSeconds > 0) {
+            executor.scheduleWithFixedDelay(this::scheduledRetrain, 0, retrainIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            retrainNow();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue a retrain on the trainer thread (no-op if one is already queued).
+     * Also resumes scheduled retraining after a rollback.
+     */
+    public void retrainNow() {
+        modelRegistry.resumeUpdates();
+        if (retrainQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                retrainQueued.set(false);
+                retrain();
+            });
+        }
+    }
+
+    private void scheduledRetrain() {
+        if (modelRegistry.isUpdatesPaused()) {
+            LOG.info("Scheduled retrain skipped: paused after rollback");
+            return;
+        }
+        retrain();
+    }
+
+    private void retrain() {
+        try {
+            List<Movie> movies = movieServiceClient.fetchAllMovies().collectList()
+                    .block(Duration.ofSeconds(fetchTimeoutSeconds));
+            List<Rating> ratings = movieServiceClient.fetchAllRatings().collectList()
+                    .block(Duration.ofSeconds(fetchTimeoutSeconds));
+            if (movies == null || movies.isEmpty()) {
+                modelRegistry.recordUpdate("skipped: no movies from movie-service");
+                LOG.warn("Retrain skipped: movie-service returned no movies");
+                return;
+            }
+
+            RecommendationModel model = train(movies, ratings != null ? ratings : Collections.emptyList());
+            if (model == null) {
+                modelRegistry.recordUpdate("skipped: data unchanged");
+                return;
+            }
+            modelRegistry.install(model);
+            modelRegistry.recordUpdate("installed version " + model.getVersion());
+            if (role == ModelRole.TRAINER) {
+                publish(model);
+            }
+        } catch (Exception e) {
+            modelRegistry.recordUpdate("failed: " + e.getMessage());
+            LOG.error("Retrain failed, keeping the current model", e);
+        }
+    }
+
+    private void publish(RecommendationModel model) {
+        try {
+            snapshotPublisher.publish(model);
+            modelRegistry.recordUpdate("installed and published version " + model.getVersion());
+        } catch (IOException e) {
+            modelRegistry.recordUpdate("installed version " + model.getVersion() + ", publishing failed: " + e.getMessage());
+            LOG.error("Could not publish model version {}", model.getVersion(), e);
+        }
+    }
+
+    /**
+     * Build the next model version from the given data, or return null if it matches the served model
+     */
+    public RecommendationModel train(List<Movie> movies, List<Rating> ratings) {
+        long start = System.currentTimeMillis();
+
+        // Order-independent hash of the ratings; createdAt survives rating edits, so it cannot tell them apart
+        LocalDateTime watermark = null;
+        long ratingsHash = 0;
+        Map<Integer, Map<Integer, Integer>> allUserRatings = new HashMap<>();
+        for (Rating rating : ratings) {
+            allUserRatings.computeIfAbsent(rating.getUserId(), userId -> new HashMap<>())
+                    .put(rating.getMovieId(), rating.getRating());
+            if (rating.getCreatedAt() != null && (watermark == null || rating.getCreatedAt().isAfter(watermark))) {
+                watermark = rating.getCreatedAt();
+            }
+            ratingsHash += mix(Objects.hash(rating.getUserId(), rating.getMovieId(), rating.getRating()));
+        }
+
+        // Checked before vectorizing, so an idle cycle costs no TF-IDF build
+        long fingerprint = contentVectorIndex.fingerprint(movies);
+        RecommendationModel served = modelRegistry.currentModel();
+        if (served != null
+                && served.getContentVectors().getFingerprint() == fingerprint
+                && served.getMetadata().getMovieCount() == movies.size()
+                && served.getMetadata().getRatingCount() == ratings.size()
+                && served.getMetadata().getRatingsHash() == ratingsHash
+                && Objects.equals(served.getMetadata().getRatingsWatermark(), watermark)) {
+            LOG.debug("Model data unchanged since version {}", served.getVersion());
+            return null;
+        }
+
+        ContentVectors contentVectors = contentVectorIndex.build(movies);
+
+        ModelMetadata metadata = new ModelMetadata(
+                versions.incrementAndGet(),
+                LocalDateTime.now(),
+                System.currentTimeMillis() - start,
+                watermark,
+                movies.size(),
+                allUserRatings.size(),
+                ratings.size(),
+                contentVectors.size(),
+                contentVectors.valueCount(),
+                contentVectors.isQuantized(),
+                ratingsHash
+        );
+        LOG.info("Built model version {} ({} movies, {} ratings) in {} ms",
+                metadata.getVersion(), movies.size(), ratings.size(), metadata.getBuildMillis());
+        return new RecommendationModel(metadata, Collections.unmodifiableList(new ArrayList<>(movies)),
+                allUserRatings, contentVectors);
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads each entry's hash so that summed entries do not cancel out
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,66 @@
+package com.spring5.recommendation.domain.model;
+
+import com.spring5.recommendation.domain.model.snapshot.SnapshotPoller;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for the model registry.
+ * GET /actuator/models shows the versions; POST with {"action": "rollback"} or {"action": "retrain"} changes them.
+ * On a server node "retrain" means loading the latest published snapshot.
+ */
+@Component
+@Endpoint(id = "models")
+public class ModelsEndpoint {
+
+    private final ModelRegistry modelRegistry;
+    private final ModelTrainer modelTrainer;
+    private final SnapshotPoller snapshotPoller;
+    private final ModelRole role;
+
+    @Autowired
+    public ModelsEndpoint(
+            ModelRegistry modelRegistry,
+            ModelTrainer modelTrainer,
+            SnapshotPoller snapshotPoller,
+            @Value("${recommendation.role:standalone}") String role) {
+        this.modelRegistry = modelRegistry;
+        this.modelTrainer = modelTrainer;
+        this.snapshotPoller = snapshotPoller;
+        this.role = ModelRole.of(role);
+    }
+
+    @ReadOperation
+    public ModelRegistryReport models() {
+        return modelRegistry.report();
+    }
+
+    @WriteOperation
+    public ModelRegistryReport apply(String action) {
+        switch (action) {
+            case "rollback":
+                try {
+                    modelRegistry.rollback();
+                } catch (IllegalStateException e) {
+                    throw new InvalidEndpointRequestException(e.getMessage(), "No previous model version");
+                }
+                break;
+            case "retrain":
+                // A server does not train; it reloads the latest published snapshot instead
+                if (role == ModelRole.SERVER) {
+                    snapshotPoller.pollNow();
+                } else {
+                    modelTrainer.retrainNow();
+                }
+                break;
+            default:
+                throw new InvalidEndpointRequestException("Unknown action: " + action, "Unknown action");
+        }
+        return modelRegistry.report();
+    }
+}
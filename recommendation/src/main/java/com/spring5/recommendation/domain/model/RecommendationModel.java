@@ -0,0 +1,94 @@
+package com.spring5.recommendation.domain.model;
+
+import com.spring5.recommendation.domain.algorithm.CatalogIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.service.Movie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Everything the algorithms need that does not depend on the requesting user:
+ * the catalog with its id lookup and filter bitmaps, every user's ratings and the content vectors.
+ * Never modified after it is built.
+ *
+ * A shard keeps a {@link #slice} of it: the catalog rows and content vectors of the movies it owns.
+ */
+public final class RecommendationModel {
+
+    private final ModelMetadata metadata;
+    private final List<Movie> movies;
+    private final Map<Integer, Movie> moviesById;
+    private final Map<Integer, Map<Integer, Integer>> allUserRatings; // userId -> (movieId -> rating)
+    private final ContentVectors contentVectors;
+    private final CatalogIndex catalogIndex;
+
+    public RecommendationModel(ModelMetadata metadata, List<Movie> movies,
+                               Map<Integer, Map<Integer, Integer>> allUserRatings, ContentVectors contentVectors) {
+        this(metadata, movies, allUserRatings, contentVectors, CatalogIndex.build(movies));
+    }
+
+    private RecommendationModel(ModelMetadata metadata, List<Movie> movies, Map<Integer, Map<Integer, Integer>> allUserRatings,
+                                ContentVectors contentVectors, CatalogIndex catalogIndex) {
+        this.metadata = metadata;
+        this.movies = movies;
+        this.moviesById = new HashMap<>(movies.size() * 2);
+        for (Movie movie : movies) {
+            moviesById.put(movie.getMovieId(), movie);
+        }
+        this.allUserRatings = allUserRatings;
+        this.contentVectors = contentVectors;
+        this.catalogIndex = catalogIndex;
+    }
+
+    /**
+     * The same version holding only the given movies' catalog rows and content vectors.
+     * The filter bitmaps stay those of the whole catalog (a few bits per movie), and so do the ratings:
+     * user similarity is computed over everything a user rated, whichever shard owns those movies.
+     */
+    public RecommendationModel slice(Predicate<Integer> owned) {
+        List<Movie> ownedMovies = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (owned.test(movie.getMovieId())) {
+                ownedMovies.add(movie);
+            }
+        }
+        return new RecommendationModel(metadata, Collections.unmodifiableList(ownedMovies), allUserRatings,
+                contentVectors.retain(owned), catalogIndex);
+    }
+
+    public ModelMetadata getMetadata() {
+        return metadata;
+    }
+
+    public long getVersion() {
+        return metadata.getVersion();
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * The catalog entry of a movie, or null if the model does not have it
+     */
+    public Movie getMovie(Integer movieId) {
+        return moviesById.get(movieId);
+    }
+
+    public Map<Integer, Map<Integer, Integer>> getAllUserRatings() {
+        return allUserRatings;
+    }
+
+    public ContentVectors getContentVectors() {
+        return contentVectors;
+    }
+
+    public CatalogIndex getCatalogIndex() {
+        return catalogIndex;
+    }
+}
@@ -0,0 +1,113 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots in a directory (local or a shared mount): model-&lt;version&gt;.snap files plus manifest.json.
+ * The manifest is replaced atomically after its snapshot file is complete, so a reader never sees a
+ * manifest pointing at a partial file. The last few snapshots are kept for servers still fetching them.
+ */
+@Component
+public class FileSystemSnapshotStore implements SnapshotSource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileSystemSnapshotStore.class);
+
+    static final String MANIFEST = "manifest.json";
+    private static final String PREFIX = "model-";
+    private static final String SUFFIX = ".snap";
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int retain;
+
+    @Autowired
+    public FileSystemSnapshotStore(
+            ObjectMapper objectMapper,
+            @Value("${recommendation.snapshot.directory:${java.io.tmpdir}/recommendation-snapshots}") String directory,
+            @Value("${recommendation.snapshot.retain:3}") int retain) {
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+        this.retain = Math.max(1, retain);
+    }
+
+    public static String fileName(long version) {
+        return PREFIX + version + SUFFIX;
+    }
+
+    /**
+     * Temporary file in the store directory to write the next snapshot into
+     */
+    public Path createTempFile() throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, PREFIX, ".tmp");
+    }
+
+    /**
+     * Move a finished snapshot file into the store and point the manifest at it
+     */
+    public void publish(SnapshotManifest manifest, Path snapshotFile) throws IOException {
+        Files.move(snapshotFile, directory.resolve(manifest.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+
+        Path tempManifest = directory.resolve(MANIFEST + ".tmp");
+        objectMapper.writeValue(tempManifest.toFile(), manifest);
+        Files.move(tempManifest, directory.resolve(MANIFEST),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Published model snapshot version {} ({} bytes) to {}", manifest.getVersion(), manifest.getSizeBytes(), directory);
+
+        prune(manifest.getVersion());
+    }
+
+    @Override
+    public Optional<SnapshotManifest> readManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return Optional.empty();
+        }
+        return Optional.of(objectMapper.readValue(manifest.toFile(), SnapshotManifest.class));
+    }
+
+    @Override
+    public void fetch(SnapshotManifest manifest, Path target) throws IOException {
+        Files.copy(snapshotPath(manifest.getVersion()), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Path of a published snapshot; fails if it is not (or no longer) in the store
+     */
+    public Path snapshotPath(long version) throws NoSuchFileException {
+        Path path = directory.resolve(fileName(version));
+        if (!Files.exists(path)) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return path;
+    }
+
+    private void prune(long latestVersion) throws IOException {
+        List<Long> versions;
+        try (Stream<Path> files = Files.list(directory)) {
+            versions = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        for (int i = 0; i < versions.size() - retain; i++) {
+            if (versions.get(i) != latestVersion) {
+                Files.deleteIfExists(directory.resolve(fileName(versions.get(i))));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Reads snapshots from a trainer over HTTP (see {@link SnapshotController}).
+ * The snapshot body is streamed straight to disk, so its size is not limited by codec buffers.
+ */
+@Component
+public class HttpSnapshotSource implements SnapshotSource {
+
+    private final WebClient webClient;
+
+    @Value("${recommendation.snapshot.url:http://recommendation-trainer:8083}")
+    private String trainerUrl;
+
+    @Value("${recommendation.snapshot.fetch-timeout-seconds:300}")
+    private long fetchTimeoutSeconds = 300;
+
+    @Autowired
+    public HttpSnapshotSource(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.build();
+    }
+
+    @Override
+    public Optional<SnapshotManifest> readManifest() {
+        return webClient.get()
+                .uri(trainerUrl + "/models/snapshot/manifest")
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(SnapshotManifest.class)
+                // Nothing published yet
+                .onErrorResume(WebClientResponseException.NotFound.class, error -> Mono.empty())
+                .blockOptional(Duration.ofSeconds(fetchTimeoutSeconds));
+    }
+
+    @Override
+    public void fetch(SnapshotManifest manifest, Path target) throws IOException {
+        Flux<DataBuffer> body = webClient.get()
+                .uri(trainerUrl + "/models/snapshot/" + manifest.getVersion())
+                .accept(MediaType.APPLICATION_OCTET_STREAM)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+        try {
+            DataBufferUtils.write(body, target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.WRITE)
+                    .block(Duration.ofSeconds(fetchTimeoutSeconds));
+        } catch (RuntimeException e) {
+            throw new IOException("Could not fetch snapshot " + manifest.getVersion() + " from " + trainerUrl, e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.service.Movie;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary, gzip-compressed model snapshot.
+ * Metadata and the catalog are JSON; ratings and vectors are written as raw ints and floats,
+ * which keeps the file small and loading cheap compared to rebuilding the model.
+ * Vectors are stored in full precision; a server quantizes them again if it is configured to.
+ */
+@Component
+public class ModelSnapshotCodec {
+
+    private static final int MAGIC = 0x524D534E; // "RMSN"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NULL_RATING = Integer.MIN_VALUE;
+
+    private final ObjectMapper objectMapper;
+    private final ContentVectorIndex contentVectorIndex;
+
+    @Autowired
+    public ModelSnapshotCodec(ObjectMapper objectMapper, ContentVectorIndex contentVectorIndex) {
+        this.objectMapper = objectMapper;
+        this.contentVectorIndex = contentVectorIndex;
+    }
+
+    public void write(RecommendationModel model, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeBlock(out, objectMapper.writeValueAsBytes(model.getMetadata()));
+            writeBlock(out, objectMapper.writeValueAsBytes(model.getMovies()));
+
+            Map<Integer, Map<Integer, Integer>> allUserRatings = model.getAllUserRatings();
+            out.writeInt(allUserRatings.size());
+            for (Map.Entry<Integer, Map<Integer, Integer>> user : allUserRatings.entrySet()) {
+                out.writeInt(user.getKey());
+                out.writeInt(user.getValue().size());
+                for (Map.Entry<Integer, Integer> rating : user.getValue().entrySet()) {
+                    out.writeInt(rating.getKey());
+                    out.writeInt(rating.getValue() != null ? rating.getValue() : NULL_RATING);
+                }
+            }
+
+            ContentVectors vectors = model.getContentVectors();
+            out.writeLong(vectors.getFingerprint());
+            out.writeInt(vectors.size());
+            for (Integer movieId : vectors.movieIds()) {
+                SparseVector vector = vectors.getVector(movieId);
+                out.writeInt(movieId);
+                out.writeInt(vector.size());
+                for (int index : vector.getIndices()) {
+                    out.writeInt(index);
+                }
+                for (float value : vector.getValues()) {
+                    out.writeFloat(value);
+                }
+            }
+        }
+    }
+
+    public RecommendationModel read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a model snapshot: " + file);
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format " + formatVersion);
+            }
+            ModelMetadata metadata = objectMapper.readValue(readBlock(in), ModelMetadata.class);
+            List<Movie> movies = objectMapper.readValue(readBlock(in), new TypeReference<List<Movie>>() {
+            });
+
+            int users = in.readInt();
+            Map<Integer, Map<Integer, Integer>> allUserRatings = new HashMap<>(users * 2);
+            for (int u = 0; u < users; u++) {
+                int userId = in.readInt();
+                int count = in.readInt();
+                Map<Integer, Integer> ratings = new HashMap<>(count * 2);
+                for (int r = 0; r < count; r++) {
+                    int movieId = in.readInt();
+                    int rating = in.readInt();
+                    ratings.put(movieId, rating != NULL_RATING ? rating : null);
+                }
+                allUserRatings.put(userId, ratings);
+            }
+
+            long fingerprint = in.readLong();
+            int vectorCount = in.readInt();
+            Map<Integer, SparseVector> vectors = new HashMap<>(vectorCount * 2);
+            for (int v = 0; v < vectorCount; v++) {
+                int movieId = in.readInt();
+                int size = in.readInt();
+                int[] indices = new int[size];
+                float[] values = new float[size];
+                for (int i = 0; i < size; i++) {
+                    indices[i] = in.readInt();
+                }
+                for (int i = 0; i < size; i++) {
+                    values[i] = in.readFloat();
+                }
+                vectors.put(movieId, new SparseVector(indices, values));
+            }
+
+            return new RecommendationModel(metadata, Collections.unmodifiableList(movies), allUserRatings,
+                    contentVectorIndex.fromVectors(vectors, fingerprint));
+        }
+    }
+
+    /**
+     * Hex SHA-256 of a file
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(file)), digest)) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+                // digest is updated as the stream is read
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,47 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Serves the trainer's published snapshots to servers using recommendation.snapshot.source=http
+ */
+@RestController
+@ConditionalOnProperty(name = "recommendation.role", havingValue = "trainer")
+public class SnapshotController {
+
+    private final FileSystemSnapshotStore store;
+
+    @Autowired
+    public SnapshotController(FileSystemSnapshotStore store) {
+        this.store = store;
+    }
+
+    @GetMapping(value = "/models/snapshot/manifest", produces = "application/json")
+    public ResponseEntity<SnapshotManifest> getManifest() throws IOException {
+        return store.readManifest()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/models/snapshot/{version}")
+    public ResponseEntity<Resource> getSnapshot(@PathVariable long version) {
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(new FileSystemResource(store.snapshotPath(version)));
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
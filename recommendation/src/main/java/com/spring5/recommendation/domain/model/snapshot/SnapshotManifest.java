@@ -0,0 +1,24 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Describes the latest published model snapshot. Servers poll this and only
+ * fetch the snapshot file when the version changes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotManifest {
+    private long version;
+    private String fileName;
+    private long sizeBytes;
+    private String sha256; // hex digest of the snapshot file
+    private LocalDateTime publishedAt;
+    private ModelMetadata metadata;
+}
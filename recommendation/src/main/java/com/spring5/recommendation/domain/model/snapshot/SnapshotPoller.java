@@ -0,0 +1,142 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.ModelRole;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server side of snapshot replication. Polls the manifest and, when the published version differs
+ * from the served one, fetches the snapshot, checks its SHA-256 against the manifest and hot-loads
+ * it into the {@link ModelRegistry}. A snapshot that fails verification is discarded and the current
+ * model keeps serving.
+ *
+ * Active only with recommendation.role=server; recommendation.snapshot.source picks the shared
+ * directory (filesystem) or the trainer's HTTP endpoint (http).
+ */
+@Component
+public class SnapshotPoller {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotPoller.class);
+
+    private final ModelRegistry modelRegistry;
+    private final ModelSnapshotCodec codec;
+    private final SnapshotSource source;
+    private final ModelRole role;
+    private final AtomicBoolean pollQueued = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-poller");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    @Value("${recommendation.snapshot.poll-interval-seconds:30}")
+    private long pollIntervalSeconds = 30;
+
+    @Autowired
+    public SnapshotPoller(
+            ModelRegistry modelRegistry,
+            ModelSnapshotCodec codec,
+            FileSystemSnapshotStore fileSystemSource,
+            HttpSnapshotSource httpSource,
+            @Value("${recommendation.role:standalone}") String role,
+            @Value("${recommendation.snapshot.source:filesystem}") String source) {
+        this.modelRegistry = modelRegistry;
+        this.codec = codec;
+        this.role = ModelRole.of(role);
+        this.source = "http".equalsIgnoreCase(source.trim()) ? httpSource : fileSystemSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (role == ModelRole.SERVER) {
+            executor.scheduleWithFixedDelay(this::scheduledPoll, 0, Math.max(1, pollIntervalSeconds), TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Check for a new snapshot now; also resumes polling after a rollback
+     */
+    public void pollNow() {
+        modelRegistry.resumeUpdates();
+        if (pollQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                pollQueued.set(false);
+                poll();
+            });
+        }
+    }
+
+    private void scheduledPoll() {
+        if (!modelRegistry.isUpdatesPaused()) {
+            poll();
+        }
+    }
+
+    /**
+     * Load the published snapshot if it differs from the served model.
+     * Returns true if a new version was installed.
+     */
+    public boolean poll() {
+        Path temp = null;
+        try {
+            Optional<SnapshotManifest> published = source.readManifest();
+            if (!published.isPresent()) {
+                return false;
+            }
+            SnapshotManifest manifest = published.get();
+            RecommendationModel served = modelRegistry.currentModel();
+            if (served != null && served.getVersion() == manifest.getVersion()) {
+                return false;
+            }
+
+            temp = Files.createTempFile("model-" + manifest.getVersion() + "-", ".snap");
+            source.fetch(manifest, temp);
+            String checksum = ModelSnapshotCodec.sha256(temp);
+            if (!checksum.equalsIgnoreCase(manifest.getSha256())) {
+                LOG.warn("Snapshot {} rejected: checksum {} does not match manifest {}",
+                        manifest.getVersion(), checksum, manifest.getSha256());
+                modelRegistry.recordUpdate("rejected snapshot " + manifest.getVersion() + ": checksum mismatch");
+                return false;
+            }
+
+            RecommendationModel model = codec.read(temp);
+            if (model.getVersion() != manifest.getVersion()) {
+                modelRegistry.recordUpdate("rejected snapshot " + manifest.getVersion() + ": contains version " + model.getVersion());
+                return false;
+            }
+            modelRegistry.install(model);
+            modelRegistry.recordUpdate("loaded snapshot version " + model.getVersion());
+            return true;
+        } catch (Exception e) {
+            modelRegistry.recordUpdate("snapshot load failed: " + e.getMessage());
+            LOG.error("Could not load model snapshot, keeping the current model", e);
+            return false;
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Trainer side of snapshot replication: writes a model to the store and publishes its manifest
+ */
+@Component
+public class SnapshotPublisher {
+
+    private final ModelSnapshotCodec codec;
+    private final FileSystemSnapshotStore store;
+
+    @Autowired
+    public SnapshotPublisher(ModelSnapshotCodec codec, FileSystemSnapshotStore store) {
+        this.codec = codec;
+        this.store = store;
+    }
+
+    public SnapshotManifest publish(RecommendationModel model) throws IOException {
+        Path temp = store.createTempFile();
+        try {
+            codec.write(model, temp);
+            SnapshotManifest manifest = new SnapshotManifest(
+                    model.getVersion(),
+                    FileSystemSnapshotStore.fileName(model.getVersion()),
+                    Files.size(temp),
+                    ModelSnapshotCodec.sha256(temp),
+                    LocalDateTime.now(),
+                    model.getMetadata()
+            );
+            store.publish(manifest, temp);
+            return manifest;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Version of the last published snapshot (0 if none), so a restarted trainer keeps counting up
+     */
+    public long latestPublishedVersion() throws IOException {
+        return store.readManifest().map(SnapshotManifest::getVersion).orElse(0L);
+    }
+}
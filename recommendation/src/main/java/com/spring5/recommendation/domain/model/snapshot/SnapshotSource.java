@@ -0,0 +1,21 @@
+package com.spring5.recommendation.domain.model.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where serving nodes read published model snapshots from
+ */
+public interface SnapshotSource {
+
+    /**
+     * The latest manifest, or empty if nothing has been published yet
+     */
+    Optional<SnapshotManifest> readManifest() throws IOException;
+
+    /**
+     * Copy the snapshot file described by the manifest to the target path
+     */
+    void fetch(SnapshotManifest manifest, Path target) throws IOException;
+}
@@ -1,5 +1,6 @@
 package com.spring5.recommendation.domain.movielens;
 
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
 import com.spring5.recommendation.domain.service.Movie;
 import com.spring5.recommendation.domain.service.Rating;
 import org.slf4j.Logger;
@@ -25,14 +26,19 @@ public class MovieLensDataImportService {
     private static final Logger LOG = LoggerFactory.getLogger(MovieLensDataImportService.class);
 
     private final MovieLensDataParser parser;
+    private final ContentVectorIndex contentVectorIndex;
     private final WebClient webClient;
 
     @Value("${movie.service.url:http://localhost:8081}")
     private String movieServiceUrl;
 
     @Autowired
-    public MovieLensDataImportService(MovieLensDataParser parser, WebClient.Builder webClientBuilder) {
+    public MovieLensDataImportService(
+            MovieLensDataParser parser,
+            ContentVectorIndex contentVectorIndex,
+            WebClient.Builder webClientBuilder) {
         this.parser = parser;
+        this.contentVectorIndex = contentVectorIndex;
         this.webClient = webClientBuilder.build();
     }
 
@@ -76,6 +82,11 @@ public class MovieLensDataImportService {
                 result.setImportedMovies(importedMovies.get());
                 result.setSkippedMovies(skippedMovies.get());
                 LOG.info("Imported {} movies, skipped {}", importedMovies.get(), skippedMovies.get());
+
+                // Keep tags for content-based TF-IDF vectors
+                Map<Integer, List<String>> tags = parser.parseTags(datasetDirectory + "/tags.csv");
+                contentVectorIndex.updateTags(tags);
+                result.setTaggedMovies(tags.size());
             }
 
             // Parse and import ratings
@@ -133,7 +144,7 @@ public class MovieLensDataImportService {
     /**
      * Convert MovieLens movie to our Movie model
      */
-    private Movie convertToMovie(MovieLensMovie movielensMovie) {
+    public static Movie convertToMovie(MovieLensMovie movielensMovie) {
         return new Movie(
                 movielensMovie.getMovieId(),
                 movielensMovie.getTitle(),
@@ -209,6 +220,7 @@ public class MovieLensDataImportService {
         private int totalMovies;
         private int importedMovies;
         private int skippedMovies;
+        private int taggedMovies;
         private int totalRatings;
         private int importedRatings;
         private int skippedRatings;
@@ -228,6 +240,9 @@ public class MovieLensDataImportService {
         
         public int getSkippedMovies() { return skippedMovies; }
         public void setSkippedMovies(int skippedMovies) { this.skippedMovies = skippedMovies; }
+
+        public int getTaggedMovies() { return taggedMovies; }
+        public void setTaggedMovies(int taggedMovies) { this.taggedMovies = taggedMovies; }
         
         public int getTotalRatings() { return totalRatings; }
         public void setTotalRatings(int totalRatings) { this.totalRatings = totalRatings; }
@@ -241,8 +256,8 @@ public class MovieLensDataImportService {
         @Override
         public String toString() {
             return String.format(
-                    "ImportResult{success=%s, movies=%d/%d (skipped: %d), ratings=%d/%d (skipped: %d)}",
-                    success, importedMovies, totalMovies, skippedMovies,
+                    "ImportResult{success=%s, movies=%d/%d (skipped: %d, tagged: %d), ratings=%d/%d (skipped: %d)}",
+                    success, importedMovies, totalMovies, skippedMovies, taggedMovies,
                     importedRatings, totalRatings, skippedRatings
             );
         }
@@ -157,11 +157,15 @@ public class MovieLensDataParser {
                     continue; // Skip header
                 }
                 
-                String[] parts = line.split(",");
+                // Tags are free text and may be quoted with embedded commas
+                String[] parts = parseCSVLine(line);
                 if (parts.length >= 3) {
                     try {
                         Integer movieId = Integer.parseInt(parts[1].trim());
                         String tag = parts[2].trim().toLowerCase();
+                        if (tag.isEmpty()) {
+                            continue;
+                        }
                         
                         movieTags.computeIfAbsent(movieId, k -> new ArrayList<>()).add(tag);
                     } catch (NumberFormatException e) {
@@ -0,0 +1,126 @@
+package com.spring5.recommendation.domain.paging;
+
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Short-lived ranked lists behind the paginated recommendation endpoint.
+ *
+ * The first page computes one deep list and parks it here under a scope (algorithm plus filter);
+ * the opaque cursor returned with each page names the list and the next offset, so later pages are
+ * slices instead of recomputations. Lists expire after session-ttl-seconds and the oldest are
+ * evicted beyond max-sessions.
+ */
+@Component
+public class RankedListSessions {
+
+    private final long ttlMillis;
+    private final Map<String, Session> sessions;
+
+    @Autowired
+    public RankedListSessions(
+            @Value("${recommendation.paging.session-ttl-seconds:600}") long ttlSeconds,
+            @Value("${recommendation.paging.max-sessions:10000}") int maxSessions) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.sessions = new LinkedHashMap<String, Session>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Park a ranked list and return the session id for its cursors
+     */
+    public synchronized String open(Integer userId, String scope, List<Recommendation> ranked) {
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new Session(userId, scope, Collections.unmodifiableList(new ArrayList<>(ranked)),
+                System.currentTimeMillis() + ttlMillis));
+        return sessionId;
+    }
+
+    /**
+     * The parked list, or null if it expired, was evicted, or belongs to another user or scope
+     */
+    public synchronized List<Recommendation> get(String sessionId, Integer userId, String scope) {
+        Session session = sessions.get(sessionId);
+        if (session == null || !session.userId.equals(userId) || !session.scope.equals(scope)) {
+            return null;
+        }
+        if (session.expiresAt < System.currentTimeMillis()) {
+            sessions.remove(sessionId);
+            return null;
+        }
+        return session.ranked;
+    }
+
+    public static String encodeCursor(String sessionId, int offset) {
+        String raw = sessionId + ":" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor from {@link #encodeCursor}
+     *
+     * @throws IllegalArgumentException if it is not one
+     */
+    public static Cursor decodeCursor(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        int separator = raw.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            int offset = Integer.parseInt(raw.substring(separator + 1));
+            if (offset < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new Cursor(raw.substring(0, separator), offset);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    public static final class Cursor {
+        private final String sessionId;
+        private final int offset;
+
+        public Cursor(String sessionId, int offset) {
+            this.sessionId = sessionId;
+            this.offset = offset;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+    }
+
+    private static final class Session {
+        private final Integer userId;
+        private final String scope; // algorithm and filter the list was computed for
+        private final List<Recommendation> ranked;
+        private final long expiresAt;
+
+        private Session(Integer userId, String scope, List<Recommendation> ranked, long expiresAt) {
+            this.userId = userId;
+            this.scope = scope;
+            this.ranked = ranked;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.spring5.recommendation.domain.refresh;
+
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user hybrid recommendation lists with a TTL, bounded by LRU eviction.
+ *
+ * Every write carries a stamp taken before the list was computed. A rating change leaves a
+ * tombstone with a newer stamp, so a computation that started before the change can never
+ * overwrite it with a list that ignores the new rating.
+ */
+@Component
+public class RecommendationCache {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Map<Integer, Entry> entries;
+
+    @Autowired
+    public RecommendationCache(
+            @Value("${recommendation.cache.enabled:true}") boolean enabled,
+            @Value("${recommendation.cache.ttl-seconds:3600}") long ttlSeconds,
+            @Value("${recommendation.cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Take before computing a list that will be stored with {@link #put}
+     */
+    public long stamp() {
+        return clock.incrementAndGet();
+    }
+
+    /**
+     * The first limit recommendations, or null if nothing usable is cached
+     */
+    public synchronized List<Recommendation> get(Integer userId, int limit) {
+        Entry entry = enabled ? entries.get(userId) : null;
+        if (entry == null || entry.recommendations == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(userId);
+            return null;
+        }
+        // A shorter list than was asked for is complete; a full one may have been cut off below this limit
+        if (limit > entry.limit && entry.recommendations.size() == entry.limit) {
+            return null;
+        }
+        return new ArrayList<>(entry.recommendations.subList(0, Math.min(limit, entry.recommendations.size())));
+    }
+
+    /**
+     * Store a list computed for limit; ignored if a newer list or invalidation is already there
+     */
+    public synchronized void put(Integer userId, long stamp, int limit, List<Recommendation> recommendations) {
+        if (!enabled || recommendations.isEmpty()) {
+            return;
+        }
+        Entry existing = entries.get(userId);
+        if (existing != null && existing.stamp > stamp) {
+            return;
+        }
+        List<Recommendation> copies = new ArrayList<>(recommendations.size());
+        for (Recommendation recommendation : recommendations) {
+            copies.add(new Recommendation(recommendation.getMovieId(), recommendation.getTitle(),
+                    recommendation.getScore(), recommendation.getReason(), recommendation.getAlgorithm()));
+        }
+        entries.put(userId, new Entry(stamp, limit, copies, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Drop the user's list; the tombstone remembers the list size last served to them
+     */
+    public synchronized void invalidate(Integer userId) {
+        Entry existing = entries.get(userId);
+        entries.put(userId, new Entry(stamp(), existing != null ? existing.limit : 0, null, Long.MAX_VALUE));
+    }
+
+    /**
+     * True if a list computed after the user's last invalidation is cached
+     */
+    public synchronized boolean isFresh(Integer userId) {
+        Entry entry = entries.get(userId);
+        return entry != null && entry.recommendations != null && entry.expiresAt >= System.currentTimeMillis();
+    }
+
+    /**
+     * Largest limit the user's list was last computed for, 0 if unknown
+     */
+    public synchronized int lastLimit(Integer userId) {
+        Entry entry = entries.get(userId);
+        return entry != null ? entry.limit : 0;
+    }
+
+    private static final class Entry {
+        private final long stamp;
+        private final int limit;
+        private final List<Recommendation> recommendations; // null for a tombstone
+        private final long expiresAt;
+
+        private Entry(long stamp, int limit, List<Recommendation> recommendations, long expiresAt) {
+            this.stamp = stamp;
+            this.limit = limit;
+            this.recommendations = recommendations;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
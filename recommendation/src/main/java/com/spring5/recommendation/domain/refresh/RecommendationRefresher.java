@@ -0,0 +1,267 @@
+package com.spring5.recommendation.domain.refresh;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+
+/**
+ * Recomputes a user's cached recommendations soon after they rate something, so their next read is a cache hit.
+ *
+ * Events are coalesced per user: the refresh waits until the user has been quiet for quiet-millis
+ * (or max-delay-millis after their first event), so a burst of ratings costs one recompute. Refreshes
+ * that are due are then started at no more than max-per-second across all users, with at most
+ * max-concurrent in flight; a refresh is skipped if a read has already recomputed the list.
+ *
+ * Logins queue a warm-up that precomputes the user's list before they ask for it. Warm-ups share the
+ * same rate and concurrency caps but only run when no rating refresh is due, a user is warmed at most
+ * once per dedupe-seconds, and a warm-up that waited longer than max-wait-seconds is dropped, so a
+ * login storm is shed rather than turned into a compute storm.
+ */
+@Component
+public class RecommendationRefresher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecommendationRefresher.class);
+
+    private static final int MAX_WARMUP_HISTORY = 100_000; // users remembered for the warm-up dedupe window
+
+    private final RecommendationCache recommendationCache;
+    private final long quietMillis;
+    private final long maxDelayMillis;
+    private final long dispatchIntervalMillis;
+    private final Semaphore inFlight;
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final Queue<Integer> due = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+    private final Queue<Warmup> warmups = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, Long> lastWarmups;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recommendation-refresh");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private volatile BiFunction<Integer, Integer, Mono<Void>> refreshAction;
+
+    @Value("${recommendation.refresh.enabled:true}")
+    private boolean enabled = true;
+
+    // Lists are recomputed for at least this many recommendations, more if the user was last served more
+    @Value("${recommendation.max-recommendations:10}")
+    private int minimumLimit = 10;
+
+    @Value("${recommendation.refresh.timeout-seconds:30}")
+    private long timeoutSeconds = 30;
+
+    @Value("${recommendation.refresh.max-queued:10000}")
+    private int maxQueued = 10000;
+
+    @Value("${recommendation.warmup.enabled:true}")
+    private boolean warmupEnabled = true;
+
+    @Value("${recommendation.warmup.dedupe-seconds:600}")
+    private long warmupDedupeSeconds = 600;
+
+    @Value("${recommendation.warmup.max-wait-seconds:60}")
+    private long warmupMaxWaitSeconds = 60;
+
+    @Value("${recommendation.warmup.max-queued:1000}")
+    private int maxQueuedWarmups = 1000;
+
+    @Autowired
+    public RecommendationRefresher(
+            RecommendationCache recommendationCache,
+            @Value("${recommendation.refresh.quiet-millis:15000}") long quietMillis,
+            @Value("${recommendation.refresh.max-delay-millis:120000}") long maxDelayMillis,
+            @Value("${recommendation.refresh.max-per-second:5}") int maxPerSecond,
+            @Value("${recommendation.refresh.max-concurrent:2}") int maxConcurrent) {
+        this.recommendationCache = recommendationCache;
+        this.quietMillis = quietMillis;
+        this.maxDelayMillis = Math.max(quietMillis, maxDelayMillis);
+        this.dispatchIntervalMillis = Math.max(1, 1000 / Math.max(1, maxPerSecond));
+        this.inFlight = new Semaphore(Math.max(1, maxConcurrent));
+        this.lastWarmups = new LinkedHashMap<Integer, Long>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                return size() > MAX_WARMUP_HISTORY;
+            }
+        };
+        scheduler.scheduleWithFixedDelay(this::dispatch, dispatchIntervalMillis, dispatchIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Set by the recommendation service: recompute and cache the user's list for the given limit
+     */
+    public void setRefreshAction(BiFunction<Integer, Integer, Mono<Void>> refreshAction) {
+        this.refreshAction = refreshAction;
+    }
+
+    /**
+     * A rating of this user changed: drop their cached list now and schedule a coalesced refresh
+     */
+    public void ratingChanged(Integer userId) {
+        recommendationCache.invalidate(userId);
+        if (!enabled || !recommendationCache.isEnabled()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        pending.compute(userId, (id, existing) -> {
+            if (existing == null) {
+                existing = new Pending(now);
+                scheduler.schedule(() -> checkQuiet(id), quietMillis, TimeUnit.MILLISECONDS);
+            }
+            existing.lastEventAt = now;
+            return existing;
+        });
+    }
+
+    /**
+     * The user logged in: precompute their list unless it is cached or was warmed recently.
+     * Returns false if the warm-up was not queued.
+     */
+    public boolean warmUp(Integer userId) {
+        if (!warmupEnabled || !recommendationCache.isEnabled() || recommendationCache.isFresh(userId)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (lastWarmups) {
+            Long last = lastWarmups.get(userId);
+            if (last != null && now - last < TimeUnit.SECONDS.toMillis(warmupDedupeSeconds)) {
+                return false;
+            }
+            if (warmups.size() >= maxQueuedWarmups) {
+                LOG.debug("Warm-up backlog full, user {} will be computed on their first read", userId);
+                return false;
+            }
+            lastWarmups.remove(userId); // re-insert so the map stays in warm-up order
+            lastWarmups.put(userId, now);
+        }
+        warmups.add(new Warmup(userId, now));
+        return true;
+    }
+
+    /**
+     * Users waiting for their burst of ratings to end, plus users due for a refresh or a warm-up
+     */
+    public int backlog() {
+        return pending.size() + queued.size() + warmups.size();
+    }
+
+    private void checkQuiet(Integer userId) {
+        Pending state = pending.get(userId);
+        if (state == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long readyAt = Math.min(state.lastEventAt + quietMillis, state.firstEventAt + maxDelayMillis);
+        if (now < readyAt) {
+            scheduler.schedule(() -> checkQuiet(userId), readyAt - now, TimeUnit.MILLISECONDS);
+            return;
+        }
+        pending.remove(userId, state);
+        if (queued.size() >= maxQueued) {
+            LOG.warn("Refresh backlog full, user {} will be recomputed on their next read", userId);
+            return;
+        }
+        if (queued.add(userId)) {
+            due.add(userId);
+        }
+    }
+
+    /**
+     * Start at most one refresh or warm-up per tick, which caps the global refresh rate
+     */
+    private void dispatch() {
+        BiFunction<Integer, Integer, Mono<Void>> action = refreshAction;
+        if (action == null || (due.isEmpty() && warmups.isEmpty()) || !inFlight.tryAcquire()) {
+            return;
+        }
+
+        Integer userId = nextRefresh();
+        if (userId == null) {
+            userId = nextWarmup();
+        }
+        if (userId == null) {
+            inFlight.release();
+            return;
+        }
+
+        Integer refreshed = userId;
+        int limit = Math.max(minimumLimit, recommendationCache.lastLimit(userId));
+        long start = System.currentTimeMillis();
+        try {
+            action.apply(userId, limit)
+                    .timeout(Duration.ofSeconds(timeoutSeconds))
+                    .doFinally(signal -> inFlight.release())
+                    .subscribe(
+                            ignored -> { },
+                            error -> LOG.warn("Refresh for user {} failed: {}", refreshed, error.getMessage()),
+                            () -> LOG.debug("Refreshed recommendations for user {} in {} ms",
+                                    refreshed, System.currentTimeMillis() - start));
+        } catch (RuntimeException e) {
+            inFlight.release();
+            LOG.warn("Refresh for user {} failed: {}", userId, e.getMessage());
+        }
+    }
+
+    private Integer nextRefresh() {
+        Integer userId;
+        while ((userId = due.poll()) != null) {
+            queued.remove(userId);
+            if (!recommendationCache.isFresh(userId)) {
+                return userId;
+            }
+            LOG.debug("Refresh for user {} skipped, a read already recomputed the list", userId);
+        }
+        return null;
+    }
+
+    private Integer nextWarmup() {
+        long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(warmupMaxWaitSeconds);
+        Warmup warmup;
+        while ((warmup = warmups.poll()) != null) {
+            if (warmup.queuedAt >= oldest && !recommendationCache.isFresh(warmup.userId)) {
+                return warmup.userId;
+            }
+        }
+        return null;
+    }
+
+    private static final class Warmup {
+        private final Integer userId;
+        private final long queuedAt;
+
+        private Warmup(Integer userId, long queuedAt) {
+            this.userId = userId;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private static final class Pending {
+        private final long firstEventAt;
+        private volatile long lastEventAt;
+
+        private Pending(long firstEventAt) {
+            this.firstEventAt = firstEventAt;
+            this.lastEventAt = firstEventAt;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.spring5.recommendation.domain.scoring;
+
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieAffinity;
+
+import java.util.*;
+
+/**
+ * Scores arbitrary movies for a user, for ranking candidates that did not come from the recommenders
+ * (search results, for instance).
+ *
+ * The user's taste is one sparse vector: the sum of their rated movies' content vectors, each weighted
+ * by how far the rating is from the user's mean. A candidate's content affinity is its cosine with that
+ * vector, so a batch costs one sparse dot product per movie however many ratings the user has. It is
+ * blended with the movie's average rating, shrunk towards the middle of the scale for movies with
+ * few ratings, which also ranks candidates for users without any ratings.
+ */
+public final class AffinityScorer {
+
+    private static final double CONTENT_WEIGHT = 0.7;
+    private static final double PRIOR_RATINGS = 10.0; // pseudo-ratings at the scale midpoint
+
+    private AffinityScorer() {
+    }
+
+    public static List<MovieAffinity> score(RecommendationModel model, Map<Integer, Integer> userRatings,
+                                            List<Integer> movieIds) {
+        ContentVectors vectors = model.getContentVectors();
+        SparseVector taste = tasteVector(vectors, userRatings);
+
+        List<MovieAffinity> scores = new ArrayList<>(movieIds.size());
+        for (Integer movieId : movieIds) {
+            double content = taste.isEmpty() ? 0.0 : taste.cosine(vectors.getVector(movieId));
+            double score = CONTENT_WEIGHT * (content + 1.0) / 2.0 + (1.0 - CONTENT_WEIGHT) * prior(model.getMovie(movieId));
+            scores.add(new MovieAffinity(movieId, score));
+        }
+        return scores;
+    }
+
+    /**
+     * Sum of rated movies' vectors weighted by the centred rating; empty if the ratings carry no preference
+     */
+    public static SparseVector tasteVector(ContentVectors vectors, Map<Integer, Integer> userRatings) {
+        if (userRatings == null || userRatings.isEmpty()) {
+            return SparseVector.EMPTY;
+        }
+        double mean = userRatings.values().stream().filter(Objects::nonNull).mapToInt(Integer::intValue).average().orElse(3.0);
+        boolean flat = userRatings.values().stream().filter(Objects::nonNull).allMatch(rating -> rating == mean);
+        double centre = flat ? 3.0 : mean; // all ratings equal: centre on the middle of the 1-5 scale
+
+        TreeMap<Integer, Double> sum = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> rating : userRatings.entrySet()) {
+            if (rating.getValue() == null || rating.getValue() == centre) {
+                continue;
+            }
+            double weight = rating.getValue() - centre;
+            SparseVector vector = vectors.getVector(rating.getKey());
+            int[] indices = vector.getIndices();
+            float[] values = vector.getValues();
+            for (int i = 0; i < indices.length; i++) {
+                sum.merge(indices[i], weight * values[i], Double::sum);
+            }
+        }
+
+        int[] indices = new int[sum.size()];
+        float[] values = new float[sum.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : sum.entrySet()) {
+            indices[i] = entry.getKey();
+            values[i] = entry.getValue().floatValue();
+            i++;
+        }
+        return new SparseVector(indices, values);
+    }
+
+    /**
+     * Average rating on [0, 1], shrunk towards 0.5 when the movie has few ratings
+     */
+    private static double prior(Movie movie) {
+        if (movie == null || movie.getRating() == null) {
+            return 0.5;
+        }
+        int count = movie.getTotalRatings() != null ? movie.getTotalRatings() : 0;
+        double shrunk = (movie.getRating() * count + 3.0 * PRIOR_RATINGS) / (count + PRIOR_RATINGS);
+        return Math.max(0.0, Math.min(1.0, (shrunk - 1.0) / 4.0));
+    }
+}
@@ -0,0 +1,28 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A recommendation for a movie playing in the requested city and window, with its best showtime
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookableRecommendation {
+    private Integer movieId;
+    private String title;
+    private Double score;
+    private String reason;
+    private String algorithm;
+    private Showtime bestShowtime; // earliest showtime in the window with seats left
+    private Integer showtimeCount; // showtimes with seats in the window
+    private boolean stale; // see Recommendation
+
+    public BookableRecommendation(Recommendation recommendation, Showtime bestShowtime, Integer showtimeCount) {
+        this(recommendation.getMovieId(), recommendation.getTitle(), recommendation.getScore(),
+                recommendation.getReason(), recommendation.getAlgorithm(), bestShowtime, showtimeCount,
+                recommendation.isStale());
+    }
+}
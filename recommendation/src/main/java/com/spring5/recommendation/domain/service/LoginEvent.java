@@ -0,0 +1,15 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sent by movie-service after a user logs in
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginEvent {
+    private Integer userId;
+}
@@ -0,0 +1,16 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Predicted affinity of a user for one movie, in [0, 1]; only comparable between movies for the same user
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieAffinity {
+    private Integer movieId;
+    private Double score;
+}
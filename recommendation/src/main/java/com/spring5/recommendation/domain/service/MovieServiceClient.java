@@ -0,0 +1,215 @@
+package com.spring5.recommendation.domain.service;
+
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reads movies, ratings and showtime availability from movie-service.
+ *
+ * Every endpoint has its own timeout and circuit breaker. While a circuit is open no calls are made
+ * at all, so a struggling movie-service is not hit again by every request and fallback. Instead,
+ * movies and a user's ratings are served from the last good response (a user's ratings also from
+ * the current model), and the request's {@link StaleMarker} is set so the response can say so.
+ * All-ratings and showtime errors are passed on: their callers keep the model or index they have,
+ * which is the last good snapshot of that data.
+ */
+@Component
+public class MovieServiceClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovieServiceClient.class);
+
+    private final WebClient webClient;
+    private final ModelRegistry modelRegistry;
+    private final CircuitBreaker moviesBreaker;
+    private final CircuitBreaker userRatingsBreaker;
+    private final CircuitBreaker allRatingsBreaker;
+    private final CircuitBreaker showtimesBreaker;
+    private final Map<Integer, List<Rating>> userRatingsSnapshots;
+
+    private volatile List<Movie> moviesSnapshot;
+
+    @Value("${movie.service.url:http://localhost:8081}")
+    private String movieServiceUrl;
+
+    @Value("${movie.service.timeout-millis.movies:10000}")
+    private long moviesTimeoutMillis = 10000;
+
+    @Value("${movie.service.timeout-millis.user-ratings:2000}")
+    private long userRatingsTimeoutMillis = 2000;
+
+    @Value("${movie.service.timeout-millis.all-ratings:120000}")
+    private long allRatingsTimeoutMillis = 120000;
+
+    @Value("${movie.service.timeout-millis.showtimes:30000}")
+    private long showtimesTimeoutMillis = 30000;
+
+    /**
+     * Default breaker settings and no model fallback, for tools and tests
+     */
+    public MovieServiceClient(WebClient.Builder webClientBuilder) {
+        this(webClientBuilder, null, 50, 20, 10, 30, 10000);
+    }
+
+    @Autowired
+    public MovieServiceClient(
+            WebClient.Builder webClientBuilder,
+            ModelRegistry modelRegistry,
+            @Value("${movie.service.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${movie.service.circuit-breaker.sliding-window:20}") int slidingWindow,
+            @Value("${movie.service.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${movie.service.circuit-breaker.open-seconds:30}") long openSeconds,
+            @Value("${movie.service.snapshot.max-users:10000}") int maxUserSnapshots) {
+        this.webClient = webClientBuilder.build();
+        this.modelRegistry = modelRegistry;
+
+        // After openSeconds one trial call decides whether the circuit closes again
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindow)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofSeconds(openSeconds))
+                .permittedNumberOfCallsInHalfOpenState(1)
+                .build());
+        this.moviesBreaker = breaker(breakers, "movies");
+        this.userRatingsBreaker = breaker(breakers, "user-ratings");
+        this.allRatingsBreaker = breaker(breakers, "all-ratings");
+        this.showtimesBreaker = breaker(breakers, "showtimes");
+
+        this.userRatingsSnapshots = Collections.synchronizedMap(new LinkedHashMap<Integer, List<Rating>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Rating>> eldest) {
+                return size() > maxUserSnapshots;
+            }
+        });
+    }
+
+    public Flux<Movie> fetchAllMovies() {
+        return call(moviesBreaker, moviesTimeoutMillis, () -> get(URI.create(movieServiceUrl + "/movies"), Movie.class))
+                .doOnNext(movies -> {
+                    if (!movies.isEmpty()) {
+                        moviesSnapshot = movies;
+                    }
+                })
+                .onErrorResume(error -> snapshot(moviesBreaker, error, moviesSnapshot))
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    public Flux<Rating> fetchUserRatings(Integer userId) {
+        return call(userRatingsBreaker, userRatingsTimeoutMillis,
+                () -> get(URI.create(movieServiceUrl + "/ratings/user/" + userId), Rating.class))
+                .doOnNext(ratings -> userRatingsSnapshots.put(userId, ratings))
+                .onErrorResume(error -> snapshot(userRatingsBreaker, error, userRatingsSnapshot(userId)))
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * Every rating; errors are passed on so a retrain keeps the current model instead of training on nothing
+     */
+    public Flux<Rating> fetchAllRatings() {
+        return call(allRatingsBreaker, allRatingsTimeoutMillis, () -> get(URI.create(movieServiceUrl + "/ratings"), Rating.class))
+                .doOnError(error -> LOG.warn("Could not fetch all ratings: {}", error.getMessage()))
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * Showtimes in [from, to], only those changed after updatedSince if it is not null
+     */
+    public Flux<Showtime> fetchShowtimeAvailability(LocalDateTime from, LocalDateTime to, LocalDateTime updatedSince) {
+        String uri = movieServiceUrl + "/theater-movies/availability?from=" + from + "&to=" + to
+                + (updatedSince != null ? "&updatedSince=" + updatedSince : "");
+        return call(showtimesBreaker, showtimesTimeoutMillis, () -> get(URI.create(uri), Showtime.class))
+                .doOnError(error -> LOG.warn("Error fetching showtime availability: {}", error.getMessage()))
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    private <T> Flux<T> get(URI uri, Class<T> type) {
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(type);
+    }
+
+    /**
+     * One call through the breaker, failing fast without a request while the circuit is open
+     */
+    private static <T> Mono<List<T>> call(CircuitBreaker breaker, long timeoutMillis, Supplier<Flux<T>> request) {
+        return Mono.defer(() -> {
+            if (!breaker.tryAcquirePermission()) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(breaker));
+            }
+            long start = System.nanoTime();
+            return request.get()
+                    .collectList()
+                    .timeout(Duration.ofMillis(timeoutMillis))
+                    .doOnSuccess(result -> breaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(error -> breaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, error))
+                    .doOnCancel(breaker::releasePermission);
+        });
+    }
+
+    /**
+     * The last good response, marking the request stale; empty if there is none
+     */
+    private static <T> Mono<List<T>> snapshot(CircuitBreaker breaker, Throwable error, List<T> snapshot) {
+        if (error instanceof CallNotPermittedException) {
+            LOG.debug("Circuit {} is open, not calling movie-service", breaker.getName());
+        } else {
+            LOG.warn("Error calling movie-service for {}: {}", breaker.getName(), error.toString());
+        }
+        if (snapshot == null) {
+            return Mono.just(Collections.emptyList());
+        }
+        return Mono.deferContextual(context -> {
+            StaleMarker.mark(context);
+            return Mono.just(snapshot);
+        });
+    }
+
+    /**
+     * The user's last fetched ratings, or else their ratings in the current model
+     */
+    private List<Rating> userRatingsSnapshot(Integer userId) {
+        List<Rating> snapshot = userRatingsSnapshots.get(userId);
+        if (snapshot != null || modelRegistry == null) {
+            return snapshot;
+        }
+        RecommendationModel model = modelRegistry.currentModel();
+        Map<Integer, Integer> known = model != null ? model.getAllUserRatings().get(userId) : null;
+        if (known == null) {
+            return null;
+        }
+        List<Rating> ratings = new ArrayList<>(known.size());
+        for (Map.Entry<Integer, Integer> rating : known.entrySet()) {
+            ratings.add(new Rating(null, userId, rating.getKey(), rating.getValue(), null, null));
+        }
+        return ratings;
+    }
+
+    private static CircuitBreaker breaker(CircuitBreakerRegistry breakers, String name) {
+        CircuitBreaker breaker = breakers.circuitBreaker(name);
+        breaker.getEventPublisher().onStateTransition(event ->
+                LOG.warn("movie-service circuit {}: {}", name, event.getStateTransition()));
+        return breaker;
+    }
+}
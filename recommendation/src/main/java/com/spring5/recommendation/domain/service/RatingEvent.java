@@ -0,0 +1,16 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sent by movie-service after a user creates, changes or deletes a rating
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingEvent {
+    private Integer userId;
+    private Integer movieId;
+}
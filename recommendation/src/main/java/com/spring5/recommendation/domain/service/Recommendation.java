@@ -1,16 +1,15 @@
 package com.spring5.recommendation.domain.service;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
-@AllArgsConstructor
 public class Recommendation {
     private Integer movieId;
     private String title;
     private Double score; // Recommendation score (0.0 to 1.0)
     private String reason; // Why this movie is recommended
     private String algorithm; // Which algorithm was used: "collaborative", "content-based", "hybrid"
+    private boolean stale; // Built from snapshot data or with a shard missing, see StaleMarker
 
     public Recommendation() {
         movieId = 0;
@@ -19,6 +18,14 @@ public class Recommendation {
         reason = null;
         algorithm = null;
     }
+
+    public Recommendation(Integer movieId, String title, Double score, String reason, String algorithm) {
+        this.movieId = movieId;
+        this.title = title;
+        this.score = score;
+        this.reason = reason;
+        this.algorithm = algorithm;
+    }
 }
 
 
@@ -0,0 +1,55 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Attribute filters for recommendation endpoints, bound from query parameters, e.g.
+ * ?genre=Sci-Fi&language=English&maxCertification=PG-13&minYear=2000.
+ * Several values of one attribute match any of them; different attributes must all match.
+ */
+@Data
+@NoArgsConstructor
+public class RecommendationFilter {
+    private List<String> genre;
+    private List<String> language;
+    private String maxCertification; // G, PG, PG-13, R or NC-17
+    private Integer minYear;
+    private Integer maxYear;
+
+    public boolean isEmpty() {
+        return (genre == null || genre.isEmpty())
+                && (language == null || language.isEmpty())
+                && maxCertification == null
+                && minYear == null
+                && maxYear == null;
+    }
+
+    /**
+     * The filter as query parameters ("&name=value..."), empty if there is none; used to forward it to shards
+     */
+    public String toQueryString() {
+        StringBuilder query = new StringBuilder();
+        if (genre != null) {
+            genre.forEach(value -> append(query, "genre", value));
+        }
+        if (language != null) {
+            language.forEach(value -> append(query, "language", value));
+        }
+        append(query, "maxCertification", maxCertification);
+        append(query, "minYear", minYear);
+        append(query, "maxYear", maxYear);
+        return query.toString();
+    }
+
+    private static void append(StringBuilder query, String name, Object value) {
+        if (value != null) {
+            query.append('&').append(name).append('=')
+                    .append(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a ranked recommendation list; pass nextCursor back to get the following page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationPage {
+    private List<Recommendation> recommendations;
+    private String nextCursor; // null on the last page
+}
@@ -1,22 +1,89 @@
 package com.spring5.recommendation.domain.service;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Every user endpoint also accepts the attribute filters of {@link RecommendationFilter} as query parameters;
+ * they are applied before scoring, so a filtered request still returns up to limit results.
+ */
 @CrossOrigin(origins = {"http://localhost:4200", "http://localhost:80", "http://localhost"})
 public interface RecommendationService {
 
     @GetMapping(value = "/recommendations/user/{userId}", produces = "application/json")
-    Flux<Recommendation> getRecommendationsForUser(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit);
+    Flux<Recommendation> getRecommendationsForUser(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit, RecommendationFilter filter);
 
     @GetMapping(value = "/recommendations/user/{userId}/collaborative", produces = "application/json")
-    Flux<Recommendation> getCollaborativeFilteringRecommendations(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit);
+    Flux<Recommendation> getCollaborativeFilteringRecommendations(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit, RecommendationFilter filter);
 
     @GetMapping(value = "/recommendations/user/{userId}/content-based", produces = "application/json")
-    Flux<Recommendation> getContentBasedRecommendations(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit);
+    Flux<Recommendation> getContentBasedRecommendations(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit, RecommendationFilter filter);
 
     @GetMapping(value = "/recommendations/user/{userId}/hybrid", produces = "application/json")
-    Flux<Recommendation> getHybridRecommendations(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit);
-}
+    Flux<Recommendation> getHybridRecommendations(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit, RecommendationFilter filter);
+
+    /**
+     * Hybrid recommendations as Server-Sent Events, each carrying a complete list that replaces the previous one:
+     * "preview" (popular movies, within milliseconds), "refined" as collaborative and content-based scoring
+     * complete, and "final", the combined hybrid list. A cached hybrid list is sent as "final" straight away.
+     */
+    @GetMapping(value = "/recommendations/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<ServerSentEvent<List<Recommendation>>> streamRecommendations(@PathVariable Integer userId, @RequestParam(defaultValue = "10") Integer limit, RecommendationFilter filter);
+
+    /**
+     * Recommendations among the movies with seats left in the city between from and to (inclusive dates,
+     * default: the next week), each with its best showtime
+     */
+    @GetMapping(value = "/recommendations/user/{userId}/bookable", produces = "application/json")
+    Flux<BookableRecommendation> getBookableRecommendations(@PathVariable Integer userId, @RequestParam String city,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @RequestParam(defaultValue = "10") Integer limit,
+                                                            RecommendationFilter filter);
 
+    /**
+     * One page of a ranked list ("hybrid", "collaborative" or "content-based"). The first call (no cursor)
+     * computes the list once; pass the returned nextCursor to read the following pages from it.
+     */
+    @GetMapping(value = "/recommendations/user/{userId}/{algorithm}/page", produces = "application/json")
+    Mono<RecommendationPage> getRecommendationPage(@PathVariable Integer userId, @PathVariable String algorithm,
+                                                   @RequestParam(defaultValue = "10") Integer size,
+                                                   @RequestParam(required = false) String cursor,
+                                                   RecommendationFilter filter);
 
+    /**
+     * Shard-local top-K for one algorithm ("collaborative" or "content-based") over the movies this shard owns,
+     * for the user described by the profile; called by the ShardCoordinator
+     */
+    @PostMapping(value = "/recommendations/shard/user/{userId}/{algorithm}", consumes = "application/json", produces = "application/json")
+    Flux<Recommendation> getShardRecommendations(@PathVariable Integer userId, @PathVariable String algorithm, @RequestParam(defaultValue = "10") Integer limit,
+                                                 RecommendationFilter filter, @RequestBody ShardProfile profile);
+
+    /**
+     * Predicted affinity of the user for each requested movie (at most 1000 per call), in request order
+     */
+    @PostMapping(value = "/recommendations/user/{userId}/scores", consumes = "application/json", produces = "application/json")
+    Flux<MovieAffinity> scoreMovies(@PathVariable Integer userId, @RequestBody ScoreRequest request);
+
+    /**
+     * A user's rating changed: their cached list is dropped and recomputed in the background
+     */
+    @PostMapping(value = "/recommendations/events/rating", consumes = "application/json")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    Mono<Void> onRatingChanged(@RequestBody RatingEvent event);
+
+    /**
+     * A user logged in: their list is precomputed into the cache in the background, rate-limited and deduplicated
+     */
+    @PostMapping(value = "/recommendations/events/login", consumes = "application/json")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    Mono<Void> onLogin(@RequestBody LoginEvent event);
+}
@@ -0,0 +1,17 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A batch of movies to score for one user, e.g. the title matches of a search
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreRequest {
+    private List<Integer> movieIds;
+}
@@ -0,0 +1,33 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What a shard needs to know about the user besides its own part of the model, sent by the coordinator:
+ * the user's ratings, and the catalog rows and TF-IDF vectors of the rated movies, most of which
+ * live on other shards
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardProfile {
+    private List<Rating> ratings;
+    private List<Movie> ratedMovies;
+    private List<TextVector> ratedVectors;
+
+    /**
+     * A movie's full-precision TF-IDF vector as parallel index and weight arrays
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TextVector {
+        private Integer movieId;
+        private int[] indices;
+        private float[] values;
+    }
+}
@@ -0,0 +1,25 @@
+package com.spring5.recommendation.domain.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One showtime with seats, as listed by movie-service's /theater-movies/availability
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Showtime {
+    private Integer theaterMovieId;
+    private Integer movieId;
+    private Integer theaterId;
+    private String theaterName;
+    private String city;
+    private LocalDateTime showTime;
+    private Integer availableSeats;
+    private Double price;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,52 @@
+package com.spring5.recommendation.domain.service;
+
+import reactor.core.publisher.Flux;
+import reactor.util.context.ContextView;
+
+/**
+ * Carried in the Reactor context of a request; {@link MovieServiceClient} sets it when it answers
+ * from its last good snapshot instead of a live movie-service call, and the shard coordinator when
+ * a shard's part of the answer is missing or was itself stale. Stale lists are never cached.
+ */
+public final class StaleMarker {
+
+    private static final String KEY = StaleMarker.class.getName();
+
+    private volatile boolean stale;
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Tag every recommendation stale if any data it was built from was. Nested calls share the outermost marker.
+     */
+    public static Flux<Recommendation> tag(Flux<Recommendation> recommendations) {
+        return track(Flux.deferContextual(context -> recommendations.map(recommendation -> {
+            if (isStale(context)) {
+                recommendation.setStale(true);
+            }
+            return recommendation;
+        })));
+    }
+
+    /**
+     * Give the flux a marker of its own unless it already runs inside one
+     */
+    public static <T> Flux<T> track(Flux<T> flux) {
+        return Flux.deferContextual(context -> context.hasKey(KEY)
+                ? flux
+                : flux.contextWrite(inner -> inner.put(KEY, new StaleMarker())));
+    }
+
+    /**
+     * True if something in this request was answered from a snapshot so far
+     */
+    public static boolean isStale(ContextView context) {
+        return context.<StaleMarker>getOrEmpty(KEY).map(StaleMarker::isStale).orElse(false);
+    }
+
+    public static void mark(ContextView context) {
+        context.<StaleMarker>getOrEmpty(KEY).ifPresent(marker -> marker.stale = true);
+    }
+}
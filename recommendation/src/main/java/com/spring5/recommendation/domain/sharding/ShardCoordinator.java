@@ -0,0 +1,108 @@
+package com.spring5.recommendation.domain.sharding;
+
+import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.service.RecommendationFilter;
+import com.spring5.recommendation.domain.service.ShardProfile;
+import com.spring5.recommendation.domain.service.StaleMarker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Fans a user's query out to every shard and merges the local top-K lists.
+ * Each shard only scores the movies it owns, so the merged top-K equals the
+ * single-node top-K as long as every shard returns at least K of its own.
+ *
+ * Enabled when recommendation.sharding.shard-urls lists the shard base URLs. Shards hold only their
+ * own movies (see {@link ShardPartitioner}), so the coordinator runs unsharded and sends every shard the
+ * user's {@link ShardProfile}, built from its full model.
+ */
+@Component
+public class ShardCoordinator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    /**
+     * Best score first; ties by lower movie id so merged and single-node order agree
+     */
+    public static final Comparator<Recommendation> RANKING = Comparator
+            .comparing(Recommendation::getScore, Comparator.reverseOrder())
+            .thenComparing(Recommendation::getMovieId);
+
+    private final WebClient webClient;
+    private final List<String> shardUrls;
+
+    @Autowired
+    public ShardCoordinator(
+            WebClient.Builder webClientBuilder,
+            @Value("${recommendation.sharding.shard-urls:}") List<String> shardUrls) {
+        this.webClient = webClientBuilder.build();
+        this.shardUrls = new ArrayList<>();
+        for (String url : shardUrls) {
+            if (url != null && !url.trim().isEmpty()) {
+                this.shardUrls.add(url.trim());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return !shardUrls.isEmpty();
+    }
+
+    /**
+     * Query all shards in parallel for one algorithm and merge their local top-K lists.
+     * A failing shard is logged and left out, so the caller still gets the other shards' results,
+     * but the request is marked stale: the list is incomplete, must not be cached and says so.
+     * The filter is forwarded so each shard applies it before scoring. Shards score the profile's
+     * ratings; whether those are fresh was settled when the coordinator fetched them.
+     */
+    public Flux<Recommendation> fanOut(Integer userId, String algorithm, int limit, RecommendationFilter filter,
+                                       ShardProfile profile) {
+        String query = "?limit=" + limit + filter.toQueryString();
+        return Flux.deferContextual(context -> Flux.fromIterable(shardUrls)
+                .flatMap(shardUrl -> webClient.post()
+                        .uri(URI.create(shardUrl + "/recommendations/shard/user/" + userId + "/" + algorithm + query))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .bodyValue(profile)
+                        .retrieve()
+                        .bodyToFlux(Recommendation.class)
+                        .collectList()
+                        .onErrorResume(error -> {
+                            LOG.warn("Shard {} failed for user {} ({}): {}", shardUrl, userId, algorithm, error.getMessage());
+                            StaleMarker.mark(context);
+                            return Mono.just(Collections.emptyList());
+                        }))
+                .collectList()
+                .flatMapIterable(shardResults -> mergeTopK(shardResults, limit)));
+    }
+
+    /**
+     * K-way merge of per-shard ranked lists into the global top-K
+     */
+    public static List<Recommendation> mergeTopK(List<List<Recommendation>> shardResults, int limit) {
+        PriorityQueue<Recommendation> merged = new PriorityQueue<>(RANKING);
+        for (List<Recommendation> shardResult : shardResults) {
+            merged.addAll(shardResult);
+        }
+
+        List<Recommendation> topK = new ArrayList<>(Math.min(limit, merged.size()));
+        Set<Integer> seen = new HashSet<>();
+        while (!merged.isEmpty() && topK.size() < limit) {
+            Recommendation next = merged.poll();
+            if (seen.add(next.getMovieId())) {
+                topK.add(next);
+            }
+        }
+        return topK;
+    }
+}
@@ -0,0 +1,93 @@
+package com.spring5.recommendation.domain.sharding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Decides which recommendation-service instance owns a movie.
+ * Movies are split across shard-count instances either by hash of the movie id
+ * or by movie-id ranges (range-bounds are the N-1 ascending split points).
+ *
+ * recommendation.sharding.shard-count=1 (the default) means every instance owns every movie.
+ *
+ * A shard keeps only the catalog rows and TF-IDF vectors of the movies it owns (see ModelRegistry#install)
+ * and scores only those. The rated movies that build a user's profile mostly live elsewhere, so the
+ * coordinator, which runs unsharded, sends their rows and vectors with each shard request (ShardProfile).
+ * Global parts: IDF, which every vector was weighted with before the split, the filter bitmaps
+ * (CatalogIndex) and every user's ratings, because user similarity spans all movies.
+ * Shards only answer shard requests; every other endpoint is served by the coordinator.
+ */
+@Component
+public class ShardPartitioner {
+
+    public enum Strategy { HASH, RANGE }
+
+    private final int shardCount;
+    private final int shardIndex;
+    private final Strategy strategy;
+    private final int[] rangeBounds;
+
+    @Autowired
+    public ShardPartitioner(
+            @Value("${recommendation.sharding.shard-count:1}") int shardCount,
+            @Value("${recommendation.sharding.shard-index:0}") int shardIndex,
+            @Value("${recommendation.sharding.strategy:hash}") String strategy,
+            @Value("${recommendation.sharding.range-bounds:}") int[] rangeBounds) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shard-count must be at least 1");
+        }
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("shard-index must be between 0 and " + (shardCount - 1));
+        }
+        this.shardCount = shardCount;
+        this.shardIndex = shardIndex;
+        this.strategy = Strategy.valueOf(strategy.trim().toUpperCase(Locale.ROOT));
+        this.rangeBounds = rangeBounds != null ? rangeBounds.clone() : new int[0];
+        Arrays.sort(this.rangeBounds);
+
+        if (this.strategy == Strategy.RANGE && shardCount > 1 && this.rangeBounds.length != shardCount - 1) {
+            throw new IllegalArgumentException("range strategy needs shard-count - 1 range-bounds, got " + this.rangeBounds.length);
+        }
+    }
+
+    /**
+     * Shard that owns the movie
+     */
+    public int shardOf(int movieId) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        if (strategy == Strategy.RANGE) {
+            // Number of split points <= movieId
+            int position = Arrays.binarySearch(rangeBounds, movieId);
+            return position >= 0 ? position + 1 : -position - 1;
+        }
+        // Mix the bits so consecutive ids spread evenly
+        int h = movieId * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    public boolean owns(Integer movieId) {
+        return movieId != null && shardOf(movieId) == shardIndex;
+    }
+
+    public boolean isPartitioned() {
+        return shardCount > 1;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+}
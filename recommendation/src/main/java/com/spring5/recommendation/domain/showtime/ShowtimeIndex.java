@@ -0,0 +1,193 @@
+package com.spring5.recommendation.domain.showtime;
+
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Showtime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upcoming showtimes with seats left, by city and movie, kept in sync with movie-service.
+ *
+ * The first sync loads every showtime up to horizon-days ahead. Later syncs are incremental: they fetch
+ * only the rows changed since the last one (seats sold, prices, times) plus the showtimes that have just
+ * come into the horizon, and drop past ones. A full reload every full-refresh-minutes also removes
+ * showtimes deleted upstream. Readers see an immutable snapshot that is swapped after each sync.
+ */
+@Component
+public class ShowtimeIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShowtimeIndex.class);
+
+    // Re-read changes this far back, so a row updated while the previous sync ran is not missed
+    private static final Duration WATERMARK_OVERLAP = Duration.ofSeconds(5);
+
+    private static final Comparator<Showtime> EARLIEST_FIRST = Comparator
+            .comparing(Showtime::getShowTime)
+            .thenComparing(Showtime::getTheaterMovieId);
+
+    private final MovieServiceClient movieServiceClient;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "showtime-index");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Sync state, guarded by this
+    private final Map<Integer, Showtime> byId = new HashMap<>();
+    private LocalDateTime watermark;
+    private LocalDateTime horizonEnd;
+    private LocalDateTime lastFullSync;
+
+    private volatile Map<String, Map<Integer, List<Showtime>>> byCity; // null until the first sync
+
+    @Value("${recommendation.showtimes.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${recommendation.showtimes.refresh-seconds:60}")
+    private long refreshSeconds = 60;
+
+    @Value("${recommendation.showtimes.full-refresh-minutes:30}")
+    private long fullRefreshMinutes = 30;
+
+    @Value("${recommendation.showtimes.horizon-days:14}")
+    private int horizonDays = 14;
+
+    @Value("${recommendation.showtimes.fetch-timeout-seconds:30}")
+    private long fetchTimeoutSeconds = 30;
+
+    @Autowired
+    public ShowtimeIndex(MovieServiceClient movieServiceClient) {
+        this.movieServiceClient = movieServiceClient;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::sync, 0, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return byCity != null;
+    }
+
+    /**
+     * Movies with at least one showtime with seats in the city between from and to, each with those
+     * showtimes earliest first. Showtimes that have already started are left out.
+     */
+    public Map<Integer, List<Showtime>> playing(String city, LocalDateTime from, LocalDateTime to) {
+        Map<String, Map<Integer, List<Showtime>>> current = byCity;
+        Map<Integer, List<Showtime>> movies = current != null ? current.get(normalise(city)) : null;
+        if (movies == null) {
+            return Collections.emptyMap();
+        }
+
+        LocalDateTime start = from.isAfter(LocalDateTime.now()) ? from : LocalDateTime.now();
+        Map<Integer, List<Showtime>> playing = new HashMap<>();
+        for (Map.Entry<Integer, List<Showtime>> movie : movies.entrySet()) {
+            List<Showtime> inWindow = new ArrayList<>();
+            for (Showtime showtime : movie.getValue()) {
+                if (showtime.getShowTime().isAfter(to)) {
+                    break;
+                }
+                if (!showtime.getShowTime().isBefore(start)) {
+                    inWindow.add(showtime);
+                }
+            }
+            if (!inWindow.isEmpty()) {
+                playing.put(movie.getKey(), inWindow);
+            }
+        }
+        return playing;
+    }
+
+    /**
+     * Apply a batch of fetched rows and publish a new snapshot; also used by the scheduled sync
+     */
+    public synchronized void apply(Collection<Showtime> changed, boolean full, LocalDateTime now) {
+        if (full) {
+            byId.clear();
+        }
+        for (Showtime showtime : changed) {
+            if (showtime.getTheaterMovieId() == null || showtime.getShowTime() == null) {
+                continue;
+            }
+            if (showtime.getAvailableSeats() != null && showtime.getAvailableSeats() > 0) {
+                byId.put(showtime.getTheaterMovieId(), showtime);
+            } else {
+                byId.remove(showtime.getTheaterMovieId());
+            }
+            if (showtime.getUpdatedAt() != null && (watermark == null || showtime.getUpdatedAt().isAfter(watermark))) {
+                watermark = showtime.getUpdatedAt();
+            }
+        }
+        byId.values().removeIf(showtime -> showtime.getShowTime().isBefore(now));
+
+        Map<String, Map<Integer, List<Showtime>>> snapshot = new HashMap<>();
+        for (Showtime showtime : byId.values()) {
+            snapshot.computeIfAbsent(normalise(showtime.getCity()), city -> new HashMap<>())
+                    .computeIfAbsent(showtime.getMovieId(), movieId -> new ArrayList<>())
+                    .add(showtime);
+        }
+        for (Map<Integer, List<Showtime>> movies : snapshot.values()) {
+            movies.values().forEach(showtimes -> showtimes.sort(EARLIEST_FIRST));
+        }
+        byCity = snapshot;
+    }
+
+    private void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime newHorizonEnd = now.plusDays(horizonDays);
+        boolean full = lastFullSync == null
+                || Duration.between(lastFullSync, now).toMinutes() >= fullRefreshMinutes;
+        try {
+            List<Showtime> changed = new ArrayList<>();
+            if (full) {
+                changed.addAll(fetch(now, newHorizonEnd, null));
+            } else {
+                changed.addAll(fetch(now, horizonEnd, watermark != null ? watermark.minus(WATERMARK_OVERLAP) : null));
+                // Showtimes that were scheduled long ago but only now fall inside the horizon
+                changed.addAll(fetch(horizonEnd, newHorizonEnd, null));
+            }
+            apply(changed, full, now);
+            horizonEnd = newHorizonEnd;
+            if (full) {
+                lastFullSync = now;
+            }
+            LOG.debug("Showtime index {} sync: {} rows fetched, {} showtimes with seats",
+                    full ? "full" : "incremental", changed.size(), byId.size());
+        } catch (Exception e) {
+            LOG.warn("Showtime sync failed, keeping the previous index: {}", e.getMessage());
+        }
+    }
+
+    private List<Showtime> fetch(LocalDateTime from, LocalDateTime to, LocalDateTime updatedSince) {
+        List<Showtime> showtimes = movieServiceClient.fetchShowtimeAvailability(from, to, updatedSince)
+                .collectList()
+                .block(Duration.ofSeconds(fetchTimeoutSeconds));
+        return showtimes != null ? showtimes : Collections.emptyList();
+    }
+
+    private static String normalise(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,191 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.clustering.ClusterRecommender;
+import com.spring5.recommendation.domain.controller.RecommendationServiceImpl;
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.refresh.RecommendationCache;
+import com.spring5.recommendation.domain.refresh.RecommendationRefresher;
+import com.spring5.recommendation.domain.scoring.AffinityScorer;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieAffinity;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.ScoreRequest;
+import com.spring5.recommendation.domain.sharding.ShardCoordinator;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The taste vector is the rating-weighted sum of content vectors, and the batched scoring endpoint ranks
+ * movies by it using the model's copy of the user's ratings where it has one.
+ */
+class AffinityScoringTests {
+
+    private final ContentVectorIndex index = new ContentVectorIndex();
+    private final AtomicInteger ratingFetches = new AtomicInteger();
+    private ModelRegistry registry;
+    private RecommendationModel model;
+    private RecommendationRefresher refresher;
+    private RecommendationServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        // Movies 1 and 4 share feature 0, 2 and 5 share feature 1; movie 6 has no text and 7 is not in the catalog
+        Map<Integer, SparseVector> vectors = new HashMap<>();
+        vectors.put(1, vector(new int[]{0}, new float[]{1f}));
+        vectors.put(2, vector(new int[]{1}, new float[]{1f}));
+        vectors.put(3, vector(new int[]{0, 2}, new float[]{1f, 1f}));
+        vectors.put(4, vector(new int[]{0, 3}, new float[]{1f, 0.5f}));
+        vectors.put(5, vector(new int[]{1, 3}, new float[]{1f, 0.5f}));
+
+        List<Movie> movies = new ArrayList<>();
+        for (int movieId = 1; movieId <= 6; movieId++) {
+            Movie movie = new Movie();
+            movie.setMovieId(movieId);
+            movie.setTitle("Movie " + movieId);
+            movies.add(movie);
+        }
+        movies.get(5).setRating(5.0);
+        movies.get(5).setTotalRatings(1000);
+
+        Map<Integer, Map<Integer, Integer>> allUserRatings = new HashMap<>();
+        allUserRatings.put(1, ratings(1, 5, 2, 1, 3, 3));
+        ModelMetadata metadata = new ModelMetadata(1, LocalDateTime.now(), 0, null, movies.size(), 1, 3,
+                vectors.size(), 8, false, 0);
+        model = new RecommendationModel(metadata, movies, allUserRatings, index.fromVectors(vectors, 1));
+        registry = new ModelRegistry(index);
+        service = service();
+    }
+
+    @AfterEach
+    void teardown() {
+        refresher.stop();
+    }
+
+    @Test
+    void tasteVectorWeightsVectorsByCentredRating() {
+        ContentVectors vectors = model.getContentVectors();
+
+        SparseVector taste = AffinityScorer.tasteVector(vectors, ratings(1, 5, 2, 1, 3, 3));
+
+        assertArrayEquals(new int[]{0, 1}, taste.getIndices(), "movie 3 is rated at the mean and adds nothing");
+        assertArrayEquals(new float[]{2f, -2f}, taste.getValues(), 1e-5f);
+    }
+
+    @Test
+    void flatRatingsAreCentredOnTheMiddleOfTheScale() {
+        ContentVectors vectors = model.getContentVectors();
+
+        assertArrayEquals(new float[]{1f, 1f}, AffinityScorer.tasteVector(vectors, ratings(1, 4, 2, 4)).getValues(), 1e-5f);
+        assertTrue(AffinityScorer.tasteVector(vectors, ratings(1, 3, 2, 3)).isEmpty());
+        assertTrue(AffinityScorer.tasteVector(vectors, Collections.emptyMap()).isEmpty());
+        assertTrue(AffinityScorer.tasteVector(vectors, null).isEmpty());
+    }
+
+    @Test
+    void moviesWithoutVectorsAddNothing() {
+        SparseVector taste = AffinityScorer.tasteVector(model.getContentVectors(), ratings(7, 5, 1, 1));
+
+        assertArrayEquals(new int[]{0}, taste.getIndices());
+        assertArrayEquals(new float[]{-2f}, taste.getValues(), 1e-5f);
+    }
+
+    @Test
+    void scoresFollowTasteThenPopularity() {
+        Map<Integer, Double> scores = scores(AffinityScorer.score(model, ratings(1, 5, 2, 1, 3, 3), Arrays.asList(4, 5, 6, 7)));
+
+        assertTrue(scores.get(4) > scores.get(5), "similar to the liked movie beats similar to the disliked one");
+        assertEquals(0.7 * 0.5 + 0.3 * 0.5, scores.get(7), 1e-9, "unknown movie: neutral content and prior");
+
+        Map<Integer, Double> noTaste = scores(AffinityScorer.score(model, Collections.emptyMap(), Arrays.asList(4, 6)));
+        assertTrue(noTaste.get(6) > noTaste.get(4), "without ratings the well-rated movie ranks first");
+    }
+
+    @Test
+    void scoreMoviesKeepsRequestOrderAndUsesTheModelsRatings() {
+        registry.install(model);
+
+        List<MovieAffinity> scored = service.scoreMovies(1, new ScoreRequest(Arrays.asList(5, 7, 4))).collectList().block();
+
+        assertEquals(Arrays.asList(5, 7, 4), scored.stream().map(MovieAffinity::getMovieId).collect(Collectors.toList()));
+        assertEquals(AffinityScorer.score(model, ratings(1, 5, 2, 1, 3, 3), Arrays.asList(5, 7, 4)), scored);
+        assertEquals(0, ratingFetches.get(), "user 1 is in the model");
+
+        service.scoreMovies(2, new ScoreRequest(Collections.singletonList(4))).collectList().block();
+        assertEquals(1, ratingFetches.get(), "user 2 is fetched live");
+    }
+
+    @Test
+    void scoreMoviesRejectsOversizedBatchesAndMissingModel() {
+        assertTrue(service.scoreMovies(1, new ScoreRequest(Collections.emptyList())).collectList().block().isEmpty());
+
+        ResponseStatusException noModel = assertThrows(ResponseStatusException.class,
+                () -> service.scoreMovies(1, new ScoreRequest(Collections.singletonList(4))).blockLast());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, noModel.getStatus());
+
+        registry.install(model);
+        List<Integer> tooMany = IntStream.rangeClosed(1, 1001).boxed().collect(Collectors.toList());
+        ResponseStatusException oversized = assertThrows(ResponseStatusException.class,
+                () -> service.scoreMovies(1, new ScoreRequest(tooMany)).blockLast());
+        assertEquals(HttpStatus.BAD_REQUEST, oversized.getStatus());
+    }
+
+    private RecommendationServiceImpl service() {
+        MovieServiceClient movies = new MovieServiceClient(WebClient.builder()) {
+            @Override
+            public Flux<Rating> fetchUserRatings(Integer userId) {
+                ratingFetches.incrementAndGet();
+                return Flux.just(new Rating(null, userId, 2, 5, null, null));
+            }
+        };
+        RecommendationCache cache = new RecommendationCache(false, 0, 1);
+        refresher = new RecommendationRefresher(cache, 1000, 1000, 1, 1);
+        return new RecommendationServiceImpl(movies, registry, new CollaborativeFiltering(), new ContentBasedFiltering(index),
+                index, new ShardPartitioner(1, 0, "hash", new int[0]), new ShardCoordinator(WebClient.builder(), Collections.emptyList()),
+                new ClusterRecommender(registry, 1), cache, refresher, new RankedListSessions(60, 10), new ShowtimeIndex(movies),
+                new ShadowEvaluator(false, Collections.emptyList(), 0.0, 1, 1, 1.0, 1));
+    }
+
+    private static SparseVector vector(int[] indices, float[] values) {
+        return new SparseVector(indices, values);
+    }
+
+    /**
+     * Ratings from alternating movie ids and values
+     */
+    private static Map<Integer, Integer> ratings(int... movieIdsAndRatings) {
+        Map<Integer, Integer> ratings = new HashMap<>();
+        for (int i = 0; i < movieIdsAndRatings.length; i += 2) {
+            ratings.put(movieIdsAndRatings[i], movieIdsAndRatings[i + 1]);
+        }
+        return ratings;
+    }
+
+    private static Map<Integer, Double> scores(List<MovieAffinity> affinities) {
+        return affinities.stream().collect(Collectors.toMap(MovieAffinity::getMovieId, MovieAffinity::getScore));
+    }
+}
@@ -0,0 +1,153 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.CatalogIndex;
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.clustering.ClusterRecommender;
+import com.spring5.recommendation.domain.controller.RecommendationServiceImpl;
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.refresh.RecommendationCache;
+import com.spring5.recommendation.domain.refresh.RecommendationRefresher;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.service.RecommendationFilter;
+import com.spring5.recommendation.domain.sharding.ShardCoordinator;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Attribute filters evaluated on the catalog bitmaps select exactly the matching movies, including for the
+ * popular fallback, which is served from the model.
+ */
+class CatalogFilterTests {
+
+    private final CatalogIndex index = CatalogIndex.build(Arrays.asList(
+            movie(1, "Action,Sci-Fi", "English", "PG-13", 2010),
+            movie(2, "Adventure|Sci-Fi", "English", "R", 2014),
+            movie(3, "Drama,Sci-Fi", "French", "PG", 2001),
+            movie(4, "Comedy", "English", "G", 1995),
+            movie(5, "Sci-Fi", "English", null, 2012)));
+
+    @Test
+    void emptyFilterMatchesEverything() {
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), matching(new RecommendationFilter()), "no filter restricts nothing");
+    }
+
+    @Test
+    void attributesCombine() {
+        RecommendationFilter filter = new RecommendationFilter();
+        filter.setGenre(Collections.singletonList("sci-fi"));
+        filter.setLanguage(Collections.singletonList("English"));
+        filter.setMaxCertification("PG-13");
+        assertEquals(Collections.singletonList(1), matching(filter), "R and unrated movies are excluded");
+
+        filter.setMaxCertification(null);
+        filter.setMinYear(2011);
+        assertEquals(Arrays.asList(2, 5), matching(filter));
+    }
+
+    @Test
+    void valuesOfOneAttributeMatchAny() {
+        RecommendationFilter filter = new RecommendationFilter();
+        filter.setGenre(Arrays.asList("Comedy", "Drama"));
+        assertEquals(Arrays.asList(3, 4), matching(filter));
+    }
+
+    @Test
+    void invalidFiltersAreRejected() {
+        RecommendationFilter filter = new RecommendationFilter();
+        filter.setMaxCertification("X");
+        assertThrows(IllegalArgumentException.class, () -> CatalogIndex.validate(filter));
+
+        RecommendationFilter years = new RecommendationFilter();
+        years.setMinYear(2010);
+        years.setMaxYear(2000);
+        assertThrows(IllegalArgumentException.class, () -> CatalogIndex.validate(years));
+    }
+
+    @Test
+    void popularFallbackFiltersTheModelWithoutCallingMovieService() {
+        List<Movie> movies = Arrays.asList(
+                movie(1, "Action,Sci-Fi", "English", "PG-13", 2010),
+                movie(2, "Adventure|Sci-Fi", "English", "R", 2014),
+                movie(3, "Drama,Sci-Fi", "French", "PG", 2001),
+                movie(4, "Comedy", "English", "G", 1995),
+                movie(5, "Sci-Fi", "English", null, 2012));
+        for (Movie movie : movies) {
+            movie.setRating(movie.getMovieId().doubleValue());
+            movie.setTotalRatings(100);
+        }
+        ContentVectorIndex vectors = new ContentVectorIndex();
+        ModelRegistry registry = new ModelRegistry(vectors);
+        ModelMetadata metadata = new ModelMetadata(1, LocalDateTime.now(), 0, null, movies.size(), 0, 0, 0, 0, false, 0);
+        registry.install(new RecommendationModel(metadata, movies, Collections.emptyMap(),
+                vectors.fromVectors(Collections.emptyMap(), 1)));
+
+        // A new user with no ratings gets nothing from the algorithms, so the whole list is the fallback
+        AtomicInteger catalogFetches = new AtomicInteger();
+        MovieServiceClient client = new MovieServiceClient(WebClient.builder()) {
+            @Override
+            public Flux<Rating> fetchUserRatings(Integer userId) {
+                return Flux.empty();
+            }
+
+            @Override
+            public Flux<Movie> fetchAllMovies() {
+                catalogFetches.incrementAndGet();
+                return Flux.empty(); // a cold snapshot
+            }
+        };
+        RecommendationCache cache = new RecommendationCache(false, 0, 1);
+        RecommendationRefresher refresher = new RecommendationRefresher(cache, 1000, 1000, 1, 1);
+        try {
+            RecommendationServiceImpl service = new RecommendationServiceImpl(client, registry, new CollaborativeFiltering(),
+                    new ContentBasedFiltering(vectors), vectors, new ShardPartitioner(1, 0, "hash", new int[0]),
+                    new ShardCoordinator(WebClient.builder(), Collections.emptyList()), new ClusterRecommender(registry, 1),
+                    cache, refresher, new RankedListSessions(60, 10), new ShowtimeIndex(client),
+                    new ShadowEvaluator(false, Collections.emptyList(), 0.0, 1, 1, 1.0, 1));
+
+            RecommendationFilter filter = new RecommendationFilter();
+            filter.setGenre(Collections.singletonList("sci-fi"));
+            filter.setLanguage(Collections.singletonList("English"));
+            List<Recommendation> popular = service.getHybridRecommendations(42, 10, filter).collectList().block();
+
+            assertEquals(Arrays.asList(5, 2, 1), popular.stream().map(Recommendation::getMovieId).collect(Collectors.toList()));
+            assertTrue(popular.stream().allMatch(recommendation -> "popular".equals(recommendation.getAlgorithm())));
+            assertEquals(2, service.getHybridRecommendations(42, 2, new RecommendationFilter()).count().block());
+            assertEquals(0, catalogFetches.get());
+        } finally {
+            refresher.stop();
+        }
+    }
+
+    private List<Integer> matching(RecommendationFilter filter) {
+        Predicate<Integer> eligible = index.matching(filter);
+        return Arrays.asList(1, 2, 3, 4, 5, 6).stream().filter(eligible).collect(Collectors.toList());
+    }
+
+    private static Movie movie(int movieId, String genre, String language, String certification, int year) {
+        return new Movie(movieId, "Movie " + movieId, null, genre, null, "[]", LocalDate.of(year, 1, 1), null, null,
+                0.0, 0, language, certification, null);
+    }
+}
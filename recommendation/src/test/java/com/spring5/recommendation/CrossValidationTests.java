@@ -0,0 +1,148 @@
+package com.spring5.recommendation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.evaluation.CrossValidationReport;
+import com.spring5.recommendation.domain.evaluation.CrossValidationRunner;
+import com.spring5.recommendation.domain.evaluation.OfflineRecommender;
+import com.spring5.recommendation.domain.evaluation.RecommendationEvaluator;
+import com.spring5.recommendation.domain.evaluation.SweepReport;
+import com.spring5.recommendation.domain.evaluation.SweepRequest;
+import com.spring5.recommendation.domain.evaluation.SweepRunner;
+import com.spring5.recommendation.domain.evaluation.UserKnnSweep;
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the k-fold harness and the parameter sweep on a small generated dataset and checks the rewritten metrics
+ */
+class CrossValidationTests {
+
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Horror", "Romance"};
+
+    private final RecommendationEvaluator evaluator = new RecommendationEvaluator();
+
+    @Test
+    void reportsEveryAlgorithmAndWritesJsonAndCsv(@TempDir Path directory) throws Exception {
+        writeDataset(directory);
+        ContentVectorIndex index = new ContentVectorIndex();
+        OfflineRecommender recommender = new OfflineRecommender(index, new CollaborativeFiltering(), new ContentBasedFiltering(index));
+        CrossValidationRunner runner = new CrossValidationRunner(new MovieLensDataParser(), recommender, evaluator, new ObjectMapper());
+        ReflectionTestUtils.setField(runner, "parallelism", 4);
+        ReflectionTestUtils.setField(runner, "outputDirectory", directory.resolve("reports").toString());
+
+        CrossValidationReport report = runner.run(directory.toString(), 3, 5,
+                Arrays.asList("affinity", "popular", "baseline"), 0, 7L);
+
+        assertEquals(3, report.getAlgorithms().size());
+        assertTrue(report.getUsers() > 0);
+        for (CrossValidationReport.AlgorithmResult result : report.getAlgorithms()) {
+            assertTrue(result.getUsersEvaluated() > 0, result.getAlgorithm());
+            assertEquals(0, result.getFailures(), result.getAlgorithm());
+            assertTrue(result.getPrecisionAtK() >= 0.0 && result.getPrecisionAtK() <= 1.0);
+            assertTrue(result.getRecallAtK() >= 0.0 && result.getRecallAtK() <= 1.0);
+            assertTrue(result.getP50Millis() <= result.getP99Millis());
+            assertTrue(result.getUsersPerSecond() > 0.0);
+        }
+        CrossValidationReport.AlgorithmResult baseline = report.getAlgorithms().get(2);
+        assertNotNull(baseline.getMae());
+        assertTrue(baseline.getRmse() >= baseline.getMae());
+        assertNull(report.getAlgorithms().get(0).getMae());
+
+        assertTrue(Files.exists(Paths.get(report.getJsonFile())));
+        List<String> csv = Files.readAllLines(Paths.get(report.getCsvFile()));
+        assertEquals(4, csv.size());
+        assertTrue(csv.get(3).startsWith("baseline,"));
+    }
+
+    @Test
+    void sweepRanksEveryGridPoint(@TempDir Path directory) throws Exception {
+        writeDataset(directory);
+        SweepRunner runner = new SweepRunner(new MovieLensDataParser(), evaluator, Collections.singletonList(new UserKnnSweep()));
+
+        SweepRequest request = new SweepRequest();
+        request.setDatasetPath(directory.toString());
+        request.setK(5);
+        Map<String, List<Double>> grid = new LinkedHashMap<>();
+        grid.put("minCommonItems", Arrays.asList(1.0, 3.0, 50.0));
+        grid.put("minSimilarity", Arrays.asList(0.0, 0.2));
+        request.setGrid(grid);
+
+        SweepReport report = runner.run(request);
+
+        assertEquals(6, report.getPoints());
+        assertEquals(6, report.getByAccuracy().size());
+        assertTrue(report.getUsers() > 0);
+        for (int i = 1; i < 6; i++) {
+            assertTrue(report.getByAccuracy().get(i - 1).getPrecisionAtK() >= report.getByAccuracy().get(i).getPrecisionAtK());
+            assertTrue(report.getByLatency().get(i - 1).getP95Millis() <= report.getByLatency().get(i).getP95Millis());
+        }
+        // No two users share 50 movies, so those points have no neighbours and recommend nothing
+        SweepReport.PointResult noNeighbours = report.getByAccuracy().stream()
+                .filter(point -> point.getParameters().get("minCommonItems") == 50.0)
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals(0.0, noNeighbours.getCoverage());
+        assertNull(noNeighbours.getRmse());
+        assertTrue(report.getByAccuracy().get(0).getPrecisionAtK() > 0.0);
+    }
+
+    @Test
+    void metricsCountDuplicatesOnceAndScoreGenreOverlap() {
+        List<Recommendation> recommendations = Arrays.asList(
+                recommendation(1), recommendation(1), recommendation(2), recommendation(3));
+        Set<Integer> relevant = new HashSet<>(Arrays.asList(1, 3));
+
+        assertEquals(0.5, evaluator.calculateRecallAtK(recommendations, relevant, 2), 1e-9);
+        assertEquals(1.0, evaluator.calculateRecallAtK(recommendations, relevant, 4), 1e-9);
+        assertEquals(0.75, evaluator.calculatePrecisionAtK(recommendations, relevant, 4), 1e-9);
+
+        Map<Integer, Set<String>> genres = new HashMap<>();
+        genres.put(1, new HashSet<>(Arrays.asList("Action", "Comedy")));
+        genres.put(2, new HashSet<>(Arrays.asList("Comedy", "Drama", "Romance")));
+        // Jaccard of {Action, Comedy} and {Comedy, Drama, Romance} is 1/4
+        assertEquals(0.75, evaluator.calculateDiversity(Arrays.asList(recommendation(1), recommendation(2)), genres), 1e-9);
+        assertEquals(1.0, evaluator.calculateDiversity(Arrays.asList(recommendation(8), recommendation(9)), genres), 1e-9);
+    }
+
+    /**
+     * 60 movies and 40 users; each user likes one genre and rates a fixed random subset of movies
+     */
+    private static void writeDataset(Path directory) throws Exception {
+        List<String> movies = new ArrayList<>();
+        movies.add("movieId,title,genres");
+        for (int movieId = 1; movieId <= 60; movieId++) {
+            movies.add(movieId + ",Movie " + movieId + " (2000)," + GENRES[movieId % GENRES.length]
+                    + "|" + GENRES[(movieId / GENRES.length) % GENRES.length]);
+        }
+        Files.write(directory.resolve("movies.csv"), movies);
+
+        Random random = new Random(1);
+        List<String> ratings = new ArrayList<>();
+        ratings.add("userId,movieId,rating,timestamp");
+        for (int userId = 1; userId <= 40; userId++) {
+            for (int movieId = 1; movieId <= 60; movieId++) {
+                if (random.nextInt(3) == 0) {
+                    double rating = movieId % GENRES.length == userId % GENRES.length ? 4.5 : 1.0 + random.nextInt(4);
+                    ratings.add(userId + "," + movieId + "," + rating + ",0");
+                }
+            }
+        }
+        Files.write(directory.resolve("ratings.csv"), ratings);
+    }
+
+    private static Recommendation recommendation(int movieId) {
+        return new Recommendation(movieId, null, 1.0, null, "test");
+    }
+}
@@ -0,0 +1,113 @@
+package com.spring5.recommendation;
+
+import com.spring5.fault.FaultInjectionExchangeFilter;
+import com.spring5.fault.FaultInjector;
+import com.spring5.fault.FaultRule;
+import com.spring5.recommendation.common.fault.FaultInjectionFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fault rules apply only while injection is on and only to the routes they name.
+ */
+class FaultInjectionTests {
+
+    @Test
+    void offByDefaultEvenWithRules() throws Exception {
+        FaultInjector injector = new FaultInjector(false, new MockEnvironment()
+                .withProperty("faults.inbound.[/api/recommendations/**]", "error-rate=1"));
+        MockHttpServletResponse response = serve(injector, "/api/recommendations/user/1");
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("X-Fault-Injected"));
+    }
+
+    @Test
+    void errorsAndDelaysOnlyTheMatchingRoute() throws Exception {
+        FaultInjector injector = new FaultInjector(true, new MockEnvironment()
+                .withProperty("faults.inbound.[/api/recommendations/**]", "latency=fixed:50 error-rate=1 error-status=500"));
+
+        long start = System.nanoTime();
+        MockHttpServletResponse failed = serve(injector, "/api/recommendations/user/1");
+        assertTrue(System.nanoTime() - start >= 50_000_000L, "delayed before failing");
+        assertEquals(500, failed.getStatus());
+        assertEquals("error", failed.getHeader("X-Fault-Injected"));
+
+        assertEquals(200, serve(injector, "/actuator/health").getStatus());
+    }
+
+    @Test
+    void slowBodyIsStreamedInChunks() throws Exception {
+        FaultInjector injector = new FaultInjector(true, new MockEnvironment());
+        injector.setRule(false, "/api/**", "body-chunk=4 body-delay=5");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/recommendations/user/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new FaultInjectionFilter(injector).doFilter(request, response, new MockFilterChain(
+                new HttpServlet() {
+                    @Override
+                    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                        resp.getOutputStream().write("[{\"movieId\":1}]".getBytes(StandardCharsets.UTF_8));
+                    }
+                }));
+
+        assertEquals("[{\"movieId\":1}]", response.getContentAsString());
+        assertEquals("slow-body", response.getHeader("X-Fault-Injected"));
+    }
+
+    @Test
+    void outboundRulesFailCallsWithoutReachingTheUpstream() {
+        FaultInjector injector = new FaultInjector(true, new MockEnvironment()
+                .withProperty("faults.outbound.[/movies/**]", "error-rate=1"));
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        WebClient client = WebClient.builder()
+                .filter(new FaultInjectionExchangeFilter(injector))
+                .exchangeFunction(request -> {
+                    upstreamCalls.incrementAndGet();
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).body("0123456789").build());
+                })
+                .build();
+
+        HttpStatus failed = client.get().uri("http://movie-service/movies").exchangeToMono(
+                response -> response.releaseBody().thenReturn(response.statusCode())).block();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, failed);
+        assertEquals(0, upstreamCalls.get());
+
+        injector.setRule(true, "/movies/**", "body-chunk=3 body-delay=1");
+        List<DataBuffer> chunks = client.get().uri("http://movie-service/movies").exchangeToMono(
+                response -> response.bodyToFlux(DataBuffer.class).collectList()).block();
+        assertEquals(4, chunks.size(), "10 bytes in chunks of 3");
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void rejectsUnknownSettings() {
+        assertThrows(IllegalArgumentException.class, () -> FaultRule.parse("latency=fixed:10 jitter=5"));
+        assertThrows(IllegalArgumentException.class, () -> FaultRule.parse("error-rate=2"));
+        assertThrows(IllegalArgumentException.class, () -> FaultRule.parse("latency=gamma:3"));
+    }
+
+    private static MockHttpServletResponse serve(FaultInjector injector, String path) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new FaultInjectionFilter(injector).doFilter(new MockHttpServletRequest("GET", path), response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,143 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.model.ModelLease;
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.ModelRegistryReport;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.service.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Leases keep the version they were taken on across swaps, retired versions are released after their
+ * last lease, and a rollback restores the previous version.
+ */
+class ModelRegistryTests {
+
+    private ContentVectorIndex index;
+    private ModelRegistry registry;
+
+    @BeforeEach
+    void setup() {
+        index = new ContentVectorIndex();
+        registry = new ModelRegistry(index);
+    }
+
+    @Test
+    void leaseBeforeFirstModelIsEmptyRightAway() {
+        long start = System.nanoTime();
+        ModelLease lease = registry.lease().block(Duration.ofSeconds(1));
+
+        assertNotNull(lease);
+        assertNull(lease.getModel());
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(500).toNanos());
+        lease.close();
+    }
+
+    @Test
+    void leaseKeepsItsVersionAcrossSwap() {
+        RecommendationModel first = model(1);
+        RecommendationModel second = model(2);
+        registry.install(first);
+
+        try (ModelLease lease = registry.lease().block()) {
+            registry.install(second);
+
+            assertSame(first, lease.getModel());
+            assertSame(second, registry.currentModel());
+            try (ModelLease newer = registry.acquire()) {
+                assertSame(second, newer.getModel());
+            }
+            assertEquals(1, registry.report().getInFlight().get(1L));
+        }
+        assertEquals(0, registry.report().getInFlight().get(1L));
+        assertEquals(2, index.size(), "served vectors follow the installed model");
+    }
+
+    @Test
+    void retiredVersionIsReleasedAfterItsLastLease() {
+        registry.install(model(1));
+        ModelLease lease = registry.acquire();
+        registry.install(model(2));
+        registry.install(model(3)); // version 1 is retired, version 2 becomes the rollback target
+
+        ModelRegistryReport report = registry.report();
+        assertEquals(Collections.singletonList(1L), versions(report.getDraining()));
+        assertEquals(2L, report.getPrevious().getVersion());
+        assertNotNull(lease.getModel(), "retired version stays readable while leased");
+
+        lease.close();
+        lease.close();
+        assertTrue(registry.report().getDraining().isEmpty());
+        assertNull(lease.getModel(), "released version drops its data");
+    }
+
+    @Test
+    void unleasedRetiredVersionIsReleasedAtOnce() {
+        registry.install(model(1));
+        registry.install(model(2));
+        registry.install(model(3));
+
+        assertTrue(registry.report().getDraining().isEmpty());
+        assertEquals(Arrays.asList(3L, 2L, 1L), versions(registry.report().getHistory()));
+    }
+
+    @Test
+    void rollbackRestoresPreviousVersionAndPausesUpdates() {
+        RecommendationModel first = model(1);
+        registry.install(first);
+        registry.install(model(2));
+        ModelLease onSecond = registry.acquire();
+
+        ModelMetadata restored = registry.rollback();
+
+        assertEquals(1L, restored.getVersion());
+        assertSame(first, registry.currentModel());
+        assertEquals(1, index.size());
+        assertTrue(registry.isUpdatesPaused());
+        assertNull(registry.report().getPrevious());
+        assertEquals(Collections.singletonList(2L), versions(registry.report().getDraining()));
+        assertThrows(IllegalStateException.class, registry::rollback, "only one step back");
+
+        onSecond.close();
+        assertTrue(registry.report().getDraining().isEmpty());
+
+        registry.resumeUpdates();
+        assertFalse(registry.isUpdatesPaused());
+    }
+
+    /**
+     * A model whose version number is also its number of movies and content vectors
+     */
+    private RecommendationModel model(long version) {
+        List<Movie> movies = new ArrayList<>();
+        Map<Integer, SparseVector> vectors = new HashMap<>();
+        for (int movieId = 1; movieId <= version; movieId++) {
+            Movie movie = new Movie();
+            movie.setMovieId(movieId);
+            movie.setTitle("Movie " + movieId);
+            movies.add(movie);
+            vectors.put(movieId, new SparseVector(new int[]{movieId}, new float[]{1f}));
+        }
+        ModelMetadata metadata = new ModelMetadata(version, LocalDateTime.now(), 0, null, movies.size(), 0, 0,
+                vectors.size(), vectors.size(), false, 0);
+        return new RecommendationModel(metadata, movies, Collections.emptyMap(), index.fromVectors(vectors, version));
+    }
+
+    private static List<Long> versions(List<ModelMetadata> metadata) {
+        List<Long> versions = new ArrayList<>();
+        for (ModelMetadata entry : metadata) {
+            versions.add(entry.getVersion());
+        }
+        return versions;
+    }
+}
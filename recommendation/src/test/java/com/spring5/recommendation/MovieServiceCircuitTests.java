@@ -0,0 +1,80 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.service.StaleMarker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A failing movie-service opens the circuit; requests are then answered from the last good data, tagged stale.
+ */
+class MovieServiceCircuitTests {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private MovieServiceClient client;
+
+    @BeforeEach
+    void setup() {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            calls.incrementAndGet();
+            if (failing.get()) {
+                return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("[{\"movieId\":1,\"title\":\"Heat\"},{\"movieId\":2,\"title\":\"Ronin\"}]")
+                    .build());
+        });
+        client = new MovieServiceClient(builder, null, 50, 4, 4, 60, 100);
+        ReflectionTestUtils.setField(client, "movieServiceUrl", "http://movie-service");
+    }
+
+    @Test
+    void servesLastGoodMoviesTaggedStaleAndStopsCallingOnceOpen() {
+        List<Recommendation> fresh = recommendationsFromMovies();
+        assertEquals(2, fresh.size());
+        assertFalse(fresh.get(0).isStale());
+
+        failing.set(true);
+        for (int i = 0; i < 3; i++) {
+            List<Recommendation> stale = recommendationsFromMovies();
+            assertEquals(2, stale.size(), "last good movies instead of an empty list");
+            assertTrue(stale.stream().allMatch(Recommendation::isStale));
+        }
+
+        // 4 calls in the window, 3 failed: the circuit is open and movie-service is left alone
+        int callsWhenOpened = calls.get();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, recommendationsFromMovies().size());
+        }
+        assertEquals(callsWhenOpened, calls.get());
+    }
+
+    @Test
+    void allRatingsErrorsArePassedOn() {
+        failing.set(true);
+        assertThrows(RuntimeException.class, () -> client.fetchAllRatings().collectList().block());
+    }
+
+    private List<Recommendation> recommendationsFromMovies() {
+        Flux<Recommendation> recommendations = client.fetchAllMovies()
+                .map(movie -> new Recommendation(movie.getMovieId(), movie.getTitle(), 1.0, "test", "popular"));
+        return StaleMarker.tag(recommendations).collectList().block();
+    }
+}
@@ -0,0 +1,216 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.algorithm.ContentVectors;
+import com.spring5.recommendation.domain.algorithm.MovieScore;
+import com.spring5.recommendation.domain.algorithm.QuantizedSparseVector;
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Int8 vectors stay close to the float math, and the shortlist search and the served content-based
+ * ranking agree with the exact ones once rescored.
+ */
+class QuantizedVectorTests {
+
+    @Test
+    void largestWeightMapsTo127AndNormIsKept() {
+        SparseVector vector = new SparseVector(new int[]{3, 8, 11}, new float[]{0.5f, -2.0f, 1.0f});
+
+        QuantizedSparseVector quantized = QuantizedSparseVector.quantize(vector, null);
+
+        assertEquals(2.0f / 127, quantized.getScale(), 1e-7);
+        assertEquals(vector.getNorm(), quantized.getNorm(), 1e-12);
+        assertFalse(quantized.hasFullPrecision());
+        float[] restored = quantized.toSparseVector().getValues();
+        assertEquals(-2.0f, restored[1], 1e-6);
+        for (int i = 0; i < restored.length; i++) {
+            assertEquals(vector.getValues()[i], restored[i], quantized.getScale() / 2 + 1e-6);
+        }
+        assertArrayEquals(vector.getIndices(), quantized.toSparseVector().getIndices());
+    }
+
+    @Test
+    void integerDotProductTracksFloatCosine() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 200; trial++) {
+            SparseVector a = randomVector(random);
+            SparseVector b = randomVector(random);
+            QuantizedSparseVector qa = QuantizedSparseVector.quantize(a, null);
+            QuantizedSparseVector qb = QuantizedSparseVector.quantize(b, null);
+
+            assertEquals(qa.dotInt(qb), qb.dotInt(qa));
+            assertEquals(a.cosine(b), qa.cosine(qb), 0.02);
+        }
+    }
+
+    @Test
+    void emptyVectorsScoreZero() {
+        QuantizedSparseVector vector = QuantizedSparseVector.quantize(
+                new SparseVector(new int[]{1}, new float[]{1f}), null);
+
+        assertTrue(QuantizedSparseVector.EMPTY.isEmpty());
+        assertEquals(0, QuantizedSparseVector.EMPTY.dotInt(vector));
+        assertEquals(0.0, vector.cosine(QuantizedSparseVector.EMPTY));
+        assertTrue(QuantizedSparseVector.EMPTY.toSparseVector().isEmpty());
+    }
+
+    @Test
+    void keptFullPrecisionRestoresOriginalWeights() {
+        Map<Integer, SparseVector> vectors = randomVectors(new Random(3), 50);
+
+        Map<Integer, QuantizedSparseVector> kept = ContentVectorIndex.quantizeAll(vectors, true);
+        Map<Integer, QuantizedSparseVector> dropped = ContentVectorIndex.quantizeAll(vectors, false);
+
+        vectors.forEach((movieId, vector) -> {
+            assertTrue(kept.get(movieId).hasFullPrecision());
+            assertEquals(vector, kept.get(movieId).toSparseVector());
+            assertFalse(dropped.get(movieId).hasFullPrecision());
+        });
+    }
+
+    @Test
+    void scanOnlyReturnsInt8RankingWithoutQuery() {
+        Map<Integer, SparseVector> vectors = randomVectors(new Random(5), 80);
+        Map<Integer, QuantizedSparseVector> quantized = ContentVectorIndex.quantizeAll(vectors, false);
+
+        List<MovieScore> scanOnly = ContentVectorIndex.quantizedTopK(quantized, quantized.get(1), 10, 1, 0);
+
+        assertEquals(10, scanOnly.size());
+        for (int i = 0; i < scanOnly.size(); i++) {
+            MovieScore score = scanOnly.get(i);
+            assertNotEquals(1, score.getMovieId());
+            assertEquals(quantized.get(1).cosine(quantized.get(score.getMovieId())), score.getScore(), 1e-12);
+            if (i > 0) {
+                assertTrue(scanOnly.get(i - 1).getScore() >= score.getScore());
+            }
+        }
+    }
+
+    @Test
+    void rescoringAShortlistCoveringEveryMovieMatchesExactSearch() {
+        Map<Integer, SparseVector> vectors = randomVectors(new Random(9), 80);
+        Map<Integer, QuantizedSparseVector> quantized = ContentVectorIndex.quantizeAll(vectors, true);
+
+        for (int movieId = 1; movieId <= 10; movieId++) {
+            List<MovieScore> exact = ContentVectorIndex.exactTopK(vectors, vectors.get(movieId), 5, movieId);
+            List<MovieScore> rescored = ContentVectorIndex.quantizedTopK(quantized, quantized.get(movieId), 5, movieId, 16);
+
+            assertEquals(ids(exact), ids(rescored));
+            for (int i = 0; i < exact.size(); i++) {
+                assertEquals(exact.get(i).getScore(), rescored.get(i).getScore(), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void fullPrecisionViewScoresPairsFromTheKeptWeights() {
+        Map<Integer, SparseVector> vectors = randomVectors(new Random(13), 20);
+        ContentVectors kept = ContentVectorIndex.wrap(vectors, 0, true, true, 4);
+        ContentVectors dropped = ContentVectorIndex.wrap(vectors, 0, true, false, 4);
+
+        assertTrue(kept.rescoresShortlists());
+        assertFalse(dropped.rescoresShortlists(), "rescoring dequantized weights would repeat the int8 scores");
+        assertSame(dropped, dropped.fullPrecision());
+        for (int movieId = 2; movieId <= 20; movieId++) {
+            double exact = vectors.get(1).cosine(vectors.get(movieId));
+            assertEquals(exact, kept.fullPrecision().cosineSimilarity(1, movieId), 1e-12);
+            assertEquals(exact, kept.cosineSimilarity(1, movieId), 0.02);
+        }
+    }
+
+    @Test
+    void servedContentBasedRescoresOnlyTheInt8Shortlist() {
+        Map<Integer, SparseVector> vectors = randomVectors(new Random(17), 80);
+        List<Movie> movies = new ArrayList<>();
+        for (int movieId = 1; movieId <= 80; movieId++) {
+            Movie movie = new Movie();
+            movie.setMovieId(movieId);
+            movies.add(movie);
+        }
+        List<Rating> userRatings = Collections.singletonList(new Rating(null, 1, 1, 5, null, null));
+        ContentVectorIndex index = new ContentVectorIndex();
+        List<Integer> candidateCounts = new ArrayList<>();
+        // Ranks by text similarity to movie 1, which is what the rescore changes
+        ContentBasedFiltering contentBased = new ContentBasedFiltering(index) {
+            @Override
+            public List<Recommendation> getRecommendations(List<Movie> candidates, List<Rating> ratings, int limit) {
+                candidateCounts.add(candidates.size());
+                return candidates.stream()
+                        .filter(movie -> movie.getMovieId() != 1)
+                        .map(movie -> new Recommendation(movie.getMovieId(), null,
+                                index.cosineSimilarity(1, movie.getMovieId()), "test", "content-based"))
+                        .sorted(Comparator.comparing(Recommendation::getScore).reversed())
+                        .limit(limit)
+                        .collect(Collectors.toList());
+            }
+        };
+
+        List<Recommendation> exact;
+        try (ContentVectorIndex.Pin pin = index.pin(ContentVectorIndex.wrap(vectors, 0, false, false, 0))) {
+            exact = contentBased.getRescoredRecommendations(movies, userRatings, 5);
+        }
+        candidateCounts.clear();
+        List<Recommendation> served;
+        try (ContentVectorIndex.Pin pin = index.pin(ContentVectorIndex.wrap(vectors, 0, true, true, 4))) {
+            served = contentBased.getRescoredRecommendations(movies, userRatings, 5);
+        }
+
+        assertEquals(Arrays.asList(80, 21), candidateCounts, "int8 pass over all, rescore of 20 plus the rated movie");
+        assertEquals(exact.stream().map(Recommendation::getMovieId).collect(Collectors.toList()),
+                served.stream().map(Recommendation::getMovieId).collect(Collectors.toList()));
+        for (int i = 0; i < exact.size(); i++) {
+            assertEquals(exact.get(i).getScore(), served.get(i).getScore(), 1e-12);
+        }
+    }
+
+    @Test
+    void shardSliceWithProfileVectorsScoresLikeTheFullSet() {
+        Map<Integer, SparseVector> vectors = randomVectors(new Random(19), 40);
+        ContentVectors full = ContentVectorIndex.wrap(vectors, 7, true, true, 4);
+        Map<Integer, SparseVector> rated = new HashMap<>();
+        rated.put(2, full.getVector(2));
+        rated.put(4, full.getVector(4));
+
+        ContentVectors shard = full.retain(movieId -> movieId % 2 == 1).with(rated);
+
+        assertEquals(22, shard.size(), "odd movies plus the two rated even ones");
+        assertEquals(7, shard.getFingerprint());
+        assertTrue(shard.rescoresShortlists());
+        for (int movieId = 1; movieId <= 40; movieId += 2) {
+            assertEquals(full.cosineSimilarity(2, movieId), shard.cosineSimilarity(2, movieId), 1e-12);
+            assertEquals(full.fullPrecision().cosineSimilarity(4, movieId), shard.fullPrecision().cosineSimilarity(4, movieId), 1e-12);
+        }
+        assertEquals(-1.0, shard.cosineSimilarity(6, 1), "not owned and not rated");
+    }
+
+    private static Map<Integer, SparseVector> randomVectors(Random random, int count) {
+        Map<Integer, SparseVector> vectors = new HashMap<>();
+        for (int movieId = 1; movieId <= count; movieId++) {
+            vectors.put(movieId, randomVector(random));
+        }
+        return vectors;
+    }
+
+    private static SparseVector randomVector(Random random) {
+        int[] indices = random.ints(5 + random.nextInt(30), 0, 64).sorted().distinct().toArray();
+        float[] values = new float[indices.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat() * 3;
+        }
+        return new SparseVector(indices, values);
+    }
+
+    private static List<Integer> ids(List<MovieScore> scores) {
+        return scores.stream().map(MovieScore::getMovieId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,52 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parked ranked lists are only handed back to the same user and algorithm, and cursors round-trip.
+ */
+class RecommendationPagingTests {
+
+    private final RankedListSessions sessions = new RankedListSessions(600, 2);
+
+    @Test
+    void sessionIsScopedToUserAndAlgorithm() {
+        List<Recommendation> ranked = Arrays.asList(recommendation(1), recommendation(2));
+        String sessionId = sessions.open(7, "hybrid", ranked);
+
+        assertEquals(ranked, sessions.get(sessionId, 7, "hybrid"));
+        assertNull(sessions.get(sessionId, 8, "hybrid"));
+        assertNull(sessions.get(sessionId, 7, "collaborative"));
+    }
+
+    @Test
+    void oldestSessionIsEvicted() {
+        String first = sessions.open(1, "hybrid", Arrays.asList(recommendation(1)));
+        sessions.open(2, "hybrid", Arrays.asList(recommendation(1)));
+        sessions.open(3, "hybrid", Arrays.asList(recommendation(1)));
+
+        assertNull(sessions.get(first, 1, "hybrid"));
+    }
+
+    @Test
+    void cursorRoundTrips() {
+        RankedListSessions.Cursor cursor = RankedListSessions.decodeCursor(RankedListSessions.encodeCursor("abc-123", 40));
+        assertEquals("abc-123", cursor.getSessionId());
+        assertEquals(40, cursor.getOffset());
+
+        assertThrows(IllegalArgumentException.class, () -> RankedListSessions.decodeCursor("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> RankedListSessions.decodeCursor(
+                RankedListSessions.encodeCursor("abc", -1)));
+    }
+
+    private static Recommendation recommendation(int movieId) {
+        return new Recommendation(movieId, "Movie " + movieId, 1.0, "test", "hybrid");
+    }
+}
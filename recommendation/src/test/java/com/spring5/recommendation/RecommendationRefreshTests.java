@@ -0,0 +1,156 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.clustering.ClusterRecommender;
+import com.spring5.recommendation.domain.controller.RecommendationServiceImpl;
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.refresh.RecommendationCache;
+import com.spring5.recommendation.domain.refresh.RecommendationRefresher;
+import com.spring5.recommendation.domain.service.LoginEvent;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.RatingEvent;
+import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.sharding.ShardCoordinator;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rating events drop the user's cached list and a single coalesced refresh puts a fresh one back.
+ */
+class RecommendationRefreshTests {
+
+    private RecommendationCache cache;
+    private RecommendationRefresher refresher;
+    private final AtomicInteger refreshes = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        cache = new RecommendationCache(true, 3600, 100);
+        refresher = new RecommendationRefresher(cache, 200, 5000, 50, 2);
+        refresher.setRefreshAction((userId, limit) -> {
+            long stamp = cache.stamp();
+            refreshes.incrementAndGet();
+            cache.put(userId, stamp, limit, recommendations(limit));
+            return Mono.empty();
+        });
+    }
+
+    @AfterEach
+    void teardown() {
+        refresher.stop();
+    }
+
+    @Test
+    void burstOfRatingsTriggersOneRefresh() throws Exception {
+        cache.put(7, cache.stamp(), 10, recommendations(10));
+
+        for (int i = 0; i < 20; i++) {
+            refresher.ratingChanged(7);
+            Thread.sleep(20);
+        }
+        assertNull(cache.get(7, 10), "stale list is dropped as soon as the rating changes");
+
+        waitForRefresh();
+        assertEquals(1, refreshes.get());
+        assertEquals(10, cache.get(7, 10).size(), "next read is a cache hit");
+    }
+
+    @Test
+    void readAfterRatingChangeSkipsRefresh() throws Exception {
+        refresher.ratingChanged(7);
+        cache.put(7, cache.stamp(), 10, recommendations(10));
+
+        waitForRefresh();
+        assertEquals(0, refreshes.get());
+        assertNotNull(cache.get(7, 10));
+    }
+
+    @Test
+    void listComputedBeforeRatingChangeIsNotCached() {
+        long stamp = cache.stamp();
+        cache.invalidate(7);
+        cache.put(7, stamp, 10, recommendations(10));
+        assertNull(cache.get(7, 10));
+    }
+
+    @Test
+    void shorterListServesLargerLimitOnlyWhenComplete() {
+        cache.put(7, cache.stamp(), 10, recommendations(10));
+        assertEquals(5, cache.get(7, 5).size());
+        assertNull(cache.get(7, 20), "list may have been cut off at 10");
+
+        cache.put(8, cache.stamp(), 10, recommendations(3));
+        assertEquals(3, cache.get(8, 20).size());
+    }
+
+    @Test
+    void loginWarmsOnceWithinDedupeWindow() throws Exception {
+        assertTrue(refresher.warmUp(7));
+        assertFalse(refresher.warmUp(7), "second login within the window is ignored");
+
+        waitForRefresh();
+        assertEquals(1, refreshes.get());
+        assertNotNull(cache.get(7, 10));
+    }
+
+    @Test
+    void loginWithCachedListIsNotWarmed() {
+        cache.put(7, cache.stamp(), 10, recommendations(10));
+        assertFalse(refresher.warmUp(7));
+    }
+
+    @Test
+    void eventsWithoutUserAreBadRequests() {
+        ContentVectorIndex index = new ContentVectorIndex();
+        ModelRegistry registry = new ModelRegistry(index);
+        MovieServiceClient client = new MovieServiceClient(WebClient.builder());
+        RecommendationServiceImpl service = new RecommendationServiceImpl(client, registry, new CollaborativeFiltering(),
+                new ContentBasedFiltering(index), index, new ShardPartitioner(1, 0, "hash", new int[0]),
+                new ShardCoordinator(WebClient.builder(), Collections.emptyList()), new ClusterRecommender(registry, 1),
+                cache, refresher, new RankedListSessions(60, 10), new ShowtimeIndex(client),
+                new ShadowEvaluator(false, Collections.emptyList(), 0.0, 1, 1, 1.0, 1));
+
+        ResponseStatusException rating = assertThrows(ResponseStatusException.class,
+                () -> service.onRatingChanged(new RatingEvent(null, 3)).block());
+        assertEquals(HttpStatus.BAD_REQUEST, rating.getStatus());
+        ResponseStatusException login = assertThrows(ResponseStatusException.class,
+                () -> service.onLogin(new LoginEvent(null)).block());
+        assertEquals(HttpStatus.BAD_REQUEST, login.getStatus());
+        assertEquals(0, refresher.backlog());
+    }
+
+    private void waitForRefresh() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (refresher.backlog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        assertEquals(0, refresher.backlog());
+    }
+
+    private static List<Recommendation> recommendations(int count) {
+        Recommendation[] recommendations = new Recommendation[count];
+        for (int i = 0; i < count; i++) {
+            recommendations[i] = new Recommendation(i + 1, "Movie " + (i + 1), 1.0 - i * 0.01, "test", "hybrid");
+        }
+        return Arrays.asList(recommendations);
+    }
+}
@@ -0,0 +1,197 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.clustering.ClusterRecommender;
+import com.spring5.recommendation.domain.controller.RecommendationServiceImpl;
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.refresh.RecommendationCache;
+import com.spring5.recommendation.domain.refresh.RecommendationRefresher;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.service.RecommendationFilter;
+import com.spring5.recommendation.domain.sharding.ShardCoordinator;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The stream sends the model's popular list first, a refined list as each algorithm finishes and the full
+ * hybrid list last; a cached list is sent alone, and lists built from snapshot ratings are tagged stale.
+ */
+class RecommendationStreamTests {
+
+    private static final int USER_ID = 1;
+    private static final int LIMIT = 3;
+
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private RecommendationRefresher refresher;
+    private RecommendationServiceImpl service;
+    private MovieServiceClient client;
+
+    @BeforeEach
+    void setup() {
+        // Movies 1-6, more popular the higher the id; the user rated 1 and 2
+        List<Movie> movies = new ArrayList<>();
+        for (int movieId = 1; movieId <= 6; movieId++) {
+            Movie movie = new Movie();
+            movie.setMovieId(movieId);
+            movie.setTitle("Movie " + movieId);
+            movie.setGenre("Drama");
+            movie.setRating(movieId / 2.0);
+            movie.setTotalRatings(100);
+            movies.add(movie);
+        }
+        Map<Integer, Integer> rated = new HashMap<>();
+        rated.put(1, 5);
+        rated.put(2, 4);
+        ContentVectorIndex index = new ContentVectorIndex();
+        ModelRegistry registry = new ModelRegistry(index);
+        ModelMetadata metadata = new ModelMetadata(1, LocalDateTime.now(), 0, null, movies.size(), 1, 2, 0, 0, false, 0);
+        registry.install(new RecommendationModel(metadata, movies, Collections.singletonMap(USER_ID, rated),
+                index.fromVectors(Collections.emptyMap(), 1)));
+
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            if (failing.get()) {
+                return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("[{\"userId\":1,\"movieId\":1,\"rating\":5},{\"userId\":1,\"movieId\":2,\"rating\":4}]")
+                    .build());
+        });
+        client = new MovieServiceClient(builder, null, 50, 20, 10, 30, 100);
+        ReflectionTestUtils.setField(client, "movieServiceUrl", "http://movie-service");
+
+        // Fixed algorithm answers that overlap on movie 4, fresh objects every call as the combiner updates them
+        CollaborativeFiltering collaborative = new CollaborativeFiltering() {
+            @Override
+            public List<Recommendation> getRecommendations(Integer userId, Map<Integer, Map<Integer, Integer>> allUserRatings,
+                                                           List<Movie> candidates, List<Rating> userRatings, int limit) {
+                return Arrays.asList(recommendation(3, 0.9, "collaborative"), recommendation(4, 0.6, "collaborative"));
+            }
+        };
+        ContentBasedFiltering contentBased = new ContentBasedFiltering(index) {
+            @Override
+            public List<Recommendation> getRecommendations(List<Movie> candidates, List<Rating> userRatings, int limit) {
+                return Arrays.asList(recommendation(4, 0.8, "content-based"), recommendation(5, 0.5, "content-based"));
+            }
+        };
+
+        RecommendationCache cache = new RecommendationCache(true, 3600, 100);
+        refresher = new RecommendationRefresher(cache, 1000, 1000, 1, 1);
+        service = new RecommendationServiceImpl(client, registry, collaborative, contentBased, index,
+                new ShardPartitioner(1, 0, "hash", new int[0]), new ShardCoordinator(WebClient.builder(), Collections.emptyList()),
+                new ClusterRecommender(registry, 1), cache, refresher, new RankedListSessions(60, 10), new ShowtimeIndex(client),
+                new ShadowEvaluator(false, Collections.emptyList(), 0.0, 1, 1, 1.0, 1));
+    }
+
+    @AfterEach
+    void teardown() {
+        refresher.stop();
+    }
+
+    @Test
+    void previewThenRefinedThenFinal() {
+        StepVerifier.create(service.streamRecommendations(USER_ID, LIMIT, new RecommendationFilter()))
+                .assertNext(event -> {
+                    assertEquals("preview", event.event());
+                    assertEquals(Arrays.asList(6, 5, 4), ids(event), "popular movies the user has not rated");
+                })
+                .assertNext(event -> {
+                    assertEquals("refined", event.event());
+                    assertEquals(2, event.data().size(), "one algorithm's list");
+                })
+                .assertNext(event -> {
+                    assertEquals("refined", event.event());
+                    assertEquals(Arrays.asList(3, 4, 5), ids(event));
+                    assertEquals("hybrid", event.data().get(1).getAlgorithm());
+                })
+                .assertNext(event -> {
+                    assertEquals("final", event.event());
+                    assertEquals(Arrays.asList(3, 4, 5), ids(event));
+                    assertTrue(event.data().stream().noneMatch(Recommendation::isStale));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void cachedFinalListIsSentAlone() {
+        service.streamRecommendations(USER_ID, LIMIT, new RecommendationFilter()).blockLast();
+
+        StepVerifier.create(service.streamRecommendations(USER_ID, LIMIT, new RecommendationFilter()))
+                .assertNext(event -> {
+                    assertEquals("final", event.event());
+                    assertEquals(Arrays.asList(3, 4, 5), ids(event));
+                })
+                .verifyComplete();
+
+        RecommendationFilter filter = new RecommendationFilter();
+        filter.setGenre(Collections.singletonList("Drama"));
+        StepVerifier.create(service.streamRecommendations(USER_ID, LIMIT, filter))
+                .assertNext(event -> assertEquals("preview", event.event(), "filtered lists are not cached"))
+                .thenConsumeWhile(event -> !"final".equals(event.event()))
+                .expectNextMatches(event -> "final".equals(event.event()))
+                .verifyComplete();
+    }
+
+    @Test
+    void listsFromSnapshotRatingsAreTaggedStaleAndNotCached() {
+        client.fetchUserRatings(USER_ID).blockLast(); // the last good ratings
+        failing.set(true);
+
+        StepVerifier.create(service.streamRecommendations(USER_ID, LIMIT, new RecommendationFilter()))
+                .assertNext(event -> {
+                    assertEquals("preview", event.event());
+                    assertTrue(event.data().stream().noneMatch(Recommendation::isStale), "read from the model");
+                })
+                .assertNext(event -> assertTrue(event.data().stream().allMatch(Recommendation::isStale)))
+                .assertNext(event -> assertTrue(event.data().stream().allMatch(Recommendation::isStale)))
+                .assertNext(event -> {
+                    assertEquals("final", event.event());
+                    assertEquals(Arrays.asList(3, 4, 5), ids(event));
+                    assertTrue(event.data().stream().allMatch(Recommendation::isStale));
+                })
+                .verifyComplete();
+
+        failing.set(false);
+        StepVerifier.create(service.streamRecommendations(USER_ID, LIMIT, new RecommendationFilter()))
+                .expectNextMatches(event -> "preview".equals(event.event()))
+                .thenConsumeWhile(event -> !"final".equals(event.event()))
+                .assertNext(event -> assertTrue(event.data().stream().noneMatch(Recommendation::isStale)))
+                .verifyComplete();
+    }
+
+    private static Recommendation recommendation(int movieId, double score, String algorithm) {
+        return new Recommendation(movieId, "Movie " + movieId, score, "test", algorithm);
+    }
+
+    private static List<Integer> ids(ServerSentEvent<List<Recommendation>> event) {
+        return event.data().stream().map(Recommendation::getMovieId).collect(Collectors.toList());
+    }
+}
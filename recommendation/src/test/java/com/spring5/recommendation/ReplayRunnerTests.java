@@ -0,0 +1,81 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.evaluation.OfflineRecommender;
+import com.spring5.recommendation.domain.evaluation.ReplayReport;
+import com.spring5.recommendation.domain.evaluation.ReplayRunner;
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays a small timestamped dataset in both update modes
+ */
+class ReplayRunnerTests {
+
+    @Test
+    void bothModesAnswerTheSameRequestsAndIncrementalIsAlwaysFresh(@TempDir Path directory) throws Exception {
+        writeDataset(directory);
+        ContentVectorIndex index = new ContentVectorIndex();
+        ReplayRunner runner = new ReplayRunner(new MovieLensDataParser(),
+                new OfflineRecommender(index, new CollaborativeFiltering(), new ContentBasedFiltering(index)));
+
+        ReplayReport settings = new ReplayReport();
+        settings.setAlgorithm("popular");
+        settings.setK(5);
+        settings.setSpeedUp(300_000); // 25 hours of events in about 0.3 seconds
+        settings.setWarmupFraction(0.25);
+        settings.setCheckpointSeconds(600);
+        settings.setLookaheadSeconds(1800);
+        settings.setUsersPerCheckpoint(5);
+        settings.setRebuildIntervalMillis(1);
+
+        ReplayReport report = runner.run(directory.toString(), settings, 0, ReplayRunner.MODES);
+
+        assertEquals(500, report.getWarmupRatings());
+        assertEquals(1500, report.getReplayedRatings());
+        ReplayReport.ModeResult incremental = report.getModes().get(0);
+        ReplayReport.ModeResult fullRebuild = report.getModes().get(1);
+
+        assertEquals(0, incremental.getRatingsNeverVisible());
+        assertEquals(0, incremental.getRebuilds());
+        assertTrue(incremental.getIngestRatingsPerSecond() > 0.0);
+        assertTrue(fullRebuild.getRebuilds() > 0);
+        assertTrue(fullRebuild.getP50FreshnessLagMillis() >= incremental.getP50FreshnessLagMillis());
+
+        // Who asks depends only on the stream, not on the model
+        assertTrue(incremental.getRequests() > 0);
+        assertEquals(incremental.getRequests(), fullRebuild.getRequests());
+    }
+
+    /**
+     * 50 movies, 30 users and 2000 ratings one minute apart
+     */
+    private static void writeDataset(Path directory) throws Exception {
+        List<String> movies = new ArrayList<>();
+        movies.add("movieId,title,genres");
+        for (int movieId = 1; movieId <= 50; movieId++) {
+            movies.add(movieId + ",Movie " + movieId + " (2001)," + (movieId % 2 == 0 ? "Drama" : "Comedy"));
+        }
+        Files.write(directory.resolve("movies.csv"), movies);
+
+        Random random = new Random(3);
+        List<String> ratings = new ArrayList<>();
+        ratings.add("userId,movieId,rating,timestamp");
+        for (int i = 0; i < 2000; i++) {
+            ratings.add((1 + random.nextInt(30)) + "," + (1 + random.nextInt(50)) + "," + (1 + random.nextInt(5)) + ".0,"
+                    + (1_000_000_000L + i * 60L));
+        }
+        Files.write(directory.resolve("ratings.csv"), ratings);
+    }
+}
@@ -0,0 +1,92 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.evaluation.ShadowReport;
+import com.spring5.recommendation.domain.service.Recommendation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shadow algorithms run off the request thread and are scored against the served list.
+ */
+class ShadowEvaluatorTests {
+
+    private final ShadowEvaluator evaluator = new ShadowEvaluator(true, Arrays.asList("candidate"), 1.0, 1, 1, 1000.0, 100);
+
+    @AfterEach
+    void teardown() {
+        evaluator.stop();
+    }
+
+    @Test
+    void comparesShadowWithServedListAndCountsLaterHits() throws Exception {
+        evaluator.register("candidate", (userId, limit) -> recommendations(3, 4, 5, 6));
+
+        evaluator.served(7, 4, recommendations(1, 2, 3, 4), 1_000_000);
+        ShadowReport.Stats candidate = awaitRuns(1);
+        assertEquals(0.5, candidate.getMeanOverlap(), 1e-9);
+
+        evaluator.rated(7, 5); // only in the shadow list
+        evaluator.rated(7, 3); // in both
+        evaluator.rated(7, 3); // re-rating is not another hit
+        evaluator.rated(8, 5); // user was never sampled
+
+        ShadowReport report = evaluator.report();
+        assertEquals(2, report.getLaterRatings());
+        assertEquals(1, report.getServed().getHits());
+        assertEquals(2, report.getShadows().get("candidate").getHits());
+        assertEquals(1.0, report.getShadows().get("candidate").getHitRate(), 1e-9);
+    }
+
+    @Test
+    void servedPathDoesNotWaitAndExcessWorkIsShed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        evaluator.register("candidate", (userId, limit) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return recommendations(1);
+        });
+
+        long start = System.nanoTime();
+        for (int userId = 0; userId < 10; userId++) {
+            evaluator.served(userId, 1, recommendations(1), 0);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "served path blocked on shadow work");
+        assertTrue(evaluator.report().getShed() >= 8, "one running and one queued, the rest shed");
+
+        release.countDown();
+        awaitRuns(2);
+    }
+
+    private ShadowReport.Stats awaitRuns(long runs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            ShadowReport.Stats stats = evaluator.report().getShadows().get("candidate");
+            if (stats.getRuns() >= runs) {
+                return stats;
+            }
+            Thread.sleep(10);
+        }
+        fail("shadow work did not finish");
+        return null;
+    }
+
+    private static List<Recommendation> recommendations(int... movieIds) {
+        List<Recommendation> recommendations = new ArrayList<>();
+        for (int movieId : movieIds) {
+            recommendations.add(new Recommendation(movieId, "Movie " + movieId, 1.0, "test", "test"));
+        }
+        return recommendations;
+    }
+}
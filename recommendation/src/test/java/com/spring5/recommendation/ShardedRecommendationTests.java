@@ -0,0 +1,338 @@
+package com.spring5.recommendation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.clustering.ClusterRecommender;
+import com.spring5.recommendation.domain.controller.RecommendationServiceImpl;
+import com.spring5.recommendation.domain.evaluation.OfflineRecommender;
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.movielens.MovieLensDataParser;
+import com.spring5.recommendation.domain.movielens.MovieLensMovie;
+import com.spring5.recommendation.domain.movielens.MovieLensRating;
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.refresh.RecommendationCache;
+import com.spring5.recommendation.domain.refresh.RecommendationRefresher;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.service.RecommendationFilter;
+import com.spring5.recommendation.domain.service.ShardProfile;
+import com.spring5.recommendation.domain.sharding.ShardCoordinator;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Several in-process shard instances of the recommendation service, each holding only its own movies and queried
+ * through the shard endpoint by a coordinator's ShardCoordinator, return the same collaborative, content-based and
+ * hybrid lists as one unsharded instance running the same CollaborativeFiltering and ContentBasedFiltering on the same model.
+ */
+class ShardedRecommendationTests {
+
+    private static final String DATASET = "../datasets/ml-latest-small";
+    private static final int LIMIT = 10;
+    private static final int USERS = 10;
+
+    private static final ObjectMapper JSON = Jackson2ObjectMapperBuilder.json().build();
+    private static final List<RecommendationRefresher> REFRESHERS = new ArrayList<>();
+
+    private static Map<Integer, List<Rating>> ratingsByUser;
+    private static RecommendationModel model;
+    private static RecommendationServiceImpl singleNode;
+
+    @BeforeAll
+    static void loadDataset() throws Exception {
+        assumeTrue(Files.exists(Paths.get(DATASET, "movies.csv")), "MovieLens dataset not available");
+
+        MovieLensDataParser parser = new MovieLensDataParser();
+        Map<Integer, MovieLensMovie> catalog = parser.parseMovies(DATASET + "/movies.csv");
+        ratingsByUser = new TreeMap<>();
+        Map<Integer, Map<Integer, Integer>> allUserRatings = new HashMap<>();
+        for (MovieLensRating rating : parser.parseRatings(DATASET + "/ratings.csv")) {
+            ratingsByUser.computeIfAbsent(rating.getUserId(), id -> new ArrayList<>())
+                    .add(new Rating(null, rating.getUserId(), rating.getMovieId(), rating.getRating(), null, null));
+            allUserRatings.computeIfAbsent(rating.getUserId(), id -> new HashMap<>())
+                    .put(rating.getMovieId(), rating.getRating());
+        }
+
+        ContentVectorIndex index = new ContentVectorIndex();
+        index.updateTags(parser.parseTags(DATASET + "/tags.csv"));
+        OfflineRecommender recommender = new OfflineRecommender(index, new CollaborativeFiltering(), new ContentBasedFiltering(index));
+        model = recommender.model(catalog, recommender.vectors(catalog), allUserRatings, 1);
+
+        singleNode = instance(new ShardPartitioner(1, 0, "hash", new int[0]), coordinator(Collections.emptyList()),
+                new RecommendationCache(false, 0, 1));
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        REFRESHERS.forEach(RecommendationRefresher::stop);
+    }
+
+    @Test
+    void partitionersCoverEveryMovieExactlyOnce() {
+        List<ShardPartitioner> hash = partitioners(3, "hash", new int[0]);
+        List<ShardPartitioner> range = partitioners(3, "range", new int[]{2000, 50000});
+
+        for (Movie movie : model.getMovies()) {
+            assertEquals(1, hash.stream().filter(shard -> shard.owns(movie.getMovieId())).count());
+            assertEquals(1, range.stream().filter(shard -> shard.owns(movie.getMovieId())).count());
+        }
+    }
+
+    @Test
+    void shardsKeepOnlyTheirOwnMoviesAndVectors() {
+        List<ShardPartitioner> partitioners = partitioners(3, "hash", new int[0]);
+        int movies = 0;
+        int vectors = 0;
+        for (ShardPartitioner partitioner : partitioners) {
+            ModelRegistry registry = new ModelRegistry(new ContentVectorIndex(), partitioner);
+            registry.install(model);
+            RecommendationModel slice = registry.currentModel();
+
+            assertTrue(slice.getMovies().stream().allMatch(movie -> partitioner.owns(movie.getMovieId())));
+            assertTrue(slice.getContentVectors().movieIds().stream().allMatch(partitioner::owns));
+            assertTrue(slice.getMovies().size() < model.getMovies().size());
+            assertEquals(model.getVersion(), slice.getVersion());
+            movies += slice.getMovies().size();
+            vectors += slice.getContentVectors().size();
+        }
+        assertEquals(model.getMovies().size(), movies);
+        assertEquals(model.getContentVectors().size(), vectors);
+    }
+
+    @Test
+    void hashShardsMatchSingleNode() {
+        assertShardedEqualsSingleNode(cluster(partitioners(3, "hash", new int[0]), Collections.emptySet()),
+                new RecommendationFilter());
+    }
+
+    @Test
+    void rangeShardsMatchSingleNode() {
+        assertShardedEqualsSingleNode(cluster(partitioners(4, "range", new int[]{1000, 5000, 60000}), Collections.emptySet()),
+                new RecommendationFilter());
+    }
+
+    @Test
+    void filterIsForwardedToShards() {
+        RecommendationFilter comedies = new RecommendationFilter();
+        comedies.setGenre(Collections.singletonList("Comedy"));
+        assertShardedEqualsSingleNode(cluster(partitioners(3, "hash", new int[0]), Collections.emptySet()), comedies);
+    }
+
+    @Test
+    void failedShardOnlyLosesItsOwnMovies() {
+        List<ShardPartitioner> partitioners = partitioners(3, "hash", new int[0]);
+        RecommendationServiceImpl coordinator = cluster(partitioners, Collections.singleton(1));
+        Integer userId = ratingsByUser.keySet().iterator().next();
+
+        List<Recommendation> merged = coordinator.getContentBasedRecommendations(userId, LIMIT, new RecommendationFilter())
+                .collectList().block();
+        List<Recommendation> expected = singleNode.getContentBasedRecommendations(userId, 3 * LIMIT, new RecommendationFilter())
+                .filter(recommendation -> !partitioners.get(1).owns(recommendation.getMovieId()))
+                .take(LIMIT)
+                .collectList().block();
+
+        assertTrue(merged.stream().noneMatch(recommendation -> partitioners.get(1).owns(recommendation.getMovieId())));
+        assertTrue(merged.stream().allMatch(Recommendation::isStale));
+        assertSameRanking(expected, merged, "user " + userId);
+    }
+
+    @Test
+    void listWithAFailedShardIsTaggedStaleAndNotCached() {
+        RecommendationCache cache = new RecommendationCache(true, 3600, 100);
+        Set<Integer> failing = new HashSet<>(Collections.singleton(2));
+        RecommendationServiceImpl coordinator = cluster(partitioners(3, "hash", new int[0]), failing, cache);
+        Integer userId = ratingsByUser.keySet().iterator().next();
+
+        List<Recommendation> partial = coordinator.getHybridRecommendations(userId, LIMIT, new RecommendationFilter())
+                .collectList().block();
+        assertFalse(partial.isEmpty());
+        assertTrue(partial.stream().allMatch(Recommendation::isStale));
+        assertNull(cache.get(userId, LIMIT), "a partial list must not be cached");
+
+        failing.clear();
+        List<Recommendation> complete = coordinator.getHybridRecommendations(userId, LIMIT, new RecommendationFilter())
+                .collectList().block();
+        assertTrue(complete.stream().noneMatch(Recommendation::isStale));
+        assertSameRanking(singleNode.getHybridRecommendations(userId, LIMIT, new RecommendationFilter()).collectList().block(),
+                cache.get(userId, LIMIT), "cached once every shard answered");
+    }
+
+    @Test
+    void unknownAlgorithmIsBadRequest() {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> singleNode
+                .getShardRecommendations(1, "popular", LIMIT, new RecommendationFilter(), new ShardProfile()).blockLast());
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatus());
+    }
+
+    private void assertShardedEqualsSingleNode(RecommendationServiceImpl coordinator, RecommendationFilter filter) {
+        for (Integer userId : ratingsByUser.keySet().stream().limit(USERS).collect(Collectors.toList())) {
+            assertSameRanking(
+                    singleNode.getCollaborativeFilteringRecommendations(userId, LIMIT, filter).collectList().block(),
+                    coordinator.getCollaborativeFilteringRecommendations(userId, LIMIT, filter).collectList().block(),
+                    "collaborative, user " + userId);
+            assertSameRanking(
+                    singleNode.getContentBasedRecommendations(userId, LIMIT, filter).collectList().block(),
+                    coordinator.getContentBasedRecommendations(userId, LIMIT, filter).collectList().block(),
+                    "content-based, user " + userId);
+            assertSameRanking(
+                    singleNode.getHybridRecommendations(userId, LIMIT, filter).collectList().block(),
+                    coordinator.getHybridRecommendations(userId, LIMIT, filter).collectList().block(),
+                    "hybrid, user " + userId);
+        }
+    }
+
+    /**
+     * Same scores in the same order. Movies tied at the last score may be cut off differently,
+     * so only the ones scoring above it have to be the same movies.
+     */
+    private static void assertSameRanking(List<Recommendation> expected, List<Recommendation> actual, String message) {
+        assertEquals(expected.size(), actual.size(), message);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-12, message + ", rank " + i);
+        }
+        if (!expected.isEmpty()) {
+            double cutoff = expected.get(expected.size() - 1).getScore();
+            assertEquals(idsAbove(expected, cutoff), idsAbove(actual, cutoff), message);
+        }
+    }
+
+    private static Set<Integer> idsAbove(List<Recommendation> recommendations, double cutoff) {
+        return recommendations.stream()
+                .filter(recommendation -> recommendation.getScore() > cutoff)
+                .map(Recommendation::getMovieId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * One shard instance per partitioner, plus an unsharded coordinator instance that fans out to them.
+     * Shards in failing answer every request with 503.
+     */
+    private static RecommendationServiceImpl cluster(List<ShardPartitioner> partitioners, Set<Integer> failing) {
+        return cluster(partitioners, failing, new RecommendationCache(false, 0, 1));
+    }
+
+    private static RecommendationServiceImpl cluster(List<ShardPartitioner> partitioners, Set<Integer> failing,
+                                                     RecommendationCache coordinatorCache) {
+        List<RecommendationServiceImpl> shards = new ArrayList<>();
+        List<String> shardUrls = new ArrayList<>();
+        for (ShardPartitioner partitioner : partitioners) {
+            shards.add(instance(partitioner, coordinator(Collections.emptyList()), new RecommendationCache(false, 0, 1)));
+            shardUrls.add("http://shard-" + partitioner.getShardIndex());
+        }
+
+        WebClient.Builder transport = WebClient.builder().exchangeFunction(request -> {
+            UriComponents uri = UriComponentsBuilder.fromUri(request.url()).build();
+            int shard = Integer.parseInt(uri.getHost().substring("shard-".length()));
+            if (failing.contains(shard)) {
+                return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            }
+            List<String> path = uri.getPathSegments(); // recommendations/shard/user/{userId}/{algorithm}
+            RecommendationFilter filter = new RecommendationFilter();
+            filter.setGenre(uri.getQueryParams().get("genre"));
+            MockClientHttpRequest sent = new MockClientHttpRequest(request.method(), request.url());
+            return request.writeTo(sent, ExchangeStrategies.withDefaults())
+                    .then(Mono.defer(sent::getBodyAsString))
+                    .flatMap(profile -> shards.get(shard)
+                            .getShardRecommendations(Integer.valueOf(path.get(3)), path.get(4),
+                                    Integer.valueOf(uri.getQueryParams().getFirst("limit")), filter, read(profile))
+                            .collectList())
+                    .map(recommendations -> ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(json(recommendations))
+                            .build());
+        });
+        return instance(new ShardPartitioner(1, 0, "hash", new int[0]), new ShardCoordinator(transport, shardUrls),
+                coordinatorCache);
+    }
+
+    /**
+     * A service instance with its own registry, vector index and algorithms, serving the shared model
+     * (the part of it the partitioner owns);
+     * ratings come from the dataset instead of movie-service, and clustering and shadowing are off
+     */
+    private static RecommendationServiceImpl instance(ShardPartitioner partitioner, ShardCoordinator coordinator,
+                                                      RecommendationCache cache) {
+        ContentVectorIndex index = new ContentVectorIndex();
+        ModelRegistry registry = new ModelRegistry(index, partitioner);
+        registry.install(model);
+
+        MovieServiceClient movies = new MovieServiceClient(WebClient.builder()) {
+            @Override
+            public Flux<Rating> fetchUserRatings(Integer userId) {
+                if (partitioner.isPartitioned()) {
+                    return Flux.error(new IllegalStateException("shards score the ratings in the profile"));
+                }
+                return Flux.fromIterable(ratingsByUser.getOrDefault(userId, Collections.emptyList()));
+            }
+
+            @Override
+            public Flux<Movie> fetchAllMovies() {
+                return Flux.fromIterable(model.getMovies());
+            }
+        };
+        RecommendationRefresher refresher = new RecommendationRefresher(cache, 1000, 1000, 1, 1);
+        REFRESHERS.add(refresher);
+        return new RecommendationServiceImpl(movies, registry, new CollaborativeFiltering(), new ContentBasedFiltering(index),
+                index, partitioner, coordinator, new ClusterRecommender(registry, 1), cache, refresher,
+                new RankedListSessions(60, 10), new ShowtimeIndex(movies),
+                new ShadowEvaluator(false, Collections.emptyList(), 0.0, 1, 1, 1.0, 1));
+    }
+
+    private static ShardCoordinator coordinator(List<String> shardUrls) {
+        return new ShardCoordinator(WebClient.builder(), shardUrls);
+    }
+
+    private static List<ShardPartitioner> partitioners(int count, String strategy, int[] rangeBounds) {
+        List<ShardPartitioner> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shards.add(new ShardPartitioner(count, i, strategy, rangeBounds));
+        }
+        return shards;
+    }
+
+    private static ShardProfile read(String profile) {
+        try {
+            return JSON.readValue(profile, ShardProfile.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String json(List<Recommendation> recommendations) {
+        try {
+            return JSON.writeValueAsString(recommendations);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Showtime;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Incremental updates keep only upcoming showtimes with seats, grouped by city and movie.
+ */
+class ShowtimeIndexTests {
+
+    private final ShowtimeIndex index = new ShowtimeIndex(new MovieServiceClient(WebClient.builder()));
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Test
+    void indexesShowtimesWithSeatsByCity() {
+        index.apply(Arrays.asList(
+                showtime(1, 10, "Pune", now.plusHours(5), 40),
+                showtime(2, 10, "Pune", now.plusHours(2), 3),
+                showtime(3, 11, "Pune", now.plusDays(3), 0),
+                showtime(4, 12, "Mumbai", now.plusHours(1), 10),
+                showtime(5, 13, "Pune", now.minusHours(1), 10)), true, now);
+
+        Map<Integer, List<Showtime>> playing = index.playing("pune", now, now.plusDays(7));
+        assertEquals(Collections.singleton(10), playing.keySet(), "sold-out, past and other-city showtimes are left out");
+        assertEquals(2, playing.get(10).get(0).getTheaterMovieId(), "earliest showtime first");
+    }
+
+    @Test
+    void incrementalUpdateRemovesSoldOutShowtimes() {
+        index.apply(Arrays.asList(
+                showtime(1, 10, "Pune", now.plusHours(5), 40),
+                showtime(2, 11, "Pune", now.plusHours(2), 3)), true, now);
+        index.apply(Collections.singletonList(showtime(2, 11, "Pune", now.plusHours(2), 0)), false, now);
+
+        assertEquals(Collections.singleton(10), index.playing("Pune", now, now.plusDays(1)).keySet());
+    }
+
+    @Test
+    void windowRestrictsShowtimes() {
+        index.apply(Arrays.asList(
+                showtime(1, 10, "Pune", now.plusDays(1), 40),
+                showtime(2, 11, "Pune", now.plusDays(4), 40)), true, now);
+
+        assertEquals(Collections.singleton(11), index.playing("Pune", now.plusDays(3), now.plusDays(5)).keySet());
+    }
+
+    private Showtime showtime(int id, int movieId, String city, LocalDateTime showTime, int seats) {
+        return new Showtime(id, movieId, 1, "Theater", city, showTime, seats, 12.5, now);
+    }
+}
@@ -0,0 +1,152 @@
+package com.spring5.recommendation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.ModelTrainer;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.model.snapshot.*;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Rating;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A trainer and a server sharing a local directory: the server picks up published
+ * snapshots, verifies them and serves the same model the trainer built.
+ */
+class SnapshotReplicationTests {
+
+    @TempDir
+    Path sharedDirectory;
+
+    private ModelTrainer trainer;
+    private ModelRegistry trainerRegistry;
+    private SnapshotPublisher publisher;
+    private ModelRegistry serverRegistry;
+    private SnapshotPoller poller;
+
+    @BeforeEach
+    void setup() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        ContentVectorIndex trainerIndex = new ContentVectorIndex();
+        trainerRegistry = new ModelRegistry(trainerIndex);
+        FileSystemSnapshotStore trainerStore = new FileSystemSnapshotStore(objectMapper, sharedDirectory.toString(), 3);
+        publisher = new SnapshotPublisher(new ModelSnapshotCodec(objectMapper, trainerIndex), trainerStore);
+        trainer = new ModelTrainer(new MovieServiceClient(WebClient.builder()), trainerIndex, trainerRegistry, publisher, "trainer");
+
+        ContentVectorIndex serverIndex = new ContentVectorIndex();
+        serverRegistry = new ModelRegistry(serverIndex);
+        FileSystemSnapshotStore serverStore = new FileSystemSnapshotStore(objectMapper, sharedDirectory.toString(), 3);
+        poller = new SnapshotPoller(serverRegistry, new ModelSnapshotCodec(objectMapper, serverIndex), serverStore,
+                new HttpSnapshotSource(WebClient.builder()), "server", "filesystem");
+    }
+
+    @Test
+    void serverLoadsPublishedModel() throws Exception {
+        assertFalse(poller.poll(), "nothing published yet");
+
+        RecommendationModel trained = trainAndPublish(movies(), ratings(4));
+        assertTrue(poller.poll());
+
+        RecommendationModel served = serverRegistry.currentModel();
+        assertEquals(trained.getVersion(), served.getVersion());
+        assertEquals(trained.getMetadata(), served.getMetadata());
+        assertEquals(trained.getMovies(), served.getMovies());
+        assertEquals(trained.getAllUserRatings(), served.getAllUserRatings());
+        assertEquals(trained.getContentVectors().getFingerprint(), served.getContentVectors().getFingerprint());
+        assertEquals(trained.getContentVectors().cosineSimilarity(1, 2), served.getContentVectors().cosineSimilarity(1, 2), 1e-9);
+        assertEquals(trained.getContentVectors().cosineSimilarity(1, 3), served.getContentVectors().cosineSimilarity(1, 3), 1e-9);
+
+        assertFalse(poller.poll(), "same version is not loaded twice");
+    }
+
+    @Test
+    void corruptSnapshotIsRejected() throws Exception {
+        RecommendationModel first = trainAndPublish(movies(), ratings(4));
+        assertTrue(poller.poll());
+
+        RecommendationModel second = trainAndPublish(movies(), ratings(5));
+        Path file = sharedDirectory.resolve(FileSystemSnapshotStore.fileName(second.getVersion()));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        assertFalse(poller.poll());
+        assertEquals(first.getVersion(), serverRegistry.currentModel().getVersion());
+    }
+
+    @Test
+    void rollbackPausesSnapshotLoading() throws Exception {
+        trainAndPublish(movies(), ratings(4));
+        poller.poll();
+        RecommendationModel second = trainAndPublish(movies(), ratings(5));
+        poller.poll();
+        assertEquals(second.getVersion(), serverRegistry.currentModel().getVersion());
+
+        serverRegistry.rollback();
+        assertTrue(serverRegistry.isUpdatesPaused());
+        assertNotEquals(second.getVersion(), serverRegistry.currentModel().getVersion());
+    }
+
+    @Test
+    void editedRatingsAreRetrainedEvenWithUnchangedTimestamps() {
+        trainerRegistry.install(trainer.train(movies(), editedRatings(3, 5)));
+        assertNull(trainer.train(movies(), editedRatings(3, 5)), "same data, no new version");
+
+        RecommendationModel edited = trainer.train(movies(), editedRatings(4, 5));
+        assertNotNull(edited, "a rating edit keeps createdAt but changes the data");
+        assertEquals(4, edited.getAllUserRatings().get(10).get(1));
+
+        assertNotNull(trainer.train(movies(), editedRatings(5, 3)), "swapped values are a change too");
+    }
+
+    private RecommendationModel trainAndPublish(List<Movie> movies, List<Rating> ratings) throws Exception {
+        RecommendationModel model = trainer.train(movies, ratings);
+        trainerRegistry.install(model);
+        publisher.publish(model);
+        return model;
+    }
+
+    private static List<Movie> movies() {
+        return Arrays.asList(
+                movie(1, "Space crew stranded on a hostile planet"),
+                movie(2, "Astronauts stranded in deep space fight to survive"),
+                movie(3, "A quiet romance in a small seaside town"));
+    }
+
+    private static Movie movie(int movieId, String description) {
+        return new Movie(movieId, "Movie " + movieId, description, "Drama", null, "[]", null, null, null, 0.0, 0, null, null, null);
+    }
+
+    private static List<Rating> ratings(int rating) {
+        List<Rating> ratings = new ArrayList<>();
+        ratings.add(new Rating(1, 10, 1, rating, null, LocalDateTime.of(2024, 1, 1, 12, 0)));
+        ratings.add(new Rating(2, 10, 3, 2, null, LocalDateTime.of(2024, 1, 2, 12, 0)));
+        ratings.add(new Rating(3, 11, 2, 5, null, LocalDateTime.of(2024, 1, 3, 12, rating)));
+        return ratings;
+    }
+
+    /**
+     * Two ratings by the same user whose values change while their timestamps stay put
+     */
+    private static List<Rating> editedRatings(int first, int second) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        return Arrays.asList(new Rating(1, 10, 1, first, null, createdAt), new Rating(2, 10, 2, second, null, createdAt));
+    }
+}
@@ -0,0 +1,118 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.SparseVector;
+import com.spring5.recommendation.domain.algorithm.TfIdfVectorizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hashed TF-IDF vectors keep sorted indices, and the merge dot product and cached norms agree with the naive math.
+ */
+class TfIdfVectorTests {
+
+    private final TfIdfVectorizer vectorizer = new TfIdfVectorizer(10);
+
+    @Test
+    void vectorsHaveStrictlyAscendingIndicesAndPositiveWeights() {
+        Map<Integer, List<String>> terms = new HashMap<>();
+        terms.put(1, vectorizer.terms(Arrays.asList("dark comedy", "heist"), "A heist goes wrong in a dark city"));
+        terms.put(2, vectorizer.terms(Arrays.asList("space", "dark"), "Astronauts drift in space"));
+        terms.put(3, vectorizer.terms(Collections.singletonList("comedy"), "A comedy of errors"));
+
+        for (SparseVector vector : vectorizer.vectorize(terms).values()) {
+            int[] indices = vector.getIndices();
+            for (int i = 1; i < indices.length; i++) {
+                assertTrue(indices[i - 1] < indices[i], "indices not strictly ascending: " + Arrays.toString(indices));
+            }
+            for (float value : vector.getValues()) {
+                assertTrue(value > 0f);
+            }
+            assertTrue(indices.length == 0 || indices[indices.length - 1] < 1 << 10, "index outside the hashed feature space");
+        }
+    }
+
+    @Test
+    void termsSharedByEveryDocumentGetNoWeight() {
+        Map<Integer, List<String>> terms = new HashMap<>();
+        terms.put(1, vectorizer.terms(null, "placeholder heist"));
+        terms.put(2, vectorizer.terms(null, "placeholder space"));
+
+        Map<Integer, SparseVector> vectors = vectorizer.vectorize(terms);
+
+        assertEquals(1, vectors.get(1).size());
+        assertEquals(0.0, vectors.get(1).cosine(vectors.get(2)), 1e-12);
+    }
+
+    @Test
+    void mergeDotProductMatchesNaiveDotProduct() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 200; trial++) {
+            SparseVector a = randomVector(random);
+            SparseVector b = randomVector(random);
+
+            assertEquals(naiveDot(a, b), a.dot(b), 1e-9);
+            assertEquals(a.dot(b), b.dot(a), 1e-9);
+        }
+    }
+
+    @Test
+    void normIsCachedAndCosineUsesIt() {
+        SparseVector a = new SparseVector(new int[]{1, 4, 9}, new float[]{3f, 4f, 12f});
+        SparseVector b = new SparseVector(new int[]{4, 9, 20}, new float[]{1f, 1f, 5f});
+
+        assertEquals(13.0, a.getNorm(), 1e-9);
+        assertEquals(Math.sqrt(naiveDot(b, b)), b.getNorm(), 1e-9);
+        assertEquals(16.0 / (13.0 * b.getNorm()), a.cosine(b), 1e-9);
+        assertEquals(1.0, a.cosine(a), 1e-9);
+    }
+
+    @Test
+    void emptyVectorsHaveNoSimilarity() {
+        SparseVector a = new SparseVector(new int[]{2}, new float[]{1f});
+
+        assertTrue(SparseVector.EMPTY.isEmpty());
+        assertEquals(0.0, SparseVector.EMPTY.getNorm());
+        assertEquals(0.0, SparseVector.EMPTY.dot(a));
+        assertEquals(0.0, a.cosine(SparseVector.EMPTY));
+        assertEquals(0.0, SparseVector.EMPTY.cosine(SparseVector.EMPTY));
+
+        Map<Integer, List<String>> terms = new HashMap<>();
+        terms.put(1, vectorizer.terms(null, null));
+        terms.put(2, vectorizer.terms(Collections.singletonList("heist"), ""));
+        assertTrue(vectorizer.vectorize(terms).get(1).isEmpty());
+    }
+
+    @Test
+    void rejectsMismatchedArrays() {
+        assertThrows(IllegalArgumentException.class, () -> new SparseVector(new int[]{1, 2}, new float[]{1f}));
+    }
+
+    private static SparseVector randomVector(Random random) {
+        int[] indices = random.ints(random.nextInt(40), 0, 100).sorted().distinct().toArray();
+        float[] values = new float[indices.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat() * 2 - 1;
+        }
+        return new SparseVector(indices, values);
+    }
+
+    private static double naiveDot(SparseVector a, SparseVector b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.size(); i++) {
+            for (int j = 0; j < b.size(); j++) {
+                if (a.getIndices()[i] == b.getIndices()[j]) {
+                    sum += (double) a.getValues()[i] * b.getValues()[j];
+                }
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,225 @@
+package com.spring5.recommendation;
+
+import com.spring5.recommendation.domain.algorithm.CollaborativeFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentBasedFiltering;
+import com.spring5.recommendation.domain.algorithm.ContentVectorIndex;
+import com.spring5.recommendation.domain.clustering.ClusterRecommender;
+import com.spring5.recommendation.domain.clustering.MiniBatchKMeans;
+import com.spring5.recommendation.domain.controller.RecommendationServiceImpl;
+import com.spring5.recommendation.domain.evaluation.ShadowEvaluator;
+import com.spring5.recommendation.domain.model.ModelMetadata;
+import com.spring5.recommendation.domain.model.ModelRegistry;
+import com.spring5.recommendation.domain.model.RecommendationModel;
+import com.spring5.recommendation.domain.paging.RankedListSessions;
+import com.spring5.recommendation.domain.refresh.RecommendationCache;
+import com.spring5.recommendation.domain.refresh.RecommendationRefresher;
+import com.spring5.recommendation.domain.service.Movie;
+import com.spring5.recommendation.domain.service.MovieServiceClient;
+import com.spring5.recommendation.domain.service.Rating;
+import com.spring5.recommendation.domain.service.Recommendation;
+import com.spring5.recommendation.domain.service.RecommendationFilter;
+import com.spring5.recommendation.domain.sharding.ShardCoordinator;
+import com.spring5.recommendation.domain.sharding.ShardPartitioner;
+import com.spring5.recommendation.domain.showtime.ShowtimeIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mini-batch k-means separates distinct tastes, cluster lists skip movies the user rated,
+ * and only light users are routed to their cluster's list.
+ */
+class UserClusteringTests {
+
+    // Users 1-30 like movies 1-20 and dislike 21-40, users 31-60 the other way round
+    private static final int USERS_PER_TASTE = 30;
+    private static final int MOVIES_PER_TASTE = 20;
+
+    private final Map<Integer, List<Rating>> ratingsByUser = new HashMap<>();
+    private ModelRegistry registry;
+    private ClusterRecommender clusterRecommender;
+    private RecommendationRefresher refresher;
+
+    @BeforeEach
+    void setup() {
+        Random random = new Random(42);
+        Map<Integer, Map<Integer, Integer>> allUserRatings = new HashMap<>();
+        for (int userId = 1; userId <= 2 * USERS_PER_TASTE; userId++) {
+            boolean likesFirstHalf = userId <= USERS_PER_TASTE;
+            Map<Integer, Integer> ratings = new HashMap<>();
+            for (int movieId = 1; movieId <= 2 * MOVIES_PER_TASTE; movieId++) {
+                if (random.nextDouble() < 0.75) {
+                    boolean liked = (movieId <= MOVIES_PER_TASTE) == likesFirstHalf;
+                    ratings.put(movieId, liked ? 4 + random.nextInt(2) : 1 + random.nextInt(2));
+                }
+            }
+            allUserRatings.put(userId, ratings);
+            ratingsByUser.put(userId, ratings(userId, ratings));
+        }
+
+        List<Movie> movies = new ArrayList<>();
+        for (int movieId = 1; movieId <= 2 * MOVIES_PER_TASTE; movieId++) {
+            Movie movie = new Movie();
+            movie.setMovieId(movieId);
+            movie.setTitle("Movie " + movieId);
+            movies.add(movie);
+        }
+        ContentVectorIndex index = new ContentVectorIndex();
+        ModelMetadata metadata = new ModelMetadata(1, LocalDateTime.now(), 0, null, movies.size(), allUserRatings.size(),
+                0, 0, 0, false, 0);
+        registry = new ModelRegistry(index);
+        registry.install(new RecommendationModel(metadata, movies, allUserRatings, index.fromVectors(Collections.emptyMap(), 1)));
+
+        clusterRecommender = new ClusterRecommender(registry, 2);
+        ReflectionTestUtils.setField(clusterRecommender, "clusterCount", 2);
+        ReflectionTestUtils.setField(clusterRecommender, "batchSize", 16);
+        ReflectionTestUtils.setField(clusterRecommender, "iterations", 50);
+        ReflectionTestUtils.setField(clusterRecommender, "clusters", clusterRecommender.build(registry.currentModel()));
+    }
+
+    @AfterEach
+    void teardown() {
+        clusterRecommender.stop();
+        if (refresher != null) {
+            refresher.stop();
+        }
+    }
+
+    @Test
+    void separableProfilesConvergeToOneClusterEach() {
+        Random random = new Random(7);
+        int groups = 3;
+        int perGroup = 40;
+        float[][] points = new float[groups * perGroup][];
+        for (int i = 0; i < points.length; i++) {
+            float[] point = new float[8];
+            for (int d = 0; d < point.length; d++) {
+                point[d] = (float) (random.nextGaussian() * 0.1);
+            }
+            point[i / perGroup] += 1.0f;
+            points[i] = normalised(point);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            MiniBatchKMeans.Result result = new MiniBatchKMeans(groups, 16, 100, 11).fit(points, pool);
+            int[] assignment = result.getAssignment();
+
+            Set<Integer> clustersUsed = new HashSet<>();
+            for (int group = 0; group < groups; group++) {
+                int cluster = assignment[group * perGroup];
+                clustersUsed.add(cluster);
+                for (int i = group * perGroup; i < (group + 1) * perGroup; i++) {
+                    assertEquals(cluster, assignment[i], "point " + i + " left its group's cluster");
+                }
+                assertTrue(result.getCentroids()[cluster][group] > 0.9f, "centroid sits on its group's axis");
+            }
+            assertEquals(groups, clustersUsed.size());
+
+            assertArrayEquals(assignment, new MiniBatchKMeans(groups, 16, 100, 11).fit(points, pool).getAssignment(),
+                    "same seed, same clusters");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void clusterListSkipsRatedMoviesAndFollowsTaste() {
+        Map<Integer, Integer> ratings = new HashMap<>();
+        ratings.put(1, 5);
+        ratings.put(2, 5);
+        ratings.put(3, 4);
+        ratings.put(25, 1);
+
+        List<Recommendation> recommendations = clusterRecommender.recommend(ratings(999, ratings), 10, movieId -> true);
+
+        assertEquals(10, recommendations.size());
+        for (Recommendation recommendation : recommendations) {
+            assertFalse(ratings.containsKey(recommendation.getMovieId()), "already rated: " + recommendation.getMovieId());
+            assertTrue(recommendation.getMovieId() <= MOVIES_PER_TASTE, "outside the user's taste: " + recommendation.getMovieId());
+            assertEquals("cluster", recommendation.getAlgorithm());
+        }
+    }
+
+    @Test
+    void clusterListThatCannotFillTheRequestIsNotServed() {
+        Map<Integer, Integer> ratings = new HashMap<>();
+        ratings.put(1, 5);
+        ratings.put(25, 1);
+
+        assertTrue(clusterRecommender.recommend(ratings(999, ratings), 10, movieId -> movieId <= 5).isEmpty());
+        assertTrue(clusterRecommender.recommend(ratings(999, ratings), MOVIES_PER_TASTE, movieId -> true).isEmpty());
+    }
+
+    @Test
+    void onlyLightUsersAreServedFromClusters() {
+        ratingsByUser.put(999, ratings(999, Map.of(1, 5, 2, 5, 3, 4, 25, 1)));
+        Integer heavyUser = 1;
+        assertTrue(ratingsByUser.get(heavyUser).size() > 20, "user 1 is above the light-user threshold");
+
+        RecommendationServiceImpl service = service();
+        RecommendationFilter noFilter = new RecommendationFilter();
+
+        assertTrue(clusterRecommender.mayServe(999));
+        List<Recommendation> light = service.getHybridRecommendations(999, 5, noFilter).collectList().block();
+        assertEquals(5, light.size());
+        assertTrue(light.stream().allMatch(recommendation -> "cluster".equals(recommendation.getAlgorithm())));
+
+        assertFalse(clusterRecommender.mayServe(heavyUser));
+        List<Recommendation> heavy = service.getHybridRecommendations(heavyUser, 5, noFilter).collectList().block();
+        assertTrue(heavy.stream().noneMatch(recommendation -> "cluster".equals(recommendation.getAlgorithm())));
+
+        ReflectionTestUtils.setField(clusterRecommender, "lightUserThreshold", 2);
+        assertTrue(clusterRecommender.mayServe(999), "unknown to the model, so decided on live ratings");
+        List<Recommendation> aboveThreshold = service.getHybridRecommendations(999, 5, noFilter).collectList().block();
+        assertTrue(aboveThreshold.stream().noneMatch(recommendation -> "cluster".equals(recommendation.getAlgorithm())));
+    }
+
+    private RecommendationServiceImpl service() {
+        MovieServiceClient movies = new MovieServiceClient(WebClient.builder()) {
+            @Override
+            public Flux<Rating> fetchUserRatings(Integer userId) {
+                return Flux.fromIterable(ratingsByUser.getOrDefault(userId, Collections.emptyList()));
+            }
+
+            @Override
+            public Flux<Movie> fetchAllMovies() {
+                return Flux.fromIterable(registry.currentModel().getMovies());
+            }
+        };
+        ContentVectorIndex index = new ContentVectorIndex();
+        RecommendationCache cache = new RecommendationCache(false, 0, 1);
+        refresher = new RecommendationRefresher(cache, 1000, 1000, 1, 1);
+        return new RecommendationServiceImpl(movies, registry, new CollaborativeFiltering(), new ContentBasedFiltering(index),
+                index, new ShardPartitioner(1, 0, "hash", new int[0]), new ShardCoordinator(WebClient.builder(), Collections.emptyList()),
+                clusterRecommender, cache, refresher, new RankedListSessions(60, 10), new ShowtimeIndex(movies),
+                new ShadowEvaluator(false, Collections.emptyList(), 0.0, 1, 1, 1.0, 1));
+    }
+
+    private static List<Rating> ratings(Integer userId, Map<Integer, Integer> ratings) {
+        return ratings.entrySet().stream()
+                .map(rating -> new Rating(null, userId, rating.getKey(), rating.getValue(), null, null))
+                .collect(Collectors.toList());
+    }
+
+    private static float[] normalised(float[] vector) {
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}